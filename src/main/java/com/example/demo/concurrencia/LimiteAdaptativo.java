@@ -0,0 +1,131 @@
+package com.example.demo.concurrencia;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Limite de peticiones en curso que se ajusta con la latencia medida, al estilo del gradiente de Netflix
+ * concurrency-limits. Se compara la latencia promedio de la ultima ventana con una latencia base: mientras no pase de
+ * {@code tolerancia} veces la base el limite crece en la raiz de si mismo; cuando las peticiones empiezan a hacer
+ * cola frente al pool, el gradiente baja de 1 y el limite se reduce en proporcion (hasta la mitad por ventana). Una
+ * peticion descartada (5xx) reduce el limite de inmediato.
+ *
+ * <p>La base es el menor promedio de ventana visto, como la latencia sin carga de Vegas, pero sube despacio hacia
+ * las ventanas actuales: si la base de datos queda mas lenta de forma permanente, en unas 600 ventanas eso pasa a ser
+ * lo normal y el limite vuelve a crecer.
+ *
+ * <p>El limite no crece si menos de la mitad esta en uso: sin demanda la latencia no dice nada de la capacidad.
+ */
+public class LimiteAdaptativo {
+    private static final double FACTOR_DESCARTE = 0.9;
+    private static final double PESO_DERIVA_BASE = 2.0 / 601;
+
+    private final int minimo;
+    private final int maximo;
+    private final double tolerancia;
+    private final double suavizado;
+    private final int muestrasPorVentana;
+    private final long ventanaNanos;
+    private final LongSupplier reloj;
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private final LongAdder rechazos = new LongAdder();
+    private volatile double limite;
+
+    // estado de la ventana actual, protegido por el monitor
+    private double latenciaBase;
+    private long sumaVentana;
+    private int muestrasVentana;
+    private int maximoEnCursoVentana;
+    private long inicioVentana;
+
+    public LimiteAdaptativo(int inicial, int minimo, int maximo, double tolerancia, double suavizado,
+                            int muestrasPorVentana, long ventanaNanos) {
+        this(inicial, minimo, maximo, tolerancia, suavizado, muestrasPorVentana, ventanaNanos, System::nanoTime);
+    }
+
+    LimiteAdaptativo(int inicial, int minimo, int maximo, double tolerancia, double suavizado,
+                     int muestrasPorVentana, long ventanaNanos, LongSupplier reloj) {
+        if (minimo < 1 || inicial < minimo || maximo < inicial) {
+            throw new IllegalArgumentException("Se requiere 1 <= minimo <= inicial <= maximo.");
+        }
+        this.limite = inicial;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.tolerancia = tolerancia;
+        this.suavizado = suavizado;
+        this.muestrasPorVentana = muestrasPorVentana;
+        this.ventanaNanos = ventanaNanos;
+        this.reloj = reloj;
+        this.inicioVentana = reloj.getAsLong();
+    }
+
+    /**
+     * Reserva un lugar si hay cupo bajo el limite actual. Quien lo obtiene debe llamar a {@link #liberar}.
+     */
+    public boolean intentarAdquirir() {
+        while (true) {
+            int actuales = enCurso.get();
+            if (actuales >= (int) limite) {
+                rechazos.increment();
+                return false;
+            }
+            if (enCurso.compareAndSet(actuales, actuales + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Devuelve el lugar y registra cuanto tardo la peticion.
+     */
+    public void liberar(long latenciaNanos, boolean descartada) {
+        int actuales = enCurso.getAndDecrement();
+        synchronized (this) {
+            if (descartada) {
+                limite = Math.max(minimo, limite * FACTOR_DESCARTE);
+                return;
+            }
+            sumaVentana += latenciaNanos;
+            muestrasVentana++;
+            maximoEnCursoVentana = Math.max(maximoEnCursoVentana, actuales);
+            long ahora = reloj.getAsLong();
+            if (muestrasVentana >= muestrasPorVentana && ahora - inicioVentana >= ventanaNanos) {
+                ajustar();
+                sumaVentana = 0;
+                muestrasVentana = 0;
+                maximoEnCursoVentana = 0;
+                inicioVentana = ahora;
+            }
+        }
+    }
+
+    private void ajustar() {
+        double latencia = (double) sumaVentana / muestrasVentana;
+        if (latenciaBase == 0 || latencia < latenciaBase) {
+            latenciaBase = latencia;
+        } else {
+            latenciaBase += (latencia - latenciaBase) * PESO_DERIVA_BASE;
+        }
+        double actual = limite;
+        if (maximoEnCursoVentana < actual / 2) {
+            return;
+        }
+        double gradiente = Math.max(0.5, Math.min(1.0, tolerancia * latenciaBase / latencia));
+        double nuevo = actual * gradiente + Math.sqrt(actual);
+        nuevo = actual * (1 - suavizado) + nuevo * suavizado;
+        limite = Math.max(minimo, Math.min(maximo, nuevo));
+    }
+
+    public int getLimite() {
+        return (int) limite;
+    }
+
+    public int getEnCurso() {
+        return enCurso.get();
+    }
+
+    public long getRechazos() {
+        return rechazos.sum();
+    }
+}
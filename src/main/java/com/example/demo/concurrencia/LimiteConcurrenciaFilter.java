@@ -0,0 +1,109 @@
+package com.example.demo.concurrencia;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Aplica un {@link LimiteAdaptativo} a las rutas configuradas. Las peticiones que no caben responden 503 con
+ * {@code Retry-After} sin llegar a pedir conexion, en lugar de hacer cola en los hilos de Tomcat frente al pool
+ * mientras la base de datos esta lenta. Las respuestas asincronas (el extracto) liberan su lugar al completarse.
+ */
+public class LimiteConcurrenciaFilter extends OncePerRequestFilter {
+    private final LimiteAdaptativo limite;
+    private final List<String> rutas;
+    private final String reintentarEn;
+    private final AntPathMatcher comparador = new AntPathMatcher();
+
+    public LimiteConcurrenciaFilter(LimiteAdaptativo limite, List<String> rutas, long reintentarEnSegundos) {
+        this.limite = limite;
+        this.rutas = List.copyOf(rutas);
+        this.reintentarEn = String.valueOf(reintentarEnSegundos);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        for (String patron : rutas) {
+            if (comparador.match(patron, ruta)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!limite.intentarAdquirir()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, reintentarEn);
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write("Servicio saturado, reintente en " + reintentarEn + " s.");
+            return;
+        }
+        long inicio = System.nanoTime();
+        AtomicBoolean liberado = new AtomicBoolean();
+        boolean error = true;
+        try {
+            filterChain.doFilter(request, response);
+            error = false;
+        } finally {
+            if (!error && isAsyncStarted(request)) {
+                request.getAsyncContext().addListener(new LiberarAlCompletar(response, inicio, liberado));
+            } else {
+                liberar(response, inicio, liberado, error);
+            }
+        }
+    }
+
+    private void liberar(HttpServletResponse response, long inicio, AtomicBoolean liberado, boolean error) {
+        if (liberado.compareAndSet(false, true)) {
+            limite.liberar(System.nanoTime() - inicio, error || response.getStatus() >= 500);
+        }
+    }
+
+    private final class LiberarAlCompletar implements AsyncListener {
+        private final HttpServletResponse response;
+        private final long inicio;
+        private final AtomicBoolean liberado;
+
+        private LiberarAlCompletar(HttpServletResponse response, long inicio, AtomicBoolean liberado) {
+            this.response = response;
+            this.inicio = inicio;
+            this.liberado = liberado;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            liberar(response, inicio, liberado, false);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            liberar(response, inicio, liberado, true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            liberar(response, inicio, liberado, true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
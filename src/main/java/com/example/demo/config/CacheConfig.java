@@ -0,0 +1,36 @@
+package com.example.demo.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Caches en proceso para metadatos de productos y clientes. Los saldos nunca se guardan aqui:
+ * los servicios los leen siempre de la base de datos.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String PRODUCTOS = "productos";
+    public static final String CLIENTES = "clientes";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${banco.cache.tamano-maximo:10000}") long tamanoMaximo,
+                                     @Value("${banco.cache.ttl:10m}") Duration ttl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats());
+        cacheManager.setCacheNames(List.of(PRODUCTOS, CLIENTES));
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+}
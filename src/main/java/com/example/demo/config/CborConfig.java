@@ -0,0 +1,22 @@
+package com.example.demo.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * {@code application/cbor} en los mismos endpoints y con los mismos DTOs que JSON, para integraciones de alto
+ * volumen. El mapper sale del builder de Spring Boot, asi fechas y modulos quedan igual que en JSON; los montos van
+ * como fraccion decimal nativa (ver {@code Money.Serializador}). Reemplaza al convertidor CBOR por defecto en su
+ * posicion, despues del de JSON: sin Accept o con comodines se sigue respondiendo JSON.
+ */
+@Configuration
+public class CborConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
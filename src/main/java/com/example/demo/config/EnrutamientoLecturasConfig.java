@@ -0,0 +1,137 @@
+package com.example.demo.config;
+
+import com.example.demo.datasource.EnrutadorLecturas;
+import com.example.demo.datasource.EnrutamientoLecturasFilter;
+import com.example.demo.datasource.ReplicasLectura;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecturas en replicas: el DataSource de la aplicacion pasa a ser la primaria detras de un
+ * {@link EnrutadorLecturas}, y {@link EnrutamientoLecturasFilter} decide por peticion si se puede leer de una replica.
+ * Las replicas tienen su propio pool por URL de {@code banco.datasource.replicas.urls}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "banco.datasource.replicas.habilitado", havingValue = "true")
+public class EnrutamientoLecturasConfig {
+
+    @Bean(initMethod = "iniciar", destroyMethod = "cerrar")
+    public static ReplicasLectura replicasLectura(@Value("${banco.datasource.replicas.urls}") List<String> urls,
+                                                  @Value("${banco.datasource.replicas.usuario:${spring.datasource.username:}}") String usuario,
+                                                  @Value("${banco.datasource.replicas.clave:${spring.datasource.password:}}") String clave,
+                                                  @Value("${spring.datasource.driver-class-name:}") String driver,
+                                                  @Value("${banco.datasource.replicas.tamano-pool:10}") int tamanoPool,
+                                                  @Value("${banco.datasource.replicas.espera-conexion:1s}") Duration esperaConexion,
+                                                  @Value("${banco.datasource.replicas.intervalo-verificacion:5s}") Duration intervaloVerificacion) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + i);
+            config.setJdbcUrl(urls.get(i));
+            config.setUsername(usuario);
+            config.setPassword(clave);
+            if (!driver.isBlank()) {
+                config.setDriverClassName(driver);
+            }
+            config.setMaximumPoolSize(tamanoPool);
+            config.setConnectionTimeout(esperaConexion.toMillis());
+            config.setReadOnly(true);
+            // una replica caida al arrancar no impide levantar la aplicacion; queda fuera hasta que responda
+            config.setInitializationFailTimeout(-1);
+            replicas.add(new HikariDataSource(config));
+        }
+        return new ReplicasLectura(replicas, intervaloVerificacion.toMillis(),
+                (int) Math.max(1, esperaConexion.toSeconds()));
+    }
+
+    // corre despues del limitador de conexiones, asi el limitador queda solo delante de la primaria
+    @Bean
+    public static BeanPostProcessor enrutadorLecturas(ObjectProvider<ReplicasLectura> replicas) {
+        return new EnvolverConEnrutador(replicas);
+    }
+
+    // Spring deja que Hibernate retenga la conexion hasta cerrar el EntityManager, que con open-in-view dura toda la
+    // peticion: la primera transaccion decidiria el destino de todas las demas. Soltandola al terminar cada
+    // transaccion, cada una se enruta por separado
+    @Bean
+    public HibernatePropertiesCustomizer liberarConexionPorTransaccion() {
+        return propiedades -> propiedades.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public EnrutamientoLecturasFilter enrutamientoLecturasFilter(
+            @Value("${banco.datasource.replicas.ventana-lectura-propia:5s}") Duration ventanaLecturaPropia,
+            @Value("${banco.datasource.replicas.maximo-clientes:100000}") long maximoClientes,
+            @Value("${banco.datasource.replicas.encabezado-cliente:" + EnrutamientoLecturasFilter.ENCABEZADO_CLIENTE + "}") String encabezado) {
+        return new EnrutamientoLecturasFilter(ventanaLecturaPropia, maximoClientes, encabezado);
+    }
+
+    @Bean
+    public MeterBinder enrutamientoLecturasMetricas(DataSource dataSource, ReplicasLectura replicas) {
+        return registry -> {
+            Gauge.builder("banco.datasource.replicas.sanas", replicas, ReplicasLectura::getSanas)
+                    .description("Replicas en la rotacion de lecturas")
+                    .register(registry);
+            EnrutadorLecturas enrutador = desenvolver(dataSource);
+            if (enrutador != null) {
+                FunctionCounter.builder("banco.datasource.conexiones", enrutador, EnrutadorLecturas::getConexionesReplica)
+                        .tag("destino", "replica")
+                        .description("Conexiones entregadas por destino")
+                        .register(registry);
+                FunctionCounter.builder("banco.datasource.conexiones", enrutador, EnrutadorLecturas::getConexionesPrimaria)
+                        .tag("destino", "primaria")
+                        .description("Conexiones entregadas por destino")
+                        .register(registry);
+            }
+        };
+    }
+
+    private static EnrutadorLecturas desenvolver(DataSource dataSource) {
+        if (dataSource instanceof LazyConnectionDataSourceProxy proxy
+                && proxy.getTargetDataSource() instanceof EnrutadorLecturas enrutador) {
+            return enrutador;
+        }
+        return null;
+    }
+
+    private static final class EnvolverConEnrutador implements BeanPostProcessor, Ordered {
+        private final ObjectProvider<ReplicasLectura> replicas;
+
+        private EnvolverConEnrutador(ObjectProvider<ReplicasLectura> replicas) {
+            this.replicas = replicas;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                return new LazyConnectionDataSourceProxy(new EnrutadorLecturas(dataSource, replicas.getObject()));
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Activa la purga periodica de {@code clave_idempotencia} (ver {@code EjecutorIdempotente#purgar}).
+ */
+@Configuration
+@EnableScheduling
+public class IdempotenciaConfig {
+}
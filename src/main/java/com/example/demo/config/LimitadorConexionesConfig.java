@@ -0,0 +1,83 @@
+package com.example.demo.config;
+
+import com.example.demo.datasource.LimitadorConexiones;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Limitador de conexiones delante del pool JDBC. Se activa por defecto junto con
+ * {@code spring.threads.virtual.enabled}: con hilos de plataforma el propio pool de Tomcat ya acota la concurrencia.
+ */
+@Configuration
+@ConditionalOnProperty(name = "banco.datasource.limitador.habilitado", havingValue = "true")
+public class LimitadorConexionesConfig {
+
+    @Bean
+    public static BeanPostProcessor limitadorConexiones(Environment entorno) {
+        Binder binder = Binder.get(entorno);
+        int permisos = binder.bind("banco.datasource.limitador.permisos", Integer.class)
+                .orElseGet(() -> binder.bind("spring.datasource.hikari.maximum-pool-size", Integer.class).orElse(10));
+        Duration esperaMaxima = binder.bind("banco.datasource.limitador.espera-maxima", Duration.class)
+                .orElse(Duration.ofSeconds(5));
+        return new EnvolverConLimitador(permisos, esperaMaxima);
+    }
+
+    @Bean
+    public MeterBinder limitadorConexionesMetricas(DataSource dataSource) {
+        return registry -> {
+            LimitadorConexiones limitador = desenvolver(dataSource);
+            if (limitador != null) {
+                Gauge.builder("banco.datasource.limitador.en.espera", limitador, LimitadorConexiones::getEnEspera)
+                        .description("Hilos esperando un permiso para pedir conexion al pool")
+                        .register(registry);
+                Gauge.builder("banco.datasource.limitador.disponibles", limitador, LimitadorConexiones::getDisponibles)
+                        .description("Permisos de conexion libres")
+                        .register(registry);
+            }
+        };
+    }
+
+    // con replicas de lectura el limitador queda detras del enrutador, como DataSource de la primaria
+    private static LimitadorConexiones desenvolver(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(LimitadorConexiones.class) ? dataSource.unwrap(LimitadorConexiones.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    // primero de los que envuelven el DataSource: el enrutador de lecturas lo toma como primaria
+    private static final class EnvolverConLimitador implements BeanPostProcessor, Ordered {
+        private final int permisos;
+        private final Duration esperaMaxima;
+
+        private EnvolverConLimitador(int permisos, Duration esperaMaxima) {
+            this.permisos = permisos;
+            this.esperaMaxima = esperaMaxima;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof LimitadorConexiones)) {
+                return new LimitadorConexiones(dataSource, permisos, esperaMaxima);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo.config;
+
+import com.example.demo.concurrencia.LimiteAdaptativo;
+import com.example.demo.concurrencia.LimiteConcurrenciaFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Limite adaptativo de concurrencia delante de los endpoints de transacciones y productos. El limite arranca en
+ * {@code banco.concurrencia.limite-inicial} y se mueve entre el minimo y el maximo segun la latencia observada.
+ */
+@Configuration
+@ConditionalOnProperty(name = "banco.concurrencia.habilitado", havingValue = "true")
+public class LimiteConcurrenciaConfig {
+
+    @Bean
+    public LimiteAdaptativo limiteAdaptativo(@Value("${banco.concurrencia.limite-inicial:20}") int inicial,
+                                             @Value("${banco.concurrencia.limite-minimo:4}") int minimo,
+                                             @Value("${banco.concurrencia.limite-maximo:200}") int maximo,
+                                             @Value("${banco.concurrencia.tolerancia:2.0}") double tolerancia,
+                                             @Value("${banco.concurrencia.suavizado:0.2}") double suavizado,
+                                             @Value("${banco.concurrencia.muestras-por-ventana:10}") int muestras,
+                                             @Value("${banco.concurrencia.ventana:100ms}") Duration ventana) {
+        return new LimiteAdaptativo(inicial, minimo, maximo, tolerancia, suavizado, muestras, ventana.toNanos());
+    }
+
+    @Bean
+    public LimiteConcurrenciaFilter limiteConcurrenciaFilter(LimiteAdaptativo limite,
+            @Value("${banco.concurrencia.rutas:/api/transaccion/**,/api/productos/**,/api/*/estado}") List<String> rutas,
+            @Value("${banco.concurrencia.reintentar-en:1s}") Duration reintentarEn) {
+        return new LimiteConcurrenciaFilter(limite, rutas, Math.max(1, reintentarEn.toSeconds()));
+    }
+
+    @Bean
+    public MeterBinder limiteConcurrenciaMetricas(LimiteAdaptativo limite) {
+        return registry -> {
+            Gauge.builder("banco.concurrencia.limite", limite, LimiteAdaptativo::getLimite)
+                    .description("Peticiones simultaneas admitidas en las rutas limitadas")
+                    .register(registry);
+            Gauge.builder("banco.concurrencia.en.curso", limite, LimiteAdaptativo::getEnCurso)
+                    .description("Peticiones en curso en las rutas limitadas")
+                    .register(registry);
+            FunctionCounter.builder("banco.concurrencia.rechazos", limite, LimiteAdaptativo::getRechazos)
+                    .description("Peticiones rechazadas con 503 por superar el limite")
+                    .register(registry);
+        };
+    }
+}
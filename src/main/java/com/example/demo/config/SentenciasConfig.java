@@ -0,0 +1,45 @@
+package com.example.demo.config;
+
+import com.example.demo.metricas.ContadorSentencias;
+import com.example.demo.metricas.ConteoSentenciasFilter;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Conteo de sentencias SQL por peticion: registra el {@link ContadorSentencias} en Hibernate y lo propaga a los
+ * hilos donde Spring MVC ejecuta las respuestas asincronas.
+ */
+@Configuration
+public class SentenciasConfig implements WebMvcConfigurer {
+
+    @Bean
+    public HibernatePropertiesCustomizer contadorSentencias() {
+        return propiedades -> propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, new ContadorSentencias());
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+                Object conteo = request.getAttribute(ConteoSentenciasFilter.ATRIBUTO_CONTEO, NativeWebRequest.SCOPE_REQUEST);
+                if (conteo instanceof ContadorSentencias.Conteo actual) {
+                    ContadorSentencias.vincular(actual);
+                }
+            }
+
+            @Override
+            public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object resultado) {
+                ContadorSentencias.desvincular();
+            }
+        });
+    }
+}
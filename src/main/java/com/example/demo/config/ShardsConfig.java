@@ -0,0 +1,144 @@
+package com.example.demo.config;
+
+import com.example.demo.datasource.EnrutadorShards;
+import com.example.demo.datasource.PreparadorShards;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Particiona clientes, productos y transacciones en varias bases de datos. El DataSource de la aplicacion es el
+ * shard 0, que ademas guarda el directorio y todo lo que no se particiona; cada URL de {@code banco.shards.urls}
+ * agrega un shard con su propio pool. Al arrancar, los shards adicionales reciben el mismo esquema
+ * ({@code spring.jpa.hibernate.ddl-auto}) y un rango de ids propio.
+ */
+@Configuration
+@ConditionalOnProperty(name = "banco.shards.habilitado", havingValue = "true")
+public class ShardsConfig {
+    private final PreparadorShards.CapturaMetadatos metadatos = new PreparadorShards.CapturaMetadatos();
+
+    @Bean
+    public static DestructionAwareBeanPostProcessor enrutadorShards(Environment entorno) {
+        Binder binder = Binder.get(entorno);
+        List<String> urls = binder.bind("banco.shards.urls", Bindable.listOf(String.class)).orElse(List.of());
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("banco.shards.urls debe indicar al menos un shard ademas del principal.");
+        }
+        HikariConfig base = new HikariConfig();
+        base.setUsername(binder.bind("banco.shards.usuario", String.class)
+                .orElseGet(() -> binder.bind("spring.datasource.username", String.class).orElse(null)));
+        base.setPassword(binder.bind("banco.shards.clave", String.class)
+                .orElseGet(() -> binder.bind("spring.datasource.password", String.class).orElse(null)));
+        binder.bind("spring.datasource.driver-class-name", String.class).ifBound(base::setDriverClassName);
+        base.setMaximumPoolSize(binder.bind("banco.shards.tamano-pool", Integer.class).orElse(10));
+        base.setConnectionTimeout(binder.bind("banco.shards.espera-conexion", Duration.class)
+                .orElse(Duration.ofSeconds(30)).toMillis());
+        return new EnvolverConEnrutador(urls, base);
+    }
+
+    // igual que con las replicas: con open-in-view Hibernate retendria toda la peticion la conexion del primer
+    // shard que use. La integracion guarda el modelo para crear el esquema en los demas shards
+    @Bean
+    public HibernatePropertiesCustomizer conexionPorTransaccionShards() {
+        return propiedades -> {
+            propiedades.put(AvailableSettings.CONNECTION_HANDLING,
+                    PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+            propiedades.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER,
+                    (IntegratorProvider) () -> List.of(metadatos));
+        };
+    }
+
+    @Bean(initMethod = "preparar")
+    public PreparadorShards preparadorShards(EntityManagerFactory entityManagerFactory, DataSource dataSource,
+                                             Environment entorno) {
+        List<String> incompatibles = new ArrayList<>();
+        if (entorno.getProperty("banco.libro-mayor.habilitado", Boolean.class, false)) {
+            incompatibles.add("banco.libro-mayor.habilitado");
+        }
+        if (!"jpa".equals(entorno.getProperty("banco.transaccion.motor", "jpa"))) {
+            incompatibles.add("banco.transaccion.motor");
+        }
+        if (entorno.getProperty("banco.reactivo.habilitado", Boolean.class, false)) {
+            incompatibles.add("banco.reactivo.habilitado");
+        }
+        if (entorno.getProperty("banco.datasource.replicas.habilitado", Boolean.class, false)) {
+            incompatibles.add("banco.datasource.replicas.habilitado");
+        }
+        if (entorno.getProperty("banco.datasource.limitador.habilitado", Boolean.class, false)) {
+            incompatibles.add("banco.datasource.limitador.habilitado");
+        }
+        if (!incompatibles.isEmpty()) {
+            throw new IllegalStateException("banco.shards.habilitado no admite todavia " + incompatibles
+                    + ": esas variantes solo conocen el DataSource principal.");
+        }
+        return new PreparadorShards(metadatos, entityManagerFactory, dataSource);
+    }
+
+    private static final class EnvolverConEnrutador implements DestructionAwareBeanPostProcessor, Ordered {
+        private final List<String> urls;
+        private final HikariConfig base;
+
+        private EnvolverConEnrutador(List<String> urls, HikariConfig base) {
+            this.urls = urls;
+            this.base = base;
+        }
+
+        // el proxy pide la conexion en la primera sentencia, asi el shard se puede fijar ya comenzada la transaccion
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                List<HikariDataSource> adicionales = new ArrayList<>();
+                for (int i = 0; i < urls.size(); i++) {
+                    HikariConfig config = new HikariConfig();
+                    base.copyStateTo(config);
+                    config.setPoolName("shard-" + (i + 1));
+                    config.setJdbcUrl(urls.get(i));
+                    adicionales.add(new HikariDataSource(config));
+                }
+                return new LazyConnectionDataSourceProxy(new EnrutadorShards(dataSource, adicionales));
+            }
+            return bean;
+        }
+
+        @Override
+        public boolean requiresDestruction(Object bean) {
+            return bean instanceof LazyConnectionDataSourceProxy proxy
+                    && proxy.getTargetDataSource() instanceof EnrutadorShards;
+        }
+
+        @Override
+        public void postProcessBeforeDestruction(Object bean, String beanName) {
+            if (requiresDestruction(bean)) {
+                try {
+                    ((EnrutadorShards) ((LazyConnectionDataSourceProxy) bean).getTargetDataSource()).close();
+                } catch (Exception e) {
+                    throw new IllegalStateException("No se pudieron cerrar los pools de los shards.", e);
+                }
+            }
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -1,9 +1,21 @@
 package com.example.demo.controllers;
 
+import com.example.demo.dto.ClienteDTO;
+import com.example.demo.dto.ResultadoImportacionDTO;
+import com.example.demo.dto.ResumenClienteDTO;
 import com.example.demo.entities.Clientes;
 import com.example.demo.services.ClientesService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
 @RestController
 @RequestMapping("/api")
 public class ClientesController {
@@ -22,9 +34,34 @@ public class ClientesController {
     public void deleteCliente(@PathVariable Long id) {
         service.deleteCliente(id);
     }
+    // ETag debil, para que Tomcat pueda comprimir la respuesta (no comprime las que llevan ETag fuerte). Con
+    // If-None-Match se consultan solo las versiones del cliente y sus cuentas
     @GetMapping("/clientes/{id}")
-    public Clientes getClienteById(@PathVariable Long id) {
-        return service.getClienteById(id);
+    public ResponseEntity<ClienteDTO> getClienteById(@PathVariable Long id, WebRequest peticion) {
+        String accept = peticion.getHeader(HttpHeaders.ACCEPT);
+        if (peticion.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<String> huella = service.getHuellaCliente(id);
+            if (huella.isPresent()) {
+                String etag = Representaciones.etag(huella.get(), true, accept);
+                if (peticion.checkNotModified(etag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+                }
+            }
+        }
+        ClienteDTO cliente = service.getClienteById(id);
+        return ResponseEntity.ok()
+                .eTag(Representaciones.etag(cliente.huella(), true, accept))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(cliente);
+    }
+    @GetMapping("/clientes/{id}/resumen")
+    public ResumenClienteDTO getResumenCliente(@PathVariable Long id) {
+        return service.getResumenCliente(id);
     }
 
+    // el cuerpo es el CSV tal cual (no multipart) para leerlo como flujo sin guardarlo completo en memoria o disco
+    @PostMapping(value = "/clientes/importacion", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public ResultadoImportacionDTO importarClientes(InputStream csv) throws IOException {
+        return service.importarClientes(csv);
+    }
 }
@@ -0,0 +1,31 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dto.ResultadoLiquidacionGmfDTO;
+import com.example.demo.services.LiquidadorGmf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+
+@RestController
+@RequestMapping("/api/gmf")
+public class GmfController {
+    @Autowired
+    private LiquidadorGmf liquidadorGmf;
+
+    // periodo como 2024-05; repetirla retoma lo pendiente del mes
+    @PostMapping("/liquidacion/{periodo}")
+    public ResultadoLiquidacionGmfDTO liquidar(@PathVariable String periodo) {
+        YearMonth mes;
+        try {
+            mes = YearMonth.parse(periodo);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Periodo inválido: " + periodo + " (formato AAAA-MM).", e);
+        }
+        return liquidadorGmf.liquidar(mes);
+    }
+}
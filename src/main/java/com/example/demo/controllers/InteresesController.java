@@ -0,0 +1,31 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dto.ResultadoCausacionInteresesDTO;
+import com.example.demo.services.CausadorIntereses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+@RestController
+@RequestMapping("/api/intereses")
+public class InteresesController {
+    @Autowired
+    private CausadorIntereses causadorIntereses;
+
+    // fecha como 2024-05-31; repetirla retoma lo pendiente del dia
+    @PostMapping("/causacion/{fecha}")
+    public ResultadoCausacionInteresesDTO causar(@PathVariable String fecha) {
+        LocalDate dia;
+        try {
+            dia = LocalDate.parse(fecha);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Fecha inválida: " + fecha + " (formato AAAA-MM-DD).", e);
+        }
+        return causadorIntereses.causar(dia);
+    }
+}
@@ -1,11 +1,23 @@
 package com.example.demo.controllers;
 
-import com.example.demo.entities.Clientes;
+import com.example.demo.dto.FormatoExtracto;
+import com.example.demo.dto.PaginaMovimientosDTO;
+import com.example.demo.dto.ProductoDTO;
 import com.example.demo.entities.Productos;
-import com.example.demo.repository.ClientesRepository;
+import com.example.demo.services.MovimientosService;
 import com.example.demo.services.ProductosService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api")
@@ -13,13 +25,10 @@ public class ProductosController {
     @Autowired
     private ProductosService service;
     @Autowired
-    private ClientesRepository clientesRepository;
+    private MovimientosService movimientosService;
 
     @PostMapping("/crear/{clienteId}")
     public Productos createProducto(@PathVariable Long clienteId, @RequestBody Productos producto) {
-        Clientes cliente = clientesRepository.findById(clienteId)
-                .orElseThrow(() -> new IllegalArgumentException("Cliente no encontrado con ID: " + clienteId));
-        producto.setCliente(cliente);
         return service.createProducto(clienteId, producto);
     }
 
@@ -31,9 +40,29 @@ public class ProductosController {
     public void deleteProducto(@PathVariable Long id) {
         service.deleteProducto(id);
     }
+    // ETag fuerte con la version de la fila (y el formato, JSON o CBOR). Con If-None-Match se consulta solo la version
+    // y, si coincide, responde 304 sin leer ni serializar la cuenta; si no, la version sale de la misma lectura del
+    // cuerpo
     @GetMapping("/productos/{id}")
-    public Productos getProductoById(@PathVariable Long id) {
-        return service.getProductoById(id);
+    public ResponseEntity<ProductoDTO> getProductoById(@PathVariable Long id, WebRequest peticion) {
+        String accept = peticion.getHeader(HttpHeaders.ACCEPT);
+        if (peticion.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = service.getVersionProducto(id);
+            if (version.isPresent()) {
+                String etag = Representaciones.etag(String.valueOf(version.get()), false, accept);
+                if (peticion.checkNotModified(etag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+                }
+            }
+        }
+        ProductoDTO producto = service.getProductoById(id);
+        if (producto.version() == null) {
+            return ResponseEntity.ok(producto);
+        }
+        return ResponseEntity.ok()
+                .eTag(Representaciones.etag(String.valueOf(producto.version()), false, accept))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(producto);
     }
 
     @PutMapping("/productos/{id}/activar")
@@ -50,4 +79,26 @@ public class ProductosController {
     public String getEstadoProductoById(@PathVariable Long id) {
         return service.getEstadoProductoById(id);
     }
+
+    @GetMapping("/productos/{id}/movimientos")
+    public PaginaMovimientosDTO getMovimientos(@PathVariable Long id,
+                                               @RequestParam(required = false) String after,
+                                               @RequestParam(defaultValue = "50") int limit) {
+        return movimientosService.consultarMovimientos(id, after, limit);
+    }
+
+    @GetMapping("/productos/{id}/extracto")
+    public ResponseEntity<StreamingResponseBody> exportarExtracto(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        FormatoExtracto tipo = FormatoExtracto.desde(formato);
+        StreamingResponseBody cuerpo = salida -> movimientosService.exportarExtracto(id, desde, hasta, tipo, salida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(tipo.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=extracto-" + id + "." + tipo.name().toLowerCase())
+                .body(cuerpo);
+    }
 }
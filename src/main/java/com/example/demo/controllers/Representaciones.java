@@ -0,0 +1,47 @@
+package com.example.demo.controllers;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.List;
+
+/**
+ * JSON o CBOR segun el Accept, con el orden de la negociacion de Spring MVC: sin Accept o con comodines gana JSON, el
+ * convertidor registrado primero. Las dos representaciones de una misma version son bytes distintos, asi que la de
+ * CBOR lleva otro ETag y las lecturas condicionales responden con {@code Vary: Accept}.
+ */
+final class Representaciones {
+    private static final String SUFIJO_CBOR = "-cbor";
+
+    private Representaciones() {
+    }
+
+    static boolean prefiereCbor(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        List<MediaType> tipos;
+        try {
+            tipos = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        MimeTypeUtils.sortBySpecificity(tipos);
+        for (MediaType tipo : tipos) {
+            if (tipo.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+            if (tipo.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // valor sin comillas; debil para respuestas que Tomcat puede comprimir
+    static String etag(String valor, boolean debil, String accept) {
+        String etag = "\"" + valor + (prefiereCbor(accept) ? SUFIJO_CBOR : "") + "\"";
+        return debil ? "W/" + etag : etag;
+    }
+}
@@ -1,42 +1,108 @@
 package com.example.demo.controllers;
 
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ResultadoLoteDTO;
 import com.example.demo.dto.TransaccionDTO;
 import com.example.demo.entities.Transaccion;
+import com.example.demo.services.EjecutorIdempotente;
 import com.example.demo.services.TransaccionService;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Supplier;
+
 @RestController
 @RequestMapping("/api/transaccion")
 public class TransaccionController {
+    public static final String ENCABEZADO_IDEMPOTENCIA = "Idempotency-Key";
+    public static final String ENCABEZADO_REPETIDA = "Idempotent-Replayed";
+
     @Autowired
     private TransaccionService transaccionService;
+    @Autowired
+    private EjecutorIdempotente ejecutorIdempotente;
+    @Autowired
+    private ObjectMapper objectMapper;
 
     public TransaccionController(TransaccionService transaccionService) {
     }
 
     @PostMapping("/realizar")
-    public Transaccion realizarTransaccion(@RequestBody TransaccionDTO transaccionDTO) {
-        return transaccionService.realizarTransaccion(
-                transaccionDTO.getCuentaOrigenId(),
-                transaccionDTO.getCuentaDestinoId(),
-                transaccionDTO.getMonto());
+    public ResponseEntity<?> realizarTransaccion(@RequestBody TransaccionDTO transaccionDTO,
+                                                 @RequestHeader(value = ENCABEZADO_IDEMPOTENCIA, required = false) String clave,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return responder(clave, accept, "realizar", transaccionDTO.getCuentaOrigenId(),
+                transaccionDTO.getCuentaDestinoId(), transaccionDTO.getMonto(),
+                () -> transaccionService.realizarTransaccion(
+                        transaccionDTO.getCuentaOrigenId(),
+                        transaccionDTO.getCuentaDestinoId(),
+                        transaccionDTO.getMonto()));
     }
 
     @PostMapping("/retirar")
-    public Transaccion realizarRetiro(@RequestBody TransaccionDTO transaccionDTO) {
-        return transaccionService.realizarRetiro(
-                transaccionDTO.getCuentaOrigenId(),
-                transaccionDTO.getMonto());
+    public ResponseEntity<?> realizarRetiro(@RequestBody TransaccionDTO transaccionDTO,
+                                            @RequestHeader(value = ENCABEZADO_IDEMPOTENCIA, required = false) String clave,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return responder(clave, accept, "retirar", transaccionDTO.getCuentaOrigenId(), null,
+                transaccionDTO.getMonto(),
+                () -> transaccionService.realizarRetiro(
+                        transaccionDTO.getCuentaOrigenId(),
+                        transaccionDTO.getMonto()));
     }
 
     @PostMapping("/depositar")
-    public Transaccion realizarDeposito(@RequestBody TransaccionDTO transaccionDTO) {
-        return transaccionService.realizarDeposito(
-                transaccionDTO.getCuentaDestinoId(),
-                transaccionDTO.getMonto());
+    public ResponseEntity<?> realizarDeposito(@RequestBody TransaccionDTO transaccionDTO,
+                                              @RequestHeader(value = ENCABEZADO_IDEMPOTENCIA, required = false) String clave,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return responder(clave, accept, "depositar", null, transaccionDTO.getCuentaDestinoId(),
+                transaccionDTO.getMonto(),
+                () -> transaccionService.realizarDeposito(
+                        transaccionDTO.getCuentaDestinoId(),
+                        transaccionDTO.getMonto()));
+    }
+
+    @PostMapping("/lote")
+    public List<ResultadoLoteDTO> realizarLote(@RequestBody List<TransaccionDTO> transacciones) {
+        return transaccionService.realizarLote(transacciones);
+    }
+
+    // sin clave se ejecuta como siempre; con clave la respuesta es el JSON guardado en la primera ejecucion, convertido
+    // a CBOR para quien lo pide (con los montos como decimales exactos, no double)
+    private ResponseEntity<?> responder(String clave, String accept, String nombre, Long cuentaOrigenId, Long cuentaDestinoId,
+                                        Money monto, Supplier<Transaccion> operacion) {
+        if (clave == null) {
+            return ResponseEntity.ok(operacion.get());
+        }
+        EjecutorIdempotente.Respuesta respuesta = ejecutorIdempotente.ejecutar(clave,
+                EjecutorIdempotente.huella(nombre, cuentaOrigenId, cuentaDestinoId, monto),
+                cuentaOrigenId != null ? cuentaOrigenId : cuentaDestinoId, operacion);
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .header(ENCABEZADO_REPETIDA, String.valueOf(respuesta.repetida()));
+        if (!Representaciones.prefiereCbor(accept)) {
+            return ok.contentType(MediaType.APPLICATION_JSON).body(respuesta.cuerpo());
+        }
+        try {
+            JsonNode cuerpo = objectMapper.reader()
+                    .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                    .without(JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES)
+                    .readTree(respuesta.cuerpo());
+            return ok.body(cuerpo);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
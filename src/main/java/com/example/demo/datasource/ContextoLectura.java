@@ -0,0 +1,44 @@
+package com.example.demo.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Indica al {@link EnrutadorLecturas} si la peticion del hilo actual puede leer de una replica. Solo lo habilita
+ * {@link EnrutamientoLecturasFilter} para peticiones GET fuera de la ventana de lectura propia; tareas programadas,
+ * escrituras y cualquier otro hilo leen siempre de la primaria.
+ */
+public final class ContextoLectura {
+    private static final ThreadLocal<Boolean> REPLICA_PERMITIDA = new ThreadLocal<>();
+
+    private ContextoLectura() {
+    }
+
+    static void permitirReplica() {
+        REPLICA_PERMITIDA.set(Boolean.TRUE);
+    }
+
+    static void limpiar() {
+        REPLICA_PERMITIDA.remove();
+    }
+
+    static boolean replicaPermitida() {
+        return REPLICA_PERMITIDA.get() != null;
+    }
+
+    /**
+     * Ejecuta la lectura contra la primaria aunque la peticion pudiera ir a una replica. Sirve para lo que se guarda
+     * en cache, que no debe quedarse con un dato atrasado de una replica despues de una invalidacion. Dentro de una
+     * transaccion que ya tomo conexion no tiene efecto: la transaccion sigue con su conexion.
+     */
+    public static <T> T enPrimaria(Supplier<T> lectura) {
+        Boolean anterior = REPLICA_PERMITIDA.get();
+        REPLICA_PERMITIDA.remove();
+        try {
+            return lectura.get();
+        } finally {
+            if (anterior != null) {
+                REPLICA_PERMITIDA.set(anterior);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.demo.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Shard al que el {@link EnrutadorShards} envia las conexiones que se pidan desde el hilo actual. Sin nada fijado se
+ * usa el shard 0, que tambien guarda el directorio y todo lo que no esta particionado. Igual que con
+ * {@link ContextoLectura}, fijar el shard dentro de una transaccion que ya tomo conexion no tiene efecto.
+ */
+public final class ContextoShard {
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+    private ContextoShard() {
+    }
+
+    static int actual() {
+        Integer shard = SHARD.get();
+        return shard == null ? 0 : shard;
+    }
+
+    public static <T> T enShard(int shard, Supplier<T> operacion) {
+        Integer anterior = SHARD.get();
+        SHARD.set(shard);
+        try {
+            return operacion.get();
+        } finally {
+            if (anterior == null) {
+                SHARD.remove();
+            } else {
+                SHARD.set(anterior);
+            }
+        }
+    }
+}
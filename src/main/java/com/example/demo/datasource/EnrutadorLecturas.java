@@ -0,0 +1,73 @@
+package com.example.demo.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Envia a una replica las conexiones de transacciones {@code @Transactional(readOnly = true)} cuando
+ * {@link ContextoLectura} lo permite, y todo lo demas a la primaria. Debe ir detras de un
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: JPA abre la conexion al comenzar la
+ * transaccion, antes de que Spring publique que es de solo lectura, y el proxy la pide hasta la primera sentencia.
+ * Si la replica elegida no entrega conexion se marca caida y la conexion sale de la primaria.
+ */
+public class EnrutadorLecturas extends AbstractRoutingDataSource {
+    static final String PRIMARIA = "primaria";
+
+    private final DataSource primaria;
+    private final ReplicasLectura replicas;
+    private final LongAdder conexionesPrimaria = new LongAdder();
+    private final LongAdder conexionesReplica = new LongAdder();
+
+    public EnrutadorLecturas(DataSource primaria, ReplicasLectura replicas) {
+        this.primaria = primaria;
+        this.replicas = replicas;
+        Map<Object, Object> destinos = new HashMap<>();
+        destinos.put(PRIMARIA, primaria);
+        for (int i = 0; i < replicas.cantidad(); i++) {
+            destinos.put(i, replicas.replica(i));
+        }
+        setTargetDataSources(destinos);
+        setDefaultTargetDataSource(primaria);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || !ContextoLectura.replicaPermitida()) {
+            return PRIMARIA;
+        }
+        int replica = replicas.elegir();
+        return replica < 0 ? PRIMARIA : replica;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() instanceof Integer replica) {
+            try {
+                Connection conexion = replicas.replica(replica).getConnection();
+                conexionesReplica.increment();
+                return conexion;
+            } catch (SQLException e) {
+                replicas.marcarCaida(replica, e);
+            }
+        }
+        conexionesPrimaria.increment();
+        return primaria.getConnection();
+    }
+
+    public long getConexionesPrimaria() {
+        return conexionesPrimaria.sum();
+    }
+
+    public long getConexionesReplica() {
+        return conexionesReplica.sum();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entrega conexiones del shard fijado en {@link ContextoShard}. El shard 0 es el DataSource original de la
+ * aplicacion; los demas son pools propios. Al reemplazar al DataSource en el contexto, cerrarlo cierra todos.
+ */
+public class EnrutadorShards extends AbstractRoutingDataSource implements AutoCloseable {
+    private final List<DataSource> shards;
+
+    public EnrutadorShards(DataSource principal, List<? extends DataSource> adicionales) {
+        shards = new ArrayList<>();
+        shards.add(principal);
+        shards.addAll(adicionales);
+        Map<Object, Object> destinos = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            destinos.put(i, shards.get(i));
+        }
+        setTargetDataSources(destinos);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ContextoShard.actual();
+    }
+
+    public int cantidad() {
+        return shards.size();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource shard : shards) {
+            if (shard instanceof AutoCloseable cerrable) {
+                cerrable.close();
+            }
+        }
+    }
+}
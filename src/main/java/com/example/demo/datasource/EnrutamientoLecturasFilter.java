@@ -0,0 +1,57 @@
+package com.example.demo.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Decide por peticion si las lecturas pueden ir a una replica: solo GET y HEAD, y solo si el mismo cliente no
+ * escribio en la ultima {@code banco.datasource.replicas.ventana-lectura-propia}. Asi un cliente lee sus propias
+ * escrituras aunque la replica vaya atrasada. El cliente se identifica por el encabezado configurado
+ * ({@value #ENCABEZADO_CLIENTE} por defecto) o, sin el, por la direccion remota.
+ */
+public class EnrutamientoLecturasFilter extends OncePerRequestFilter {
+    public static final String ENCABEZADO_CLIENTE = "X-Cliente-Id";
+
+    private final Cache<String, Boolean> escriturasRecientes;
+    private final String encabezadoCliente;
+
+    public EnrutamientoLecturasFilter(Duration ventanaLecturaPropia, long maximoClientes, String encabezadoCliente) {
+        this.escriturasRecientes = Caffeine.newBuilder()
+                .expireAfterWrite(ventanaLecturaPropia)
+                .maximumSize(maximoClientes)
+                .build();
+        this.encabezadoCliente = encabezadoCliente;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String cliente = cliente(request);
+        boolean lectura = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+        if (lectura && escriturasRecientes.getIfPresent(cliente) == null) {
+            ContextoLectura.permitirReplica();
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ContextoLectura.limpiar();
+            // la ventana empieza cuando la escritura ya termino, aunque haya fallado a medias
+            if (!lectura) {
+                escriturasRecientes.put(cliente, Boolean.TRUE);
+            }
+        }
+    }
+
+    private String cliente(HttpServletRequest request) {
+        String cliente = request.getHeader(encabezadoCliente);
+        return cliente == null || cliente.isBlank() ? request.getRemoteAddr() : cliente;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo.datasource;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deja listos los shards adicionales al arrancar: les aplica la misma accion de esquema que Hibernate aplico al
+ * shard 0 y les asigna un rango de ids propio. Los ids salen de la secuencia o del autoincremento de cada base, asi
+ * que sin rangos dos shards repetirian ids; con ellos un id es unico entre todos y un mismo EntityManager puede
+ * cargar filas de varios shards sin confundirlas. El shard k empieza en {@code k << 40}.
+ */
+public class PreparadorShards {
+    static final int BITS_RANGO = 40;
+    private static final List<String> SECUENCIAS = List.of("productos_seq", "transaccion_seq");
+    private static final Map<String, String> TABLA_DE_SECUENCIA = Map.of(
+            "productos_seq", "productos", "transaccion_seq", "transaccion");
+    private static final List<String> TABLAS_IDENTIDAD = List.of("clientes", "clave_idempotencia");
+    // las secuencias de Hibernate reservan de a 50 y entregan los ids por debajo del valor leido
+    private static final int TAMANO_RESERVA = 50;
+
+    private final CapturaMetadatos metadatos;
+    private final EntityManagerFactory entityManagerFactory;
+    private final EnrutadorShards enrutador;
+    private final JdbcTemplate jdbcTemplate;
+
+    public PreparadorShards(CapturaMetadatos metadatos, EntityManagerFactory entityManagerFactory,
+                            DataSource dataSource) {
+        if (!(dataSource instanceof LazyConnectionDataSourceProxy proxy)
+                || !(proxy.getTargetDataSource() instanceof EnrutadorShards enrutador)) {
+            throw new IllegalStateException("El DataSource de la aplicacion no quedo detras del enrutador de shards.");
+        }
+        this.metadatos = metadatos;
+        this.entityManagerFactory = entityManagerFactory;
+        this.enrutador = enrutador;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public void preparar() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Map<String, Object> configuracion = new HashMap<>(sessionFactory.getProperties());
+        for (int shard = 1; shard < enrutador.cantidad(); shard++) {
+            long base = (long) shard << BITS_RANGO;
+            ContextoShard.enShard(shard, () -> {
+                // la eliminacion diferida de create-drop no aplica: el shard se cierra junto con su pool
+                SchemaManagementToolCoordinator.process(metadatos.metadata, sessionFactory.getServiceRegistry(),
+                        configuracion, accion -> {
+                        });
+                jdbcTemplate.execute((ConnectionCallback<Void>) conexion -> {
+                    separarIds(conexion, base);
+                    return null;
+                });
+                return null;
+            });
+        }
+    }
+
+    // solo sube los contadores que siguen por debajo de la base: al reiniciar no se vuelven a entregar ids
+    private static void separarIds(Connection conexion, long base) throws SQLException {
+        boolean mysql = conexion.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+        try (Statement sentencia = conexion.createStatement()) {
+            for (String secuencia : SECUENCIAS) {
+                if (maximo(conexion, "select coalesce(max(id), 0) from " + TABLA_DE_SECUENCIA.get(secuencia)) >= base
+                        || valorSecuencia(conexion, secuencia, mysql) >= base) {
+                    continue;
+                }
+                long inicio = base + TAMANO_RESERVA;
+                sentencia.execute(mysql
+                        ? "update " + secuencia + " set next_val = " + inicio
+                        : "alter sequence " + secuencia + " restart with " + inicio);
+            }
+            for (String tabla : TABLAS_IDENTIDAD) {
+                if (maximo(conexion, "select coalesce(max(id), 0) from " + tabla) >= base) {
+                    continue;
+                }
+                sentencia.execute(mysql
+                        ? "alter table " + tabla + " auto_increment = " + (base + 1)
+                        : "alter table " + tabla + " alter column id restart with " + (base + 1));
+            }
+        }
+    }
+
+    private static long valorSecuencia(Connection conexion, String secuencia, boolean mysql) throws SQLException {
+        if (mysql) {
+            return maximo(conexion, "select coalesce(max(next_val), 0) from " + secuencia);
+        }
+        try (PreparedStatement consulta = conexion.prepareStatement(
+                "select base_value from information_schema.sequences where lower(sequence_name) = ?")) {
+            consulta.setString(1, secuencia);
+            try (ResultSet filas = consulta.executeQuery()) {
+                return filas.next() ? filas.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static long maximo(Connection conexion, String sql) throws SQLException {
+        try (Statement consulta = conexion.createStatement(); ResultSet filas = consulta.executeQuery(sql)) {
+            return filas.next() ? filas.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Guarda el modelo que arma Hibernate al arrancar, que hace falta para crear el esquema en otra base.
+     */
+    public static class CapturaMetadatos implements Integrator {
+        private volatile Metadata metadata;
+
+        @Override
+        public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                              SessionFactoryImplementor sessionFactory) {
+            this.metadata = metadata;
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        }
+    }
+}
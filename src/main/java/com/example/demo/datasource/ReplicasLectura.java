@@ -0,0 +1,135 @@
+package com.example.demo.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replicas de solo lectura con verificacion periodica de salud. Arrancan fuera de la rotacion hasta la primera
+ * verificacion; una replica que falla al verificarse o al pedirle conexion sale de la rotacion hasta que una
+ * verificacion posterior la encuentre sana. Sin replicas sanas las lecturas van a la primaria.
+ */
+public class ReplicasLectura {
+    private static final Logger log = LoggerFactory.getLogger(ReplicasLectura.class);
+
+    private final List<DataSource> replicas;
+    private final AtomicBoolean[] sanas;
+    private final AtomicInteger turno = new AtomicInteger();
+    private final long intervaloVerificacionMs;
+    private final int esperaVerificacionSegundos;
+    private ScheduledExecutorService verificador;
+
+    public ReplicasLectura(List<DataSource> replicas, long intervaloVerificacionMs, int esperaVerificacionSegundos) {
+        this.replicas = List.copyOf(replicas);
+        this.sanas = new AtomicBoolean[replicas.size()];
+        for (int i = 0; i < sanas.length; i++) {
+            sanas[i] = new AtomicBoolean();
+        }
+        this.intervaloVerificacionMs = intervaloVerificacionMs;
+        this.esperaVerificacionSegundos = esperaVerificacionSegundos;
+    }
+
+    public void iniciar() {
+        verificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "replicas-verificacion");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        verificador.scheduleWithFixedDelay(this::verificar, 0, intervaloVerificacionMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void cerrar() throws Exception {
+        if (verificador != null) {
+            verificador.shutdownNow();
+        }
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable cerrable) {
+                cerrable.close();
+            }
+        }
+    }
+
+    public int cantidad() {
+        return replicas.size();
+    }
+
+    public DataSource replica(int indice) {
+        return replicas.get(indice);
+    }
+
+    public boolean sana(int indice) {
+        return sanas[indice].get();
+    }
+
+    public int getSanas() {
+        int total = 0;
+        for (AtomicBoolean sana : sanas) {
+            if (sana.get()) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Reparte por turnos entre las replicas sanas; devuelve -1 si no hay ninguna.
+     */
+    public int elegir() {
+        int inicio = Math.floorMod(turno.getAndIncrement(), sanas.length);
+        for (int i = 0; i < sanas.length; i++) {
+            int indice = (inicio + i) % sanas.length;
+            if (sanas[indice].get()) {
+                return indice;
+            }
+        }
+        return -1;
+    }
+
+    public void marcarCaida(int indice, Exception causa) {
+        if (sanas[indice].compareAndSet(true, false)) {
+            log.warn("La replica {} sale de la rotacion de lecturas: {}", indice, causa.getMessage());
+        }
+        descartarConexiones(replicas.get(indice));
+    }
+
+    // Hikari solo revalida conexiones ociosas por mas de medio segundo; con verificaciones mas seguidas seguiria
+    // entregando la misma conexion muerta y la replica no volveria nunca a la rotacion
+    private static void descartarConexiones(DataSource replica) {
+        try {
+            if (replica.isWrapperFor(HikariDataSource.class)) {
+                HikariPoolMXBean pool = replica.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+                if (pool != null) {
+                    pool.softEvictConnections();
+                }
+            }
+        } catch (SQLException e) {
+            log.debug("No se pudieron descartar las conexiones de la replica", e);
+        }
+    }
+
+    void verificar() {
+        for (int i = 0; i < replicas.size(); i++) {
+            try (Connection conexion = replicas.get(i).getConnection()) {
+                if (!conexion.isValid(esperaVerificacionSegundos)) {
+                    throw new SQLException("la conexion no respondio en " + esperaVerificacionSegundos + " s");
+                }
+                if (sanas[i].compareAndSet(false, true)) {
+                    log.info("La replica {} entra en la rotacion de lecturas", i);
+                }
+            } catch (SQLException | RuntimeException e) {
+                marcarCaida(i, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.demo.dinero;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * Monto inmutable en centavos. Las operaciones son aritmetica de {@code long} con desbordamiento verificado
+ * ({@link ArithmeticException}), sin crear objetos intermedios como {@link BigDecimal}. En JSON se escribe como
+ * numero con dos decimales (en CBOR como fraccion decimal) y en la base de datos como {@code DECIMAL} (ver
+ * {@link MoneyConverter}), asi que ni el API ni el esquema cambian.
+ */
+@JsonSerialize(using = Money.Serializador.class)
+@JsonDeserialize(using = Money.Deserializador.class)
+public final class Money implements Comparable<Money>, Serializable {
+    public static final Money ZERO = new Money(0);
+    public static final int DECIMALES = 2;
+
+    private static final long CENTAVOS_POR_UNIDAD = 100;
+
+    private final long centavos;
+
+    private Money(long centavos) {
+        this.centavos = centavos;
+    }
+
+    public static Money deCentavos(long centavos) {
+        return centavos == 0 ? ZERO : new Money(centavos);
+    }
+
+    /**
+     * Convierte un valor con a lo sumo dos decimales; uno con mas decimales no es un monto valido y se rechaza en
+     * vez de redondearse.
+     */
+    public static Money of(BigDecimal valor) {
+        try {
+            return deCentavos(valor.movePointRight(DECIMALES).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Monto invalido: " + valor.toPlainString()
+                    + " (maximo " + DECIMALES + " decimales).", e);
+        }
+    }
+
+    /**
+     * Interpreta un decimal como {@code 123}, {@code -4.5} o {@code 10.25} sin pasar por {@link BigDecimal};
+     * la notacion exponencial se delega a {@link #of(BigDecimal)}.
+     */
+    public static Money parse(CharSequence texto) {
+        int longitud = texto.length();
+        int i = 0;
+        boolean negativo = false;
+        if (longitud > 0 && (texto.charAt(0) == '-' || texto.charAt(0) == '+')) {
+            negativo = texto.charAt(0) == '-';
+            i++;
+        }
+        long unidades = 0;
+        int digitos = 0;
+        for (; i < longitud && esDigito(texto.charAt(i)); i++, digitos++) {
+            unidades = Math.addExact(Math.multiplyExact(unidades, 10), texto.charAt(i) - '0');
+        }
+        long fraccion = 0;
+        int decimales = 0;
+        if (i < longitud && texto.charAt(i) == '.') {
+            for (i++; i < longitud && esDigito(texto.charAt(i)); i++, decimales++) {
+                if (texto.charAt(i) != '0' && decimales >= DECIMALES) {
+                    throw new IllegalArgumentException("Monto invalido: " + texto
+                            + " (maximo " + DECIMALES + " decimales).");
+                }
+                if (decimales < DECIMALES) {
+                    fraccion = fraccion * 10 + (texto.charAt(i) - '0');
+                }
+            }
+            digitos += decimales;
+        }
+        if (i < longitud) {
+            // BigDecimal tambien acepta digitos Unicode; solo se le pasa un exponente en ASCII
+            if (!esExponente(texto, i)) {
+                throw new IllegalArgumentException("Monto invalido: " + texto);
+            }
+            try {
+                return of(new BigDecimal(texto.toString()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Monto invalido: " + texto, e);
+            }
+        }
+        if (digitos == 0) {
+            throw new IllegalArgumentException("Monto invalido: " + texto);
+        }
+        for (int d = Math.min(decimales, DECIMALES); d < DECIMALES; d++) {
+            fraccion *= 10;
+        }
+        long centavos = Math.addExact(Math.multiplyExact(unidades, CENTAVOS_POR_UNIDAD), fraccion);
+        return deCentavos(negativo ? -centavos : centavos);
+    }
+
+    // Character.isDigit acepta digitos de otros sistemas de numeracion, como los arabigo-indicos
+    private static boolean esDigito(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean esExponente(CharSequence texto, int desde) {
+        int i = desde;
+        if (texto.charAt(i) != 'e' && texto.charAt(i) != 'E') {
+            return false;
+        }
+        i++;
+        if (i < texto.length() && (texto.charAt(i) == '-' || texto.charAt(i) == '+')) {
+            i++;
+        }
+        if (i == texto.length()) {
+            return false;
+        }
+        for (; i < texto.length(); i++) {
+            if (!esDigito(texto.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getCentavos() {
+        return centavos;
+    }
+
+    public Money sumar(Money otro) {
+        return deCentavos(Math.addExact(centavos, otro.centavos));
+    }
+
+    public Money restar(Money otro) {
+        return deCentavos(Math.subtractExact(centavos, otro.centavos));
+    }
+
+    public Money multiplicar(long factor) {
+        return deCentavos(Math.multiplyExact(centavos, factor));
+    }
+
+    public Money negar() {
+        return deCentavos(Math.negateExact(centavos));
+    }
+
+    public boolean esPositivo() {
+        return centavos > 0;
+    }
+
+    public boolean esNegativo() {
+        return centavos < 0;
+    }
+
+    public boolean esCero() {
+        return centavos == 0;
+    }
+
+    public boolean menorQue(Money otro) {
+        return centavos < otro.centavos;
+    }
+
+    // solo para metricas: un double no representa todos los centavos de forma exacta
+    public double doubleValue() {
+        return centavos / (double) CENTAVOS_POR_UNIDAD;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(centavos, DECIMALES);
+    }
+
+    @Override
+    public int compareTo(Money otro) {
+        return Long.compare(centavos, otro.centavos);
+    }
+
+    @Override
+    public boolean equals(Object otro) {
+        return otro instanceof Money money && money.centavos == centavos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(centavos);
+    }
+
+    /**
+     * Representacion decimal con dos cifras, por ejemplo {@code -0.05} o {@code 1250.00}.
+     */
+    @Override
+    public String toString() {
+        long absoluto = Math.abs(centavos);
+        // Long.MIN_VALUE no tiene absoluto positivo
+        if (absoluto < 0) {
+            return toBigDecimal().toPlainString();
+        }
+        long unidades = absoluto / CENTAVOS_POR_UNIDAD;
+        long fraccion = absoluto % CENTAVOS_POR_UNIDAD;
+        StringBuilder texto = new StringBuilder(24);
+        if (centavos < 0) {
+            texto.append('-');
+        }
+        texto.append(unidades).append('.');
+        if (fraccion < 10) {
+            texto.append('0');
+        }
+        return texto.append(fraccion).toString();
+    }
+
+    public static final class Serializador extends JsonSerializer<Money> {
+        @Override
+        public void serialize(Money valor, JsonGenerator generador, SerializerProvider proveedor) throws IOException {
+            // CBOR no tiene numeros como texto: ahi va el decimal nativo (centavos y escala), sin formatear
+            if (!generador.canWriteFormattedNumbers()) {
+                generador.writeNumber(valor.toBigDecimal());
+                return;
+            }
+            generador.writeNumber(valor.toString());
+        }
+    }
+
+    public static final class Deserializador extends JsonDeserializer<Money> {
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext contexto) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT
+                    && token != JsonToken.VALUE_STRING) {
+                return (Money) contexto.handleUnexpectedToken(Money.class, parser);
+            }
+            try {
+                // un decimal nativo de CBOR se convierte sin pasar por texto; en JSON el tipo queda sin resolver
+                if (token == JsonToken.VALUE_NUMBER_FLOAT
+                        && parser.getNumberTypeFP() == JsonParser.NumberTypeFP.BIG_DECIMAL) {
+                    return of(parser.getDecimalValue());
+                }
+                return parse(parser.getText().trim());
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                return (Money) contexto.handleWeirdStringValue(Money.class, parser.getText(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.dinero;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Guarda {@link Money} en las mismas columnas {@code DECIMAL} que antes usaba {@link BigDecimal}; el
+ * {@code BigDecimal} solo existe al cruzar JDBC.
+ */
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money monto) {
+        return monto == null ? null : monto.toBigDecimal();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(BigDecimal valor) {
+        return valor == null ? null : Money.of(valor);
+    }
+}
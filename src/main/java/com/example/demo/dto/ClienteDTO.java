@@ -0,0 +1,60 @@
+package com.example.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lectura de un cliente con sus cuentas, con los mismos campos JSON que devolvia la entidad. Los datos del cliente
+ * se cachean sin cuentas; las cuentas, que llevan saldo, se consultan en cada lectura y se agregan con
+ * {@link #conProductos(List)}. La version del cliente no va en el JSON: entra en la {@link #huella()}.
+ */
+public record ClienteDTO(Long id, String tipoIdentificacion, String numeroIdentificacion, String nombres,
+                         String apellidos, Integer edad, String correoElectronico, LocalDate fechaNacimiento,
+                         LocalDateTime fechaCreacion, LocalDateTime fechaModificacion, List<ProductoDTO> productos,
+                         @JsonIgnore Long version) {
+
+    public ClienteDTO(Long id, String tipoIdentificacion, String numeroIdentificacion, String nombres,
+                      String apellidos, Integer edad, String correoElectronico, LocalDate fechaNacimiento,
+                      LocalDateTime fechaCreacion, LocalDateTime fechaModificacion, Long version) {
+        this(id, tipoIdentificacion, numeroIdentificacion, nombres, apellidos, edad, correoElectronico,
+                fechaNacimiento, fechaCreacion, fechaModificacion, null, version);
+    }
+
+    public ClienteDTO conProductos(List<ProductoDTO> productos) {
+        return new ClienteDTO(id, tipoIdentificacion, numeroIdentificacion, nombres, apellidos, edad,
+                correoElectronico, fechaNacimiento, fechaCreacion, fechaModificacion, productos, version);
+    }
+
+    /**
+     * Resumen de la version del cliente y de la de cada cuenta, en orden de id: cambia con cualquier cambio de lo que
+     * devuelve la lectura, saldos incluidos. Sale de los datos ya leidos, asi corresponde al cuerpo aunque los datos
+     * del cliente vengan de la cache.
+     */
+    public String huella() {
+        List<ProductoDTO> cuentas = productos == null ? List.of() : productos;
+        List<Object[]> versiones = new ArrayList<>();
+        for (ProductoDTO cuenta : cuentas) {
+            versiones.add(new Object[]{version, cuenta.id(), cuenta.version()});
+        }
+        if (cuentas.isEmpty()) {
+            // como la fila del left join de un cliente sin cuentas
+            versiones.add(new Object[]{version, null, null});
+        }
+        return huella(versiones);
+    }
+
+    // filas (version del cliente, id de cuenta, version de cuenta) como las de ClientesRepository.findVersionesById
+    public static String huella(List<Object[]> versiones) {
+        StringBuilder texto = new StringBuilder();
+        for (Object[] fila : versiones) {
+            texto.append(fila[0]).append(';').append(fila[1]).append(':').append(fila[2]).append('|');
+        }
+        return DigestUtils.md5DigestAsHex(texto.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
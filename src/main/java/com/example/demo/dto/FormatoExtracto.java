@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+public enum FormatoExtracto {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final String contentType;
+
+    FormatoExtracto(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static FormatoExtracto desde(String valor) {
+        for (FormatoExtracto formato : values()) {
+            if (formato.name().equalsIgnoreCase(valor)) {
+                return formato;
+            }
+        }
+        throw new IllegalArgumentException("Formato de extracto no soportado: " + valor);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.demo.dto;
+
+import com.example.demo.dinero.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class MovimientoDTO {
+    private Long id;
+    private String tipo;
+    private Money monto;
+    private LocalDateTime fechaHoraTransaccion;
+    private Long cuentaOrigenId;
+    private Long cuentaDestinoId;
+}
@@ -0,0 +1,32 @@
+package com.example.demo.dto;
+
+import com.example.demo.dinero.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lectura de una cuenta, con los mismos campos JSON que devolvia la entidad. Es inmutable porque los metadatos se
+ * comparten desde la cache; el saldo no se cachea y se agrega con {@link #conSaldo(Money)}. La version de la fila no
+ * va en el JSON: sale como ETag, y solo viene cuando saldo y metadatos se leyeron juntos de la misma fila.
+ */
+public record ProductoDTO(Long id, String tipoCuenta, String numeroCuenta, String estado, Money saldo,
+                          boolean exentaGmf, LocalDateTime fechaCreacion, LocalDateTime fechaModificacion,
+                          @JsonIgnore Long version) {
+
+    public ProductoDTO(Long id, String tipoCuenta, String numeroCuenta, String estado, Money saldo, boolean exentaGmf,
+                       LocalDateTime fechaCreacion, LocalDateTime fechaModificacion) {
+        this(id, tipoCuenta, numeroCuenta, estado, saldo, exentaGmf, fechaCreacion, fechaModificacion, null);
+    }
+
+    // metadatos sin saldo, para la cache
+    public ProductoDTO(Long id, String tipoCuenta, String numeroCuenta, String estado, boolean exentaGmf,
+                       LocalDateTime fechaCreacion, LocalDateTime fechaModificacion) {
+        this(id, tipoCuenta, numeroCuenta, estado, null, exentaGmf, fechaCreacion, fechaModificacion, null);
+    }
+
+    public ProductoDTO conSaldo(Money saldo) {
+        return new ProductoDTO(id, tipoCuenta, numeroCuenta, estado, saldo, exentaGmf, fechaCreacion,
+                fechaModificacion, null);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import com.example.demo.dinero.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class ResultadoCausacionInteresesDTO {
+    private String fecha;
+    private int particiones;
+    // particiones que ya estaban terminadas por una ejecucion anterior
+    private int particionesPrevias;
+    // solo lo procesado en esta ejecucion, con o sin interes a abonar
+    private long cuentas;
+    private Money intereses;
+    private long duracionMs;
+    private long cuentasPorSegundo;
+}
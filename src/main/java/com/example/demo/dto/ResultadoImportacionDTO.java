@@ -0,0 +1,20 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class ResultadoImportacionDTO {
+    private long filas;
+    private long importadas;
+    private long rechazadas;
+    private long duracionMs;
+    // primeras filas rechazadas en orden de linea; rechazosTruncados indica que hubo mas de las que se listan
+    private List<FilaRechazadaDTO> rechazos;
+    private boolean rechazosTruncados;
+}
@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import com.example.demo.dinero.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class ResultadoLiquidacionGmfDTO {
+    private String periodo;
+    private int particiones;
+    // particiones que ya estaban terminadas por una ejecucion anterior
+    private int particionesPrevias;
+    // solo lo procesado en esta ejecucion
+    private long movimientos;
+    private Money gravamen;
+    private long duracionMs;
+    private long movimientosPorSegundo;
+}
@@ -0,0 +1,24 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class ResultadoLoteDTO {
+    private int indice;
+    private boolean exitosa;
+    private Long transaccionId;
+    private String tipo;
+    private String mensaje;
+
+    public static ResultadoLoteDTO exitosa(int indice, String tipo) {
+        return new ResultadoLoteDTO(indice, true, null, tipo, null);
+    }
+
+    public static ResultadoLoteDTO fallida(int indice, String mensaje) {
+        return new ResultadoLoteDTO(indice, false, null, null, mensaje);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.dto;
+
+import com.example.demo.dinero.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * Cliente con la cantidad de cuentas y la suma de sus saldos, calculados en una sola consulta agregada.
+ */
+public record ResumenClienteDTO(Long id, String tipoIdentificacion, String numeroIdentificacion, String nombres,
+                                String apellidos, long cuentas, Money saldoTotal) {
+
+    // la suma de la consulta llega como la columna, sin convertir, y nula si el cliente no tiene cuentas
+    public ResumenClienteDTO(Long id, String tipoIdentificacion, String numeroIdentificacion, String nombres,
+                             String apellidos, Long cuentas, BigDecimal saldoTotal) {
+        this(id, tipoIdentificacion, numeroIdentificacion, nombres, apellidos, cuentas,
+                saldoTotal == null ? Money.ZERO : Money.of(saldoTotal));
+    }
+}
@@ -1,17 +1,17 @@
 package com.example.demo.dto;
 
+import com.example.demo.dinero.Money;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
 public class TransaccionDTO {
     private Long cuentaOrigenId;
     private Long cuentaDestinoId;
-    private BigDecimal monto;
+    private Money monto;
 
 
 }
@@ -0,0 +1,42 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Asiento inmutable del libro mayor. Cada movimiento genera un DEBITO y un CREDITO; los asientos de la
+ * caja externa (depositos y retiros) no tienen cuenta ni secuencia.
+ */
+@Data
+@Entity
+@Table(name = "asiento_contable", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_asiento_cuenta_secuencia", columnNames = {"cuenta_id", "secuencia"})
+}, indexes = {
+        @Index(name = "idx_asiento_transaccion", columnList = "transaccion_id")
+})
+public class AsientoContable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "transaccion_id", nullable = false, updatable = false)
+    private Long transaccionId;
+
+    @Column(name = "cuenta_id", updatable = false)
+    private Long cuentaId;
+
+    @Column(name = "secuencia", updatable = false)
+    private Long secuencia;
+
+    @Column(name = "tipo", nullable = false, updatable = false, length = 7)
+    private String tipo;
+
+    @Column(name = "monto", nullable = false, updatable = false)
+    private BigDecimal monto;
+
+    @Column(name = "fecha_hora", nullable = false, updatable = false)
+    private LocalDateTime fechaHora;
+}
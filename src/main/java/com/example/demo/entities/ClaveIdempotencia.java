@@ -0,0 +1,40 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Respuesta confirmada de una operacion enviada con {@code Idempotency-Key}. La fila se inserta en la misma
+ * transaccion que mueve el dinero, asi que la clave unica tambien frena a un duplicado que llegue a otro nodo.
+ */
+@Data
+@Entity
+@Table(name = "clave_idempotencia", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_idempotencia_clave", columnNames = "clave")
+}, indexes = {
+        @Index(name = "idx_idempotencia_fecha", columnList = "fecha_creacion")
+})
+public class ClaveIdempotencia {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "clave", nullable = false, updatable = false, length = 100)
+    private String clave;
+
+    // SHA-256 de la operacion y sus parametros: la misma clave con otro cuerpo se rechaza
+    @Column(name = "huella", nullable = false, updatable = false, length = 64)
+    private String huella;
+
+    @Column(name = "transaccion_id")
+    private Long transaccionId;
+
+    @Lob
+    @Column(name = "respuesta")
+    private String respuesta;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+}
@@ -1,5 +1,6 @@
 package com.example.demo.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.Data;
@@ -38,6 +39,11 @@ public class Clientes {
     private LocalDateTime fechaCreacion;
     @Column(name = "fecha_modificacion")
     private LocalDateTime fechaModificacion;
+    // entra en el ETag de GET /api/clientes/{id}; el default es para la importacion por JDBC
+    @Version
+    @JsonIgnore
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private long version;
 
     @PrePersist
     protected void onCreate() {
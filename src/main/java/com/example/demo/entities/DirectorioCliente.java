@@ -0,0 +1,20 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Shard donde viven un cliente, sus productos y sus transacciones. Solo existe en el shard 0; un cliente sin fila
+ * es anterior al particionamiento y sigue en el shard 0.
+ */
+@Data
+@Entity
+@Table(name = "directorio_cliente")
+public class DirectorioCliente {
+    @Id
+    @Column(name = "cliente_id")
+    private Long clienteId;
+
+    @Column(name = "shard", nullable = false)
+    private Integer shard;
+}
@@ -0,0 +1,20 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Shard de cada cuenta, el mismo de su cliente. Las transacciones llegan con el id de la cuenta, no del cliente,
+ * asi que se guarda aparte para enrutarlas con una sola lectura.
+ */
+@Data
+@Entity
+@Table(name = "directorio_cuenta")
+public class DirectorioCuenta {
+    @Id
+    @Column(name = "cuenta_id")
+    private Long cuentaId;
+
+    @Column(name = "shard", nullable = false)
+    private Integer shard;
+}
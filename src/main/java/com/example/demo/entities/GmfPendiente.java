@@ -0,0 +1,34 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Parte del GMF de {@code periodo} que la liquidacion por lote no pudo debitar porque el saldo de la cuenta no
+ * alcanzaba. La deuda de una cuenta es la suma de sus filas.
+ */
+@Data
+@Entity
+@Table(name = "gmf_pendiente", indexes = {
+        @Index(name = "idx_gmf_pendiente_cuenta", columnList = "cuenta_id")
+})
+public class GmfPendiente {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "cuenta_id", nullable = false, updatable = false)
+    private Long cuentaId;
+
+    @Column(name = "periodo", length = 7, nullable = false, updatable = false)
+    private String periodo;
+
+    @Column(name = "monto", nullable = false, updatable = false)
+    private BigDecimal monto;
+
+    @Column(name = "fecha_hora", nullable = false, updatable = false)
+    private LocalDateTime fechaHora;
+}
@@ -0,0 +1,66 @@
+package com.example.demo.entities;
+
+import com.example.demo.dinero.Money;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Avance de una particion de un proceso por lotes: las filas con id en {@code (idDesde, idHasta]} ya procesadas
+ * hasta {@code ultimoId} inclusive. Se actualiza en la misma transaccion que cada bloque, asi que un proceso
+ * interrumpido se reanuda desde el ultimo bloque confirmado sin repetirlo.
+ */
+@Data
+@Entity
+@Table(name = "proceso_checkpoint", indexes = {
+        @Index(name = "idx_checkpoint_proceso_periodo", columnList = "proceso, periodo")
+})
+public class ProcesoCheckpoint {
+    public enum Estado {
+        EN_CURSO, TERMINADA
+    }
+
+    // proceso:periodo:particion, p. ej. GMF:2024-05:3
+    @Id
+    @Column(name = "id", length = 64)
+    private String id;
+
+    @Column(name = "proceso", nullable = false, updatable = false, length = 20)
+    private String proceso;
+
+    @Column(name = "periodo", nullable = false, updatable = false, length = 20)
+    private String periodo;
+
+    @Column(name = "particion", nullable = false, updatable = false)
+    private Integer particion;
+
+    @Column(name = "id_desde", nullable = false, updatable = false)
+    private Long idDesde;
+
+    @Column(name = "id_hasta", nullable = false, updatable = false)
+    private Long idHasta;
+
+    @Column(name = "ultimo_id", nullable = false)
+    private Long ultimoId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 12)
+    private Estado estado;
+
+    @Column(name = "procesados", nullable = false)
+    private Long procesados;
+
+    @Column(name = "monto", nullable = false)
+    private Money monto;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_modificacion")
+    private LocalDateTime fechaModificacion;
+
+    // con version Spring Data inserta los checkpoints nuevos en vez de fusionarlos con uno que ya exista
+    @Version
+    private Long version;
+}
@@ -1,26 +1,37 @@
 package com.example.demo.entities;
 
+import com.example.demo.dinero.Money;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 @Data
 @Entity
-@Table(name = "productos")
+@Table(name = "productos", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_productos_numero_cuenta", columnNames = "numero_cuenta")
+})
 public class Productos {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productos_seq")
+    @SequenceGenerator(name = "productos_seq", sequenceName = "productos_seq", allocationSize = 50)
     private Long id;
 
     private String tipoCuenta;
+    @Column(name = "numero_cuenta")
     private String numeroCuenta;
     private String estado;
-    private BigDecimal saldo;
+    private Money saldo;
     private boolean exentaGmf;
     private LocalDateTime fechaCreacion;
     private LocalDateTime fechaModificacion;
+    // sube con cada cambio de la fila, tambien los de saldo hechos por SQL; de aqui sale el ETag de la cuenta. El
+    // default es para las inserciones por JDBC
+    @Version
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
 
     public Productos() {
     }
@@ -0,0 +1,16 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+@Data
+@Entity
+@Table(name = "rango_numero_cuenta")
+public class RangoNumeroCuenta {
+    @Id
+    @Column(name = "prefijo", length = 2)
+    private String prefijo;
+
+    @Column(name = "siguiente", nullable = false)
+    private Long siguiente;
+}
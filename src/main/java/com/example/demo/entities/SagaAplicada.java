@@ -0,0 +1,34 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marca en el shard de destino de que una saga ya se resolvio alli. Se inserta en la misma transaccion que el
+ * credito, con la saga como clave, asi que un reintento nunca acredita dos veces. RECHAZADA queda como lapida cuando
+ * la cuenta destino no existe: un credito que llegue tarde ya no se aplica despues de compensar.
+ */
+@Data
+@Entity
+@Table(name = "saga_aplicada")
+public class SagaAplicada {
+    public enum Resultado {
+        APLICADA, RECHAZADA
+    }
+
+    @Id
+    @Column(name = "saga_id", length = 36)
+    private String sagaId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "resultado", nullable = false, updatable = false, length = 10)
+    private Resultado resultado;
+
+    @Column(name = "transaccion_id", updatable = false)
+    private Long transaccionId;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+}
@@ -0,0 +1,59 @@
+package com.example.demo.entities;
+
+import com.example.demo.dinero.Money;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Transferencia entre cuentas de shards distintos. Vive en el shard de origen y se crea en la misma transaccion
+ * que el debito, ya DEBITADA; de ahi pasa a COMPLETADA cuando el destino acredita o a COMPENSADA, con el dinero
+ * devuelto al origen, si el destino la rechaza.
+ */
+@Data
+@Entity
+@Table(name = "saga_transferencia", indexes = {
+        @Index(name = "idx_saga_estado_fecha", columnList = "estado, fecha_creacion")
+})
+public class SagaTransferencia {
+    public enum Estado {
+        DEBITADA, COMPLETADA, COMPENSADA
+    }
+
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Column(name = "cuenta_origen_id", nullable = false, updatable = false)
+    private Long cuentaOrigenId;
+
+    @Column(name = "cuenta_destino_id", nullable = false, updatable = false)
+    private Long cuentaDestinoId;
+
+    @Column(name = "shard_origen", nullable = false, updatable = false)
+    private Integer shardOrigen;
+
+    @Column(name = "shard_destino", nullable = false, updatable = false)
+    private Integer shardDestino;
+
+    @Column(name = "monto", nullable = false, updatable = false)
+    private Money monto;
+
+    // GMF cobrado junto con el debito; se devuelve si la saga se compensa
+    @Column(name = "gravamen", updatable = false)
+    private Money gravamen;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 12)
+    private Estado estado;
+
+    @Column(name = "transaccion_origen_id")
+    private Long transaccionOrigenId;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_modificacion")
+    private LocalDateTime fechaModificacion;
+}
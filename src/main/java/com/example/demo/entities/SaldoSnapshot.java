@@ -0,0 +1,36 @@
+package com.example.demo.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Saldo de una cuenta despues de aplicar todos sus asientos hasta {@code secuencia} inclusive.
+ * {@code fechaHora} es la del ultimo asiento incluido.
+ */
+@Data
+@Entity
+@Table(name = "saldo_snapshot", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_snapshot_cuenta_secuencia", columnNames = {"cuenta_id", "secuencia"})
+}, indexes = {
+        @Index(name = "idx_snapshot_cuenta_fecha", columnList = "cuenta_id, fecha_hora")
+})
+public class SaldoSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "cuenta_id", nullable = false, updatable = false)
+    private Long cuentaId;
+
+    @Column(name = "secuencia", nullable = false, updatable = false)
+    private Long secuencia;
+
+    @Column(name = "saldo", nullable = false, updatable = false)
+    private BigDecimal saldo;
+
+    @Column(name = "fecha_hora", nullable = false, updatable = false)
+    private LocalDateTime fechaHora;
+}
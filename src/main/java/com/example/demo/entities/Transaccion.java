@@ -1,30 +1,36 @@
 package com.example.demo.entities;
 
+import com.example.demo.dinero.Money;
 import jakarta.persistence.*;
 import lombok.Data;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 @Data
 @Entity
-@Table(name = "transaccion")
+@Table(name = "transaccion", indexes = {
+        @Index(name = "idx_transaccion_origen_fecha", columnList = "cuenta_origen_id, fecha_hora_transaccion, id"),
+        @Index(name = "idx_transaccion_destino_fecha", columnList = "cuenta_destino_id, fecha_hora_transaccion, id"),
+        @Index(name = "idx_transaccion_fecha", columnList = "fecha_hora_transaccion, id")
+})
 public class Transaccion {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaccion_seq")
+    @SequenceGenerator(name = "transaccion_seq", sequenceName = "transaccion_seq", allocationSize = 50)
     private Long id;
 
     private String tipo;
-    private BigDecimal monto;
+    private Money monto;
 
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cuenta_origen_id")
     private Productos cuentaOrigen;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cuenta_destino_id")
     private Productos cuentaDestino;
 
+    @Column(name = "fecha_hora_transaccion")
     private LocalDateTime fechaHoraTransaccion;
 
 
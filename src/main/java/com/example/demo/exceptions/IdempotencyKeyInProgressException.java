@@ -0,0 +1,11 @@
+package com.example.demo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class IdempotencyKeyInProgressException extends IllegalStateException {
+    public IdempotencyKeyInProgressException(String message) {
+        super(message);
+    }
+}
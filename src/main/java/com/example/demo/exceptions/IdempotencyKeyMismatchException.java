@@ -0,0 +1,11 @@
+package com.example.demo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class IdempotencyKeyMismatchException extends IllegalArgumentException {
+    public IdempotencyKeyMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InsufficientBalanceException extends IllegalArgumentException {
+    public InsufficientBalanceException(String message) {
+        super(message);
+    }
+}
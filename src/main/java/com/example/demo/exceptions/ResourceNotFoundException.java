@@ -1,5 +1,10 @@
 package com.example.demo.exceptions;
-public class ResourceNotFoundException extends RuntimeException {
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class ResourceNotFoundException extends IllegalArgumentException {
     public ResourceNotFoundException(String message) {
         super(message);
     }
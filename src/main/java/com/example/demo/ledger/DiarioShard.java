@@ -0,0 +1,127 @@
+package com.example.demo.ledger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Diario de un shard: cada cambio de saldo se escribe aqui y se sincroniza a disco antes de
+ * confirmarse. El checkpoint marca hasta que secuencia ya esta persistido en la base de datos,
+ * sin pasar de una secuencia retenida: la mitad de una transferencia entre shards que la
+ * recuperacion todavia necesita leer aunque ya este en la base.
+ */
+class DiarioShard implements Closeable {
+    private final Path archivo;
+    private final Path checkpoint;
+    private final FileChannel canal;
+    private final DataOutputStream salida;
+    private final NavigableSet<Long> retenidas = new ConcurrentSkipListSet<>();
+    private long secuencia;
+    private volatile long persistido;
+    // hasta donde llego la escritura diferida; el checkpoint puede quedar atras por las retenidas
+    private long persistidoEnBase;
+
+    DiarioShard(Path directorio, int indice) throws IOException {
+        Files.createDirectories(directorio);
+        this.archivo = directorio.resolve("shard-" + indice + ".log");
+        this.checkpoint = directorio.resolve("shard-" + indice + ".ckpt");
+        this.persistido = Files.exists(checkpoint)
+                ? Long.parseLong(Files.readString(checkpoint, StandardCharsets.UTF_8).trim())
+                : 0L;
+        this.secuencia = persistido;
+        this.persistidoEnBase = persistido;
+        this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.salida = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(canal)));
+    }
+
+    List<RegistroDiario> leerPendientes() throws IOException {
+        List<RegistroDiario> registros = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(archivo);
+             DataInputStream entrada = new DataInputStream(new BufferedInputStream(in))) {
+            while (true) {
+                RegistroDiario registro = RegistroDiario.leer(entrada);
+                secuencia = Math.max(secuencia, registro.secuencia());
+                if (registro.secuencia() > persistido) {
+                    registros.add(registro);
+                }
+            }
+        } catch (EOFException e) {
+            // fin del diario o ultimo registro incompleto que nunca se confirmo
+        }
+        return registros;
+    }
+
+    long siguienteSecuencia() {
+        return ++secuencia;
+    }
+
+    void registrar(RegistroDiario registro) throws IOException {
+        registro.escribir(salida);
+    }
+
+    void sincronizar() throws IOException {
+        salida.flush();
+        canal.force(false);
+    }
+
+    long persistido() {
+        return persistido;
+    }
+
+    void retener(long secuencia) {
+        retenidas.add(secuencia);
+    }
+
+    void liberar(long secuencia) {
+        retenidas.remove(secuencia);
+    }
+
+    /**
+     * Registra que la base tiene todo hasta {@code hasta} y mueve el checkpoint hasta donde dejan
+     * las secuencias retenidas. Devuelve si el checkpoint avanzo.
+     */
+    boolean marcarPersistido(long hasta) throws IOException {
+        persistidoEnBase = Math.max(persistidoEnBase, hasta);
+        long checkpointNuevo = retenidas.isEmpty()
+                ? persistidoEnBase
+                : Math.min(persistidoEnBase, retenidas.first() - 1);
+        if (checkpointNuevo <= persistido) {
+            return false;
+        }
+        Path temporal = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.writeString(temporal, Long.toString(checkpointNuevo), StandardCharsets.UTF_8);
+        Files.move(temporal, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        persistido = checkpointNuevo;
+        return true;
+    }
+
+    void compactarSiPersistido() throws IOException {
+        if (persistido >= secuencia) {
+            salida.flush();
+            canal.truncate(0);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        salida.flush();
+        canal.close();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.ledger;
+
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.TransaccionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Persiste en lotes los cambios ya confirmados por los shards. Una sola cola global conserva el
+ * orden entre shards, asi el credito de una transferencia nunca llega a la base antes que su debito.
+ */
+class EscrituraDiferida {
+    private static final Logger log = LoggerFactory.getLogger(EscrituraDiferida.class);
+
+    private final Queue<CambioPendiente> pendientes = new ConcurrentLinkedQueue<>();
+    private final List<CambioPendiente> reintentos = new ArrayList<>();
+    // lock explicito y no synchronized: el vaciado hace JDBC y no debe anclar un hilo virtual a su portador
+    private final ReentrantLock vaciando = new ReentrantLock();
+    private final ProductosRepository productosRepository;
+    private final TransaccionRepository transaccionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanoLote;
+
+    EscrituraDiferida(ProductosRepository productosRepository, TransaccionRepository transaccionRepository,
+                      TransactionTemplate transactionTemplate, int tamanoLote) {
+        this.productosRepository = productosRepository;
+        this.transaccionRepository = transaccionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.tamanoLote = tamanoLote;
+    }
+
+    void encolar(int shard, long secuencia, Productos cuenta, Transaccion transaccion) {
+        encolar(shard, secuencia, cuenta, transaccion, 0, 0L);
+    }
+
+    // credito de una transferencia (o su compensacion), con el debito que lo origino
+    void encolar(int shard, long secuencia, Productos cuenta, Transaccion transaccion, int shardDebito,
+                 long secuenciaDebito) {
+        pendientes.offer(new CambioPendiente(shard, secuencia, cuenta, transaccion, shardDebito, secuenciaDebito));
+    }
+
+    /**
+     * Devuelve los cambios persistidos, en el orden en que se encolaron; vacio si no habia nada o fallo.
+     */
+    List<CambioPendiente> vaciar() {
+        vaciando.lock();
+        try {
+            return vaciarLotes();
+        } finally {
+            vaciando.unlock();
+        }
+    }
+
+    private List<CambioPendiente> vaciarLotes() {
+        List<CambioPendiente> persistidos = new ArrayList<>();
+        while (true) {
+            List<CambioPendiente> lote = new ArrayList<>(reintentos);
+            reintentos.clear();
+            CambioPendiente cambio;
+            while (lote.size() < tamanoLote && (cambio = pendientes.poll()) != null) {
+                lote.add(cambio);
+            }
+            if (lote.isEmpty()) {
+                return persistidos;
+            }
+            try {
+                persistir(lote);
+            } catch (RuntimeException e) {
+                log.error("No se pudieron persistir {} cambios del ledger, se reintentara", lote.size(), e);
+                reintentos.addAll(lote);
+                return persistidos;
+            }
+            persistidos.addAll(lote);
+        }
+    }
+
+    boolean vacia() {
+        return pendientes.isEmpty() && reintentos.isEmpty();
+    }
+
+    private void persistir(List<CambioPendiente> lote) {
+        Map<Long, Productos> saldos = new LinkedHashMap<>();
+        List<Transaccion> transacciones = new ArrayList<>();
+        for (CambioPendiente cambio : lote) {
+            saldos.put(cambio.cuenta().getId(), cambio.cuenta());
+            if (cambio.transaccion() != null) {
+                transacciones.add(cambio.transaccion());
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            saldos.values().forEach(cuenta -> productosRepository.actualizarSaldo(cuenta.getId(), cuenta.getSaldo()));
+            transaccionRepository.saveAll(transacciones);
+        });
+    }
+
+    // secuenciaDebito 0: no es el credito de una transferencia
+    record CambioPendiente(int shard, long secuencia, Productos cuenta, Transaccion transaccion, int shardDebito,
+                           long secuenciaDebito) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.ledger;
+
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.TransaccionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+
+@Configuration
+@ConditionalOnProperty(name = "banco.transaccion.motor", havingValue = "ledger")
+public class LedgerConfig {
+
+    @Bean(initMethod = "iniciar", destroyMethod = "cerrar")
+    public LedgerEnMemoria ledgerEnMemoria(ProductosRepository productosRepository,
+                                           TransaccionRepository transaccionRepository,
+                                           PlatformTransactionManager transactionManager,
+                                           @Value("${banco.ledger.shards:4}") int shards,
+                                           @Value("${banco.ledger.directorio-diario:${java.io.tmpdir}/banco-ledger}") Path directorio,
+                                           @Value("${banco.ledger.tamano-lote:1000}") int tamanoLote,
+                                           @Value("${banco.ledger.intervalo-escritura-ms:20}") long intervaloEscrituraMs) {
+        return new LedgerEnMemoria(productosRepository, transaccionRepository,
+                new TransactionTemplate(transactionManager), shards, directorio, tamanoLote, intervaloEscrituraMs);
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.demo.ledger;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.TransaccionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Motor de saldos en memoria: las cuentas se reparten por id entre shards de un solo escritor,
+ * cada cambio queda en el diario del shard antes de confirmarse y se persiste luego en lotes.
+ */
+public class LedgerEnMemoria {
+    private static final Logger log = LoggerFactory.getLogger(LedgerEnMemoria.class);
+
+    private final ProductosRepository productosRepository;
+    private final EscrituraDiferida escrituraDiferida;
+    private final ShardCuentas[] shards;
+    private final long intervaloEscrituraMs;
+    private final AtomicLong transferencias = new AtomicLong(System.currentTimeMillis() << 16);
+    // creditos ya persistidos que esperan a que el checkpoint del origen pase su debito
+    private final List<EscrituraDiferida.CambioPendiente> creditosRetenidos = new ArrayList<>();
+    private final ReentrantLock vaciando = new ReentrantLock();
+    private ScheduledExecutorService escritor;
+
+    public LedgerEnMemoria(ProductosRepository productosRepository, TransaccionRepository transaccionRepository,
+                           TransactionTemplate transactionTemplate, int numeroShards, Path directorioDiario,
+                           int tamanoLote, long intervaloEscrituraMs) {
+        this.productosRepository = productosRepository;
+        this.escrituraDiferida = new EscrituraDiferida(productosRepository, transaccionRepository,
+                transactionTemplate, tamanoLote);
+        this.intervaloEscrituraMs = intervaloEscrituraMs;
+        this.shards = new ShardCuentas[numeroShards];
+        try {
+            for (int i = 0; i < numeroShards; i++) {
+                shards[i] = new ShardCuentas(i, tamanoLote, this, new DiarioShard(directorioDiario, i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el diario del ledger en " + directorioDiario, e);
+        }
+    }
+
+    public void iniciar() throws IOException {
+        recuperar();
+        for (ShardCuentas shard : shards) {
+            shard.iniciar();
+        }
+        escritor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "ledger-escritura-diferida");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        escritor.scheduleWithFixedDelay(this::vaciar, intervaloEscrituraMs, intervaloEscrituraMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void cerrar() throws IOException, InterruptedException {
+        for (ShardCuentas shard : shards) {
+            shard.detener();
+        }
+        if (escritor != null) {
+            escritor.shutdown();
+            escritor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        vaciar();
+        for (ShardCuentas shard : shards) {
+            shard.diario().compactarSiPersistido();
+            shard.diario().close();
+        }
+    }
+
+    public CompletableFuture<Transaccion> transferir(Long cuentaOrigenId, Long cuentaDestinoId, Money monto) {
+        long transferenciaId = transferencias.incrementAndGet();
+        CompletableFuture<Transaccion> verificacion = new CompletableFuture<>();
+        shardDe(cuentaDestinoId).enviar(OperacionLedger.verificar(cuentaDestinoId, verificacion));
+        return verificacion.thenCompose(ignorado -> {
+            CompletableFuture<Transaccion> resultado = new CompletableFuture<>();
+            shardDe(cuentaOrigenId).enviar(OperacionLedger.debito("TRANSFERENCIA", cuentaOrigenId, cuentaDestinoId,
+                    monto, transferenciaId, resultado));
+            return resultado;
+        });
+    }
+
+    public CompletableFuture<Transaccion> retirar(Long cuentaOrigenId, Money monto) {
+        CompletableFuture<Transaccion> resultado = new CompletableFuture<>();
+        shardDe(cuentaOrigenId).enviar(OperacionLedger.debito("RETIRO", cuentaOrigenId, null, monto, 0, resultado));
+        return resultado;
+    }
+
+    public CompletableFuture<Transaccion> depositar(Long cuentaDestinoId, Money monto) {
+        CompletableFuture<Transaccion> resultado = new CompletableFuture<>();
+        shardDe(cuentaDestinoId).enviar(OperacionLedger.credito("DEPOSITO", cuentaDestinoId, null, monto, 0, null,
+                0, resultado));
+        return resultado;
+    }
+
+    /**
+     * Vuelve a leer la fila de la cuenta si su shard la tiene cargada (estado, tipo, exencion de GMF), sin tocar el
+     * saldo. Se llama despues de confirmar un cambio de la cuenta que no pasa por el ledger.
+     */
+    public CompletableFuture<Void> recargar(Long cuentaId) {
+        CompletableFuture<Transaccion> resultado = new CompletableFuture<>();
+        shardDe(cuentaId).enviar(OperacionLedger.recargar(cuentaId, resultado));
+        return resultado.thenAccept(ignorado -> {
+        });
+    }
+
+    ShardCuentas shardDe(Long cuentaId) {
+        return shards[(int) Math.floorMod(cuentaId, (long) shards.length)];
+    }
+
+    EscrituraDiferida escrituraDiferida() {
+        return escrituraDiferida;
+    }
+
+    Productos cargarCuenta(Long id) {
+        return productosRepository.findById(id).orElse(null);
+    }
+
+    /**
+     * Persiste lo pendiente y avanza los checkpoints. Las dos mitades de una transferencia entre shards salen del
+     * diario en orden: el debito cuando su credito ya esta en la base, y el credito cuando el checkpoint del origen
+     * ya paso el debito. Asi la recuperacion nunca ve un debito sin ver tambien su credito, si existe.
+     */
+    void vaciar() {
+        vaciando.lock();
+        try {
+            Map<Integer, Long> persistidos = new HashMap<>();
+            for (EscrituraDiferida.CambioPendiente cambio : escrituraDiferida.vaciar()) {
+                persistidos.merge(cambio.shard(), cambio.secuencia(), Math::max);
+                if (cambio.secuenciaDebito() != 0) {
+                    shards[cambio.shardDebito()].diario().liberar(cambio.secuenciaDebito());
+                    creditosRetenidos.add(cambio);
+                }
+            }
+            boolean[] avanzados = new boolean[shards.length];
+            boolean liberados = true;
+            while (liberados) {
+                for (int indice = 0; indice < shards.length; indice++) {
+                    avanzados[indice] |= marcarPersistido(indice, persistidos.getOrDefault(indice, 0L));
+                }
+                liberados = creditosRetenidos.removeIf(credito -> {
+                    if (shards[credito.shardDebito()].diario().persistido() < credito.secuenciaDebito()) {
+                        return false;
+                    }
+                    shards[credito.shard()].diario().liberar(credito.secuencia());
+                    return true;
+                });
+            }
+            for (int indice = 0; indice < shards.length; indice++) {
+                if (avanzados[indice]) {
+                    shards[indice].enviar(OperacionLedger.compactar());
+                }
+            }
+        } finally {
+            vaciando.unlock();
+        }
+    }
+
+    private boolean marcarPersistido(int indice, long secuencia) {
+        try {
+            return shards[indice].diario().marcarPersistido(secuencia);
+        } catch (IOException e) {
+            log.error("No se pudo actualizar el checkpoint del shard {}", indice, e);
+            return false;
+        }
+    }
+
+    private void recuperar() throws IOException {
+        List<RegistroDiario> registros = new ArrayList<>();
+        for (ShardCuentas shard : shards) {
+            registros.addAll(shard.diario().leerPendientes());
+        }
+        if (registros.isEmpty()) {
+            return;
+        }
+        log.warn("Recuperando {} movimientos del diario del ledger que no alcanzaron a persistirse", registros.size());
+
+        // debitos de transferencias cuyo credito no llego a la base: se retienen otra vez hasta que lo este
+        Map<Long, RegistroDiario> debitosPendientes = new HashMap<>();
+        Set<Long> transferenciasAcreditadas = new HashSet<>();
+        for (RegistroDiario registro : registros) {
+            if (!registro.debito()) {
+                transferenciasAcreditadas.add(registro.transferenciaId());
+            } else if ("TRANSFERENCIA".equals(registro.tipoTransaccion())) {
+                debitosPendientes.put(registro.transferenciaId(), registro);
+                shardDe(registro.cuentaId()).diario().retener(registro.secuencia());
+            }
+        }
+        for (RegistroDiario registro : registros) {
+            ShardCuentas shard = shardDe(registro.cuentaId());
+            Productos cuenta = shard.cuenta(registro.cuentaId());
+            RegistroDiario debito = registro.debito() ? null : debitosPendientes.get(registro.transferenciaId());
+            if (cuenta == null) {
+                log.error("La cuenta {} del diario ya no existe, se omite el registro {}", registro.cuentaId(),
+                        registro.secuencia());
+                if (debito != null) {
+                    liberarDebito(debito);
+                }
+                continue;
+            }
+            cuenta.setSaldo(registro.saldoResultante());
+            Productos instantanea = copiar(cuenta);
+            if (debito == null) {
+                escrituraDiferida.encolar(shard.indice(), registro.secuencia(), instantanea,
+                        transaccionRecuperada(registro, instantanea));
+            } else {
+                encolarCredito(shard, registro.secuencia(), registro.compensacion(), instantanea,
+                        transaccionRecuperada(registro, instantanea), debito);
+            }
+        }
+        for (RegistroDiario debito : debitosPendientes.values()) {
+            if (!transferenciasAcreditadas.contains(debito.transferenciaId())) {
+                acreditarPendiente(debito);
+            }
+        }
+        vaciar();
+        if (!escrituraDiferida.vacia()) {
+            throw new IllegalStateException("No se pudieron persistir los movimientos recuperados del ledger.");
+        }
+        for (ShardCuentas shard : shards) {
+            shard.diario().compactarSiPersistido();
+        }
+    }
+
+    private void acreditarPendiente(RegistroDiario debito) throws IOException {
+        ShardCuentas shard = shardDe(debito.contraparteId());
+        Productos destino = shard.cuenta(debito.contraparteId());
+        ShardCuentas shardReverso = destino == null ? shardDe(debito.cuentaId()) : shard;
+        Productos cuenta = destino == null ? shardReverso.cuenta(debito.cuentaId()) : destino;
+        if (cuenta == null) {
+            log.error("No se pudo completar la transferencia {} del diario", debito.transferenciaId());
+            liberarDebito(debito);
+            return;
+        }
+        cuenta.setSaldo(cuenta.getSaldo().sumar(debito.monto()));
+        long secuencia = shardReverso.diario().siguienteSecuencia();
+        shardReverso.diario().registrar(new RegistroDiario(secuencia, false, destino == null, "TRANSFERENCIA",
+                cuenta.getId(), destino == null ? debito.contraparteId() : debito.cuentaId(), debito.transferenciaId(),
+                debito.monto(), cuenta.getSaldo(), System.currentTimeMillis()));
+        shardReverso.diario().sincronizar();
+        Productos instantanea = copiar(cuenta);
+        Transaccion transaccion = null;
+        if (destino != null) {
+            Productos origen = copiar(shardDe(debito.cuentaId()).cuenta(debito.cuentaId()));
+            transaccion = transaccion("TRANSFERENCIA", debito.monto(), origen, instantanea);
+        }
+        encolarCredito(shardReverso, secuencia, destino == null, instantanea, transaccion, debito);
+    }
+
+    // no hay credito que esperar: el debito sigue el checkpoint de su shard como cualquier otro registro
+    private void liberarDebito(RegistroDiario debito) {
+        shardDe(debito.cuentaId()).diario().liberar(debito.secuencia());
+    }
+
+    // como en ShardCuentas.acreditar: el credito libera su debito al persistirse y, si no es una compensacion, queda
+    // retenido hasta que el checkpoint del origen pase el debito
+    private void encolarCredito(ShardCuentas shard, long secuencia, boolean compensacion, Productos cuenta,
+                                Transaccion transaccion, RegistroDiario debito) {
+        if (!compensacion) {
+            shard.diario().retener(secuencia);
+        }
+        escrituraDiferida.encolar(shard.indice(), secuencia, cuenta, transaccion,
+                shardDe(debito.cuentaId()).indice(), debito.secuencia());
+    }
+
+    private Transaccion transaccionRecuperada(RegistroDiario registro, Productos cuenta) {
+        if (!registro.completaMovimiento()) {
+            return null;
+        }
+        Transaccion transaccion = new Transaccion();
+        transaccion.setTipo(registro.tipoTransaccion());
+        transaccion.setMonto(registro.monto());
+        transaccion.setFechaHoraTransaccion(
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(registro.epochMillis()), ZoneId.systemDefault()));
+        if (registro.debito()) {
+            transaccion.setCuentaOrigen(cuenta);
+        } else {
+            transaccion.setCuentaDestino(cuenta);
+            if (registro.contraparteId() != 0L) {
+                transaccion.setCuentaOrigen(shardDe(registro.contraparteId()).cuenta(registro.contraparteId()));
+            }
+        }
+        return transaccion;
+    }
+
+    static Transaccion transaccion(String tipo, Money monto, Productos origen, Productos destino) {
+        Transaccion transaccion = new Transaccion();
+        transaccion.setTipo(tipo);
+        transaccion.setMonto(monto);
+        transaccion.setCuentaOrigen(origen);
+        transaccion.setCuentaDestino(destino);
+        transaccion.setFechaHoraTransaccion(LocalDateTime.now());
+        return transaccion;
+    }
+
+    static Productos copiar(Productos cuenta) {
+        Productos copia = new Productos();
+        copia.setId(cuenta.getId());
+        copia.setTipoCuenta(cuenta.getTipoCuenta());
+        copia.setNumeroCuenta(cuenta.getNumeroCuenta());
+        copia.setEstado(cuenta.getEstado());
+        copia.setSaldo(cuenta.getSaldo());
+        copia.setExentaGmf(cuenta.isExentaGmf());
+        copia.setFechaCreacion(cuenta.getFechaCreacion());
+        copia.setFechaModificacion(cuenta.getFechaModificacion());
+        copia.setCliente(cuenta.getCliente());
+        return copia;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.ledger;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+
+import java.util.concurrent.CompletableFuture;
+
+class OperacionLedger {
+    enum Tipo { VERIFICAR, DEBITO, CREDITO, COMPACTAR, RECARGAR }
+
+    final Tipo tipo;
+    final String tipoTransaccion;
+    final Long cuentaId;
+    final Long contraparteId;
+    final Money monto;
+    final long transferenciaId;
+    final boolean compensacion;
+    final Productos origen;
+    // secuencia del debito en el diario del origen, para los creditos de una transferencia
+    final long secuenciaDebito;
+    final CompletableFuture<Transaccion> resultado;
+
+    private OperacionLedger(Tipo tipo, String tipoTransaccion, Long cuentaId, Long contraparteId, Money monto,
+                            long transferenciaId, boolean compensacion, Productos origen, long secuenciaDebito,
+                            CompletableFuture<Transaccion> resultado) {
+        this.tipo = tipo;
+        this.tipoTransaccion = tipoTransaccion;
+        this.cuentaId = cuentaId;
+        this.contraparteId = contraparteId;
+        this.monto = monto;
+        this.transferenciaId = transferenciaId;
+        this.compensacion = compensacion;
+        this.origen = origen;
+        this.secuenciaDebito = secuenciaDebito;
+        this.resultado = resultado;
+    }
+
+    static OperacionLedger verificar(Long cuentaId, CompletableFuture<Transaccion> resultado) {
+        return new OperacionLedger(Tipo.VERIFICAR, null, cuentaId, null, null, 0, false, null, 0, resultado);
+    }
+
+    static OperacionLedger debito(String tipoTransaccion, Long cuentaId, Long contraparteId, Money monto,
+                                  long transferenciaId, CompletableFuture<Transaccion> resultado) {
+        return new OperacionLedger(Tipo.DEBITO, tipoTransaccion, cuentaId, contraparteId, monto, transferenciaId,
+                false, null, 0, resultado);
+    }
+
+    static OperacionLedger credito(String tipoTransaccion, Long cuentaId, Long contraparteId, Money monto,
+                                   long transferenciaId, Productos origen, long secuenciaDebito,
+                                   CompletableFuture<Transaccion> resultado) {
+        return new OperacionLedger(Tipo.CREDITO, tipoTransaccion, cuentaId, contraparteId, monto, transferenciaId,
+                false, origen, secuenciaDebito, resultado);
+    }
+
+    static OperacionLedger compensacion(Long cuentaId, Long contraparteId, Money monto, long transferenciaId,
+                                        long secuenciaDebito, CompletableFuture<Transaccion> resultado) {
+        return new OperacionLedger(Tipo.CREDITO, "TRANSFERENCIA", cuentaId, contraparteId, monto, transferenciaId,
+                true, null, secuenciaDebito, resultado);
+    }
+
+    static OperacionLedger recargar(Long cuentaId, CompletableFuture<Transaccion> resultado) {
+        return new OperacionLedger(Tipo.RECARGAR, null, cuentaId, null, null, 0, false, null, 0, resultado);
+    }
+
+    static OperacionLedger compactar() {
+        return new OperacionLedger(Tipo.COMPACTAR, null, null, null, null, 0, false, null, 0, null);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.ledger;
+
+import com.example.demo.dinero.Money;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+record RegistroDiario(long secuencia, boolean debito, boolean compensacion, String tipoTransaccion,
+                      long cuentaId, long contraparteId, long transferenciaId,
+                      Money monto, Money saldoResultante, long epochMillis) {
+
+    void escribir(DataOutputStream salida) throws IOException {
+        salida.writeLong(secuencia);
+        salida.writeBoolean(debito);
+        salida.writeBoolean(compensacion);
+        salida.writeUTF(tipoTransaccion);
+        salida.writeLong(cuentaId);
+        salida.writeLong(contraparteId);
+        salida.writeLong(transferenciaId);
+        salida.writeUTF(monto.toString());
+        salida.writeUTF(saldoResultante.toString());
+        salida.writeLong(epochMillis);
+    }
+
+    static RegistroDiario leer(DataInputStream entrada) throws IOException {
+        return new RegistroDiario(
+                entrada.readLong(),
+                entrada.readBoolean(),
+                entrada.readBoolean(),
+                entrada.readUTF(),
+                entrada.readLong(),
+                entrada.readLong(),
+                entrada.readLong(),
+                Money.parse(entrada.readUTF()),
+                Money.parse(entrada.readUTF()),
+                entrada.readLong());
+    }
+
+    boolean completaMovimiento() {
+        if (compensacion) {
+            return false;
+        }
+        return debito ? "RETIRO".equals(tipoTransaccion) : true;
+    }
+}
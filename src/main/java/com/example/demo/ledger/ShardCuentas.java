@@ -0,0 +1,270 @@
+package com.example.demo.ledger;
+
+import com.example.demo.exceptions.InsufficientBalanceException;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Unico escritor de las cuentas asignadas a este shard. Las operaciones llegan por una cola sin
+ * bloqueos y se aplican en lotes; el lote se confirma despues de sincronizar el diario.
+ */
+class ShardCuentas implements Runnable {
+    private static final Logger log = LoggerFactory.getLogger(ShardCuentas.class);
+
+    private final int indice;
+    private final int tamanoLote;
+    private final LedgerEnMemoria ledger;
+    private final DiarioShard diario;
+    private final Queue<OperacionLedger> entrada = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Productos> cuentas = new HashMap<>();
+    private final List<PorConfirmar> confirmaciones = new ArrayList<>();
+    private volatile Thread hilo;
+    private volatile boolean activo = true;
+
+    ShardCuentas(int indice, int tamanoLote, LedgerEnMemoria ledger, DiarioShard diario) {
+        this.indice = indice;
+        this.tamanoLote = tamanoLote;
+        this.ledger = ledger;
+        this.diario = diario;
+    }
+
+    int indice() {
+        return indice;
+    }
+
+    DiarioShard diario() {
+        return diario;
+    }
+
+    void iniciar() {
+        hilo = new Thread(this, "ledger-shard-" + indice);
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    void detener() throws InterruptedException {
+        activo = false;
+        LockSupport.unpark(hilo);
+        hilo.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    void enviar(OperacionLedger operacion) {
+        if (!activo) {
+            if (operacion.resultado != null) {
+                operacion.resultado.completeExceptionally(new IllegalStateException("El ledger no esta disponible."));
+            }
+            return;
+        }
+        entrada.offer(operacion);
+        LockSupport.unpark(hilo);
+    }
+
+    void restaurar(Productos cuenta) {
+        cuentas.put(cuenta.getId(), cuenta);
+    }
+
+    Productos cuenta(Long id) {
+        return buscarCuenta(id);
+    }
+
+    @Override
+    public void run() {
+        while (activo || !entrada.isEmpty()) {
+            int aplicadas = 0;
+            OperacionLedger operacion;
+            while (aplicadas < tamanoLote && (operacion = entrada.poll()) != null) {
+                aplicar(operacion);
+                aplicadas++;
+            }
+            if (aplicadas == 0) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+                continue;
+            }
+            confirmarLote();
+        }
+    }
+
+    private void confirmarLote() {
+        try {
+            diario.sincronizar();
+        } catch (IOException e) {
+            log.error("No se pudo sincronizar el diario del shard {}", indice, e);
+            activo = false;
+            IllegalStateException error = new IllegalStateException("No se pudo registrar la operacion en el diario.", e);
+            confirmaciones.forEach(pendiente -> pendiente.futuro().completeExceptionally(error));
+            confirmaciones.clear();
+            OperacionLedger operacion;
+            while ((operacion = entrada.poll()) != null) {
+                if (operacion.resultado != null) {
+                    operacion.resultado.completeExceptionally(error);
+                }
+            }
+            return;
+        }
+        confirmaciones.forEach(pendiente -> pendiente.accion().run());
+        confirmaciones.clear();
+    }
+
+    private void aplicar(OperacionLedger operacion) {
+        try {
+            switch (operacion.tipo) {
+                case VERIFICAR -> verificar(operacion);
+                case DEBITO -> debitar(operacion);
+                case CREDITO -> acreditar(operacion);
+                case COMPACTAR -> diario.compactarSiPersistido();
+                case RECARGAR -> recargar(operacion);
+            }
+        } catch (RuntimeException | IOException e) {
+            if (operacion.resultado != null) {
+                operacion.resultado.completeExceptionally(e);
+            } else {
+                log.warn("Fallo una operacion interna del shard {}", indice, e);
+            }
+        }
+    }
+
+    private void verificar(OperacionLedger operacion) {
+        if (buscarCuenta(operacion.cuentaId) == null) {
+            operacion.resultado.completeExceptionally(
+                    new ResourceNotFoundException("Cuenta destino no encontrada con id: " + operacion.cuentaId));
+            return;
+        }
+        operacion.resultado.complete(null);
+    }
+
+    // la fila cambio fuera del ledger: se toman sus datos y se conserva el saldo en memoria, que puede ir por delante
+    private void recargar(OperacionLedger operacion) {
+        Productos cargada = cuentas.get(operacion.cuentaId);
+        if (cargada != null) {
+            Productos fila = ledger.cargarCuenta(operacion.cuentaId);
+            if (fila == null) {
+                cuentas.remove(operacion.cuentaId);
+            } else {
+                fila.setSaldo(cargada.getSaldo());
+                cuentas.put(operacion.cuentaId, fila);
+            }
+        }
+        operacion.resultado.complete(null);
+    }
+
+    private void debitar(OperacionLedger operacion) throws IOException {
+        verificarMonto(operacion);
+        Productos cuenta = buscarCuenta(operacion.cuentaId);
+        if (cuenta == null) {
+            throw new ResourceNotFoundException("Cuenta de origen no encontrada con id: " + operacion.cuentaId);
+        }
+        if (cuenta.getSaldo().menorQue(operacion.monto)) {
+            throw new InsufficientBalanceException("RETIRO".equals(operacion.tipoTransaccion)
+                    ? "Saldo insuficiente para realizar el retiro."
+                    : "Saldo insuficiente en la cuenta de origen.");
+        }
+        cuenta.setSaldo(cuenta.getSaldo().restar(operacion.monto));
+        long secuencia = registrar(operacion, cuenta, true);
+        Productos instantanea = LedgerEnMemoria.copiar(cuenta);
+
+        if ("RETIRO".equals(operacion.tipoTransaccion)) {
+            Transaccion transaccion = LedgerEnMemoria.transaccion("RETIRO", operacion.monto, instantanea, null);
+            confirmaciones.add(new PorConfirmar(operacion.resultado, () -> {
+                ledger.escrituraDiferida().encolar(indice, secuencia, instantanea, transaccion);
+                operacion.resultado.complete(transaccion);
+            }));
+        } else {
+            // el debito queda en el diario hasta que su credito este en la base: si se cae antes, la recuperacion lo
+            // encuentra y completa la transferencia
+            diario.retener(secuencia);
+            confirmaciones.add(new PorConfirmar(operacion.resultado, () -> {
+                ledger.escrituraDiferida().encolar(indice, secuencia, instantanea, null);
+                ledger.shardDe(operacion.contraparteId).enviar(OperacionLedger.credito(
+                        operacion.tipoTransaccion, operacion.contraparteId, operacion.cuentaId, operacion.monto,
+                        operacion.transferenciaId, instantanea, secuencia, operacion.resultado));
+            }));
+        }
+    }
+
+    private void acreditar(OperacionLedger operacion) throws IOException {
+        verificarMonto(operacion);
+        Productos cuenta = buscarCuenta(operacion.cuentaId);
+        if (cuenta == null) {
+            IllegalArgumentException error =
+                    new ResourceNotFoundException("Cuenta destino no encontrada con id: " + operacion.cuentaId);
+            if (operacion.origen == null) {
+                throw error;
+            }
+            // la cuenta destino desaparecio despues de verificarla: se devuelve el debito al origen
+            ledger.shardDe(operacion.contraparteId).enviar(OperacionLedger.compensacion(
+                    operacion.contraparteId, operacion.cuentaId, operacion.monto, operacion.transferenciaId,
+                    operacion.secuenciaDebito, operacion.resultado));
+            operacion.resultado.completeExceptionally(error);
+            return;
+        }
+        cuenta.setSaldo(cuenta.getSaldo().sumar(operacion.monto));
+        long secuencia = registrar(operacion, cuenta, false);
+        Productos instantanea = LedgerEnMemoria.copiar(cuenta);
+        // la compensacion vuelve a la cuenta del debito, en este mismo shard
+        int shardDebito = operacion.secuenciaDebito == 0 || operacion.compensacion
+                ? indice
+                : ledger.shardDe(operacion.contraparteId).indice();
+        if (operacion.secuenciaDebito != 0 && !operacion.compensacion) {
+            // el credito sigue en el diario hasta que el checkpoint del origen pase el debito
+            diario.retener(secuencia);
+        }
+
+        if (operacion.compensacion) {
+            confirmaciones.add(new PorConfirmar(operacion.resultado,
+                    () -> ledger.escrituraDiferida().encolar(indice, secuencia, instantanea, null, shardDebito,
+                            operacion.secuenciaDebito)));
+            return;
+        }
+        Transaccion transaccion = "DEPOSITO".equals(operacion.tipoTransaccion)
+                ? LedgerEnMemoria.transaccion("DEPOSITO", operacion.monto, null, instantanea)
+                : LedgerEnMemoria.transaccion("TRANSFERENCIA", operacion.monto, operacion.origen, instantanea);
+        confirmaciones.add(new PorConfirmar(operacion.resultado, () -> {
+            ledger.escrituraDiferida().encolar(indice, secuencia, instantanea, transaccion, shardDebito,
+                    operacion.secuenciaDebito);
+            operacion.resultado.complete(transaccion);
+        }));
+    }
+
+    // el servicio ya lo valida; aqui protege a cualquier otro llamador del ledger
+    private static void verificarMonto(OperacionLedger operacion) {
+        if (operacion.monto == null || !operacion.monto.esPositivo()) {
+            throw new IllegalArgumentException("El monto de la transacción debe ser positivo.");
+        }
+    }
+
+    private long registrar(OperacionLedger operacion, Productos cuenta, boolean debito) throws IOException {
+        long secuencia = diario.siguienteSecuencia();
+        diario.registrar(new RegistroDiario(secuencia, debito, operacion.compensacion, operacion.tipoTransaccion,
+                operacion.cuentaId, operacion.contraparteId == null ? 0L : operacion.contraparteId,
+                operacion.transferenciaId, operacion.monto, cuenta.getSaldo(), System.currentTimeMillis()));
+        return secuencia;
+    }
+
+    private Productos buscarCuenta(Long id) {
+        Productos cuenta = cuentas.get(id);
+        if (cuenta == null) {
+            cuenta = ledger.cargarCuenta(id);
+            if (cuenta != null) {
+                cuentas.put(id, cuenta);
+            }
+        }
+        return cuenta;
+    }
+
+    private record PorConfirmar(CompletableFuture<Transaccion> futuro, Runnable accion) {
+    }
+}
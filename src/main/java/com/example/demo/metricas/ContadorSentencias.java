@@ -0,0 +1,38 @@
+package com.example.demo.metricas;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cuenta las sentencias SQL que Hibernate prepara en el hilo actual. {@link ConteoSentenciasFilter} abre un
+ * conteo por peticion HTTP y lo vincula al hilo que la atiende (y al hilo asincrono en las respuestas en streaming).
+ */
+public class ContadorSentencias implements StatementInspector {
+    private static final ThreadLocal<Conteo> ACTUAL = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        Conteo conteo = ACTUAL.get();
+        if (conteo != null) {
+            conteo.sentencias.incrementAndGet();
+        }
+        return sql;
+    }
+
+    public static void vincular(Conteo conteo) {
+        ACTUAL.set(conteo);
+    }
+
+    public static void desvincular() {
+        ACTUAL.remove();
+    }
+
+    public static final class Conteo {
+        private final AtomicInteger sentencias = new AtomicInteger();
+
+        public int getSentencias() {
+            return sentencias.get();
+        }
+    }
+}
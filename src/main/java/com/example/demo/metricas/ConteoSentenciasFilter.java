@@ -0,0 +1,98 @@
+package com.example.demo.metricas;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registra cuantas sentencias SQL ejecuta cada peticion en {@code banco.http.sentencias} (etiquetas method y uri)
+ * y avisa en el log cuando una peticion pasa del umbral, que suele ser un N+1. Con
+ * {@code banco.sentencias.encabezado=true} (solo desarrollo y pruebas) la respuesta se bufferiza para poder
+ * devolver el total en el encabezado {@value #ENCABEZADO}.
+ */
+@Component
+public class ConteoSentenciasFilter extends OncePerRequestFilter {
+    public static final String ENCABEZADO = "X-Sentencias-SQL";
+    public static final String METRICA = "banco.http.sentencias";
+    public static final String ATRIBUTO_CONTEO = ConteoSentenciasFilter.class.getName() + ".conteo";
+    private static final Logger log = LoggerFactory.getLogger(ConteoSentenciasFilter.class);
+
+    private final MeterRegistry registry;
+    private final Map<String, DistributionSummary> resumenes = new ConcurrentHashMap<>();
+    @Value("${banco.sentencias.encabezado:false}")
+    private boolean encabezado;
+    @Value("${banco.sentencias.umbral-alerta:20}")
+    private int umbralAlerta = 20;
+
+    // en los tests de slice web no hay registro de metricas; ahi se usa el global
+    public ConteoSentenciasFilter(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    // el extracto se escribe en un hilo asincrono; el conteo se cierra en el despacho final
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContadorSentencias.Conteo conteo = (ContadorSentencias.Conteo) request.getAttribute(ATRIBUTO_CONTEO);
+        if (conteo == null) {
+            conteo = new ContadorSentencias.Conteo();
+            request.setAttribute(ATRIBUTO_CONTEO, conteo);
+        }
+        HttpServletResponse respuesta = response;
+        if (encabezado && WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class) == null) {
+            respuesta = new ContentCachingResponseWrapper(response);
+        }
+        ContadorSentencias.vincular(conteo);
+        try {
+            filterChain.doFilter(request, respuesta);
+        } finally {
+            ContadorSentencias.desvincular();
+        }
+        if (isAsyncStarted(request)) {
+            return;
+        }
+        registrar(request, conteo.getSentencias());
+        ContentCachingResponseWrapper buffer = WebUtils.getNativeResponse(respuesta, ContentCachingResponseWrapper.class);
+        if (buffer != null) {
+            buffer.setHeader(ENCABEZADO, String.valueOf(conteo.getSentencias()));
+            buffer.copyBodyToResponse();
+        }
+    }
+
+    private void registrar(HttpServletRequest request, int sentencias) {
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = patron == null ? "UNKNOWN" : patron.toString();
+        String clave = request.getMethod() + " " + uri;
+        resumenes.computeIfAbsent(clave, k -> DistributionSummary.builder(METRICA)
+                        .description("Sentencias SQL ejecutadas por peticion")
+                        .tag("method", request.getMethod())
+                        .tag("uri", uri)
+                        .register(registry))
+                .record(sentencias);
+        if (sentencias > umbralAlerta) {
+            log.warn("{} ejecuto {} sentencias SQL (umbral {}); revisar posible N+1", clave, sentencias, umbralAlerta);
+        }
+    }
+}
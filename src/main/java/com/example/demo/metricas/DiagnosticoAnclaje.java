@@ -0,0 +1,65 @@
+package com.example.demo.metricas;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+/**
+ * Con hilos virtuales, escucha el evento JFR {@code jdk.VirtualThreadPinned}: un hilo virtual que bloquea dentro
+ * de un {@code synchronized} (nuestro o de un driver) retiene su hilo portador. Cada anclaje que supera el umbral
+ * se cuenta en {@code banco.hilos.virtuales.anclados} y se registra con los marcos de la pila que lo causaron.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class DiagnosticoAnclaje {
+    private static final Logger log = LoggerFactory.getLogger(DiagnosticoAnclaje.class);
+    private static final String EVENTO = "jdk.VirtualThreadPinned";
+    private static final int MARCOS_EN_LOG = 8;
+
+    private final Counter anclados;
+    @Value("${banco.hilos-virtuales.umbral-anclaje:20ms}")
+    private Duration umbral = Duration.ofMillis(20);
+    private RecordingStream stream;
+
+    public DiagnosticoAnclaje(MeterRegistry registry) {
+        this.anclados = Counter.builder("banco.hilos.virtuales.anclados")
+                .description("Hilos virtuales anclados a su portador mas tiempo que el umbral")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        stream = new RecordingStream();
+        stream.enable(EVENTO).withThreshold(umbral).withStackTrace();
+        stream.onEvent(EVENTO, this::registrar);
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    public void detener() {
+        stream.close();
+    }
+
+    private void registrar(RecordedEvent evento) {
+        anclados.increment();
+        String pila = evento.getStackTrace() == null ? "sin pila" : evento.getStackTrace().getFrames().stream()
+                .limit(MARCOS_EN_LOG)
+                .map(RecordedFrame::getMethod)
+                .map(metodo -> metodo.getType().getName() + "." + metodo.getName())
+                .collect(Collectors.joining(" <- "));
+        log.warn("Hilo virtual anclado {} ms: {}", evento.getDuration().toMillis(), pila);
+    }
+}
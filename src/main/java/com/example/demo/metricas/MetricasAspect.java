@@ -0,0 +1,115 @@
+package com.example.demo.metricas;
+
+import com.example.demo.dto.ResultadoLoteDTO;
+import com.example.demo.dto.TransaccionDTO;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.exceptions.InsufficientBalanceException;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.services.TransaccionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide cada metodo publico de los {@code *ServiceImp} con el timer {@code banco.servicio} (etiquetas clase,
+ * operacion y resultado) y acumula el monto confirmado por tipo en {@code banco.transacciones.monto}.
+ * Los controladores ya quedan medidos por {@code http.server.requests} y los repositorios por
+ * {@code spring.data.repository.invocations}.
+ */
+@Aspect
+@Component
+public class MetricasAspect {
+    public static final String TIMER_SERVICIO = "banco.servicio";
+    public static final String CONTADOR_MONTO = "banco.transacciones.monto";
+    public static final String EXITO = "exito";
+    public static final String SALDO_INSUFICIENTE = "saldo_insuficiente";
+    public static final String NO_ENCONTRADO = "no_encontrado";
+    public static final String RECHAZADO = "rechazado";
+    public static final String ERROR = "error";
+
+    private final MeterRegistry registry;
+    // los meters se buscan una vez por combinacion de etiquetas; el registro por llamada es lo mas caro
+    private final Map<Clave, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> montos = new ConcurrentHashMap<>();
+
+    public MetricasAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * com.example.demo.services.Implement.*ServiceImp.*(..))")
+    public Object medirServicio(ProceedingJoinPoint punto) throws Throwable {
+        long inicio = System.nanoTime();
+        String resultado = EXITO;
+        try {
+            Object valor = punto.proceed();
+            if (punto.getThis() instanceof TransaccionService) {
+                registrarMonto(valor, punto.getArgs());
+            }
+            return valor;
+        } catch (Throwable e) {
+            resultado = resultado(e);
+            throw e;
+        } finally {
+            String clase = ClassUtils.getUserClass(punto.getTarget()).getSimpleName();
+            timers.computeIfAbsent(new Clave(clase, punto.getSignature().getName(), resultado), this::timer)
+                    .record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    static String resultado(Throwable error) {
+        if (error instanceof InsufficientBalanceException) {
+            return SALDO_INSUFICIENTE;
+        }
+        if (error instanceof ResourceNotFoundException || error instanceof NoSuchElementException) {
+            return NO_ENCONTRADO;
+        }
+        if (error instanceof IllegalArgumentException) {
+            return RECHAZADO;
+        }
+        return ERROR;
+    }
+
+    private void registrarMonto(Object valor, Object[] argumentos) {
+        if (valor instanceof Transaccion transaccion) {
+            contador(transaccion.getTipo()).increment(transaccion.getMonto().doubleValue());
+        } else if (valor instanceof List<?> resultados && argumentos.length == 1
+                && argumentos[0] instanceof List<?> lote) {
+            for (Object elemento : resultados) {
+                if (elemento instanceof ResultadoLoteDTO resultado && resultado.isExitosa()
+                        && lote.get(resultado.getIndice()) instanceof TransaccionDTO dto) {
+                    contador(resultado.getTipo()).increment(dto.getMonto().doubleValue());
+                }
+            }
+        }
+    }
+
+    private Counter contador(String tipo) {
+        return montos.computeIfAbsent(tipo, clave -> Counter.builder(CONTADOR_MONTO)
+                .description("Monto confirmado por tipo de transaccion")
+                .tag("tipo", clave)
+                .register(registry));
+    }
+
+    private Timer timer(Clave clave) {
+        return Timer.builder(TIMER_SERVICIO)
+                .description("Duracion de las operaciones de servicio")
+                .tag("clase", clave.clase())
+                .tag("operacion", clave.operacion())
+                .tag("resultado", clave.resultado())
+                .register(registry);
+    }
+
+    private record Clave(String clase, String operacion, String resultado) {
+    }
+}
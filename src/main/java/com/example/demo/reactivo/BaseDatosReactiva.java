@@ -0,0 +1,83 @@
+package com.example.demo.reactivo;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Pool R2DBC de la variante reactiva con su cliente y su operador transaccional. No se publican como beans:
+ * un {@code ConnectionFactory} o un segundo {@code TransactionManager} en el contexto desactivarian el
+ * {@code DataSource} y el {@code JpaTransactionManager} auto-configurados.
+ */
+public class BaseDatosReactiva implements AutoCloseable {
+    // mismo allocationSize que @SequenceGenerator en Transaccion
+    static final int TAMANO_BLOQUE_IDS = 50;
+
+    private final ConnectionPool pool;
+    private final DatabaseClient cliente;
+    private final TransactionalOperator transaccional;
+    private final TransactionalOperator transaccionalNueva;
+    private final boolean secuenciasNativas;
+
+    public BaseDatosReactiva(String url, String usuario, String clave, int tamanoPool) {
+        ConnectionFactoryOptions opciones = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, usuario)
+                .option(ConnectionFactoryOptions.PASSWORD, clave)
+                .build();
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(opciones))
+                .initialSize(Math.min(tamanoPool, 2))
+                .maxSize(tamanoPool)
+                .maxAcquireTime(Duration.ofSeconds(5))
+                .build());
+        this.cliente = DatabaseClient.create(pool);
+        R2dbcTransactionManager transactionManager = new R2dbcTransactionManager(pool);
+        this.transaccional = TransactionalOperator.create(transactionManager);
+        this.transaccionalNueva = TransactionalOperator.create(transactionManager,
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        // Hibernate emula las secuencias con tablas en MySQL; H2 las tiene nativas
+        this.secuenciasNativas = !pool.getMetadata().getName().toLowerCase().contains("mysql");
+    }
+
+    public DatabaseClient cliente() {
+        return cliente;
+    }
+
+    public TransactionalOperator transaccional() {
+        return transaccional;
+    }
+
+    /**
+     * Avanza la secuencia de transacciones igual que el optimizador pooled de Hibernate y devuelve el valor alto
+     * del bloque reservado, cuyos ids son (alto - {@value #TAMANO_BLOQUE_IDS}, alto].
+     */
+    Mono<Long> reservarBloqueTransacciones() {
+        if (secuenciasNativas) {
+            return cliente.sql("select next value for transaccion_seq")
+                    .map(fila -> fila.get(0, Long.class))
+                    .one();
+        }
+        Mono<Long> reserva = cliente.sql("select next_val from transaccion_seq for update")
+                .map(fila -> fila.get(0, Long.class))
+                .one()
+                .flatMap(actual -> cliente.sql("update transaccion_seq set next_val = :siguiente")
+                        .bind("siguiente", actual + TAMANO_BLOQUE_IDS)
+                        .then()
+                        .thenReturn(actual));
+        // en su propia transaccion: si no, la fila de la secuencia quedaria bloqueada hasta el commit del movimiento
+        return reserva.as(transaccionalNueva::transactional);
+    }
+
+    @Override
+    public void close() {
+        pool.dispose();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.reactivo;
+
+import com.example.demo.entities.Productos;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+
+/**
+ * Lecturas de {@code ProductosService} sobre R2DBC. Leen siempre de la base: la cache de metadatos es del lado
+ * bloqueante y sus invalidaciones no llegan aqui.
+ */
+public class ProductosReactivoService {
+    private final BaseDatosReactiva baseDatos;
+
+    public ProductosReactivoService(BaseDatosReactiva baseDatos) {
+        this.baseDatos = baseDatos;
+    }
+
+    public Mono<Productos> getProductoById(Long id) {
+        return baseDatos.cliente().sql("select id, cliente_id, tipo_cuenta, numero_cuenta, estado, saldo, exenta_gmf, "
+                        + "fecha_creacion, fecha_modificacion from productos where id = :id")
+                .bind("id", id)
+                .map(TransaccionReactivaService::producto)
+                .one()
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Producto no encontrado con id: " + id)));
+    }
+
+    public Mono<String> getEstadoProductoById(Long id) {
+        return baseDatos.cliente().sql("select estado from productos where id = :id")
+                .bind("id", id)
+                .map(fila -> Objects.toString(fila.get("estado", String.class), ""))
+                .one()
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Producto no encontrado con id: " + id)));
+    }
+}
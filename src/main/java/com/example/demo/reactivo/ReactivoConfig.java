@@ -0,0 +1,46 @@
+package com.example.demo.reactivo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "banco.reactivo.habilitado", havingValue = "true")
+public class ReactivoConfig {
+
+    @Bean(destroyMethod = "close")
+    public BaseDatosReactiva baseDatosReactiva(@Value("${banco.reactivo.r2dbc.url}") String url,
+                                               @Value("${banco.reactivo.r2dbc.usuario:${spring.datasource.username:}}") String usuario,
+                                               @Value("${banco.reactivo.r2dbc.clave:${spring.datasource.password:}}") String clave,
+                                               @Value("${banco.reactivo.r2dbc.tamano-pool:10}") int tamanoPool,
+                                               @Value("${banco.transaccion.motor:jpa}") String motor,
+                                               @Value("${banco.libro-mayor.habilitado:false}") boolean libroMayor) {
+        // la variante reactiva escribe el saldo en productos, igual que el motor jpa sin libro mayor
+        if (!"jpa".equals(motor) || libroMayor) {
+            throw new IllegalStateException("La variante reactiva requiere banco.transaccion.motor=jpa "
+                    + "y banco.libro-mayor.habilitado=false.");
+        }
+        return new BaseDatosReactiva(url, usuario, clave, tamanoPool);
+    }
+
+    @Bean
+    public TransaccionReactivaService transaccionReactivaService(BaseDatosReactiva baseDatos,
+                                                                 @Value("${banco.lote.tamano-maximo:10000}") int tamanoMaximoLote) {
+        return new TransaccionReactivaService(baseDatos, tamanoMaximoLote);
+    }
+
+    @Bean
+    public ProductosReactivoService productosReactivoService(BaseDatosReactiva baseDatos) {
+        return new ProductosReactivoService(baseDatos);
+    }
+
+    @Bean
+    public ServidorReactivo servidorReactivo(TransaccionReactivaService transacciones,
+                                             ProductosReactivoService productos,
+                                             ObjectMapper objectMapper,
+                                             @Value("${banco.reactivo.puerto:8081}") int puerto) {
+        return new ServidorReactivo(RutasReactivas.rutas(transacciones, productos), objectMapper, puerto);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.reactivo;
+
+import com.example.demo.dto.TransaccionDTO;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Rutas de la variante reactiva bajo {@value #PREFIJO}, con la misma forma que {@code TransaccionController} y las
+ * lecturas de {@code ProductosController}.
+ */
+public final class RutasReactivas {
+    public static final String PREFIJO = "/api/reactivo";
+    private static final ParameterizedTypeReference<List<TransaccionDTO>> LOTE = new ParameterizedTypeReference<>() {
+    };
+
+    private RutasReactivas() {
+    }
+
+    public static RouterFunction<ServerResponse> rutas(TransaccionReactivaService transacciones,
+                                                       ProductosReactivoService productos) {
+        return route()
+                .path(PREFIJO, rutas -> rutas
+                        .POST("/transaccion/realizar", peticion -> dto(peticion).flatMap(dto ->
+                                ok(transacciones.realizarTransaccion(dto.getCuentaOrigenId(), dto.getCuentaDestinoId(),
+                                        dto.getMonto()))))
+                        .POST("/transaccion/retirar", peticion -> dto(peticion).flatMap(dto ->
+                                ok(transacciones.realizarRetiro(dto.getCuentaOrigenId(), dto.getMonto()))))
+                        .POST("/transaccion/depositar", peticion -> dto(peticion).flatMap(dto ->
+                                ok(transacciones.realizarDeposito(dto.getCuentaDestinoId(), dto.getMonto()))))
+                        .POST("/transaccion/lote", peticion -> peticion.bodyToMono(LOTE).flatMap(lote ->
+                                ok(transacciones.realizarLote(lote))))
+                        .GET("/productos/{id}", peticion -> ok(productos.getProductoById(id(peticion))))
+                        .GET("/{id}/estado", peticion -> ok(productos.getEstadoProductoById(id(peticion)))))
+                .onError(ResourceNotFoundException.class, (error, peticion) -> error(HttpStatus.NOT_FOUND, error))
+                .onError(IllegalArgumentException.class, (error, peticion) -> error(HttpStatus.BAD_REQUEST, error))
+                .build();
+    }
+
+    private static Mono<TransaccionDTO> dto(ServerRequest peticion) {
+        return peticion.bodyToMono(TransaccionDTO.class);
+    }
+
+    private static Long id(ServerRequest peticion) {
+        try {
+            return Long.valueOf(peticion.pathVariable("id"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Id inválido: " + peticion.pathVariable("id"));
+        }
+    }
+
+    private static Mono<ServerResponse> ok(Mono<?> cuerpo) {
+        return cuerpo.flatMap(valor -> ServerResponse.ok().bodyValue(valor));
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus estado, Throwable error) {
+        return ServerResponse.status(estado).bodyValue(error.getMessage() == null ? "" : error.getMessage());
+    }
+}
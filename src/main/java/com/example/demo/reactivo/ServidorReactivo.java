@@ -0,0 +1,61 @@
+package com.example.demo.reactivo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Servidor Netty de la variante reactiva. Corre junto al Tomcat de Spring MVC en su propio puerto: un mismo
+ * contexto no puede servir a la vez la pila servlet y la reactiva.
+ */
+public class ServidorReactivo implements SmartLifecycle {
+    private final HttpHandler handler;
+    private final int puerto;
+    private volatile DisposableServer servidor;
+
+    public ServidorReactivo(RouterFunction<ServerResponse> rutas, ObjectMapper objectMapper, int puerto) {
+        HandlerStrategies estrategias = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        this.handler = RouterFunctions.toHttpHandler(rutas, estrategias);
+        this.puerto = puerto;
+    }
+
+    @Override
+    public void start() {
+        servidor = HttpServer.create()
+                .port(puerto)
+                .handle(new ReactorHttpHandlerAdapter(handler))
+                .bindNow();
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer actual = servidor;
+        servidor = null;
+        if (actual != null) {
+            actual.disposeNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return servidor != null;
+    }
+
+    public int getPuerto() {
+        return servidor == null ? puerto : servidor.port();
+    }
+}
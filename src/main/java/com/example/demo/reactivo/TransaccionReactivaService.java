@@ -0,0 +1,193 @@
+package com.example.demo.reactivo;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ResultadoLoteDTO;
+import com.example.demo.dto.TransaccionDTO;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.services.ProcesadorLoteTransacciones;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Operaciones de {@code TransaccionService} sobre R2DBC. Cada operacion bloquea sus cuentas en orden de id con
+ * {@code select ... for update} dentro de una transaccion reactiva, aplica las mismas reglas que el lote JPA
+ * ({@link ProcesadorLoteTransacciones#aplicar}) y escribe saldos y transacciones antes de confirmar.
+ */
+public class TransaccionReactivaService {
+    private static final String COLUMNAS = "id, cliente_id, tipo_cuenta, numero_cuenta, estado, saldo, exenta_gmf, "
+            + "fecha_creacion, fecha_modificacion";
+
+    private final BaseDatosReactiva baseDatos;
+    private final int tamanoMaximoLote;
+    private final AtomicReference<BloqueIds> bloque = new AtomicReference<>(BloqueIds.VACIO);
+
+    public TransaccionReactivaService(BaseDatosReactiva baseDatos, int tamanoMaximoLote) {
+        this.baseDatos = baseDatos;
+        this.tamanoMaximoLote = tamanoMaximoLote;
+    }
+
+    public Mono<Transaccion> realizarTransaccion(Long cuentaOrigenId, Long cuentaDestinoId, Money monto) {
+        return realizar(new TransaccionDTO(cuentaOrigenId, cuentaDestinoId, monto));
+    }
+
+    public Mono<Transaccion> realizarRetiro(Long cuentaOrigenId, Money monto) {
+        return realizar(new TransaccionDTO(cuentaOrigenId, null, monto));
+    }
+
+    public Mono<Transaccion> realizarDeposito(Long cuentaDestinoId, Money monto) {
+        return realizar(new TransaccionDTO(null, cuentaDestinoId, monto));
+    }
+
+    public Mono<List<ResultadoLoteDTO>> realizarLote(List<TransaccionDTO> lote) {
+        if (lote.size() > tamanoMaximoLote) {
+            return Mono.error(new IllegalArgumentException(
+                    "El lote no puede tener más de " + tamanoMaximoLote + " transacciones."));
+        }
+        Mono<List<ResultadoLoteDTO>> trabajo = bloquear(lote).flatMap(cuentas -> {
+            LocalDateTime ahora = LocalDateTime.now();
+            List<ResultadoLoteDTO> resultados = new ArrayList<>(lote.size());
+            List<Transaccion> transacciones = new ArrayList<>(lote.size());
+            List<ResultadoLoteDTO> exitosas = new ArrayList<>(lote.size());
+            for (int i = 0; i < lote.size(); i++) {
+                try {
+                    Transaccion transaccion = ProcesadorLoteTransacciones.aplicar(lote.get(i), cuentas);
+                    transaccion.setFechaHoraTransaccion(ahora);
+                    ResultadoLoteDTO resultado = ResultadoLoteDTO.exitosa(i, transaccion.getTipo());
+                    transacciones.add(transaccion);
+                    exitosas.add(resultado);
+                    resultados.add(resultado);
+                } catch (IllegalArgumentException e) {
+                    resultados.add(ResultadoLoteDTO.fallida(i, e.getMessage()));
+                }
+            }
+            return guardar(cuentas, transacciones).then(Mono.fromSupplier(() -> {
+                for (int i = 0; i < exitosas.size(); i++) {
+                    exitosas.get(i).setTransaccionId(transacciones.get(i).getId());
+                }
+                return resultados;
+            }));
+        });
+        return trabajo.as(baseDatos.transaccional()::transactional);
+    }
+
+    private Mono<Transaccion> realizar(TransaccionDTO dto) {
+        Mono<Transaccion> trabajo = bloquear(List.of(dto)).flatMap(cuentas -> {
+            Transaccion transaccion;
+            try {
+                transaccion = ProcesadorLoteTransacciones.aplicar(dto, cuentas);
+            } catch (IllegalArgumentException e) {
+                return Mono.error(e);
+            }
+            transaccion.setFechaHoraTransaccion(LocalDateTime.now());
+            return guardar(cuentas, List.of(transaccion)).thenReturn(transaccion);
+        });
+        return trabajo.as(baseDatos.transaccional()::transactional);
+    }
+
+    // las cuentas se bloquean en orden de id para que dos transferencias cruzadas no se bloqueen entre si
+    private Mono<Map<Long, Productos>> bloquear(List<TransaccionDTO> lote) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (TransaccionDTO dto : lote) {
+            if (dto.getCuentaOrigenId() != null) {
+                ids.add(dto.getCuentaOrigenId());
+            }
+            if (dto.getCuentaDestinoId() != null) {
+                ids.add(dto.getCuentaDestinoId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return Mono.just(new HashMap<>());
+        }
+        return baseDatos.cliente().sql("select " + COLUMNAS + " from productos where id in (:ids) order by id for update")
+                .bind("ids", ids)
+                .map(TransaccionReactivaService::producto)
+                .all()
+                .collectMap(Productos::getId, producto -> producto, HashMap::new);
+    }
+
+    private Mono<Void> guardar(Map<Long, Productos> cuentas, List<Transaccion> transacciones) {
+        if (transacciones.isEmpty()) {
+            return Mono.empty();
+        }
+        DatabaseClient cliente = baseDatos.cliente();
+        LocalDateTime ahora = LocalDateTime.now();
+        Flux<Long> saldos = Flux.fromIterable(cuentas.values())
+                .concatMap(cuenta -> cliente.sql("update productos set saldo = :saldo, version = version + 1, "
+                                + "fecha_modificacion = :ahora where id = :id")
+                        .bind("saldo", cuenta.getSaldo().toBigDecimal())
+                        .bind("ahora", ahora)
+                        .bind("id", cuenta.getId())
+                        .fetch().rowsUpdated());
+        Flux<Long> inserciones = Flux.fromIterable(transacciones)
+                .concatMap(transaccion -> siguienteId().flatMap(id -> {
+                    transaccion.setId(id);
+                    DatabaseClient.GenericExecuteSpec insercion = cliente.sql("insert into transaccion "
+                                    + "(id, tipo, monto, cuenta_origen_id, cuenta_destino_id, fecha_hora_transaccion) "
+                                    + "values (:id, :tipo, :monto, :origen, :destino, :fecha)")
+                            .bind("id", id)
+                            .bind("tipo", transaccion.getTipo())
+                            .bind("monto", transaccion.getMonto().toBigDecimal())
+                            .bind("fecha", transaccion.getFechaHoraTransaccion());
+                    insercion = transaccion.getCuentaOrigen() == null ? insercion.bindNull("origen", Long.class)
+                            : insercion.bind("origen", transaccion.getCuentaOrigen().getId());
+                    insercion = transaccion.getCuentaDestino() == null ? insercion.bindNull("destino", Long.class)
+                            : insercion.bind("destino", transaccion.getCuentaDestino().getId());
+                    return insercion.fetch().rowsUpdated();
+                }));
+        return saldos.thenMany(inserciones).then();
+    }
+
+    private Mono<Long> siguienteId() {
+        BloqueIds actual = bloque.get();
+        long id = actual.siguiente.getAndIncrement();
+        if (id <= actual.alto) {
+            return Mono.just(id);
+        }
+        // dos hilos pueden reservar a la vez; el bloque que pierde solo deja un hueco en los ids
+        return baseDatos.reservarBloqueTransacciones().map(alto -> {
+            BloqueIds nuevo = new BloqueIds(Math.max(1, alto - BaseDatosReactiva.TAMANO_BLOQUE_IDS + 1), alto);
+            long primero = nuevo.siguiente.getAndIncrement();
+            bloque.set(nuevo);
+            return primero;
+        });
+    }
+
+    static Productos producto(Readable fila) {
+        Productos producto = new Productos();
+        producto.setId(fila.get("id", Long.class));
+        producto.setTipoCuenta(fila.get("tipo_cuenta", String.class));
+        producto.setNumeroCuenta(fila.get("numero_cuenta", String.class));
+        producto.setEstado(fila.get("estado", String.class));
+        producto.setSaldo(Money.of(fila.get("saldo", BigDecimal.class)));
+        producto.setExentaGmf(Boolean.TRUE.equals(fila.get("exenta_gmf", Boolean.class)));
+        producto.setFechaCreacion(fila.get("fecha_creacion", LocalDateTime.class));
+        producto.setFechaModificacion(fila.get("fecha_modificacion", LocalDateTime.class));
+        return producto;
+    }
+
+    private static final class BloqueIds {
+        static final BloqueIds VACIO = new BloqueIds(1, 0);
+
+        private final AtomicLong siguiente;
+        private final long alto;
+
+        BloqueIds(long bajo, long alto) {
+            this.siguiente = new AtomicLong(bajo);
+            this.alto = alto;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.demo.repository;
+
+import com.example.demo.entities.AsientoContable;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface AsientoContableRepository extends JpaRepository<AsientoContable, Long> {
+    String NETO = "coalesce(sum(case when a.tipo = 'CREDITO' then a.monto else -a.monto end), 0)";
+
+    @Query("select coalesce(max(a.secuencia), 0) from AsientoContable a where a.cuentaId = :cuentaId")
+    long findUltimaSecuencia(@Param("cuentaId") Long cuentaId);
+
+    @Query("select " + NETO + " from AsientoContable a where a.cuentaId = :cuentaId and a.secuencia > :secuencia")
+    BigDecimal sumarDesde(@Param("cuentaId") Long cuentaId, @Param("secuencia") long secuencia);
+
+    @Query("select " + NETO + " from AsientoContable a where a.cuentaId = :cuentaId"
+            + " and a.secuencia > :desde and a.secuencia <= :hasta")
+    BigDecimal sumarEntre(@Param("cuentaId") Long cuentaId, @Param("desde") long desde, @Param("hasta") long hasta);
+
+    @Query("select " + NETO + " from AsientoContable a where a.cuentaId = :cuentaId"
+            + " and a.secuencia > :secuencia and a.fechaHora <= :instante")
+    BigDecimal sumarHasta(@Param("cuentaId") Long cuentaId, @Param("secuencia") long secuencia,
+                          @Param("instante") LocalDateTime instante);
+
+    @Query("select max(a.fechaHora) from AsientoContable a where a.cuentaId = :cuentaId"
+            + " and a.secuencia > :desde and a.secuencia <= :hasta")
+    LocalDateTime findUltimaFechaEntre(@Param("cuentaId") Long cuentaId, @Param("desde") long desde,
+                                       @Param("hasta") long hasta);
+
+    @Query("select a.cuentaId from AsientoContable a where a.cuentaId is not null and a.secuencia > "
+            + "(select coalesce(max(s.secuencia), 0) from SaldoSnapshot s where s.cuentaId = a.cuentaId) "
+            + "group by a.cuentaId having count(a) >= :umbral")
+    List<Long> findCuentasParaCompactar(@Param("umbral") long umbral, Limit limit);
+
+    List<AsientoContable> findByTransaccionId(Long transaccionId);
+}
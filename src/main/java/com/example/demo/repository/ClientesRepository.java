@@ -1,7 +1,30 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.ClienteDTO;
+import com.example.demo.dto.ResumenClienteDTO;
 import com.example.demo.entities.Clientes;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface ClientesRepository extends JpaRepository<Clientes,Long> {
+    @Query("select new com.example.demo.dto.ClienteDTO(c.id, c.tipoIdentificacion, c.numeroIdentificacion, "
+            + "c.nombres, c.apellidos, c.edad, c.correoElectronico, c.fechaNacimiento, c.fechaCreacion, "
+            + "c.fechaModificacion, c.version) from Clientes c where c.id = :id")
+    Optional<ClienteDTO> findDatosById(@Param("id") Long id);
+
+    @Transactional(readOnly = true)
+    @Query("select new com.example.demo.dto.ResumenClienteDTO(c.id, c.tipoIdentificacion, c.numeroIdentificacion, "
+            + "c.nombres, c.apellidos, count(p.id), sum(p.saldo)) from Clientes c left join c.productos p "
+            + "where c.id = :id group by c.id, c.tipoIdentificacion, c.numeroIdentificacion, c.nombres, c.apellidos")
+    Optional<ResumenClienteDTO> findResumenById(@Param("id") Long id);
+
+    // lo unico que se lee para responder un If-None-Match: (version del cliente, id de cuenta, version de cuenta)
+    @Transactional(readOnly = true)
+    @Query("select c.version, p.id, p.version from Clientes c left join c.productos p where c.id = :id order by p.id")
+    List<Object[]> findVersionesById(@Param("id") Long id);
 }
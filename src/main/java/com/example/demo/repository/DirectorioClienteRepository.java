@@ -0,0 +1,7 @@
+package com.example.demo.repository;
+
+import com.example.demo.entities.DirectorioCliente;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DirectorioClienteRepository extends JpaRepository<DirectorioCliente, Long> {
+}
@@ -0,0 +1,7 @@
+package com.example.demo.repository;
+
+import com.example.demo.entities.DirectorioCuenta;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DirectorioCuentaRepository extends JpaRepository<DirectorioCuenta, Long> {
+}
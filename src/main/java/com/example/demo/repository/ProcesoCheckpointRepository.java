@@ -0,0 +1,20 @@
+package com.example.demo.repository;
+
+import com.example.demo.entities.ProcesoCheckpoint;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ProcesoCheckpointRepository extends JpaRepository<ProcesoCheckpoint, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from ProcesoCheckpoint c where c.id = :id")
+    Optional<ProcesoCheckpoint> findByIdParaActualizar(@Param("id") String id);
+
+    List<ProcesoCheckpoint> findByProcesoAndPeriodoOrderByParticion(String proceso, String periodo);
+}
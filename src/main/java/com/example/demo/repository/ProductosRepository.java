@@ -1,12 +1,64 @@
 package com.example.demo.repository;
 
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ProductoDTO;
 import com.example.demo.entities.Productos;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ProductosRepository extends JpaRepository<Productos, Long> {
     boolean existsByNumeroCuenta(String numeroCuenta);
 
+    String PRODUCTO = "select new com.example.demo.dto.ProductoDTO(p.id, p.tipoCuenta, p.numeroCuenta, p.estado, ";
+
+    // solo lectura explicito: con replicas habilitadas estas consultas de los GET pueden ir a una replica
+    @Transactional(readOnly = true)
+    @Query(PRODUCTO + "p.saldo, p.exentaGmf, p.fechaCreacion, p.fechaModificacion, p.version) from Productos p "
+            + "where p.cliente.id = :clienteId order by p.id")
+    List<ProductoDTO> findDatosByClienteId(@Param("clienteId") Long clienteId);
+
+    @Transactional(readOnly = true)
+    @Query(PRODUCTO + "p.saldo, p.exentaGmf, p.fechaCreacion, p.fechaModificacion, p.version) from Productos p "
+            + "where p.id = :id")
+    Optional<ProductoDTO> findDatosById(@Param("id") Long id);
+
+    @Query(PRODUCTO + "p.exentaGmf, p.fechaCreacion, p.fechaModificacion) from Productos p where p.id = :id")
+    Optional<ProductoDTO> findMetadatosById(@Param("id") Long id);
+
+    // lo unico que se lee para responder un If-None-Match
+    @Transactional(readOnly = true)
+    @Query("select p.version from Productos p where p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    boolean existsByClienteId(Long clienteId);
+
+    @Query("select p.numeroCuenta from Productos p where p.numeroCuenta between :desde and :hasta")
+    List<String> findNumerosCuentaEntre(@Param("desde") String desde, @Param("hasta") String hasta);
+
+    @Transactional(readOnly = true)
+    @Query("select p.saldo from Productos p where p.id = :id")
+    Optional<Money> findSaldoById(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Productos p set p.saldo = :saldo, p.version = p.version + 1, p.fechaModificacion = CURRENT_TIMESTAMP "
+            + "where p.id = :id")
+    int actualizarSaldo(@Param("id") Long id, @Param("saldo") Money saldo);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Productos p where p.id = :id")
+    Optional<Productos> findByIdParaActualizar(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Productos p where p.id in :ids order by p.id")
+    List<Productos> findAllByIdParaActualizar(@Param("ids") Collection<Long> ids);
+
 }
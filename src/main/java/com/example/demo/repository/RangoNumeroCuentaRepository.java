@@ -0,0 +1,24 @@
+package com.example.demo.repository;
+
+import com.example.demo.entities.RangoNumeroCuenta;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface RangoNumeroCuentaRepository extends JpaRepository<RangoNumeroCuenta, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from RangoNumeroCuenta r where r.prefijo = :prefijo")
+    Optional<RangoNumeroCuenta> bloquear(@Param("prefijo") String prefijo);
+
+    // insert y no save(): con el id asignado save() hace merge, que sobre una fila recien creada por otro nodo la
+    // reiniciaria en 0 en lugar de fallar por la clave
+    @Modifying
+    @Query(value = "insert into rango_numero_cuenta (prefijo, siguiente) values (:prefijo, 0)", nativeQuery = true)
+    int crear(@Param("prefijo") String prefijo);
+}
@@ -0,0 +1,7 @@
+package com.example.demo.repository;
+
+import com.example.demo.entities.SagaAplicada;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SagaAplicadaRepository extends JpaRepository<SagaAplicada, String> {
+}
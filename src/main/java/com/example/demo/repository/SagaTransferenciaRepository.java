@@ -0,0 +1,23 @@
+package com.example.demo.repository;
+
+import com.example.demo.entities.SagaTransferencia;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface SagaTransferenciaRepository extends JpaRepository<SagaTransferencia, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from SagaTransferencia s where s.id = :id")
+    Optional<SagaTransferencia> findByIdParaActualizar(@Param("id") String id);
+
+    @Query("select s.id from SagaTransferencia s where s.estado = :estado and s.fechaCreacion < :limite order by s.fechaCreacion")
+    List<String> findIdsPorEstadoAnterioresA(@Param("estado") SagaTransferencia.Estado estado,
+                                             @Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,14 @@
+package com.example.demo.repository;
+
+import com.example.demo.entities.SaldoSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface SaldoSnapshotRepository extends JpaRepository<SaldoSnapshot, Long> {
+    Optional<SaldoSnapshot> findFirstByCuentaIdOrderBySecuenciaDesc(Long cuentaId);
+
+    Optional<SaldoSnapshot> findFirstByCuentaIdAndFechaHoraLessThanEqualOrderBySecuenciaDesc(Long cuentaId,
+                                                                                           LocalDateTime instante);
+}
@@ -1,7 +1,60 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.MovimientoDTO;
 import com.example.demo.entities.Transaccion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface TransaccionRepository extends JpaRepository<Transaccion, Long> {
+
+    String MOVIMIENTO = "select new com.example.demo.dto.MovimientoDTO(t.id, t.tipo, t.monto, "
+            + "t.fechaHoraTransaccion, t.cuentaOrigen.id, t.cuentaDestino.id) from Transaccion t ";
+    String ANTES_DEL_CURSOR = "and (t.fechaHoraTransaccion < :fecha "
+            + "or (t.fechaHoraTransaccion = :fecha and t.id < :id)) ";
+    String RECIENTES_PRIMERO = "order by t.fechaHoraTransaccion desc, t.id desc";
+
+    @Query(MOVIMIENTO + "where t.cuentaOrigen.id = :cuentaId " + RECIENTES_PRIMERO)
+    List<MovimientoDTO> findMovimientosComoOrigen(@Param("cuentaId") Long cuentaId, Limit limit);
+
+    @Query(MOVIMIENTO + "where t.cuentaOrigen.id = :cuentaId " + ANTES_DEL_CURSOR + RECIENTES_PRIMERO)
+    List<MovimientoDTO> findMovimientosComoOrigenAntesDe(@Param("cuentaId") Long cuentaId,
+                                                         @Param("fecha") LocalDateTime fecha,
+                                                         @Param("id") Long id, Limit limit);
+
+    @Query(MOVIMIENTO + "where t.cuentaDestino.id = :cuentaId " + RECIENTES_PRIMERO)
+    List<MovimientoDTO> findMovimientosComoDestino(@Param("cuentaId") Long cuentaId, Limit limit);
+
+    @Query(MOVIMIENTO + "where t.cuentaDestino.id = :cuentaId " + ANTES_DEL_CURSOR + RECIENTES_PRIMERO)
+    List<MovimientoDTO> findMovimientosComoDestinoAntesDe(@Param("cuentaId") Long cuentaId,
+                                                          @Param("fecha") LocalDateTime fecha,
+                                                          @Param("id") Long id, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(MOVIMIENTO + "where (t.cuentaOrigen.id = :cuentaId or t.cuentaDestino.id = :cuentaId) "
+            + "and t.fechaHoraTransaccion >= :desde and t.fechaHoraTransaccion < :hasta "
+            + "order by t.fechaHoraTransaccion, t.id")
+    Stream<MovimientoDTO> streamMovimientos(@Param("cuentaId") Long cuentaId,
+                                            @Param("desde") LocalDateTime desde,
+                                            @Param("hasta") LocalDateTime hasta);
+
+    @Query("select coalesce(sum(t.monto), 0) from Transaccion t "
+            + "where t.cuentaDestino.id = :cuentaId and t.fechaHoraTransaccion >= :desde")
+    BigDecimal sumarCreditosDesde(@Param("cuentaId") Long cuentaId, @Param("desde") LocalDateTime desde);
+
+    @Query("select coalesce(sum(t.monto), 0) from Transaccion t "
+            + "where t.cuentaOrigen.id = :cuentaId and t.fechaHoraTransaccion >= :desde")
+    BigDecimal sumarDebitosDesde(@Param("cuentaId") Long cuentaId, @Param("desde") LocalDateTime desde);
 }
@@ -0,0 +1,60 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.RangoNumeroCuenta;
+import com.example.demo.repository.RangoNumeroCuentaRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Component
+public class AsignadorRangosNumeroCuenta {
+    // el numero es prefijo + 7 digitos de secuencia + digito de Luhn: cada prefijo admite 10^7 cuentas
+    public static final long CAPACIDAD_POR_PREFIJO = 10_000_000L;
+
+    @Autowired
+    private RangoNumeroCuentaRepository repository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate aparte;
+
+    @PostConstruct
+    void iniciar() {
+        aparte = new TransactionTemplate(transactionManager);
+        aparte.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Reserva de forma exclusiva un bloque de secuencias para el prefijo y devuelve la primera. El ultimo bloque de un
+     * prefijo puede quedar mas corto: termina en {@link #CAPACIDAD_POR_PREFIJO}. Con el prefijo agotado lanza
+     * {@link IllegalStateException}.
+     */
+    public long reservar(String prefijo, int tamano) {
+        try {
+            return aparte.execute(estado -> reservarBloqueando(prefijo, tamano));
+        } catch (DataIntegrityViolationException e) {
+            // otro hilo o nodo creo la fila del prefijo al mismo tiempo; la clave unica espero a que confirmara, asi
+            // que en una transaccion nueva ya se puede bloquear
+            return aparte.execute(estado -> reservarBloqueando(prefijo, tamano));
+        }
+    }
+
+    private long reservarBloqueando(String prefijo, int tamano) {
+        RangoNumeroCuenta rango = repository.bloquear(prefijo).orElseGet(() -> crear(prefijo));
+        long inicio = rango.getSiguiente();
+        if (inicio >= CAPACIDAD_POR_PREFIJO) {
+            throw new IllegalStateException("Se agotaron los números de cuenta para el prefijo " + prefijo + ".");
+        }
+        rango.setSiguiente(Math.min(inicio + tamano, CAPACIDAD_POR_PREFIJO));
+        return inicio;
+    }
+
+    private RangoNumeroCuenta crear(String prefijo) {
+        repository.crear(prefijo);
+        return repository.bloquear(prefijo).orElseThrow();
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.demo.services;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ResultadoCausacionInteresesDTO;
+import com.example.demo.entities.ProcesoCheckpoint;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Causacion diaria de intereses de las cuentas de ahorros con {@code banco.intereses.habilitado=true}. En cada shard,
+ * los ids de las cuentas activas del tipo {@code banco.intereses.tipo-cuenta} se parten en
+ * {@code banco.intereses.particiones} rangos que recorren en paralelo los hilos de causacion
+ * ({@link ProcesoPorParticiones}). Cada bloque de {@code banco.intereses.tamano-bloque} cuentas con saldo positivo
+ * abona el interes del dia, guarda un movimiento {@code INTERES} por cuenta y mueve su {@link ProcesoCheckpoint}, todo
+ * en una transaccion. Volver a causar el mismo dia retoma lo pendiente y no abona dos veces.
+ *
+ * <p>La tasa diaria sale de la efectiva anual, {@code (1 + EA)^(1/365) - 1}, y el interes se redondea al centavo por
+ * cuenta, mitad hacia arriba. Se causa sobre el saldo al momento de leer el bloque: corre pasada la medianoche, con el
+ * saldo de cierre del dia anterior.
+ */
+@Component
+public class CausadorIntereses {
+    public static final String PROCESO = "INTERES";
+    public static final String TIPO = "INTERES";
+    public static final String METRICA_CUENTAS = "banco.intereses.cuentas";
+    private static final Logger log = LoggerFactory.getLogger(CausadorIntereses.class);
+
+    private static final String RANGO = "select min(id), max(id) from productos where tipo_cuenta = ? and estado = ?";
+    private static final String CUENTAS = "select id, saldo from productos "
+            + "where id > ? and id <= ? and tipo_cuenta = ? and estado = ? and saldo > 0 order by id limit ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ProcesoPorParticiones proceso;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Value("${banco.intereses.habilitado:false}")
+    private boolean habilitado;
+    @Value("${banco.intereses.tasa-efectiva-anual:0.015}")
+    private BigDecimal tasaEfectivaAnual = new BigDecimal("0.015");
+    @Value("${banco.intereses.tipo-cuenta:cuenta de ahorros}")
+    private String tipoCuenta = "cuenta de ahorros";
+    @Value("${banco.intereses.particiones:8}")
+    private int particiones = 8;
+    @Value("${banco.intereses.hilos:4}")
+    private int hilos = 4;
+    @Value("${banco.intereses.tamano-bloque:2000}")
+    private int tamanoBloque = 2000;
+    @Value("${banco.transaccion.motor:jpa}")
+    private String motor = "jpa";
+    @Value("${banco.libro-mayor.habilitado:false}")
+    private boolean libroMayor;
+
+    private BigDecimal tasaDiaria;
+    private ExecutorService trabajadores;
+    // de la ultima causacion, para el gauge
+    private final AtomicLong cuentasPorSegundo = new AtomicLong();
+
+    private record Cuenta(long id, Money saldo) {
+    }
+
+    @PostConstruct
+    void iniciar() {
+        if (habilitado && ("ledger".equals(motor) || libroMayor)) {
+            throw new IllegalStateException("banco.intereses.habilitado no admite banco.transaccion.motor=ledger "
+                    + "ni el libro mayor: el saldo no esta en productos.");
+        }
+        tasaDiaria = BigDecimal.valueOf(Math.pow(1 + tasaEfectivaAnual.doubleValue(), 1.0 / 365) - 1);
+        AtomicInteger secuencia = new AtomicInteger();
+        trabajadores = Executors.newFixedThreadPool(hilos, r -> {
+            Thread hilo = new Thread(r, "causacion-intereses-" + secuencia.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        meterRegistry.gauge("banco.intereses.cuentas.por.segundo", cuentasPorSegundo);
+    }
+
+    @PreDestroy
+    void cerrar() {
+        trabajadores.shutdownNow();
+    }
+
+    @Scheduled(cron = "${banco.intereses.cron:0 15 0 * * *}")
+    public void causarDiaAnterior() {
+        if (habilitado) {
+            causar(LocalDate.now().minusDays(1));
+        }
+    }
+
+    public Money interes(Money saldo) {
+        return Money.deCentavos(BigDecimal.valueOf(saldo.getCentavos()).multiply(tasaDiaria)
+                .setScale(0, RoundingMode.HALF_UP).longValueExact());
+    }
+
+    public ResultadoCausacionInteresesDTO causar(LocalDate fecha) {
+        if (!habilitado) {
+            throw new IllegalStateException("La causación de intereses requiere banco.intereses.habilitado=true.");
+        }
+        if (!fecha.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Solo se causan días cerrados; " + fecha + " no ha terminado.");
+        }
+        ProcesoPorParticiones.Resultado resultado = proceso.ejecutar(PROCESO, fecha.toString(), particiones,
+                trabajadores, RANGO, new Object[]{tipoCuenta, "activa"}, this::causarBloque);
+
+        cuentasPorSegundo.set(resultado.porSegundo());
+        meterRegistry.counter(METRICA_CUENTAS).increment(resultado.procesados());
+        meterRegistry.timer("banco.intereses.causacion").record(resultado.duracionNanos(), TimeUnit.NANOSECONDS);
+        log.info("Intereses {}: {} cuentas en {} ms ({}/s), {} de {} particiones ya estaban terminadas", fecha,
+                resultado.procesados(), resultado.duracionMs(), resultado.porSegundo(),
+                resultado.particionesPrevias(), resultado.particiones());
+        return new ResultadoCausacionInteresesDTO(fecha.toString(), resultado.particiones(),
+                resultado.particionesPrevias(), resultado.procesados(), Money.deCentavos(resultado.monto()),
+                resultado.duracionMs(), resultado.porSegundo());
+    }
+
+    private ProcesoPorParticiones.Avance causarBloque(long ultimoId, long idHasta) {
+        List<Cuenta> cuentas = jdbcTemplate.query(CUENTAS,
+                (fila, i) -> new Cuenta(fila.getLong(1), Money.of(fila.getBigDecimal(2))),
+                ultimoId, idHasta, tipoCuenta, "activa", tamanoBloque);
+
+        // ya vienen en orden de id, el mismo en que bloquean las transferencias
+        Map<Long, Long> porCuenta = new TreeMap<>();
+        long total = 0;
+        for (Cuenta cuenta : cuentas) {
+            long centavos = interes(cuenta.saldo()).getCentavos();
+            if (centavos > 0) {
+                porCuenta.put(cuenta.id(), centavos);
+                total += centavos;
+            }
+        }
+        proceso.aplicarMovimientos(TIPO, porCuenta);
+
+        boolean terminado = cuentas.size() < tamanoBloque;
+        return new ProcesoPorParticiones.Avance(terminado ? idHasta : cuentas.get(cuentas.size() - 1).id(),
+                cuentas.size(), total, terminado);
+    }
+}
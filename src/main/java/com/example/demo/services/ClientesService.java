@@ -1,11 +1,21 @@
 package com.example.demo.services;
 
+import com.example.demo.dto.ClienteDTO;
+import com.example.demo.dto.ResultadoImportacionDTO;
+import com.example.demo.dto.ResumenClienteDTO;
 import com.example.demo.entities.Clientes;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
 public interface ClientesService {
-    Clientes getClienteById(Long id);
+    ClienteDTO getClienteById(Long id);
+    ResumenClienteDTO getResumenCliente(Long id);
+    Optional<String> getHuellaCliente(Long id);
     Clientes createCliente(Clientes cliente);
     Clientes updateCliente(Long id, Clientes clienteDetails);
     void deleteCliente(Long id);
+    ResultadoImportacionDTO importarClientes(InputStream csv) throws IOException;
 
 }
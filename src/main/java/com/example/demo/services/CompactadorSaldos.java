@@ -0,0 +1,18 @@
+package com.example.demo.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "banco.libro-mayor.habilitado", havingValue = "true")
+public class CompactadorSaldos {
+    @Autowired
+    private LibroMayorService libroMayor;
+
+    @Scheduled(fixedDelayString = "${banco.libro-mayor.intervalo-compactacion-ms:60000}")
+    public void compactar() {
+        libroMayor.compactar();
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.demo.services;
+
+import com.example.demo.datasource.ContextoShard;
+import com.example.demo.entities.DirectorioCliente;
+import com.example.demo.entities.DirectorioCuenta;
+import com.example.demo.repository.DirectorioClienteRepository;
+import com.example.demo.repository.DirectorioCuentaRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Decide en que shard vive cada cliente y cada cuenta. Los clientes nuevos se reparten en turno rotativo y sus
+ * cuentas van al mismo shard; la asignacion se guarda en el shard 0 y se cachea sin vencimiento, porque un cliente
+ * no cambia de shard. Lo que no esta en el directorio es anterior al particionamiento y sigue en el shard 0.
+ *
+ * <p>Con un solo shard (lo normal) no hay directorio: todo corre en el shard 0 sin consultar nada.
+ */
+@Component
+public class DirectorioShards {
+    @Autowired
+    private DirectorioClienteRepository clientesRepository;
+    @Autowired
+    private DirectorioCuentaRepository cuentasRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Value("${banco.shards.habilitado:false}")
+    private boolean habilitado;
+    @Value("${banco.shards.urls:}")
+    private List<String> urls = List.of();
+    @Value("${banco.shards.directorio.tamano-cache:100000}")
+    private long tamanoCache = 100_000;
+    @Value("${banco.shards.directorio.ttl-ausentes:1m}")
+    private Duration ttlAusentes = Duration.ofMinutes(1);
+
+    private int cantidad = 1;
+    private final AtomicInteger turno = new AtomicInteger();
+    private Cache<Long, Integer> shardsClientes;
+    private Cache<Long, Integer> shardsCuentas;
+    private Cache<Long, Boolean> ausentesClientes;
+    private Cache<Long, Boolean> ausentesCuentas;
+    private TransactionTemplate aparte;
+
+    @PostConstruct
+    void iniciar() {
+        cantidad = habilitado ? 1 + urls.size() : 1;
+        shardsClientes = Caffeine.newBuilder().maximumSize(tamanoCache).build();
+        shardsCuentas = Caffeine.newBuilder().maximumSize(tamanoCache).build();
+        ausentesClientes = Caffeine.newBuilder().maximumSize(tamanoCache).expireAfterWrite(ttlAusentes).build();
+        ausentesCuentas = Caffeine.newBuilder().maximumSize(tamanoCache).expireAfterWrite(ttlAusentes).build();
+        // el directorio se lee y escribe en su propia transaccion: quien lo consulta puede estar ya dentro de una
+        // transaccion de otro shard, y unirse a ella leeria el directorio de ese shard
+        aparte = new TransactionTemplate(transactionManager);
+        aparte.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public int cantidad() {
+        return cantidad;
+    }
+
+    public int asignarShardNuevoCliente() {
+        return cantidad == 1 ? 0 : Math.floorMod(turno.getAndIncrement(), cantidad);
+    }
+
+    public void registrarCliente(Long clienteId, int shard) {
+        if (cantidad == 1) {
+            return;
+        }
+        DirectorioCliente fila = new DirectorioCliente();
+        fila.setClienteId(clienteId);
+        fila.setShard(shard);
+        ContextoShard.enShard(0, () -> aparte.execute(estado -> clientesRepository.save(fila)));
+        shardsClientes.put(clienteId, shard);
+        ausentesClientes.invalidate(clienteId);
+    }
+
+    public void registrarCuenta(Long cuentaId, int shard) {
+        if (cantidad == 1) {
+            return;
+        }
+        DirectorioCuenta fila = new DirectorioCuenta();
+        fila.setCuentaId(cuentaId);
+        fila.setShard(shard);
+        ContextoShard.enShard(0, () -> aparte.execute(estado -> cuentasRepository.save(fila)));
+        shardsCuentas.put(cuentaId, shard);
+        ausentesCuentas.invalidate(cuentaId);
+    }
+
+    public int shardDeCliente(Long clienteId) {
+        if (cantidad == 1 || clienteId == null) {
+            return 0;
+        }
+        return buscar(clienteId, shardsClientes, ausentesClientes,
+                id -> clientesRepository.findById(id).map(DirectorioCliente::getShard).orElse(null));
+    }
+
+    public int shardDeCuenta(Long cuentaId) {
+        if (cantidad == 1 || cuentaId == null) {
+            return 0;
+        }
+        return buscar(cuentaId, shardsCuentas, ausentesCuentas,
+                id -> cuentasRepository.findById(id).map(DirectorioCuenta::getShard).orElse(null));
+    }
+
+    public <T> T enShard(int shard, Supplier<T> operacion) {
+        return cantidad == 1 ? operacion.get() : ContextoShard.enShard(shard, operacion);
+    }
+
+    public <T> T enShardDeCliente(Long clienteId, Supplier<T> operacion) {
+        return cantidad == 1 ? operacion.get() : ContextoShard.enShard(shardDeCliente(clienteId), operacion);
+    }
+
+    public <T> T enShardDeCuenta(Long cuentaId, Supplier<T> operacion) {
+        return cantidad == 1 ? operacion.get() : ContextoShard.enShard(shardDeCuenta(cuentaId), operacion);
+    }
+
+    public void enCadaShard(Runnable operacion) {
+        for (int shard = 0; shard < cantidad; shard++) {
+            enShard(shard, () -> {
+                operacion.run();
+                return null;
+            });
+        }
+    }
+
+    // la ausencia se cachea poco tiempo: en otro nodo el id pudo consultarse antes de que se registrara
+    private int buscar(Long id, Cache<Long, Integer> shards, Cache<Long, Boolean> ausentes,
+                       Function<Long, Integer> consulta) {
+        Integer shard = shards.getIfPresent(id);
+        if (shard != null) {
+            return shard;
+        }
+        if (ausentes.getIfPresent(id) != null) {
+            return 0;
+        }
+        shard = ContextoShard.enShard(0, () -> aparte.execute(estado -> consulta.apply(id)));
+        if (shard == null) {
+            ausentes.put(id, Boolean.TRUE);
+            return 0;
+        }
+        shards.put(id, shard);
+        return shard;
+    }
+}
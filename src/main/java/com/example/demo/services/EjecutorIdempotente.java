@@ -0,0 +1,227 @@
+package com.example.demo.services;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.ClaveIdempotencia;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.exceptions.IdempotencyKeyInProgressException;
+import com.example.demo.exceptions.IdempotencyKeyMismatchException;
+import com.example.demo.repository.ClaveIdempotenciaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta una sola vez cada operacion enviada con {@code Idempotency-Key} y devuelve la respuesta guardada a las
+ * repeticiones. Tiene dos niveles: un mapa acotado con TTL en memoria, donde los duplicados concurrentes esperan
+ * a la primera ejecucion, y la tabla {@code clave_idempotencia}, que sobrevive reinicios y cubre a otros nodos.
+ * Una operacion que falla no deja rastro, asi que el reintento vuelve a ejecutarse.
+ *
+ * <p>Con el motor {@code grupal} la fila no se inserta aqui: la peticion espera sin transaccion ni conexion y el
+ * {@link EscritorGrupal} la confirma en la transaccion de su grupo. Asi una espera vencida no deja un movimiento
+ * confirmado sin su clave.
+ */
+@Component
+public class EjecutorIdempotente {
+    public static final String METRICA_REPETICIONES = "banco.idempotencia.repeticiones";
+    public static final int LONGITUD_MAXIMA_CLAVE = 100;
+
+    @Autowired
+    private ClaveIdempotenciaRepository repository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private DirectorioShards directorio;
+    @Autowired
+    private ObjectProvider<EscritorGrupal> escritorGrupal;
+    @Value("${banco.idempotencia.tamano-maximo-memoria:100000}")
+    private long tamanoMaximoMemoria = 100_000;
+    @Value("${banco.idempotencia.ttl-memoria:10m}")
+    private Duration ttlMemoria = Duration.ofMinutes(10);
+    @Value("${banco.idempotencia.espera-maxima:10s}")
+    private Duration esperaMaxima = Duration.ofSeconds(10);
+    @Value("${banco.idempotencia.retencion:24h}")
+    private Duration retencion = Duration.ofHours(24);
+
+    private Cache<String, Ejecucion> memoria;
+
+    public record Respuesta(byte[] cuerpo, boolean repetida) {
+    }
+
+    private record Ejecucion(String huella, CompletableFuture<byte[]> cuerpo) {
+    }
+
+    @PostConstruct
+    void iniciar() {
+        memoria = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximoMemoria)
+                .expireAfterWrite(ttlMemoria)
+                .build();
+    }
+
+    public Respuesta ejecutar(String clave, String huella, Supplier<Transaccion> operacion) {
+        return ejecutar(clave, huella, null, operacion);
+    }
+
+    /**
+     * Con shards la clave se guarda en el shard de {@code cuentaId}, el mismo del dinero que mueve la operacion, para
+     * que la fila y el movimiento se sigan confirmando juntos. Una repeticion trae la misma cuenta y cae ahi mismo.
+     */
+    public Respuesta ejecutar(String clave, String huella, Long cuentaId, Supplier<Transaccion> operacion) {
+        if (clave.isBlank() || clave.length() > LONGITUD_MAXIMA_CLAVE) {
+            throw new IllegalArgumentException("El encabezado Idempotency-Key debe tener entre 1 y "
+                    + LONGITUD_MAXIMA_CLAVE + " caracteres.");
+        }
+        Ejecucion propia = new Ejecucion(huella, new CompletableFuture<>());
+        Ejecucion previa = memoria.asMap().putIfAbsent(clave, propia);
+        if (previa != null) {
+            return esperar(clave, huella, previa);
+        }
+        try {
+            EscritorGrupal grupal = escritorGrupal.getIfAvailable();
+            Respuesta respuesta = grupal != null
+                    ? ejecutarEnGrupo(grupal, clave, huella, operacion)
+                    : directorio.enShardDeCuenta(cuentaId, () -> ejecutarUnaVez(clave, huella, operacion));
+            propia.cuerpo().complete(respuesta.cuerpo());
+            return respuesta;
+        } catch (RuntimeException e) {
+            memoria.asMap().remove(clave, propia);
+            propia.cuerpo().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public static String huella(String operacion, Long cuentaOrigenId, Long cuentaDestinoId, Money monto) {
+        String canonica = operacion + "|" + cuentaOrigenId + "|" + cuentaDestinoId + "|"
+                + (monto == null ? null : monto.getCentavos());
+        try {
+            byte[] resumen = MessageDigest.getInstance("SHA-256").digest(canonica.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(resumen);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${banco.idempotencia.intervalo-purga-ms:600000}",
+            initialDelayString = "${banco.idempotencia.intervalo-purga-ms:600000}")
+    public void purgar() {
+        LocalDateTime limite = LocalDateTime.now().minus(retencion);
+        directorio.enCadaShard(() -> repository.eliminarAnterioresA(limite));
+    }
+
+    // duplicado concurrente en este nodo: se espera a la primera ejecucion y se comparte su resultado o su error
+    private Respuesta esperar(String clave, String huella, Ejecucion previa) {
+        verificarHuella(clave, huella, previa.huella());
+        try {
+            byte[] cuerpo = previa.cuerpo().get(esperaMaxima.toMillis(), TimeUnit.MILLISECONDS);
+            meterRegistry.counter(METRICA_REPETICIONES, "nivel", "memoria").increment();
+            return new Respuesta(cuerpo, true);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInProgressException("La operación con Idempotency-Key " + clave
+                    + " sigue en curso; reintente más tarde.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException("Se interrumpió la espera de la operación con Idempotency-Key "
+                    + clave + ".");
+        }
+    }
+
+    private Respuesta ejecutarUnaVez(String clave, String huella, Supplier<Transaccion> operacion) {
+        ClaveIdempotencia guardada = repository.findByClave(clave).orElse(null);
+        if (guardada != null) {
+            return repetir(clave, huella, guardada);
+        }
+        try {
+            byte[] cuerpo = transactionTemplate.execute(estado -> {
+                // la fila va primero: un duplicado en otro nodo queda esperando en la clave unica, no en las cuentas
+                ClaveIdempotencia registro = nuevoRegistro(clave, huella);
+                repository.saveAndFlush(registro);
+
+                Transaccion transaccion = operacion.get();
+                byte[] json = serializar(transaccion);
+                registro.setTransaccionId(transaccion.getId());
+                registro.setRespuesta(new String(json, StandardCharsets.UTF_8));
+                return json;
+            });
+            return new Respuesta(cuerpo, false);
+        } catch (DataIntegrityViolationException e) {
+            // otro nodo confirmo la misma clave mientras esta ejecucion esperaba; su transaccion es la que vale
+            return repetir(clave, huella, repository.findByClave(clave).orElseThrow(() -> e));
+        }
+    }
+
+    private Respuesta ejecutarEnGrupo(EscritorGrupal grupal, String clave, String huella,
+                                      Supplier<Transaccion> operacion) {
+        ClaveIdempotencia guardada = repository.findByClave(clave).orElse(null);
+        if (guardada != null) {
+            return repetir(clave, huella, guardada);
+        }
+        ClaveIdempotencia registro = nuevoRegistro(clave, huella);
+        try {
+            grupal.conClave(registro, operacion);
+            return new Respuesta(registro.getRespuesta().getBytes(StandardCharsets.UTF_8), false);
+        } catch (DataIntegrityViolationException e) {
+            // el grupo encontro la clave ya confirmada: por otro nodo o por un intento que dejo de esperar
+            return repetir(clave, huella, repository.findByClave(clave).orElseThrow(() -> e));
+        }
+    }
+
+    private static ClaveIdempotencia nuevoRegistro(String clave, String huella) {
+        ClaveIdempotencia registro = new ClaveIdempotencia();
+        registro.setClave(clave);
+        registro.setHuella(huella);
+        registro.setFechaCreacion(LocalDateTime.now());
+        return registro;
+    }
+
+    private Respuesta repetir(String clave, String huella, ClaveIdempotencia guardada) {
+        verificarHuella(clave, huella, guardada.getHuella());
+        meterRegistry.counter(METRICA_REPETICIONES, "nivel", "base_datos").increment();
+        return new Respuesta(guardada.getRespuesta().getBytes(StandardCharsets.UTF_8), true);
+    }
+
+    private static void verificarHuella(String clave, String huella, String esperada) {
+        if (!esperada.equals(huella)) {
+            throw new IdempotencyKeyMismatchException("La Idempotency-Key " + clave
+                    + " ya se usó con otra operación o con otros parámetros.");
+        }
+    }
+
+    private byte[] serializar(Transaccion transaccion) {
+        try {
+            return objectMapper.writeValueAsBytes(transaccion);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la transacción.", e);
+        }
+    }
+}
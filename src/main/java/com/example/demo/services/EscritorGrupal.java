@@ -0,0 +1,324 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.TransaccionDTO;
+import com.example.demo.entities.ClaveIdempotencia;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.repository.ClaveIdempotenciaRepository;
+import com.example.demo.repository.TransaccionRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Commit en grupo de los movimientos individuales (motor {@code grupal}). Cada peticion deja su movimiento en una
+ * cola acotada y espera su futuro; un unico hilo escritor junta lo pendiente, hasta {@code banco.grupal.tamano-lote}
+ * movimientos o lo que llegue en {@code banco.grupal.ventana-ms}, lo aplica con las reglas del lote
+ * ({@link ProcesadorLoteTransacciones#aplicar}) y confirma saldos y transacciones en una sola transaccion. Los
+ * futuros se completan despues del commit, asi que una peticion sigue respondiendo solo cuando su movimiento ya es
+ * durable; lo que cambia es que el commit se paga una vez por grupo y no una vez por peticion.
+ *
+ * <p>Un movimiento con {@code Idempotency-Key} (ver {@link #conClave}) inserta su fila de {@code clave_idempotencia}
+ * en esa misma transaccion, asi que la clave y el dinero se confirman juntos aunque la peticion ya haya dejado de
+ * esperar.
+ */
+@Component
+@ConditionalOnProperty(name = "banco.transaccion.motor", havingValue = "grupal")
+public class EscritorGrupal {
+    public static final String METRICA_TAMANO = "banco.transacciones.grupo.tamano";
+    public static final String METRICA_COMMIT = "banco.transacciones.grupo.commit";
+    private static final Logger log = LoggerFactory.getLogger(EscritorGrupal.class);
+    private static final ThreadLocal<ClaveIdempotencia> CLAVE = new ThreadLocal<>();
+
+    @Autowired
+    private ProcesadorLoteTransacciones procesadorLote;
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+    @Autowired
+    private ClaveIdempotenciaRepository claveIdempotenciaRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Value("${banco.grupal.capacidad:10000}")
+    private int capacidad = 10000;
+    @Value("${banco.grupal.tamano-lote:256}")
+    private int tamanoLote = 256;
+    @Value("${banco.grupal.ventana-ms:2}")
+    private long ventanaMs = 2;
+    @Value("${banco.libro-mayor.habilitado:false}")
+    private boolean libroMayorHabilitado;
+
+    private BlockingQueue<Pendiente> cola;
+    private DistributionSummary tamanos;
+    private Timer commits;
+    private Thread escritor;
+    private volatile boolean activo;
+
+    @PostConstruct
+    void iniciar() {
+        // el grupo escribe el saldo en productos, igual que el motor jpa sin libro mayor
+        if (libroMayorHabilitado) {
+            throw new IllegalStateException("El motor grupal requiere banco.libro-mayor.habilitado=false.");
+        }
+        cola = new ArrayBlockingQueue<>(capacidad);
+        tamanos = DistributionSummary.builder(METRICA_TAMANO)
+                .description("Movimientos confirmados por commit")
+                .register(meterRegistry);
+        commits = Timer.builder(METRICA_COMMIT)
+                .description("Duracion de la transaccion de cada grupo")
+                .register(meterRegistry);
+        meterRegistry.gauge("banco.transacciones.grupo.cola", cola, BlockingQueue::size);
+        activo = true;
+        escritor = new Thread(this::escribir, "escritor-grupal");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    @PreDestroy
+    void cerrar() throws InterruptedException {
+        activo = false;
+        escritor.join(TimeUnit.SECONDS.toMillis(10));
+        Pendiente pendiente;
+        while ((pendiente = cola.poll()) != null) {
+            pendiente.resultado.completeExceptionally(new IllegalStateException("El escritor de transacciones se detuvo."));
+        }
+    }
+
+    /**
+     * Encola el movimiento. Si la cola esta llena espera hasta {@code esperaMaximaMs}; el futuro se completa con la
+     * transaccion guardada cuando su grupo hace commit, o con el error de negocio del movimiento.
+     */
+    public CompletableFuture<Transaccion> enviar(TransaccionDTO movimiento, long esperaMaximaMs) {
+        if (!activo) {
+            return CompletableFuture.failedFuture(new IllegalStateException("El escritor de transacciones no esta disponible."));
+        }
+        Pendiente pendiente = new Pendiente(movimiento, CLAVE.get());
+        try {
+            if (!cola.offer(pendiente, esperaMaximaMs, TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.failedFuture(new IllegalStateException("La cola de transacciones esta llena."));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new IllegalStateException("Operacion interrumpida.", e));
+        }
+        return pendiente.resultado;
+    }
+
+    /**
+     * Ejecuta {@code operacion} de modo que el movimiento que envie desde este hilo se confirme junto con
+     * {@code registro} (clave y huella). Al completarse el futuro, {@code registro} trae la respuesta guardada. Si la
+     * clave ya estaba confirmada, por otro nodo o por un intento anterior que vencio su espera, el movimiento no se
+     * aplica y falla con {@link DataIntegrityViolationException}, igual que un duplicado en la clave unica.
+     */
+    public <T> T conClave(ClaveIdempotencia registro, Supplier<T> operacion) {
+        CLAVE.set(registro);
+        try {
+            return operacion.get();
+        } finally {
+            CLAVE.remove();
+        }
+    }
+
+    private void escribir() {
+        List<Pendiente> grupo = new ArrayList<>(tamanoLote);
+        long ventanaNanos = TimeUnit.MILLISECONDS.toNanos(ventanaMs);
+        while (activo || !cola.isEmpty()) {
+            try {
+                Pendiente primero = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                grupo.add(primero);
+                long limite = System.nanoTime() + ventanaNanos;
+                while (grupo.size() < tamanoLote) {
+                    if (cola.drainTo(grupo, tamanoLote - grupo.size()) > 0) {
+                        continue;
+                    }
+                    long restante = limite - System.nanoTime();
+                    Pendiente siguiente = restante > 0 ? cola.poll(restante, TimeUnit.NANOSECONDS) : null;
+                    if (siguiente == null) {
+                        break;
+                    }
+                    grupo.add(siguiente);
+                }
+                confirmar(grupo);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                grupo.forEach(p -> p.resultado.completeExceptionally(new IllegalStateException("Operacion interrumpida.", e)));
+                return;
+            } catch (RuntimeException e) {
+                log.error("Fallo el escritor de transacciones con {} movimientos pendientes", grupo.size(), e);
+                grupo.forEach(p -> p.resultado.completeExceptionally(e));
+            } finally {
+                grupo.clear();
+            }
+        }
+    }
+
+    private void confirmar(List<Pendiente> grupo) {
+        long inicio = System.nanoTime();
+        try {
+            try {
+                transactionTemplate.executeWithoutResult(estado -> aplicar(grupo));
+            } catch (DataIntegrityViolationException e) {
+                // otro nodo confirmo una de las claves del grupo despues de la consulta; la clave unica espero a su
+                // commit, asi que al repetir el grupo ese movimiento queda como duplicado y el resto se confirma
+                transactionTemplate.executeWithoutResult(estado -> aplicar(grupo));
+            }
+        } catch (RuntimeException e) {
+            // el rollback deshace todo el grupo, asi que ningun movimiento quedo guardado
+            log.error("No se pudo confirmar un grupo de {} movimientos", grupo.size(), e);
+            grupo.forEach(p -> p.resultado.completeExceptionally(e));
+            return;
+        }
+        commits.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        tamanos.record(grupo.size());
+        for (Pendiente pendiente : grupo) {
+            if (pendiente.error != null) {
+                pendiente.resultado.completeExceptionally(pendiente.error);
+            } else {
+                pendiente.resultado.complete(pendiente.respuesta);
+            }
+        }
+    }
+
+    private void aplicar(List<Pendiente> grupo) {
+        List<TransaccionDTO> movimientos = new ArrayList<>(grupo.size());
+        grupo.forEach(pendiente -> movimientos.add(pendiente.movimiento));
+        Map<Long, Productos> cuentas = procesadorLote.cargarCuentas(movimientos);
+        List<Transaccion> transacciones = new ArrayList<>(grupo.size());
+        LocalDateTime ahora = LocalDateTime.now();
+        Set<String> confirmadas = clavesConfirmadas(grupo);
+
+        for (Pendiente pendiente : grupo) {
+            pendiente.error = null;
+            pendiente.respuesta = null;
+            if (pendiente.registro != null && !confirmadas.add(pendiente.registro.getClave())) {
+                pendiente.error = new DataIntegrityViolationException("La Idempotency-Key "
+                        + pendiente.registro.getClave() + " ya se confirmó.");
+                continue;
+            }
+            try {
+                Transaccion transaccion = ProcesadorLoteTransacciones.aplicar(pendiente.movimiento, cuentas);
+                transaccion.setFechaHoraTransaccion(ahora);
+                transacciones.add(transaccion);
+                pendiente.guardada = transaccion;
+                // las cuentas se comparten dentro del grupo: la respuesta muestra el saldo que dejo este movimiento
+                pendiente.respuesta = instantanea(transaccion);
+            } catch (IllegalArgumentException e) {
+                pendiente.error = e;
+            }
+        }
+        transaccionRepository.saveAll(transacciones);
+        List<ClaveIdempotencia> registros = new ArrayList<>();
+        for (Pendiente pendiente : grupo) {
+            if (pendiente.error == null) {
+                pendiente.respuesta.setId(pendiente.guardada.getId());
+                if (pendiente.registro != null) {
+                    registros.add(registrar(pendiente));
+                }
+            }
+        }
+        claveIdempotenciaRepository.saveAll(registros);
+    }
+
+    // claves del grupo que ya tienen fila; las que se repiten dentro del grupo se detectan al aplicarlo
+    private Set<String> clavesConfirmadas(List<Pendiente> grupo) {
+        Map<String, Pendiente> conClave = new HashMap<>();
+        for (Pendiente pendiente : grupo) {
+            if (pendiente.registro != null) {
+                conClave.putIfAbsent(pendiente.registro.getClave(), pendiente);
+            }
+        }
+        Set<String> confirmadas = new HashSet<>();
+        if (!conClave.isEmpty()) {
+            claveIdempotenciaRepository.findByClaveIn(conClave.keySet())
+                    .forEach(registro -> confirmadas.add(registro.getClave()));
+        }
+        return confirmadas;
+    }
+
+    private ClaveIdempotencia registrar(Pendiente pendiente) {
+        ClaveIdempotencia registro = pendiente.registro;
+        // un intento anterior del grupo pudo dejarle id a la entidad antes del rollback
+        registro.setId(null);
+        registro.setTransaccionId(pendiente.respuesta.getId());
+        try {
+            registro.setRespuesta(new String(objectMapper.writeValueAsBytes(pendiente.respuesta), StandardCharsets.UTF_8));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la transacción.", e);
+        }
+        return registro;
+    }
+
+    private static Transaccion instantanea(Transaccion transaccion) {
+        Transaccion copia = new Transaccion();
+        copia.setTipo(transaccion.getTipo());
+        copia.setMonto(transaccion.getMonto());
+        copia.setFechaHoraTransaccion(transaccion.getFechaHoraTransaccion());
+        copia.setCuentaOrigen(instantanea(transaccion.getCuentaOrigen()));
+        copia.setCuentaDestino(instantanea(transaccion.getCuentaDestino()));
+        return copia;
+    }
+
+    private static Productos instantanea(Productos cuenta) {
+        if (cuenta == null) {
+            return null;
+        }
+        Productos copia = new Productos();
+        copia.setId(cuenta.getId());
+        copia.setTipoCuenta(cuenta.getTipoCuenta());
+        copia.setNumeroCuenta(cuenta.getNumeroCuenta());
+        copia.setEstado(cuenta.getEstado());
+        copia.setSaldo(cuenta.getSaldo());
+        copia.setExentaGmf(cuenta.isExentaGmf());
+        copia.setFechaCreacion(cuenta.getFechaCreacion());
+        copia.setFechaModificacion(cuenta.getFechaModificacion());
+        copia.setCliente(cuenta.getCliente());
+        return copia;
+    }
+
+    // solo el hilo escritor toca los campos mutables; el futuro los publica a la peticion
+    private static final class Pendiente {
+        private final TransaccionDTO movimiento;
+        private final ClaveIdempotencia registro;
+        private final CompletableFuture<Transaccion> resultado = new CompletableFuture<>();
+        private Transaccion guardada;
+        private Transaccion respuesta;
+        private RuntimeException error;
+
+        Pendiente(TransaccionDTO movimiento, ClaveIdempotencia registro) {
+            this.movimiento = movimiento;
+            this.registro = registro;
+        }
+    }
+}
@@ -1,13 +1,33 @@
 package com.example.demo.services.Implement;
 
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.config.CacheConfig;
+import com.example.demo.datasource.ContextoLectura;
+import com.example.demo.dto.ClienteDTO;
+import com.example.demo.dto.ResultadoImportacionDTO;
+import com.example.demo.dto.ResumenClienteDTO;
+import com.example.demo.repository.ProductosRepository;
 import com.example.demo.validators.ClientesValidator;
 import com.example.demo.entities.Clientes;
 import com.example.demo.repository.ClientesRepository;
 import com.example.demo.services.ClientesService;
+import com.example.demo.services.DirectorioShards;
+import com.example.demo.services.ImportadorClientes;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class ClientesServiceImp implements ClientesService {
@@ -15,18 +35,64 @@ public class ClientesServiceImp implements ClientesService {
     private ClientesRepository repository;
     @Autowired
     private ClientesValidator clientesValidator;
+    @Autowired
+    private ProductosRepository productosRepository;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private ImportadorClientes importadorClientes;
+    @Autowired
+    private DirectorioShards directorio;
+    // lectura y escritura en la misma transaccion: sin open-in-view, save() de una entidad separada vuelve a leerla
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Value("${banco.cache.segunda-invalidacion:500ms}")
+    private Duration segundaInvalidacion = Duration.ofMillis(500);
+
+    // los productos (con su saldo) se consultan siempre; solo los datos del cliente salen de la cache
+    @Override
+    public ClienteDTO getClienteById(Long id) {
+        return directorio.enShardDeCliente(id, () -> {
+            Cache cache = cacheManager.getCache(CacheConfig.CLIENTES);
+            ClienteDTO cacheado = cache.get(id, ClienteDTO.class);
+            if (cacheado == null) {
+                // lo que se cachea se lee de la primaria; los productos, que no se cachean, pueden venir de una replica
+                cacheado = ContextoLectura.enPrimaria(() -> repository.findDatosById(id)).orElseThrow();
+                cache.put(id, cacheado);
+            }
+            return cacheado.conProductos(productosRepository.findDatosByClienteId(id));
+        });
+    }
+
+    // no pasa por la cache: la cantidad de cuentas y el saldo total salen de la misma consulta agregada
+    @Override
+    public ResumenClienteDTO getResumenCliente(Long id) {
+        return directorio.enShardDeCliente(id, () -> repository.findResumenById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Cliente no encontrado con id: " + id)));
+    }
+
+    // la misma huella que ClienteDTO.huella(), pero de una sola consulta de versiones, sin datos ni saldos
     @Override
-    public Clientes getClienteById(Long id) {
-        return repository.findById(id)
-                .orElseThrow();
+    public Optional<String> getHuellaCliente(Long id) {
+        return directorio.enShardDeCliente(id, () -> {
+            List<Object[]> versiones = repository.findVersionesById(id);
+            return versiones.isEmpty() ? Optional.empty() : Optional.of(ClienteDTO.huella(versiones));
+        });
     }
 
+    // el cliente se inserta en el shard que le toca y despues se anota en el directorio, que ya puede usar su id
     @Override
     public Clientes createCliente(Clientes cliente) {
-        int edad = ClientesValidator.calcularEdad(cliente.getFechaNacimiento());
-        cliente.setEdad(edad);
-        ClientesValidator.validateCliente(cliente);
-        return repository.save(cliente);
+        cliente.setEdad(ClientesValidator.validateCliente(cliente));
+        int shard = directorio.asignarShardNuevoCliente();
+        Clientes guardado = directorio.enShard(shard, () -> repository.save(cliente));
+        directorio.registrarCliente(cliente.getId(), shard);
+        return guardado;
+    }
+
+    @Override
+    public ResultadoImportacionDTO importarClientes(InputStream csv) throws IOException {
+        return importadorClientes.importar(csv);
     }
 
 
@@ -34,31 +100,57 @@ public class ClientesServiceImp implements ClientesService {
 
     @Override
     public Clientes updateCliente(Long id, Clientes clienteDetails) {
-        Clientes clienteExistente = repository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Cliente no encontrado con id: " + id));
-        int edad = ClientesValidator.calcularEdad(clienteDetails.getFechaNacimiento());
-        clienteExistente.setNombres(clienteDetails.getNombres());
-        clienteExistente.setApellidos(clienteDetails.getApellidos());
-        clienteExistente.setCorreoElectronico(clienteDetails.getCorreoElectronico());
-        clienteExistente.setFechaNacimiento(clienteDetails.getFechaNacimiento());
-        clienteExistente.setEdad(edad);
-        clienteExistente.setFechaModificacion(LocalDateTime.now());
-
-        ClientesValidator.validateCliente(clienteExistente);
-
-        return repository.save(clienteExistente);
+        return directorio.enShardDeCliente(id, () -> {
+            invalidar(id);
+            Clientes actualizado = transactionTemplate.execute(estado -> {
+                Clientes clienteExistente = repository.findById(id)
+                        .orElseThrow(() -> new ResourceNotFoundException("Cliente no encontrado con id: " + id));
+                clienteExistente.setNombres(clienteDetails.getNombres());
+                clienteExistente.setApellidos(clienteDetails.getApellidos());
+                clienteExistente.setCorreoElectronico(clienteDetails.getCorreoElectronico());
+                clienteExistente.setFechaNacimiento(clienteDetails.getFechaNacimiento());
+                clienteExistente.setFechaModificacion(LocalDateTime.now());
+
+                clienteExistente.setEdad(ClientesValidator.validateCliente(clienteExistente));
+
+                return repository.save(clienteExistente);
+            });
+            invalidarTrasCommit(id);
+            return actualizado;
+        });
     }
 
 
 
     @Override
     public void deleteCliente(Long id) {
-        Clientes cliente = repository.findById(id)
-                .orElseThrow();
-        if (!cliente.getProductos().isEmpty()) {
-            throw new IllegalArgumentException("No se puede eliminar el cliente porque tiene productos vinculados.");
-        }
+        directorio.enShardDeCliente(id, () -> {
+            invalidar(id);
+            transactionTemplate.executeWithoutResult(estado -> {
+                Clientes cliente = repository.findById(id)
+                        .orElseThrow();
+                if (productosRepository.existsByClienteId(id)) {
+                    throw new IllegalArgumentException("No se puede eliminar el cliente porque tiene productos vinculados.");
+                }
+
+                repository.delete(cliente);
+            });
+            invalidarTrasCommit(id);
+            return null;
+        });
+    }
+
+
+    private void invalidar(Long id) {
+        cacheManager.getCache(CacheConfig.CLIENTES).evict(id);
+    }
 
-        repository.delete(cliente);
+    // como en ProductosServiceImp: el segundo borrado descarta lo que una lectura anterior al commit haya guardado
+    // despues del primero
+    private void invalidarTrasCommit(Long id) {
+        Cache cache = cacheManager.getCache(CacheConfig.CLIENTES);
+        cache.evict(id);
+        CompletableFuture.runAsync(() -> cache.evict(id),
+                CompletableFuture.delayedExecutor(segundaInvalidacion.toMillis(), TimeUnit.MILLISECONDS));
     }
 }
@@ -0,0 +1,72 @@
+package com.example.demo.services.Implement;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ResultadoLoteDTO;
+import com.example.demo.dto.TransaccionDTO;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.services.EscritorGrupal;
+import com.example.demo.services.ProcesadorLoteTransacciones;
+import com.example.demo.services.TransaccionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Service
+@ConditionalOnProperty(name = "banco.transaccion.motor", havingValue = "grupal")
+public class GrupalTransaccionServiceImp implements TransaccionService {
+    @Autowired
+    private EscritorGrupal escritorGrupal;
+    @Autowired
+    private ProcesadorLoteTransacciones procesadorLote;
+    @Value("${banco.grupal.timeout-ms:5000}")
+    private long timeoutMs = 5000;
+
+    @Override
+    public Transaccion realizarTransaccion(Long cuentaOrigenId, Long cuentaDestinoId, Money monto) {
+        return esperar(new TransaccionDTO(cuentaOrigenId, cuentaDestinoId, monto));
+    }
+
+    @Override
+    public Transaccion realizarRetiro(Long cuentaOrigenId, Money monto) {
+        return esperar(new TransaccionDTO(cuentaOrigenId, null, monto));
+    }
+
+    @Override
+    public Transaccion realizarDeposito(Long cuentaDestinoId, Money monto) {
+        if (!monto.esPositivo()) {
+            throw new IllegalArgumentException("El monto del depósito debe ser positivo.");
+        }
+        return esperar(new TransaccionDTO(null, cuentaDestinoId, monto));
+    }
+
+    // un lote explicito ya trae su propio grupo: se confirma directo en una transaccion
+    @Override
+    public List<ResultadoLoteDTO> realizarLote(List<TransaccionDTO> transacciones) {
+        return procesadorLote.procesar(transacciones);
+    }
+
+    private Transaccion esperar(TransaccionDTO movimiento) {
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        CompletableFuture<Transaccion> resultado = escritorGrupal.enviar(movimiento, timeoutMs);
+        try {
+            return resultado.get(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("El escritor de transacciones no respondio a tiempo.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Operacion interrumpida.", e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.demo.services.Implement;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ResultadoLoteDTO;
+import com.example.demo.dto.TransaccionDTO;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.ledger.LedgerEnMemoria;
+import com.example.demo.services.TransaccionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Service
+@ConditionalOnProperty(name = "banco.transaccion.motor", havingValue = "ledger")
+public class LedgerTransaccionServiceImp implements TransaccionService {
+    @Autowired
+    private LedgerEnMemoria ledger;
+    @Value("${banco.ledger.timeout-ms:5000}")
+    private long timeoutMs = 5000;
+
+    @Override
+    public Transaccion realizarTransaccion(Long cuentaOrigenId, Long cuentaDestinoId, Money monto) {
+        verificarMonto(monto);
+        return esperar(ledger.transferir(cuentaOrigenId, cuentaDestinoId, monto));
+    }
+
+    @Override
+    public Transaccion realizarRetiro(Long cuentaOrigenId, Money monto) {
+        verificarMonto(monto);
+        return esperar(ledger.retirar(cuentaOrigenId, monto));
+    }
+
+    @Override
+    public Transaccion realizarDeposito(Long cuentaDestinoId, Money monto) {
+        if (!monto.esPositivo()) {
+            throw new IllegalArgumentException("El monto del depósito debe ser positivo.");
+        }
+        return esperar(ledger.depositar(cuentaDestinoId, monto));
+    }
+
+    @Override
+    public List<ResultadoLoteDTO> realizarLote(List<TransaccionDTO> transacciones) {
+        List<CompletableFuture<Transaccion>> pendientes = new ArrayList<>(transacciones.size());
+        for (TransaccionDTO dto : transacciones) {
+            pendientes.add(enviar(dto));
+        }
+        List<ResultadoLoteDTO> resultados = new ArrayList<>(transacciones.size());
+        for (int i = 0; i < pendientes.size(); i++) {
+            try {
+                Transaccion transaccion = esperar(pendientes.get(i));
+                resultados.add(ResultadoLoteDTO.exitosa(i, transaccion.getTipo()));
+            } catch (RuntimeException e) {
+                resultados.add(ResultadoLoteDTO.fallida(i, e.getMessage()));
+            }
+        }
+        return resultados;
+    }
+
+    // un monto negativo pasaria la verificacion de saldo del debito y sumaria en lugar de restar
+    private static void verificarMonto(Money monto) {
+        if (monto == null || !monto.esPositivo()) {
+            throw new IllegalArgumentException("El monto de la transacción debe ser positivo.");
+        }
+    }
+
+    private CompletableFuture<Transaccion> enviar(TransaccionDTO dto) {
+        Money monto = dto.getMonto();
+        if (monto == null || !monto.esPositivo()) {
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("El monto de la transacción debe ser positivo."));
+        }
+        if (dto.getCuentaOrigenId() != null && dto.getCuentaDestinoId() != null) {
+            return ledger.transferir(dto.getCuentaOrigenId(), dto.getCuentaDestinoId(), monto);
+        }
+        if (dto.getCuentaOrigenId() != null) {
+            return ledger.retirar(dto.getCuentaOrigenId(), monto);
+        }
+        if (dto.getCuentaDestinoId() != null) {
+            return ledger.depositar(dto.getCuentaDestinoId(), monto);
+        }
+        return CompletableFuture.failedFuture(
+                new IllegalArgumentException("La transacción debe indicar una cuenta de origen o de destino."));
+    }
+
+    private Transaccion esperar(CompletableFuture<Transaccion> resultado) {
+        try {
+            return resultado.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("El ledger no respondio a tiempo.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Operacion interrumpida.", e);
+        }
+    }
+}
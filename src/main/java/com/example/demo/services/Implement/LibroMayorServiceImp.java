@@ -0,0 +1,211 @@
+package com.example.demo.services.Implement;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.exceptions.InsufficientBalanceException;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.entities.AsientoContable;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.SaldoSnapshot;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.repository.AsientoContableRepository;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.SaldoSnapshotRepository;
+import com.example.demo.repository.TransaccionRepository;
+import com.example.demo.services.LibroMayorService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Libro mayor de partida doble. El saldo de una cuenta es su ultimo snapshot mas los asientos posteriores;
+ * la concurrencia sobre una misma cuenta se resuelve con la restriccion unica (cuenta, secuencia) y
+ * reintentos, sin actualizar la fila de {@link Productos}. Asientos y snapshots siguen en {@code BigDecimal} porque
+ * los saldos se suman en la base de datos; se convierten a {@link Money} al salir del servicio.
+ */
+@Service
+public class LibroMayorServiceImp implements LibroMayorService {
+    public static final String DEBITO = "DEBITO";
+    public static final String CREDITO = "CREDITO";
+
+    @Autowired
+    private ProductosRepository productosRepository;
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+    @Autowired
+    private AsientoContableRepository asientoRepository;
+    @Autowired
+    private SaldoSnapshotRepository snapshotRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Value("${banco.libro-mayor.habilitado:false}")
+    private boolean habilitado;
+    @Value("${banco.libro-mayor.reintentos:5}")
+    private int reintentos = 5;
+    @Value("${banco.libro-mayor.umbral-compactacion:100}")
+    private long umbralCompactacion = 100;
+    @Value("${banco.libro-mayor.cuentas-por-compactacion:500}")
+    private int cuentasPorCompactacion = 500;
+
+    @Override
+    public Transaccion transferir(Long cuentaOrigenId, Long cuentaDestinoId, Money monto) {
+        return registrar("TRANSFERENCIA", cuentaOrigenId, cuentaDestinoId, monto);
+    }
+
+    @Override
+    public Transaccion retirar(Long cuentaOrigenId, Money monto) {
+        return registrar("RETIRO", cuentaOrigenId, null, monto);
+    }
+
+    @Override
+    public Transaccion depositar(Long cuentaDestinoId, Money monto) {
+        return registrar("DEPOSITO", null, cuentaDestinoId, monto);
+    }
+
+    @Override
+    public Optional<Money> saldoActual(Long cuentaId) {
+        if (!habilitado) {
+            return productosRepository.findSaldoById(cuentaId);
+        }
+        Optional<SaldoSnapshot> snapshot = snapshotRepository.findFirstByCuentaIdOrderBySecuenciaDesc(cuentaId);
+        if (snapshot.isEmpty()) {
+            return productosRepository.findSaldoById(cuentaId);
+        }
+        return Optional.of(Money.of(snapshot.get().getSaldo()
+                .add(asientoRepository.sumarDesde(cuentaId, snapshot.get().getSecuencia()))));
+    }
+
+    @Override
+    public Optional<Money> saldoAl(Long cuentaId, LocalDateTime instante) {
+        return snapshotRepository.findFirstByCuentaIdAndFechaHoraLessThanEqualOrderBySecuenciaDesc(cuentaId, instante)
+                .map(snapshot -> Money.of(snapshot.getSaldo()
+                        .add(asientoRepository.sumarHasta(cuentaId, snapshot.getSecuencia(), instante))));
+    }
+
+    @Override
+    public int compactar() {
+        int compactadas = 0;
+        for (Long cuentaId : asientoRepository.findCuentasParaCompactar(umbralCompactacion, Limit.of(cuentasPorCompactacion))) {
+            try {
+                transactionTemplate.executeWithoutResult(estado -> compactarCuenta(cuentaId));
+                compactadas++;
+            } catch (DataIntegrityViolationException e) {
+                // otra instancia ya compacto esta cuenta hasta la misma secuencia
+            }
+        }
+        return compactadas;
+    }
+
+    private Transaccion registrar(String tipo, Long cuentaOrigenId, Long cuentaDestinoId, Money monto) {
+        for (int intento = 1; ; intento++) {
+            try {
+                return transactionTemplate.execute(estado -> asentar(tipo, cuentaOrigenId, cuentaDestinoId, monto));
+            } catch (DataIntegrityViolationException e) {
+                if (intento >= reintentos) {
+                    throw new IllegalStateException("No se pudo registrar el movimiento por concurrencia sobre la cuenta.", e);
+                }
+            }
+        }
+    }
+
+    private Transaccion asentar(String tipo, Long cuentaOrigenId, Long cuentaDestinoId, Money monto) {
+        Productos cuentaOrigen = cuentaOrigenId == null ? null : productosRepository.findById(cuentaOrigenId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cuenta de origen no encontrada con id: " + cuentaOrigenId));
+        Productos cuentaDestino = cuentaDestinoId == null ? null : productosRepository.findById(cuentaDestinoId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cuenta destino no encontrada con id: " + cuentaDestinoId));
+        LocalDateTime ahora = LocalDateTime.now();
+
+        Transaccion transaccion = new Transaccion();
+        transaccion.setCuentaOrigen(cuentaOrigen);
+        transaccion.setCuentaDestino(cuentaDestino);
+        transaccion.setMonto(monto);
+        transaccion.setTipo(tipo);
+        transaccion.setFechaHoraTransaccion(ahora);
+        transaccion = transaccionRepository.save(transaccion);
+
+        Map<Long, Long> secuencias = new HashMap<>();
+        List<AsientoContable> asientos = new ArrayList<>(2);
+        if (cuentaOrigen != null) {
+            Estado estado = estadoActual(cuentaOrigen);
+            if (estado.saldo().menorQue(monto)) {
+                throw new InsufficientBalanceException(cuentaDestino != null
+                        ? "Saldo insuficiente en la cuenta de origen."
+                        : "Saldo insuficiente para realizar el retiro.");
+            }
+            secuencias.put(cuentaOrigenId, estado.secuencia() + 1);
+            asientos.add(asiento(transaccion, cuentaOrigenId, estado.secuencia() + 1, DEBITO, monto, ahora));
+        } else {
+            asientos.add(asiento(transaccion, null, null, DEBITO, monto, ahora));
+        }
+        if (cuentaDestino != null) {
+            Long secuencia = secuencias.containsKey(cuentaDestinoId)
+                    ? secuencias.get(cuentaDestinoId) + 1
+                    : estadoActual(cuentaDestino).secuencia() + 1;
+            asientos.add(asiento(transaccion, cuentaDestinoId, secuencia, CREDITO, monto, ahora));
+        } else {
+            asientos.add(asiento(transaccion, null, null, CREDITO, monto, ahora));
+        }
+        asientoRepository.saveAllAndFlush(asientos);
+        return transaccion;
+    }
+
+    // saldo y ultima secuencia de la cuenta; la primera vez se abre con el saldo que tenia en productos
+    private Estado estadoActual(Productos cuenta) {
+        Long cuentaId = cuenta.getId();
+        SaldoSnapshot snapshot = snapshotRepository.findFirstByCuentaIdOrderBySecuenciaDesc(cuentaId)
+                .orElseGet(() -> abrirCuenta(cuenta));
+        // el saldo se suma hasta la secuencia leida: si otro asiento entra despues, el insert choca con el
+        long ultima = Math.max(snapshot.getSecuencia(), asientoRepository.findUltimaSecuencia(cuentaId));
+        return new Estado(Money.of(snapshot.getSaldo()
+                .add(asientoRepository.sumarEntre(cuentaId, snapshot.getSecuencia(), ultima))), ultima);
+    }
+
+    private SaldoSnapshot abrirCuenta(Productos cuenta) {
+        SaldoSnapshot apertura = new SaldoSnapshot();
+        apertura.setCuentaId(cuenta.getId());
+        apertura.setSecuencia(0L);
+        apertura.setSaldo(cuenta.getSaldo() == null ? BigDecimal.ZERO : cuenta.getSaldo().toBigDecimal());
+        apertura.setFechaHora(LocalDateTime.now());
+        return snapshotRepository.saveAndFlush(apertura);
+    }
+
+    private void compactarCuenta(Long cuentaId) {
+        SaldoSnapshot previo = snapshotRepository.findFirstByCuentaIdOrderBySecuenciaDesc(cuentaId).orElseThrow();
+        long ultima = asientoRepository.findUltimaSecuencia(cuentaId);
+        if (ultima <= previo.getSecuencia()) {
+            return;
+        }
+        LocalDateTime fechaHora = asientoRepository.findUltimaFechaEntre(cuentaId, previo.getSecuencia(), ultima);
+        SaldoSnapshot snapshot = new SaldoSnapshot();
+        snapshot.setCuentaId(cuentaId);
+        snapshot.setSecuencia(ultima);
+        snapshot.setSaldo(previo.getSaldo().add(asientoRepository.sumarEntre(cuentaId, previo.getSecuencia(), ultima)));
+        snapshot.setFechaHora(fechaHora.isBefore(previo.getFechaHora()) ? previo.getFechaHora() : fechaHora);
+        snapshotRepository.saveAndFlush(snapshot);
+    }
+
+    private AsientoContable asiento(Transaccion transaccion, Long cuentaId, Long secuencia, String tipo,
+                                    Money monto, LocalDateTime fechaHora) {
+        AsientoContable asiento = new AsientoContable();
+        asiento.setTransaccionId(transaccion.getId());
+        asiento.setCuentaId(cuentaId);
+        asiento.setSecuencia(secuencia);
+        asiento.setTipo(tipo);
+        asiento.setMonto(monto.toBigDecimal());
+        asiento.setFechaHora(fechaHora);
+        return asiento;
+    }
+
+    private record Estado(Money saldo, long secuencia) {
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.demo.services.Implement;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.dto.FormatoExtracto;
+import com.example.demo.dto.MovimientoDTO;
+import com.example.demo.dto.PaginaMovimientosDTO;
+import com.example.demo.repository.TransaccionRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.example.demo.services.DirectorioShards;
+import com.example.demo.services.LibroMayorService;
+import com.example.demo.services.MovimientosService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+@Service
+public class MovimientosServiceImp implements MovimientosService {
+    private static final int LIMITE_MAXIMO = 500;
+    private static final LocalDateTime INICIO_HISTORIA = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final Comparator<MovimientoDTO> RECIENTES_PRIMERO = Comparator
+            .comparing(MovimientoDTO::getFechaHoraTransaccion, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(MovimientoDTO::getId, Comparator.reverseOrder());
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+    @Autowired
+    private LibroMayorService libroMayor;
+    @Autowired
+    private DirectorioShards directorio;
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaMovimientosDTO consultarMovimientos(Long productoId, String cursor, int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_MAXIMO + ".");
+        }
+        // con shards la transaccion pide la conexion en la primera consulta, que ya corre en el shard de la cuenta
+        return directorio.enShardDeCuenta(productoId, () -> paginar(productoId, cursor, limite));
+    }
+
+    private PaginaMovimientosDTO paginar(Long productoId, String cursor, int limite) {
+        // cada consulta recorre su propio indice (origen o destino) y se mezclan en memoria
+        Limit porIndice = Limit.of(limite + 1);
+        List<MovimientoDTO> candidatos = new ArrayList<>(2 * (limite + 1));
+        if (cursor == null || cursor.isBlank()) {
+            candidatos.addAll(transaccionRepository.findMovimientosComoOrigen(productoId, porIndice));
+            candidatos.addAll(transaccionRepository.findMovimientosComoDestino(productoId, porIndice));
+        } else {
+            Cursor posicion = Cursor.decodificar(cursor);
+            candidatos.addAll(transaccionRepository.findMovimientosComoOrigenAntesDe(
+                    productoId, posicion.fecha(), posicion.id(), porIndice));
+            candidatos.addAll(transaccionRepository.findMovimientosComoDestinoAntesDe(
+                    productoId, posicion.fecha(), posicion.id(), porIndice));
+        }
+        candidatos.sort(RECIENTES_PRIMERO);
+
+        List<MovimientoDTO> pagina = new ArrayList<>(limite);
+        Set<Long> vistos = new HashSet<>();
+        boolean hayMas = false;
+        for (MovimientoDTO movimiento : candidatos) {
+            if (!vistos.add(movimiento.getId())) {
+                continue;
+            }
+            if (pagina.size() == limite) {
+                hayMas = true;
+                break;
+            }
+            pagina.add(movimiento);
+        }
+        String siguiente = hayMas ? Cursor.de(pagina.get(pagina.size() - 1)).codificar() : null;
+        return new PaginaMovimientosDTO(pagina, siguiente);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportarExtracto(Long productoId, LocalDateTime desde, LocalDateTime hasta, FormatoExtracto formato,
+                                 OutputStream salida) throws IOException {
+        try {
+            directorio.enShardDeCuenta(productoId, () -> {
+                try {
+                    escribirExtracto(productoId, desde, hasta, formato, salida);
+                    return null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void escribirExtracto(Long productoId, LocalDateTime desde, LocalDateTime hasta, FormatoExtracto formato,
+                                  OutputStream salida) throws IOException {
+        LocalDateTime inicio = desde == null ? INICIO_HISTORIA : desde;
+        LocalDateTime fin = hasta == null ? LocalDateTime.now() : hasta;
+        Money saldoActual = libroMayor.saldoActual(productoId)
+                .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con id: " + productoId));
+        Money netoDesdeInicio = Money.of(transaccionRepository.sumarCreditosDesde(productoId, inicio)
+                .subtract(transaccionRepository.sumarDebitosDesde(productoId, inicio)));
+        Money saldo = saldoActual.restar(netoDesdeInicio);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        try (Stream<MovimientoDTO> movimientos = transaccionRepository.streamMovimientos(productoId, inicio, fin)) {
+            if (formato == FormatoExtracto.CSV) {
+                escribirCsv(productoId, saldo, movimientos, writer);
+            } else {
+                escribirNdjson(productoId, saldo, movimientos, writer);
+            }
+        }
+        writer.flush();
+    }
+
+    private void escribirCsv(Long productoId, Money saldo, Stream<MovimientoDTO> movimientos, Writer writer)
+            throws IOException {
+        writer.write("id,fecha_hora_transaccion,tipo,monto,cuenta_origen_id,cuenta_destino_id,saldo\n");
+        Money corriente = saldo;
+        for (MovimientoDTO movimiento : (Iterable<MovimientoDTO>) movimientos::iterator) {
+            corriente = aplicar(productoId, corriente, movimiento);
+            writer.write(String.valueOf(movimiento.getId()));
+            writer.write(',');
+            writer.write(String.valueOf(movimiento.getFechaHoraTransaccion()));
+            writer.write(',');
+            writer.write(movimiento.getTipo());
+            writer.write(',');
+            writer.write(movimiento.getMonto().toString());
+            writer.write(',');
+            writer.write(movimiento.getCuentaOrigenId() == null ? "" : movimiento.getCuentaOrigenId().toString());
+            writer.write(',');
+            writer.write(movimiento.getCuentaDestinoId() == null ? "" : movimiento.getCuentaDestinoId().toString());
+            writer.write(',');
+            writer.write(corriente.toString());
+            writer.write('\n');
+        }
+    }
+
+    private void escribirNdjson(Long productoId, Money saldo, Stream<MovimientoDTO> movimientos, Writer writer)
+            throws IOException {
+        JsonGenerator json = JSON.createGenerator(writer);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        Money corriente = saldo;
+        for (MovimientoDTO movimiento : (Iterable<MovimientoDTO>) movimientos::iterator) {
+            corriente = aplicar(productoId, corriente, movimiento);
+            json.writeStartObject();
+            json.writeNumberField("id", movimiento.getId());
+            json.writeStringField("fechaHoraTransaccion", String.valueOf(movimiento.getFechaHoraTransaccion()));
+            json.writeStringField("tipo", movimiento.getTipo());
+            json.writeFieldName("monto");
+            json.writeNumber(movimiento.getMonto().toString());
+            if (movimiento.getCuentaOrigenId() != null) {
+                json.writeNumberField("cuentaOrigenId", movimiento.getCuentaOrigenId());
+            }
+            if (movimiento.getCuentaDestinoId() != null) {
+                json.writeNumberField("cuentaDestinoId", movimiento.getCuentaDestinoId());
+            }
+            json.writeFieldName("saldo");
+            json.writeNumber(corriente.toString());
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+        json.close();
+    }
+
+    private Money aplicar(Long productoId, Money saldo, MovimientoDTO movimiento) {
+        Money resultado = saldo;
+        if (productoId.equals(movimiento.getCuentaDestinoId())) {
+            resultado = resultado.sumar(movimiento.getMonto());
+        }
+        if (productoId.equals(movimiento.getCuentaOrigenId())) {
+            resultado = resultado.restar(movimiento.getMonto());
+        }
+        return resultado;
+    }
+
+    private record Cursor(LocalDateTime fecha, Long id) {
+        static Cursor de(MovimientoDTO movimiento) {
+            return new Cursor(movimiento.getFechaHoraTransaccion(), movimiento.getId());
+        }
+
+        static Cursor decodificar(String valor) {
+            try {
+                String texto = new String(Base64.getUrlDecoder().decode(valor), StandardCharsets.UTF_8);
+                int separador = texto.lastIndexOf('|');
+                return new Cursor(LocalDateTime.parse(texto.substring(0, separador)),
+                        Long.parseLong(texto.substring(separador + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor de paginación inválido.");
+            }
+        }
+
+        String codificar() {
+            String texto = fecha + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -1,18 +1,34 @@
 package com.example.demo.services.Implement;
 
+import com.example.demo.dinero.Money;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.config.CacheConfig;
+import com.example.demo.datasource.ContextoLectura;
+import com.example.demo.dto.ProductoDTO;
 import com.example.demo.entities.Clientes;
 import com.example.demo.entities.Productos;
+import com.example.demo.ledger.LedgerEnMemoria;
 import com.example.demo.repository.ClientesRepository;
 import com.example.demo.repository.ProductosRepository;
+import com.example.demo.services.DirectorioShards;
+import com.example.demo.services.LibroMayorService;
 import com.example.demo.services.NumeroCuentaGenerator;
 import com.example.demo.services.ProductosService;
 import com.example.demo.validators.SaldoMinimoValidator;
 import com.example.demo.validators.TipoCuentaValidator;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class ProductosServiceImp implements ProductosService {
@@ -26,91 +42,223 @@ public class ProductosServiceImp implements ProductosService {
     private SaldoMinimoValidator saldoMinimoValidator;
     @Autowired
     private NumeroCuentaGenerator numeroCuentaGenerator;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private LibroMayorService libroMayor;
+    @Autowired
+    private DirectorioShards directorio;
+    @Autowired
+    private ObjectProvider<LedgerEnMemoria> ledger;
+    // lectura y escritura en la misma transaccion: sin open-in-view, save() de una entidad separada vuelve a leerla
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Value("${banco.libro-mayor.habilitado:false}")
+    private boolean libroMayorHabilitado;
+    @Value("${banco.transaccion.motor:jpa}")
+    private String motor = "jpa";
+    @Value("${banco.cache.segunda-invalidacion:500ms}")
+    private Duration segundaInvalidacion = Duration.ofMillis(500);
 
 
+    // la cuenta queda en el shard de su cliente, asi sus transferencias con cuentas del mismo cliente no cruzan shards
     @Override
     public Productos createProducto(Long clienteId, Productos producto) {
-        Clientes cliente = obtenerCliente(clienteId);
-        producto.setCliente(cliente);
-
-        tipoCuentaValidator.validate(producto.getTipoCuenta());
-        numeroCuentaGenerator.generarYAsignarNumeroCuenta(producto);
-        saldoMinimoValidator.validate(producto);
-        producto.setFechaCreacion(LocalDateTime.now());
-        establecerEstadoPredeterminado(producto);
-
-        return repository.save(producto);
+        int shard = directorio.shardDeCliente(clienteId);
+        Productos guardado = directorio.enShard(shard, () -> {
+            Clientes cliente = obtenerCliente(clienteId);
+            producto.setCliente(cliente);
+
+            tipoCuentaValidator.validate(producto.getTipoCuenta());
+            numeroCuentaGenerator.generarYAsignarNumeroCuenta(producto);
+            saldoMinimoValidator.validate(producto);
+            producto.setFechaCreacion(LocalDateTime.now());
+            establecerEstadoPredeterminado(producto);
+
+            return repository.save(producto);
+        });
+        directorio.registrarCuenta(producto.getId(), shard);
+        return guardado;
     }
 
     @Override
     public Productos updateProducto(Long id, Productos producto) {
-        Productos productoExistente = obtenerProducto(id);
-        tipoCuentaValidator.validate(producto.getTipoCuenta());
-        saldoMinimoValidator.validate(producto);
-
-        actualizarDatosProducto(productoExistente, producto);
-
-        return repository.save(productoExistente);
+        return directorio.enShardDeCuenta(id, () -> {
+            invalidar(id);
+            Productos actualizado = transactionTemplate.execute(estado -> {
+                Productos productoExistente = obtenerProducto(id);
+                tipoCuentaValidator.validate(producto.getTipoCuenta());
+                if ("ledger".equals(motor)) {
+                    verificarSaldoSinCambios(productoExistente, producto);
+                }
+                saldoMinimoValidator.validate(producto);
+
+                actualizarDatosProducto(productoExistente, producto);
+
+                return repository.save(productoExistente);
+            });
+            invalidarTrasCommit(id);
+            recargarEnLedger(id);
+            return actualizado;
+        });
     }
 
 
     @Override
     public void deleteProducto(Long id) {
-        Productos producto = obtenerProducto(id);
-        verificarSaldoCero(producto);
-        repository.delete(producto);
+        // el saldo en memoria puede ir por delante de la fila y aun puede haber transferencias en curso que la
+        // escritura diferida guardara apuntando a la cuenta
+        if ("ledger".equals(motor)) {
+            throw new IllegalArgumentException("Con el motor ledger no se pueden cancelar cuentas.");
+        }
+        directorio.enShardDeCuenta(id, () -> {
+            invalidar(id);
+            transactionTemplate.executeWithoutResult(estado -> {
+                Productos producto = obtenerProducto(id);
+                verificarSaldoCero(producto);
+                repository.delete(producto);
+            });
+            invalidarTrasCommit(id);
+            return null;
+        });
     }
 
 
+    // sin libro mayor el saldo esta en la fila: metadatos, saldo y version salen juntos de una consulta y el ETag
+    // corresponde siempre al cuerpo. Con el libro mayor los metadatos vienen de la cache y no hay version
     @Override
-    public Productos getProductoById(Long id) {
-        return obtenerProducto(id);
+    public ProductoDTO getProductoById(Long id) {
+        return directorio.enShardDeCuenta(id, () -> {
+            if (!libroMayorHabilitado) {
+                return repository.findDatosById(id)
+                        .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con id: " + id));
+            }
+            ProductoDTO metadatos = obtenerMetadatos(id);
+            Money saldo = libroMayor.saldoActual(id).orElseThrow(() -> {
+                invalidar(id);
+                return new ResourceNotFoundException("Producto no encontrado con id: " + id);
+            });
+            return metadatos.conSaldo(saldo);
+        });
     }
 
 
     @Override
     public Productos activarProducto(Long id) {
-        Productos cuenta = obtenerProducto(id);
-
-        cuenta.setEstado("activa");
-        return repository.save(cuenta);
+        return directorio.enShardDeCuenta(id, () -> {
+            invalidar(id);
+            Productos actualizada = transactionTemplate.execute(estado -> {
+                Productos cuenta = obtenerProducto(id);
+                cuenta.setEstado("activa");
+                return repository.save(cuenta);
+            });
+            invalidarTrasCommit(id);
+            recargarEnLedger(id);
+            return actualizada;
+        });
     }
 
 
     @Override
     public Productos desactivarProducto(Long id) {
-        Productos cuenta = obtenerProducto(id);
-        cuenta.setEstado("inactiva");
-        return repository.save(cuenta);
+        return directorio.enShardDeCuenta(id, () -> {
+            invalidar(id);
+            Productos actualizada = transactionTemplate.execute(estado -> {
+                Productos cuenta = obtenerProducto(id);
+                cuenta.setEstado("inactiva");
+                return repository.save(cuenta);
+            });
+            invalidarTrasCommit(id);
+            recargarEnLedger(id);
+            return actualizada;
+        });
     }
 
 
     @Override
     public String getEstadoProductoById(Long id) {
-        Productos producto = obtenerProducto(id);
-        return producto.getEstado();
+        return directorio.enShardDeCuenta(id, () -> obtenerMetadatos(id).estado());
+    }
+
+
+    // vacio si la cuenta no existe o con el libro mayor, donde los movimientos no cambian la fila ni su version
+    @Override
+    public Optional<Long> getVersionProducto(Long id) {
+        if (libroMayorHabilitado) {
+            return Optional.empty();
+        }
+        return directorio.enShardDeCuenta(id, () -> repository.findVersionById(id));
     }
 
 
     private Clientes obtenerCliente(Long clienteId) {
         return clientesRepository.findById(clienteId)
-                .orElseThrow(() -> new IllegalArgumentException("Cliente no encontrado con id: " + clienteId));
+                .orElseThrow(() -> new ResourceNotFoundException("Cliente no encontrado con id: " + clienteId));
     }
 
 
     private Productos obtenerProducto(Long id) {
         return repository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado con id: " + id));
+                .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con id: " + id));
+    }
+
+
+    // el saldo no se guarda en cache: cambia con cada transaccion y se consulta aparte. Lo que se cachea se lee de
+    // la primaria para no guardar por todo el ttl un dato atrasado de una replica
+    private ProductoDTO obtenerMetadatos(Long id) {
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTOS);
+        ProductoDTO cacheado = cache.get(id, ProductoDTO.class);
+        if (cacheado == null) {
+            cacheado = ContextoLectura.enPrimaria(() -> repository.findMetadatosById(id))
+                    .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con id: " + id));
+            cache.put(id, cacheado);
+        }
+        return cacheado;
+    }
+
+
+    private void invalidar(Long id) {
+        cacheManager.getCache(CacheConfig.PRODUCTOS).evict(id);
+    }
+
+
+    // una lectura que no encontro la cuenta en cache pudo leer la fila anterior antes del commit y guardarla despues
+    // de este borrado; el segundo, pasado segundaInvalidacion, la descarta. Queda fuera solo la lectura que tarde mas
+    // que eso entre su consulta y el put
+    private void invalidarTrasCommit(Long id) {
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTOS);
+        cache.evict(id);
+        CompletableFuture.runAsync(() -> cache.evict(id),
+                CompletableFuture.delayedExecutor(segundaInvalidacion.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+
+    // el shard guarda su propia copia de la cuenta; sin recargarla seguiria respondiendo con los datos anteriores
+    private void recargarEnLedger(Long id) {
+        if ("ledger".equals(motor)) {
+            ledger.getObject().recargar(id).join();
+        }
     }
 
 
     private void verificarSaldoCero(Productos producto) {
-        if (producto.getSaldo().compareTo(BigDecimal.ZERO) != 0) {
+        Money saldo = libroMayor.saldoActual(producto.getId()).orElse(producto.getSaldo());
+        if (!saldo.esCero()) {
             throw new IllegalArgumentException("No se puede cancelar la cuenta porque tiene un saldo diferente de $0.");
         }
     }
 
 
+    // con el motor ledger el saldo vive en el shard de la cuenta y la escritura diferida pisa lo que se escriba en la
+    // fila: se acepta el mismo saldo que ya tiene (el cuerpo de un GET) pero no uno distinto
+    private void verificarSaldoSinCambios(Productos productoExistente, Productos productoNuevo) {
+        if (productoNuevo.getSaldo() != null && !productoNuevo.getSaldo().equals(productoExistente.getSaldo())) {
+            throw new IllegalArgumentException("Con el motor ledger el saldo solo cambia con transacciones.");
+        }
+        productoNuevo.setSaldo(productoExistente.getSaldo());
+    }
+
+
     private void actualizarDatosProducto(Productos productoExistente, Productos productoNuevo) {
         productoExistente.setTipoCuenta(productoNuevo.getTipoCuenta());
         productoExistente.setEstado(productoNuevo.getEstado());
@@ -1,36 +1,88 @@
 package com.example.demo.services.Implement;
 
+import com.example.demo.dinero.Money;
+import com.example.demo.exceptions.InsufficientBalanceException;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.dto.ResultadoLoteDTO;
+import com.example.demo.dto.TransaccionDTO;
 import com.example.demo.entities.Productos;
 import com.example.demo.entities.Transaccion;
 import com.example.demo.repository.ProductosRepository;
 import com.example.demo.repository.TransaccionRepository;
+import com.example.demo.services.DirectorioShards;
+import com.example.demo.services.LibroMayorService;
+import com.example.demo.services.MotorGmf;
+import com.example.demo.services.ProcesadorLoteTransacciones;
+import com.example.demo.services.SagaTransferencias;
 import com.example.demo.services.TransaccionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
+@ConditionalOnProperty(name = "banco.transaccion.motor", havingValue = "jpa", matchIfMissing = true)
 public class TransaccionServiceImp implements TransaccionService {
     @Autowired
     private TransaccionRepository transaccionRepository;
     @Autowired
     private ProductosRepository productosRepository;
+    @Autowired
+    private ProcesadorLoteTransacciones procesadorLote;
+    @Autowired
+    private LibroMayorService libroMayor;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private DirectorioShards directorio;
+    @Autowired
+    private SagaTransferencias sagas;
+    @Autowired
+    private MotorGmf motorGmf;
+    @Value("${banco.libro-mayor.habilitado:false}")
+    private boolean libroMayorHabilitado;
 
 
     @Override
-    public Transaccion realizarTransaccion(Long cuentaOrigenId, Long cuentaDestinoId, BigDecimal monto) {
-        Productos cuentaOrigen = productosRepository.findById(cuentaOrigenId)
-                .orElseThrow(() -> new IllegalArgumentException("Cuenta de origen no encontrada con id: " + cuentaOrigenId));
-        Productos cuentaDestino = productosRepository.findById(cuentaDestinoId)
-                .orElseThrow(() -> new IllegalArgumentException("Cuenta destino no encontrada con id: " + cuentaDestinoId));
-        if (cuentaOrigen.getSaldo().compareTo(monto) < 0) {
-            throw new IllegalArgumentException("Saldo insuficiente en la cuenta de origen.");
+    public Transaccion realizarTransaccion(Long cuentaOrigenId, Long cuentaDestinoId, Money monto) {
+        if (libroMayorHabilitado) {
+            return libroMayor.transferir(cuentaOrigenId, cuentaDestinoId, monto);
+        }
+        int shardOrigen = directorio.shardDeCuenta(cuentaOrigenId);
+        int shardDestino = directorio.shardDeCuenta(cuentaDestinoId);
+        if (shardOrigen != shardDestino) {
+            return sagas.transferir(cuentaOrigenId, cuentaDestinoId, monto, shardOrigen, shardDestino);
+        }
+        return directorio.enShard(shardOrigen,
+                () -> transactionTemplate.execute(estado -> transferir(cuentaOrigenId, cuentaDestinoId, monto)));
+    }
+
+    // ambas cuentas se bloquean en orden de id para que dos transferencias cruzadas no se bloqueen entre si
+    private Transaccion transferir(Long cuentaOrigenId, Long cuentaDestinoId, Money monto) {
+        boolean origenPrimero = cuentaOrigenId <= cuentaDestinoId;
+        Optional<Productos> primera = productosRepository.findByIdParaActualizar(origenPrimero ? cuentaOrigenId : cuentaDestinoId);
+        Optional<Productos> segunda = cuentaOrigenId.equals(cuentaDestinoId) ? primera
+                : productosRepository.findByIdParaActualizar(origenPrimero ? cuentaDestinoId : cuentaOrigenId);
+        Productos cuentaOrigen = (origenPrimero ? primera : segunda)
+                .orElseThrow(() -> new ResourceNotFoundException("Cuenta de origen no encontrada con id: " + cuentaOrigenId));
+        Productos cuentaDestino = (origenPrimero ? segunda : primera)
+                .orElseThrow(() -> new ResourceNotFoundException("Cuenta destino no encontrada con id: " + cuentaDestinoId));
+        Money gravamen = motorGmf.gravamenEnLinea(cuentaOrigen, monto);
+        if (cuentaOrigen.getSaldo().menorQue(monto.sumar(gravamen))) {
+            throw new InsufficientBalanceException("Saldo insuficiente en la cuenta de origen.");
         }
 
-        cuentaOrigen.setSaldo(cuentaOrigen.getSaldo().subtract(monto));
-        cuentaDestino.setSaldo(cuentaDestino.getSaldo().add(monto));
+        cuentaOrigen.setSaldo(cuentaOrigen.getSaldo().restar(monto));
+        cuentaDestino.setSaldo(cuentaDestino.getSaldo().sumar(monto));
+        Transaccion cobro = motorGmf.cobrar(cuentaOrigen, gravamen);
 
         Transaccion transaccion = new Transaccion();
         transaccion.setCuentaOrigen(cuentaOrigen);
@@ -42,18 +94,32 @@ public class TransaccionServiceImp implements TransaccionService {
 
         productosRepository.save(cuentaOrigen);
         productosRepository.save(cuentaDestino);
-        return transaccionRepository.save(transaccion);
+        Transaccion guardada = transaccionRepository.save(transaccion);
+        if (cobro != null) {
+            transaccionRepository.save(cobro);
+        }
+        return guardada;
     }
 
     @Override
-    public Transaccion realizarRetiro(Long cuentaOrigenId, BigDecimal monto) {
-        Productos cuentaOrigen = productosRepository.findById(cuentaOrigenId)
-                .orElseThrow(() -> new IllegalArgumentException("Cuenta de origen no encontrada con id: " + cuentaOrigenId));
+    public Transaccion realizarRetiro(Long cuentaOrigenId, Money monto) {
+        if (libroMayorHabilitado) {
+            return libroMayor.retirar(cuentaOrigenId, monto);
+        }
+        return directorio.enShardDeCuenta(cuentaOrigenId,
+                () -> transactionTemplate.execute(estado -> retirar(cuentaOrigenId, monto)));
+    }
 
-        if (cuentaOrigen.getSaldo().compareTo(monto) < 0) {
-            throw new IllegalArgumentException("Saldo insuficiente para realizar el retiro.");
+    private Transaccion retirar(Long cuentaOrigenId, Money monto) {
+        Productos cuentaOrigen = productosRepository.findByIdParaActualizar(cuentaOrigenId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cuenta de origen no encontrada con id: " + cuentaOrigenId));
+
+        Money gravamen = motorGmf.gravamenEnLinea(cuentaOrigen, monto);
+        if (cuentaOrigen.getSaldo().menorQue(monto.sumar(gravamen))) {
+            throw new InsufficientBalanceException("Saldo insuficiente para realizar el retiro.");
         }
-        cuentaOrigen.setSaldo(cuentaOrigen.getSaldo().subtract(monto));
+        cuentaOrigen.setSaldo(cuentaOrigen.getSaldo().restar(monto));
+        Transaccion cobro = motorGmf.cobrar(cuentaOrigen, gravamen);
 
         Transaccion transaccion = new Transaccion();
         transaccion.setCuentaOrigen(cuentaOrigen);
@@ -63,17 +129,29 @@ public class TransaccionServiceImp implements TransaccionService {
         transaccion.setTipo("RETIRO");
 
         productosRepository.save(cuentaOrigen);
-        return transaccionRepository.save(transaccion);
+        Transaccion guardada = transaccionRepository.save(transaccion);
+        if (cobro != null) {
+            transaccionRepository.save(cobro);
+        }
+        return guardada;
     }
 
     @Override
-    public Transaccion realizarDeposito(Long cuentaDestinoId, BigDecimal monto) {
-        if (monto.compareTo(BigDecimal.ZERO) <= 0) {
+    public Transaccion realizarDeposito(Long cuentaDestinoId, Money monto) {
+        if (!monto.esPositivo()) {
             throw new IllegalArgumentException("El monto del depósito debe ser positivo.");
         }
-        Productos cuentaDestino = productosRepository.findById(cuentaDestinoId)
-                .orElseThrow(() -> new IllegalArgumentException("Cuenta destino no encontrada con id: " + cuentaDestinoId));
-        cuentaDestino.setSaldo(cuentaDestino.getSaldo().add(monto));
+        if (libroMayorHabilitado) {
+            return libroMayor.depositar(cuentaDestinoId, monto);
+        }
+        return directorio.enShardDeCuenta(cuentaDestinoId,
+                () -> transactionTemplate.execute(estado -> depositar(cuentaDestinoId, monto)));
+    }
+
+    private Transaccion depositar(Long cuentaDestinoId, Money monto) {
+        Productos cuentaDestino = productosRepository.findByIdParaActualizar(cuentaDestinoId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cuenta destino no encontrada con id: " + cuentaDestinoId));
+        cuentaDestino.setSaldo(cuentaDestino.getSaldo().sumar(monto));
 
         Transaccion transaccion = new Transaccion();
         transaccion.setCuentaOrigen(null); //
@@ -86,4 +164,67 @@ public class TransaccionServiceImp implements TransaccionService {
         return transaccionRepository.save(transaccion);
     }
 
+    @Override
+    public List<ResultadoLoteDTO> realizarLote(List<TransaccionDTO> transacciones) {
+        if (libroMayorHabilitado) {
+            return realizarLotePorMovimiento(transacciones);
+        }
+        if (directorio.cantidad() > 1) {
+            Set<Integer> shards = shardsDelLote(transacciones);
+            if (shards.size() > 1) {
+                return realizarLotePorMovimiento(transacciones);
+            }
+            return directorio.enShard(shards.isEmpty() ? 0 : shards.iterator().next(),
+                    () -> procesadorLote.procesar(transacciones));
+        }
+        return procesadorLote.procesar(transacciones);
+    }
+
+    // con el libro mayor cada movimiento se asienta por separado; no hay filas de productos que bloquear. Lo mismo
+    // pasa con un lote que toca varios shards: no hay una transaccion que los abarque a todos
+    private List<ResultadoLoteDTO> realizarLotePorMovimiento(List<TransaccionDTO> transacciones) {
+        List<ResultadoLoteDTO> resultados = new ArrayList<>(transacciones.size());
+        for (int i = 0; i < transacciones.size(); i++) {
+            TransaccionDTO dto = transacciones.get(i);
+            try {
+                Transaccion transaccion = asentar(dto);
+                ResultadoLoteDTO resultado = ResultadoLoteDTO.exitosa(i, transaccion.getTipo());
+                resultado.setTransaccionId(transaccion.getId());
+                resultados.add(resultado);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                resultados.add(ResultadoLoteDTO.fallida(i, e.getMessage()));
+            }
+        }
+        return resultados;
+    }
+
+    private Transaccion asentar(TransaccionDTO dto) {
+        Money monto = dto.getMonto();
+        if (monto == null || !monto.esPositivo()) {
+            throw new IllegalArgumentException("El monto de la transacción debe ser positivo.");
+        }
+        if (dto.getCuentaOrigenId() != null && dto.getCuentaDestinoId() != null) {
+            return realizarTransaccion(dto.getCuentaOrigenId(), dto.getCuentaDestinoId(), monto);
+        }
+        if (dto.getCuentaOrigenId() != null) {
+            return realizarRetiro(dto.getCuentaOrigenId(), monto);
+        }
+        if (dto.getCuentaDestinoId() != null) {
+            return realizarDeposito(dto.getCuentaDestinoId(), monto);
+        }
+        throw new IllegalArgumentException("La transacción debe indicar una cuenta de origen o de destino.");
+    }
+
+    private Set<Integer> shardsDelLote(List<TransaccionDTO> transacciones) {
+        Set<Integer> shards = new HashSet<>();
+        for (TransaccionDTO dto : transacciones) {
+            if (dto.getCuentaOrigenId() != null) {
+                shards.add(directorio.shardDeCuenta(dto.getCuentaOrigenId()));
+            }
+            if (dto.getCuentaDestinoId() != null) {
+                shards.add(directorio.shardDeCuenta(dto.getCuentaDestinoId()));
+            }
+        }
+        return shards;
+    }
 }
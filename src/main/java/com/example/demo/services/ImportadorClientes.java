@@ -0,0 +1,355 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.FilaRechazadaDTO;
+import com.example.demo.dto.ResultadoImportacionDTO;
+import com.example.demo.exceptions.InvalidCsvException;
+import com.example.demo.validators.ClientesValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Alta masiva de clientes desde CSV. El archivo se lee como flujo en bloques de {@code banco.importacion.tamano-bloque}
+ * lineas que se interpretan y validan en paralelo en los hilos de importacion; el hilo de la peticion inserta los
+ * bloques ya validados en el orden del archivo, cada uno con un lote JDBC en su propia transaccion. Un solo escritor
+ * usa una sola conexion y mantiene los ids en el orden del archivo (H2 ademas repite ids de identidad con lotes
+ * concurrentes). Como mucho hay dos bloques en vuelo por hilo, asi que la memoria no depende del tamano del archivo.
+ * Las filas invalidas no detienen la importacion: se cuentan y se reportan con su linea y motivo.
+ */
+@Component
+public class ImportadorClientes {
+    public static final String METRICA_FILAS = "banco.importacion.filas";
+    public static final List<String> COLUMNAS = List.of("tipoIdentificacion", "numeroIdentificacion", "nombres",
+            "apellidos", "correoElectronico", "fechaNacimiento");
+
+    private static final String INSERTAR = "insert into clientes (tipo_identificacion, numero_identificacion, "
+            + "nombres, apellidos, edad, correo_electronico, fecha_nacimiento, fecha_creacion) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Value("${banco.importacion.tamano-bloque:2000}")
+    private int tamanoBloque = 2000;
+    @Value("${banco.importacion.hilos:4}")
+    private int hilos = 4;
+    @Value("${banco.importacion.maximo-rechazos-reportados:1000}")
+    private int maximoRechazosReportados = 1000;
+
+    private ExecutorService trabajadores;
+
+    private record Fila(long linea, String tipoIdentificacion, String numeroIdentificacion, String nombres, String apellidos,
+                        int edad, String correoElectronico, LocalDate fechaNacimiento) {
+    }
+
+    @PostConstruct
+    void iniciar() {
+        AtomicInteger secuencia = new AtomicInteger();
+        trabajadores = Executors.newFixedThreadPool(hilos, r -> {
+            Thread hilo = new Thread(r, "importacion-clientes-" + secuencia.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @PreDestroy
+    void cerrar() {
+        trabajadores.shutdownNow();
+    }
+
+    public ResultadoImportacionDTO importar(InputStream csv) throws IOException {
+        long inicio = System.nanoTime();
+        Importacion importacion = new Importacion(LocalDate.now(), Timestamp.valueOf(LocalDateTime.now()));
+        Deque<Future<List<Fila>>> pendientes = new ArrayDeque<>();
+        BufferedReader lector = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8), 64 * 1024);
+        try {
+            validarEncabezado(lector.readLine());
+            long numeroLinea = 1;
+            List<String> lineas = new ArrayList<>(tamanoBloque);
+            long primeraLinea = numeroLinea;
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                numeroLinea++;
+                if (lineas.isEmpty()) {
+                    primeraLinea = numeroLinea;
+                }
+                lineas.add(linea);
+                if (lineas.size() == tamanoBloque) {
+                    pendientes.add(validarEnParalelo(importacion, lineas, primeraLinea));
+                    lineas = new ArrayList<>(tamanoBloque);
+                    if (pendientes.size() >= hilos * 2) {
+                        guardar(importacion, siguienteValidado(pendientes));
+                    }
+                }
+            }
+            if (!lineas.isEmpty()) {
+                pendientes.add(validarEnParalelo(importacion, lineas, primeraLinea));
+            }
+            while (!pendientes.isEmpty()) {
+                guardar(importacion, siguienteValidado(pendientes));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendientes.forEach(bloque -> bloque.cancel(true));
+            throw new IllegalStateException("Se interrumpió la importación de clientes.", e);
+        } catch (IOException | RuntimeException e) {
+            pendientes.forEach(bloque -> bloque.cancel(true));
+            throw e;
+        }
+        long importadas = importacion.importadas.sum();
+        long rechazadas = importacion.rechazadas.sum();
+        meterRegistry.counter(METRICA_FILAS, "resultado", "importada").increment(importadas);
+        meterRegistry.counter(METRICA_FILAS, "resultado", "rechazada").increment(rechazadas);
+        return new ResultadoImportacionDTO(importadas + rechazadas, importadas, rechazadas,
+                (System.nanoTime() - inicio) / 1_000_000, importacion.rechazosOrdenados(),
+                rechazadas > maximoRechazosReportados);
+    }
+
+    private Future<List<Fila>> validarEnParalelo(Importacion importacion, List<String> lineas, long primeraLinea) {
+        return trabajadores.submit(() -> validarBloque(importacion, lineas, primeraLinea));
+    }
+
+    private static List<Fila> siguienteValidado(Deque<Future<List<Fila>>> pendientes) throws InterruptedException {
+        try {
+            return pendientes.poll().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static List<Fila> validarBloque(Importacion importacion, List<String> lineas, long primeraLinea) {
+        List<Fila> validas = new ArrayList<>(lineas.size());
+        String[] campos = new String[COLUMNAS.size()];
+        for (int i = 0; i < lineas.size(); i++) {
+            String linea = lineas.get(i);
+            long numeroLinea = primeraLinea + i;
+            if (linea.isBlank()) {
+                continue;
+            }
+            int columnas = separar(linea, campos);
+            if (columnas != campos.length) {
+                importacion.rechazar(numeroLinea, columnas < 0
+                        ? "Comillas sin cerrar."
+                        : "Se esperaban " + campos.length + " columnas y la fila tiene " + columnas + ".");
+                continue;
+            }
+            LocalDate fechaNacimiento = leerFecha(campos[5]);
+            if (fechaNacimiento == null) {
+                importacion.rechazar(numeroLinea, campos[5].isEmpty()
+                        ? ClientesValidator.FECHA_NULA
+                        : "Fecha de nacimiento inválida (se espera AAAA-MM-DD).");
+                continue;
+            }
+            int edad = ClientesValidator.calcularEdad(fechaNacimiento, importacion.hoy);
+            String motivo = ClientesValidator.motivoRechazo(campos[2], campos[3], campos[4], edad);
+            if (motivo != null) {
+                importacion.rechazar(numeroLinea, motivo);
+                continue;
+            }
+            validas.add(new Fila(numeroLinea, vacioANulo(campos[0]), vacioANulo(campos[1]), campos[2], campos[3],
+                    edad, campos[4], fechaNacimiento));
+        }
+        return validas;
+    }
+
+    private void guardar(Importacion importacion, List<Fila> validas) {
+        if (validas.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(estado -> jdbcTemplate.batchUpdate(INSERTAR, validas,
+                    validas.size(), (PreparedStatement sentencia, Fila fila) -> {
+                        sentencia.setString(1, fila.tipoIdentificacion());
+                        sentencia.setString(2, fila.numeroIdentificacion());
+                        sentencia.setString(3, fila.nombres());
+                        sentencia.setString(4, fila.apellidos());
+                        sentencia.setInt(5, fila.edad());
+                        sentencia.setString(6, fila.correoElectronico());
+                        sentencia.setDate(7, Date.valueOf(fila.fechaNacimiento()));
+                        sentencia.setTimestamp(8, importacion.fechaCreacion);
+                    }));
+            importacion.importadas.add(validas.size());
+        } catch (DataAccessException e) {
+            // el bloque es atomico: si el lote falla ninguna de sus filas queda guardada
+            String motivo = "No se pudo guardar el bloque: " + e.getMostSpecificCause().getMessage();
+            validas.forEach(fila -> importacion.rechazar(fila.linea(), motivo));
+        }
+    }
+
+    private static void validarEncabezado(String encabezado) {
+        String[] campos = new String[COLUMNAS.size()];
+        if (encabezado != null && !encabezado.isEmpty() && encabezado.charAt(0) == '\uFEFF') {
+            encabezado = encabezado.substring(1);
+        }
+        boolean valido = encabezado != null && separar(encabezado, campos) == campos.length;
+        for (int i = 0; valido && i < campos.length; i++) {
+            valido = COLUMNAS.get(i).equalsIgnoreCase(campos[i]);
+        }
+        if (!valido) {
+            throw new InvalidCsvException("La primera línea del CSV debe ser el encabezado "
+                    + String.join(",", COLUMNAS) + ".");
+        }
+    }
+
+    /**
+     * Separa una linea CSV (coma como separador, comillas dobles opcionales con {@code ""} como escape) en
+     * {@code campos}, sin espacios al inicio ni al final. Devuelve el numero de columnas de la linea, que puede
+     * exceder el tamano del arreglo, o -1 si hay comillas sin cerrar.
+     */
+    static int separar(String linea, String[] campos) {
+        int columnas = 0;
+        int i = 0;
+        int longitud = linea.length();
+        while (true) {
+            String campo;
+            while (i < longitud && linea.charAt(i) == ' ') {
+                i++;
+            }
+            if (i < longitud && linea.charAt(i) == '"') {
+                StringBuilder texto = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= longitud) {
+                        return -1;
+                    }
+                    char c = linea.charAt(i++);
+                    if (c == '"') {
+                        if (i < longitud && linea.charAt(i) == '"') {
+                            texto.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        texto.append(c);
+                    }
+                }
+                campo = texto.toString().trim();
+                while (i < longitud && linea.charAt(i) != ',') {
+                    i++;
+                }
+            } else {
+                int fin = linea.indexOf(',', i);
+                if (fin < 0) {
+                    fin = longitud;
+                }
+                campo = linea.substring(i, fin).trim();
+                i = fin;
+            }
+            if (columnas < campos.length) {
+                campos[columnas] = campo;
+            }
+            columnas++;
+            if (i >= longitud) {
+                return columnas;
+            }
+            i++;
+        }
+    }
+
+    // AAAA-MM-DD sin pasar por DateTimeFormatter; null si el texto no tiene ese formato
+    static LocalDate leerFecha(String texto) {
+        if (texto.length() != 10 || texto.charAt(4) != '-' || texto.charAt(7) != '-') {
+            return null;
+        }
+        int anio = digitos(texto, 0, 4);
+        int mes = digitos(texto, 5, 7);
+        int dia = digitos(texto, 8, 10);
+        if (anio < 0 || mes < 0 || dia < 0) {
+            return null;
+        }
+        try {
+            return LocalDate.of(anio, mes, dia);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static int digitos(String texto, int desde, int hasta) {
+        int valor = 0;
+        for (int i = desde; i < hasta; i++) {
+            char c = texto.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            valor = valor * 10 + (c - '0');
+        }
+        return valor;
+    }
+
+    private static String vacioANulo(String texto) {
+        return texto.isEmpty() ? null : texto;
+    }
+
+    // estado compartido por los bloques de una importacion
+    private final class Importacion {
+        private final LocalDate hoy;
+        private final Timestamp fechaCreacion;
+        private final LongAdder importadas = new LongAdder();
+        private final LongAdder rechazadas = new LongAdder();
+        // las primeras lineas rechazadas: la cabeza del monticulo es la mayor, que sale cuando llega una menor
+        private final PriorityQueue<FilaRechazadaDTO> rechazos =
+                new PriorityQueue<>(Comparator.comparingLong(FilaRechazadaDTO::getLinea).reversed());
+
+        private Importacion(LocalDate hoy, Timestamp fechaCreacion) {
+            this.hoy = hoy;
+            this.fechaCreacion = fechaCreacion;
+        }
+
+        private void rechazar(long linea, String motivo) {
+            rechazadas.increment();
+            synchronized (rechazos) {
+                if (rechazos.size() < maximoRechazosReportados) {
+                    rechazos.add(new FilaRechazadaDTO(linea, motivo));
+                } else if (!rechazos.isEmpty() && linea < rechazos.peek().getLinea()) {
+                    rechazos.poll();
+                    rechazos.add(new FilaRechazadaDTO(linea, motivo));
+                }
+            }
+        }
+
+        private List<FilaRechazadaDTO> rechazosOrdenados() {
+            synchronized (rechazos) {
+                List<FilaRechazadaDTO> ordenados = new ArrayList<>(rechazos);
+                ordenados.sort(Comparator.comparingLong(FilaRechazadaDTO::getLinea));
+                return ordenados;
+            }
+        }
+    }
+}
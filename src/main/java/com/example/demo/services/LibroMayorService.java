@@ -0,0 +1,16 @@
+package com.example.demo.services;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Transaccion;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface LibroMayorService {
+    Transaccion transferir(Long cuentaOrigenId, Long cuentaDestinoId, Money monto);
+    Transaccion retirar(Long cuentaOrigenId, Money monto);
+    Transaccion depositar(Long cuentaDestinoId, Money monto);
+    Optional<Money> saldoActual(Long cuentaId);
+    Optional<Money> saldoAl(Long cuentaId, LocalDateTime instante);
+    int compactar();
+}
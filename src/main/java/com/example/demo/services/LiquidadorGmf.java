@@ -0,0 +1,199 @@
+package com.example.demo.services;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ResultadoLiquidacionGmfDTO;
+import com.example.demo.entities.ProcesoCheckpoint;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Liquidacion mensual del GMF con {@code banco.gmf.modo=lote}. En cada shard, los ids de las transacciones del mes
+ * se parten en {@code banco.gmf.lote.particiones} rangos iguales que recorren en paralelo los hilos de liquidacion
+ * ({@link ProcesoPorParticiones}). Cada particion avanza por id en bloques de {@code banco.gmf.lote.tamano-bloque}
+ * movimientos gravados; un bloque debita el gravamen agrupado por cuenta, guarda un movimiento GMF por cuenta y mueve
+ * su {@link ProcesoCheckpoint}, todo en una transaccion. Volver a liquidar el mismo mes retoma lo pendiente y no
+ * cobra dos veces.
+ *
+ * <p>Solo se liquidan meses cerrados: en uno abierto el rango de ids seguiria creciendo. La exencion se mira al
+ * liquidar, no al momento del movimiento.
+ *
+ * <p>Como en linea, el gravamen no deja saldos negativos: a cada cuenta se le debita como mucho su saldo al momento
+ * del bloque, y lo que falta queda como deuda en {@code gmf_pendiente}, en la misma transaccion.
+ */
+@Component
+public class LiquidadorGmf {
+    public static final String PROCESO = "GMF";
+    public static final String METRICA_MOVIMIENTOS = "banco.gmf.movimientos";
+    public static final String METRICA_PENDIENTE = "banco.gmf.pendiente";
+    private static final Logger log = LoggerFactory.getLogger(LiquidadorGmf.class);
+
+    private static final String RANGO = "select min(id), max(id) from transaccion "
+            + "where fecha_hora_transaccion >= ? and fecha_hora_transaccion < ?";
+    // solo por rango de id, para que cada bloque recorra la clave primaria; la fecha se filtra al leer. Dentro del
+    // rango casi todo es del mes: quedan fuera solo ids reservados antes y usados despues
+    private static final String GRAVADOS = "select t.id, t.cuenta_origen_id, t.monto, t.fecha_hora_transaccion "
+            + "from transaccion t join productos p on p.id = t.cuenta_origen_id "
+            + "where t.id > ? and t.id <= ? and t.tipo in ('RETIRO', 'TRANSFERENCIA') and p.exenta_gmf = false "
+            + "order by t.id limit ?";
+    private static final String PENDIENTE = "insert into gmf_pendiente (cuenta_id, periodo, monto, fecha_hora) "
+            + "values (?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ProcesoPorParticiones proceso;
+    @Autowired
+    private MotorGmf motorGmf;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Value("${banco.gmf.lote.particiones:8}")
+    private int particiones = 8;
+    @Value("${banco.gmf.lote.hilos:4}")
+    private int hilos = 4;
+    @Value("${banco.gmf.lote.tamano-bloque:5000}")
+    private int tamanoBloque = 5000;
+
+    private ExecutorService trabajadores;
+
+    private record Gravado(long id, long cuentaId, Money monto, LocalDateTime fecha) {
+    }
+
+    @PostConstruct
+    void iniciar() {
+        AtomicInteger secuencia = new AtomicInteger();
+        trabajadores = Executors.newFixedThreadPool(hilos, r -> {
+            Thread hilo = new Thread(r, "liquidacion-gmf-" + secuencia.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @PreDestroy
+    void cerrar() {
+        trabajadores.shutdownNow();
+    }
+
+    @Scheduled(cron = "${banco.gmf.lote.cron:0 0 2 1 * *}")
+    public void liquidarMesAnterior() {
+        if (motorGmf.modo() == MotorGmf.Modo.LOTE) {
+            liquidar(YearMonth.now().minusMonths(1));
+        }
+    }
+
+    public ResultadoLiquidacionGmfDTO liquidar(YearMonth periodo) {
+        if (motorGmf.modo() != MotorGmf.Modo.LOTE) {
+            throw new IllegalStateException("La liquidación del GMF por lote requiere banco.gmf.modo=lote.");
+        }
+        if (!periodo.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException("Solo se liquidan meses cerrados; " + periodo + " no ha terminado.");
+        }
+        LocalDateTime desde = periodo.atDay(1).atStartOfDay();
+        LocalDateTime hasta = periodo.plusMonths(1).atDay(1).atStartOfDay();
+        ProcesoPorParticiones.Resultado resultado = proceso.ejecutar(PROCESO, periodo.toString(), particiones,
+                trabajadores, RANGO, new Object[]{Timestamp.valueOf(desde), Timestamp.valueOf(hasta)},
+                (ultimoId, idHasta) -> liquidarBloque(ultimoId, idHasta, periodo, desde, hasta));
+
+        meterRegistry.counter(METRICA_MOVIMIENTOS).increment(resultado.procesados());
+        meterRegistry.timer("banco.gmf.liquidacion").record(resultado.duracionNanos(), TimeUnit.NANOSECONDS);
+        log.info("GMF {}: {} movimientos en {} ms ({}/s), {} de {} particiones ya estaban terminadas", periodo,
+                resultado.procesados(), resultado.duracionMs(), resultado.porSegundo(),
+                resultado.particionesPrevias(), resultado.particiones());
+        return new ResultadoLiquidacionGmfDTO(periodo.toString(), resultado.particiones(),
+                resultado.particionesPrevias(), resultado.procesados(), Money.deCentavos(resultado.monto()),
+                resultado.duracionMs(), resultado.porSegundo());
+    }
+
+    private ProcesoPorParticiones.Avance liquidarBloque(long ultimoId, long idHasta, YearMonth periodo,
+                                                        LocalDateTime desde, LocalDateTime hasta) {
+        List<Gravado> gravados = jdbcTemplate.query(GRAVADOS,
+                (fila, i) -> new Gravado(fila.getLong(1), fila.getLong(2), Money.of(fila.getBigDecimal(3)),
+                        fila.getTimestamp(4).toLocalDateTime()),
+                ultimoId, idHasta, tamanoBloque);
+
+        // en orden de id, como bloquean las transferencias, para que dos particiones no se bloqueen entre si
+        Map<Long, Long> porCuenta = new TreeMap<>();
+        long total = 0;
+        long delMes = 0;
+        for (Gravado gravado : gravados) {
+            if (gravado.fecha().isBefore(desde) || !gravado.fecha().isBefore(hasta)) {
+                continue;
+            }
+            delMes++;
+            long centavos = motorGmf.gravamen(gravado.monto()).getCentavos();
+            if (centavos > 0) {
+                porCuenta.merge(gravado.cuentaId(), -centavos, Long::sum);
+                total += centavos;
+            }
+        }
+        total -= limitarAlSaldo(porCuenta, periodo);
+        proceso.aplicarMovimientos(MotorGmf.TIPO, porCuenta);
+
+        boolean terminado = gravados.size() < tamanoBloque;
+        return new ProcesoPorParticiones.Avance(terminado ? idHasta : gravados.get(gravados.size() - 1).id(),
+                delMes, total, terminado);
+    }
+
+    // bloquea las cuentas en orden de id, deja en el mapa lo que cada saldo alcanza a cubrir y guarda el resto como
+    // pendiente; devuelve el total pendiente en centavos
+    private long limitarAlSaldo(Map<Long, Long> porCuenta, YearMonth periodo) {
+        if (porCuenta.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Long> saldos = new HashMap<>();
+        jdbcTemplate.query("select id, saldo from productos where id in ("
+                        + String.join(", ", Collections.nCopies(porCuenta.size(), "?")) + ") order by id for update",
+                fila -> {
+                    saldos.put(fila.getLong(1), Money.of(fila.getBigDecimal(2)).getCentavos());
+                },
+                porCuenta.keySet().toArray());
+
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> pendientes = new ArrayList<>();
+        long total = 0;
+        for (Iterator<Map.Entry<Long, Long>> cuentas = porCuenta.entrySet().iterator(); cuentas.hasNext(); ) {
+            Map.Entry<Long, Long> cuenta = cuentas.next();
+            long gravamen = -cuenta.getValue();
+            long cobrable = Math.min(gravamen, Math.max(saldos.getOrDefault(cuenta.getKey(), 0L), 0));
+            if (cobrable == gravamen) {
+                continue;
+            }
+            long pendiente = gravamen - cobrable;
+            pendientes.add(new Object[]{cuenta.getKey(), periodo.toString(), Money.deCentavos(pendiente).toBigDecimal(),
+                    ahora});
+            total += pendiente;
+            if (cobrable == 0) {
+                cuentas.remove();
+            } else {
+                cuenta.setValue(-cobrable);
+            }
+        }
+        if (!pendientes.isEmpty()) {
+            jdbcTemplate.batchUpdate(PENDIENTE, pendientes);
+            meterRegistry.counter(METRICA_PENDIENTE).increment(Money.deCentavos(total).doubleValue());
+        }
+        return total;
+    }
+}
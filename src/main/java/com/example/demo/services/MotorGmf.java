@@ -0,0 +1,91 @@
+package com.example.demo.services;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Gravamen a los movimientos financieros (el 4 x 1000): se cobra sobre los retiros y las transferencias salientes de
+ * las cuentas que no estan marcadas como exentas. Segun {@code banco.gmf.modo}:
+ * <ul>
+ *     <li>{@code inactivo}: no se cobra (por defecto);</li>
+ *     <li>{@code linea}: cada debito lleva su movimiento GMF en la misma transaccion, y el saldo debe cubrir ambos;</li>
+ *     <li>{@code lote}: {@link LiquidadorGmf} lo liquida por mes cerrado.</li>
+ * </ul>
+ * El gravamen se calcula por movimiento y se redondea al centavo, mitad hacia arriba.
+ */
+@Component
+public class MotorGmf {
+    public static final String TIPO = "GMF";
+
+    public enum Modo {
+        INACTIVO, LINEA, LOTE
+    }
+
+    @Value("${banco.gmf.modo:inactivo}")
+    private Modo modo = Modo.INACTIVO;
+    @Value("${banco.gmf.tarifa-por-mil:4}")
+    private long tarifaPorMil = 4;
+    @Value("${banco.transaccion.motor:jpa}")
+    private String motor = "jpa";
+    @Value("${banco.libro-mayor.habilitado:false}")
+    private boolean libroMayor;
+    @Value("${banco.reactivo.habilitado:false}")
+    private boolean reactivo;
+
+    // en linea solo el motor jpa cobra el gravamen; por lote hace falta que el saldo viva en productos
+    @PostConstruct
+    void iniciar() {
+        if (modo == Modo.LINEA && (!"jpa".equals(motor) || libroMayor || reactivo)) {
+            throw new IllegalStateException("banco.gmf.modo=linea requiere banco.transaccion.motor=jpa, "
+                    + "sin libro mayor ni variante reactiva.");
+        }
+        if (modo == Modo.LOTE && ("ledger".equals(motor) || libroMayor)) {
+            throw new IllegalStateException("banco.gmf.modo=lote no admite banco.transaccion.motor=ledger "
+                    + "ni el libro mayor: el saldo no esta en productos.");
+        }
+    }
+
+    public Modo modo() {
+        return modo;
+    }
+
+    // como en Money, un desbordamiento lanza ArithmeticException en lugar de dar un gravamen negativo
+    public Money gravamen(Money monto) {
+        return Money.deCentavos(Math.floorDiv(Math.addExact(Math.multiplyExact(monto.getCentavos(), tarifaPorMil), 500),
+                1000));
+    }
+
+    /**
+     * Gravamen que corresponde cobrar ya mismo sobre un debito de {@code cuentaOrigen}; cero fuera del modo en linea,
+     * para cuentas exentas y para montos que no son positivos (esos los rechaza la validacion del movimiento).
+     */
+    public Money gravamenEnLinea(Productos cuentaOrigen, Money monto) {
+        if (modo != Modo.LINEA || cuentaOrigen == null || cuentaOrigen.isExentaGmf()
+                || monto == null || !monto.esPositivo()) {
+            return Money.ZERO;
+        }
+        return gravamen(monto);
+    }
+
+    /**
+     * Debita el gravamen de la cuenta, ya bloqueada, y devuelve su movimiento sin guardar; {@code null} si es cero.
+     */
+    public Transaccion cobrar(Productos cuentaOrigen, Money gravamen) {
+        if (!gravamen.esPositivo()) {
+            return null;
+        }
+        cuentaOrigen.setSaldo(cuentaOrigen.getSaldo().restar(gravamen));
+        Transaccion cobro = new Transaccion();
+        cobro.setCuentaOrigen(cuentaOrigen);
+        cobro.setMonto(gravamen);
+        cobro.setTipo(TIPO);
+        cobro.setFechaHoraTransaccion(LocalDateTime.now());
+        return cobro;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.FormatoExtracto;
+import com.example.demo.dto.PaginaMovimientosDTO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface MovimientosService {
+    PaginaMovimientosDTO consultarMovimientos(Long productoId, String cursor, int limite);
+    void exportarExtracto(Long productoId, LocalDateTime desde, LocalDateTime hasta, FormatoExtracto formato,
+                          OutputStream salida) throws IOException;
+}
@@ -2,13 +2,28 @@ package com.example.demo.services;
 
 import com.example.demo.entities.Productos;
 import com.example.demo.repository.ProductosRepository;
+import com.example.demo.datasource.ContextoShard;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
 @Component
 public class NumeroCuentaGenerator {
     @Autowired
     private ProductosRepository repository;
+    @Autowired
+    private AsignadorRangosNumeroCuenta asignador;
+    @Value("${banco.numero-cuenta.tamano-bloque:100}")
+    private int tamanoBloque = 100;
+
+    private final Map<String, Bloque> bloques = new ConcurrentHashMap<>();
 
     public void generarYAsignarNumeroCuenta(Productos producto) {
         String prefijo = "cuenta corriente".equals(producto.getTipoCuenta()) ? "33" : "53";
@@ -16,22 +31,89 @@ public class NumeroCuentaGenerator {
     }
 
     private String generarNumeroCuenta(String prefijo) {
-        String numeroCuenta;
-        boolean existe;
+        return bloques.computeIfAbsent(prefijo, Bloque::new).siguiente();
+    }
 
-        do {
-            numeroCuenta = prefijo + generateRandomDigits(8);
-            existe = repository.existsByNumeroCuenta(numeroCuenta);
-        } while (existe);
+    static String formatear(String prefijo, long secuencia) {
+        // con 8 digitos el numero dejaria de tener 10 y de pasar esValido
+        if (secuencia < 0 || secuencia >= AsignadorRangosNumeroCuenta.CAPACIDAD_POR_PREFIJO) {
+            throw new IllegalStateException("Se agotaron los números de cuenta para el prefijo " + prefijo + ".");
+        }
+        String cuerpo = prefijo + String.format("%07d", secuencia);
+        return cuerpo + digitoVerificacion(cuerpo);
+    }
 
-        return numeroCuenta;
+    // digito de Luhn sobre prefijo + secuencia
+    static int digitoVerificacion(String cuerpo) {
+        int suma = 0;
+        boolean doblar = true;
+        for (int i = cuerpo.length() - 1; i >= 0; i--) {
+            int digito = cuerpo.charAt(i) - '0';
+            if (doblar) {
+                digito *= 2;
+                if (digito > 9) {
+                    digito -= 9;
+                }
+            }
+            suma += digito;
+            doblar = !doblar;
+        }
+        return (10 - suma % 10) % 10;
     }
 
-    private String generateRandomDigits(int length) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < length; i++) {
-            sb.append((int) (Math.random() * 10));
+    public static boolean esValido(String numeroCuenta) {
+        if (numeroCuenta == null || numeroCuenta.length() != 10) {
+            return false;
+        }
+        String cuerpo = numeroCuenta.substring(0, 9);
+        return numeroCuenta.charAt(9) - '0' == digitoVerificacion(cuerpo);
+    }
+
+    private class Bloque {
+        private final String prefijo;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Set<String> ocupados = new HashSet<>();
+        private long siguiente;
+        private long limite;
+
+        Bloque(String prefijo) {
+            this.prefijo = prefijo;
+        }
+
+        String siguiente() {
+            lock.lock();
+            try {
+                while (true) {
+                    if (siguiente >= limite) {
+                        reservar();
+                    }
+                    String numero = formatear(prefijo, siguiente++);
+                    if (!ocupados.contains(numero)) {
+                        return numero;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // una consulta por bloque descarta numeros que ya existian antes de este generador. Con shards los rangos y
+        // los numeros anteriores al particionamiento estan en el shard 0, asi que el numero es unico entre todos.
+        // Los campos cambian solo si la consulta responde: si falla, el siguiente intento reserva otro bloque en
+        // lugar de entregar numeros sin revisar
+        private void reservar() {
+            ContextoShard.enShard(0, () -> {
+                long inicio = asignador.reservar(prefijo, tamanoBloque);
+                long fin = Math.min(inicio + tamanoBloque, AsignadorRangosNumeroCuenta.CAPACIDAD_POR_PREFIJO);
+                List<String> existentes = repository.findNumerosCuentaEntre(
+                        formatear(prefijo, inicio).substring(0, 9) + "0",
+                        formatear(prefijo, fin - 1).substring(0, 9) + "9");
+                ocupados.clear();
+                ocupados.addAll(existentes);
+                siguiente = inicio;
+                limite = fin;
+                return null;
+            });
         }
-        return sb.toString();
     }
 }
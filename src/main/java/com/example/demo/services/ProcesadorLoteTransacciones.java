@@ -0,0 +1,153 @@
+package com.example.demo.services;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.exceptions.InsufficientBalanceException;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.dto.ResultadoLoteDTO;
+import com.example.demo.dto.TransaccionDTO;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.TransaccionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Component
+public class ProcesadorLoteTransacciones {
+    @Autowired
+    private ProductosRepository productosRepository;
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+    @Autowired
+    private MotorGmf motorGmf;
+    @Value("${banco.lote.tamano-maximo:10000}")
+    private int tamanoMaximo = 10000;
+
+    @Transactional
+    public List<ResultadoLoteDTO> procesar(List<TransaccionDTO> lote) {
+        if (lote.size() > tamanoMaximo) {
+            throw new IllegalArgumentException("El lote no puede tener más de " + tamanoMaximo + " transacciones.");
+        }
+        Map<Long, Productos> cuentas = cargarCuentas(lote);
+        List<ResultadoLoteDTO> resultados = new ArrayList<>(lote.size());
+        List<Transaccion> transacciones = new ArrayList<>(lote.size());
+        List<ResultadoLoteDTO> exitosas = new ArrayList<>(lote.size());
+        List<Transaccion> cobros = new ArrayList<>();
+        LocalDateTime ahora = LocalDateTime.now();
+
+        for (int i = 0; i < lote.size(); i++) {
+            try {
+                TransaccionDTO dto = lote.get(i);
+                Productos cuentaOrigen = dto.getCuentaOrigenId() == null ? null : cuentas.get(dto.getCuentaOrigenId());
+                Money gravamen = motorGmf.gravamenEnLinea(cuentaOrigen, dto.getMonto());
+                Transaccion transaccion = aplicar(dto, cuentas, gravamen);
+                transaccion.setFechaHoraTransaccion(ahora);
+                Transaccion cobro = motorGmf.cobrar(cuentaOrigen, gravamen);
+                if (cobro != null) {
+                    cobro.setFechaHoraTransaccion(ahora);
+                    cobros.add(cobro);
+                }
+                ResultadoLoteDTO resultado = ResultadoLoteDTO.exitosa(i, transaccion.getTipo());
+                transacciones.add(transaccion);
+                exitosas.add(resultado);
+                resultados.add(resultado);
+            } catch (IllegalArgumentException e) {
+                resultados.add(ResultadoLoteDTO.fallida(i, e.getMessage()));
+            }
+        }
+
+        List<Transaccion> guardadas = transaccionRepository.saveAll(transacciones);
+        for (int i = 0; i < guardadas.size(); i++) {
+            exitosas.get(i).setTransaccionId(guardadas.get(i).getId());
+        }
+        if (!cobros.isEmpty()) {
+            transaccionRepository.saveAll(cobros);
+        }
+        return resultados;
+    }
+
+    // bloquea en orden de id todas las cuentas que toca el lote; EscritorGrupal lo usa para cada grupo
+    Map<Long, Productos> cargarCuentas(List<TransaccionDTO> lote) {
+        Set<Long> ids = new HashSet<>();
+        for (TransaccionDTO dto : lote) {
+            if (dto.getCuentaOrigenId() != null) {
+                ids.add(dto.getCuentaOrigenId());
+            }
+            if (dto.getCuentaDestinoId() != null) {
+                ids.add(dto.getCuentaDestinoId());
+            }
+        }
+        Map<Long, Productos> cuentas = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Productos producto : productosRepository.findAllByIdParaActualizar(ids)) {
+                cuentas.put(producto.getId(), producto);
+            }
+        }
+        return cuentas;
+    }
+
+    /**
+     * Aplica un movimiento sobre las cuentas ya bloqueadas y devuelve la transaccion sin guardar. Lo comparte la
+     * variante reactiva para que ambas apliquen las mismas reglas.
+     */
+    public static Transaccion aplicar(TransaccionDTO dto, Map<Long, Productos> cuentas) {
+        return aplicar(dto, cuentas, Money.ZERO);
+    }
+
+    // el saldo de origen debe cubrir el monto y el gravamen que se cobrara despues; el gravamen no se debita aqui
+    static Transaccion aplicar(TransaccionDTO dto, Map<Long, Productos> cuentas, Money gravamen) {
+        Money monto = dto.getMonto();
+        if (monto == null || !monto.esPositivo()) {
+            throw new IllegalArgumentException("El monto de la transacción debe ser positivo.");
+        }
+        Long origenId = dto.getCuentaOrigenId();
+        Long destinoId = dto.getCuentaDestinoId();
+        if (origenId == null && destinoId == null) {
+            throw new IllegalArgumentException("La transacción debe indicar una cuenta de origen o de destino.");
+        }
+
+        Productos cuentaOrigen = null;
+        if (origenId != null) {
+            cuentaOrigen = cuentas.get(origenId);
+            if (cuentaOrigen == null) {
+                throw new ResourceNotFoundException("Cuenta de origen no encontrada con id: " + origenId);
+            }
+        }
+        Productos cuentaDestino = null;
+        if (destinoId != null) {
+            cuentaDestino = cuentas.get(destinoId);
+            if (cuentaDestino == null) {
+                throw new ResourceNotFoundException("Cuenta destino no encontrada con id: " + destinoId);
+            }
+        }
+        if (cuentaOrigen != null && cuentaOrigen.getSaldo().menorQue(monto.sumar(gravamen))) {
+            throw new InsufficientBalanceException(cuentaDestino != null
+                    ? "Saldo insuficiente en la cuenta de origen."
+                    : "Saldo insuficiente para realizar el retiro.");
+        }
+
+        if (cuentaOrigen != null) {
+            cuentaOrigen.setSaldo(cuentaOrigen.getSaldo().restar(monto));
+        }
+        if (cuentaDestino != null) {
+            cuentaDestino.setSaldo(cuentaDestino.getSaldo().sumar(monto));
+        }
+
+        Transaccion transaccion = new Transaccion();
+        transaccion.setCuentaOrigen(cuentaOrigen);
+        transaccion.setCuentaDestino(cuentaDestino);
+        transaccion.setMonto(monto);
+        transaccion.setTipo(cuentaOrigen == null ? "DEPOSITO" : cuentaDestino == null ? "RETIRO" : "TRANSFERENCIA");
+        return transaccion;
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.demo.services;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.ProcesoCheckpoint;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.repository.ProcesoCheckpointRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recorrido por bloques, en paralelo y reanudable, de un rango de ids en cada shard; la base de los procesos
+ * nocturnos ({@link LiquidadorGmf}, {@link CausadorIntereses}). El proceso indica el rango y que hacer con cada
+ * bloque. Aqui el rango se parte en particiones iguales, fijadas en {@code proceso_checkpoint} la primera vez, que
+ * recorren los hilos del proceso. Cada bloque corre en una transaccion con el checkpoint de su particion bloqueado y
+ * lo avanza en esa misma transaccion: si el proceso se cae, repetirlo retoma desde el ultimo bloque confirmado, y dos
+ * ejecuciones a la vez se turnan bloque a bloque.
+ */
+@Component
+public class ProcesoPorParticiones {
+    private static final String AJUSTAR_SALDO = "update productos set saldo = saldo + ?, version = version + 1, "
+            + "fecha_modificacion = ? where id = ?";
+    // los ids salen del mismo generador que usa Hibernate para Transaccion, asi no chocan con los que entrega JPA
+    private static final String INSERTAR_DEBITO = "insert into transaccion (id, tipo, monto, cuenta_origen_id, "
+            + "fecha_hora_transaccion) values (?, ?, ?, ?, ?)";
+    private static final String INSERTAR_CREDITO = "insert into transaccion (id, tipo, monto, cuenta_destino_id, "
+            + "fecha_hora_transaccion) values (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ProcesoCheckpointRepository checkpointRepository;
+    @Autowired
+    private DirectorioShards directorio;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Procesa las filas con id en {@code (ultimoId, idHasta]}, o las primeras de ellas, y dice hasta donde llego.
+     */
+    public interface Bloque {
+        Avance procesar(long ultimoId, long idHasta);
+    }
+
+    /**
+     * {@code procesados} y {@code monto} (en centavos) se suman al checkpoint; con {@code terminado} la particion
+     * queda completa aunque {@code ultimoId} no llegue al final del rango.
+     */
+    public record Avance(long ultimoId, long procesados, long monto, boolean terminado) {
+    }
+
+    public record Resultado(int particiones, int particionesPrevias, long procesados, long monto, long duracionNanos) {
+        public long duracionMs() {
+            return TimeUnit.NANOSECONDS.toMillis(duracionNanos);
+        }
+
+        public long porSegundo() {
+            return procesados * TimeUnit.SECONDS.toNanos(1) / Math.max(duracionNanos, 1);
+        }
+    }
+
+    /**
+     * @param rango consulta que devuelve el menor y el mayor id a recorrer en un shard, o nulos si no hay nada
+     */
+    public Resultado ejecutar(String proceso, String periodo, int particiones, ExecutorService hilos, String rango,
+                              Object[] argumentosRango, Bloque bloque) {
+        long inicio = System.nanoTime();
+        LongAdder procesados = new LongAdder();
+        LongAdder monto = new LongAdder();
+        int total = 0;
+        int previas = 0;
+        List<Future<?>> pendientes = new ArrayList<>();
+        try {
+            for (int shard = 0; shard < directorio.cantidad(); shard++) {
+                int enShard = shard;
+                List<ProcesoCheckpoint> checkpoints = directorio.enShard(shard,
+                        () -> checkpoints(proceso, periodo, particiones, rango, argumentosRango));
+                for (ProcesoCheckpoint checkpoint : checkpoints) {
+                    total++;
+                    if (checkpoint.getEstado() == ProcesoCheckpoint.Estado.TERMINADA) {
+                        previas++;
+                        continue;
+                    }
+                    pendientes.add(hilos.submit(() -> directorio.enShard(enShard, () -> {
+                        recorrer(checkpoint.getId(), bloque, procesados, monto);
+                        return null;
+                    })));
+                }
+            }
+            for (Future<?> particion : pendientes) {
+                particion.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendientes.forEach(particion -> particion.cancel(true));
+            throw new IllegalStateException("Se interrumpió el proceso " + proceso + " de " + periodo + ".", e);
+        } catch (ExecutionException e) {
+            pendientes.forEach(particion -> particion.cancel(true));
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException("Falló el proceso " + proceso + " de " + periodo + ".", e.getCause());
+        }
+        return new Resultado(total, previas, procesados.sum(), monto.sum(), System.nanoTime() - inicio);
+    }
+
+    /**
+     * Suma a cada saldo su monto en centavos (negativo para debitar) y guarda un movimiento por cuenta: de origen si
+     * es debito, de destino si es credito. Va en la transaccion del bloque; las cuentas se actualizan en orden de
+     * id si el mapa esta ordenado.
+     */
+    public void aplicarMovimientos(String tipo, Map<Long, Long> centavosPorCuenta) {
+        if (centavosPorCuenta.isEmpty()) {
+            return;
+        }
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        SharedSessionContractImplementor sesion = entityManager.unwrap(SharedSessionContractImplementor.class);
+        BeforeExecutionGenerator generador = (BeforeExecutionGenerator) sesion.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(Transaccion.class).getGenerator();
+        List<Object[]> ajustes = new ArrayList<>(centavosPorCuenta.size());
+        List<Object[]> debitos = new ArrayList<>();
+        List<Object[]> creditos = new ArrayList<>();
+        for (Map.Entry<Long, Long> cuenta : centavosPorCuenta.entrySet()) {
+            Money monto = Money.deCentavos(cuenta.getValue());
+            ajustes.add(new Object[]{monto.toBigDecimal(), ahora, cuenta.getKey()});
+            (monto.esNegativo() ? debitos : creditos).add(new Object[]{
+                    generador.generate(sesion, null, null, EventType.INSERT), tipo,
+                    (monto.esNegativo() ? monto.negar() : monto).toBigDecimal(), cuenta.getKey(), ahora});
+        }
+        jdbcTemplate.batchUpdate(AJUSTAR_SALDO, ajustes);
+        if (!debitos.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERTAR_DEBITO, debitos);
+        }
+        if (!creditos.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERTAR_CREDITO, creditos);
+        }
+    }
+
+    // las particiones se fijan en la primera ejecucion; las siguientes reusan los mismos rangos
+    private List<ProcesoCheckpoint> checkpoints(String proceso, String periodo, int particiones, String rango,
+                                                Object[] argumentosRango) {
+        List<ProcesoCheckpoint> existentes = checkpointRepository.findByProcesoAndPeriodoOrderByParticion(proceso,
+                periodo);
+        if (!existentes.isEmpty()) {
+            return existentes;
+        }
+        try {
+            return transactionTemplate.execute(estado ->
+                    crearCheckpoints(proceso, periodo, particiones, rango, argumentosRango));
+        } catch (DataIntegrityViolationException e) {
+            // otro nodo las creo al mismo tiempo, con los mismos rangos
+            return checkpointRepository.findByProcesoAndPeriodoOrderByParticion(proceso, periodo);
+        }
+    }
+
+    private List<ProcesoCheckpoint> crearCheckpoints(String proceso, String periodo, int particiones, String rango,
+                                                     Object[] argumentosRango) {
+        long[] ids = jdbcTemplate.queryForObject(rango, (fila, i) -> fila.getObject(1) == null ? null
+                : new long[]{fila.getLong(1), fila.getLong(2)}, argumentosRango);
+        if (ids == null) {
+            return List.of();
+        }
+        long cantidadIds = ids[1] - ids[0] + 1;
+        int cantidad = (int) Math.min(particiones, cantidadIds);
+        long tamano = (cantidadIds + cantidad - 1) / cantidad;
+        List<ProcesoCheckpoint> checkpoints = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            ProcesoCheckpoint checkpoint = new ProcesoCheckpoint();
+            checkpoint.setId(proceso + ":" + periodo + ":" + i);
+            checkpoint.setProceso(proceso);
+            checkpoint.setPeriodo(periodo);
+            checkpoint.setParticion(i);
+            checkpoint.setIdDesde(ids[0] - 1 + i * tamano);
+            checkpoint.setIdHasta(Math.min(ids[0] - 1 + (i + 1) * tamano, ids[1]));
+            checkpoint.setUltimoId(checkpoint.getIdDesde());
+            checkpoint.setEstado(ProcesoCheckpoint.Estado.EN_CURSO);
+            checkpoint.setProcesados(0L);
+            checkpoint.setMonto(Money.ZERO);
+            checkpoint.setFechaCreacion(LocalDateTime.now());
+            checkpoints.add(checkpoint);
+        }
+        return checkpointRepository.saveAllAndFlush(checkpoints);
+    }
+
+    private void recorrer(String checkpointId, Bloque bloque, LongAdder procesados, LongAdder monto) {
+        while (!Thread.currentThread().isInterrupted()) {
+            Avance avance = transactionTemplate.execute(estado -> avanzar(checkpointId, bloque));
+            procesados.add(avance.procesados());
+            monto.add(avance.monto());
+            if (avance.terminado()) {
+                return;
+            }
+        }
+    }
+
+    private Avance avanzar(String checkpointId, Bloque bloque) {
+        ProcesoCheckpoint checkpoint = checkpointRepository.findByIdParaActualizar(checkpointId).orElseThrow();
+        if (checkpoint.getEstado() == ProcesoCheckpoint.Estado.TERMINADA) {
+            return new Avance(checkpoint.getUltimoId(), 0, 0, true);
+        }
+        Avance avance = bloque.procesar(checkpoint.getUltimoId(), checkpoint.getIdHasta());
+        boolean terminado = avance.terminado() || avance.ultimoId() >= checkpoint.getIdHasta();
+        checkpoint.setUltimoId(terminado ? checkpoint.getIdHasta() : avance.ultimoId());
+        checkpoint.setProcesados(checkpoint.getProcesados() + avance.procesados());
+        checkpoint.setMonto(checkpoint.getMonto().sumar(Money.deCentavos(avance.monto())));
+        checkpoint.setEstado(terminado ? ProcesoCheckpoint.Estado.TERMINADA : ProcesoCheckpoint.Estado.EN_CURSO);
+        checkpoint.setFechaModificacion(LocalDateTime.now());
+        return new Avance(checkpoint.getUltimoId(), avance.procesados(), avance.monto(), terminado);
+    }
+}
@@ -1,14 +1,18 @@
 package com.example.demo.services;
 
+import com.example.demo.dto.ProductoDTO;
 import com.example.demo.entities.Productos;
 
+import java.util.Optional;
+
 public interface ProductosService {
     Productos createProducto(Long clienteId, Productos producto);;
     Productos updateProducto( Long id, Productos productoDetails);
     void deleteProducto( Long id);
-    Productos getProductoById( Long id);
+    ProductoDTO getProductoById( Long id);
     Productos activarProducto(Long id);
     Productos desactivarProducto(Long id);
     String getEstadoProductoById(Long id);
+    Optional<Long> getVersionProducto(Long id);
 
 }
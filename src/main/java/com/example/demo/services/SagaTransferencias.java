@@ -0,0 +1,234 @@
+package com.example.demo.services;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.SagaAplicada;
+import com.example.demo.entities.SagaTransferencia;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.exceptions.InsufficientBalanceException;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.SagaAplicadaRepository;
+import com.example.demo.repository.SagaTransferenciaRepository;
+import com.example.demo.repository.TransaccionRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transferencias entre cuentas de shards distintos, que no caben en una transaccion. Se hacen en pasos:
+ * <ol>
+ *     <li>en el shard de origen se debita la cuenta y se guarda la saga DEBITADA, en la transaccion de quien llama
+ *     (la de la clave de idempotencia, si la hay);</li>
+ *     <li>una vez confirmado eso, en el shard de destino se acredita la cuenta y se marca la saga como aplicada en
+ *     {@code saga_aplicada}, todo en una transaccion: repetir el paso no acredita dos veces;</li>
+ *     <li>de vuelta en el origen la saga queda COMPLETADA, o COMPENSADA con el monto devuelto si el destino la
+ *     rechazo.</li>
+ * </ol>
+ * Si el paso 2 o 3 falla por la base de datos la saga queda DEBITADA y {@link #recuperarPendientes()} la retoma.
+ * Cada shard ve su mitad del movimiento: el origen una transferencia sin cuenta destino y el destino una sin origen.
+ */
+@Component
+public class SagaTransferencias {
+    private static final Logger log = LoggerFactory.getLogger(SagaTransferencias.class);
+
+    @Autowired
+    private SagaTransferenciaRepository sagaRepository;
+    @Autowired
+    private SagaAplicadaRepository sagaAplicadaRepository;
+    @Autowired
+    private ProductosRepository productosRepository;
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+    @Autowired
+    private DirectorioShards directorio;
+    @Autowired
+    private MotorGmf motorGmf;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Value("${banco.shards.saga.reintentar-despues:30s}")
+    private Duration reintentarDespues = Duration.ofSeconds(30);
+
+    private TransactionTemplate aparte;
+
+    private record Debito(Transaccion transaccion, SagaTransferencia saga) {
+    }
+
+    @PostConstruct
+    void iniciar() {
+        aparte = new TransactionTemplate(transactionManager);
+        aparte.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Devuelve la mitad de origen. Dentro de una transaccion el credito se hace al confirmarla; si el destino lo
+     * rechaza ahi, el monto vuelve al origen por compensacion sin que quien llamo se entere.
+     */
+    public Transaccion transferir(Long cuentaOrigenId, Long cuentaDestinoId, Money monto, int shardOrigen,
+                                  int shardDestino) {
+        // comprobarlo antes evita debitar y compensar por una cuenta que no existe
+        Boolean destinoExiste = directorio.enShard(shardDestino,
+                () -> aparte.execute(estado -> productosRepository.existsById(cuentaDestinoId)));
+        if (!Boolean.TRUE.equals(destinoExiste)) {
+            throw new ResourceNotFoundException("Cuenta destino no encontrada con id: " + cuentaDestinoId);
+        }
+        Debito debito = directorio.enShard(shardOrigen, () -> transactionTemplate.execute(estado ->
+                debitar(cuentaOrigenId, cuentaDestinoId, monto, shardOrigen, shardDestino)));
+        SagaTransferencia saga = debito.saga();
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reanudarSinFallar(saga);
+                }
+            });
+            return debito.transaccion();
+        }
+        if (reanudarSinFallar(saga) == SagaTransferencia.Estado.COMPENSADA) {
+            throw new ResourceNotFoundException("Cuenta destino no encontrada con id: " + cuentaDestinoId
+                    + "; el monto se devolvió a la cuenta de origen.");
+        }
+        return debito.transaccion();
+    }
+
+    @Scheduled(fixedDelayString = "${banco.shards.saga.intervalo-recuperacion-ms:30000}",
+            initialDelayString = "${banco.shards.saga.intervalo-recuperacion-ms:30000}")
+    public void recuperarPendientes() {
+        if (directorio.cantidad() == 1) {
+            return;
+        }
+        LocalDateTime limite = LocalDateTime.now().minus(reintentarDespues);
+        for (int shard = 0; shard < directorio.cantidad(); shard++) {
+            int origen = shard;
+            List<String> pendientes = directorio.enShard(origen, () -> aparte.execute(estado ->
+                    sagaRepository.findIdsPorEstadoAnterioresA(SagaTransferencia.Estado.DEBITADA, limite)));
+            for (String id : pendientes) {
+                directorio.enShard(origen, () -> aparte.execute(estado -> sagaRepository.findById(id)))
+                        .ifPresent(this::reanudarSinFallar);
+            }
+        }
+    }
+
+    private SagaTransferencia.Estado reanudarSinFallar(SagaTransferencia saga) {
+        try {
+            return reanudar(saga);
+        } catch (RuntimeException e) {
+            log.warn("La saga {} sigue DEBITADA; se reintentara: {}", saga.getId(), e.toString());
+            return SagaTransferencia.Estado.DEBITADA;
+        }
+    }
+
+    private SagaTransferencia.Estado reanudar(SagaTransferencia saga) {
+        SagaAplicada.Resultado resultado = directorio.enShard(saga.getShardDestino(),
+                () -> aparte.execute(estado -> acreditar(saga)));
+        return directorio.enShard(saga.getShardOrigen(), () -> aparte.execute(estado ->
+                resultado == SagaAplicada.Resultado.APLICADA ? completar(saga.getId()) : compensar(saga.getId())));
+    }
+
+    private Debito debitar(Long cuentaOrigenId, Long cuentaDestinoId, Money monto, int shardOrigen, int shardDestino) {
+        Productos cuentaOrigen = productosRepository.findByIdParaActualizar(cuentaOrigenId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cuenta de origen no encontrada con id: " + cuentaOrigenId));
+        Money gravamen = motorGmf.gravamenEnLinea(cuentaOrigen, monto);
+        if (cuentaOrigen.getSaldo().menorQue(monto.sumar(gravamen))) {
+            throw new InsufficientBalanceException("Saldo insuficiente en la cuenta de origen.");
+        }
+        cuentaOrigen.setSaldo(cuentaOrigen.getSaldo().restar(monto));
+        Transaccion cobro = motorGmf.cobrar(cuentaOrigen, gravamen);
+        productosRepository.save(cuentaOrigen);
+        Transaccion transaccion = transaccionRepository.save(movimiento(cuentaOrigen, null, monto, "TRANSFERENCIA"));
+        if (cobro != null) {
+            transaccionRepository.save(cobro);
+        }
+
+        SagaTransferencia saga = new SagaTransferencia();
+        saga.setId(UUID.randomUUID().toString());
+        saga.setCuentaOrigenId(cuentaOrigenId);
+        saga.setCuentaDestinoId(cuentaDestinoId);
+        saga.setShardOrigen(shardOrigen);
+        saga.setShardDestino(shardDestino);
+        saga.setMonto(monto);
+        saga.setGravamen(gravamen);
+        saga.setEstado(SagaTransferencia.Estado.DEBITADA);
+        saga.setTransaccionOrigenId(transaccion.getId());
+        saga.setFechaCreacion(LocalDateTime.now());
+        return new Debito(transaccion, sagaRepository.save(saga));
+    }
+
+    // la cuenta se bloquea antes de mirar saga_aplicada: dos intentos simultaneos de la misma saga se ordenan en
+    // ese bloqueo y el segundo ya encuentra la marca del primero
+    private SagaAplicada.Resultado acreditar(SagaTransferencia saga) {
+        Productos cuentaDestino = productosRepository.findByIdParaActualizar(saga.getCuentaDestinoId()).orElse(null);
+        SagaAplicada previa = sagaAplicadaRepository.findById(saga.getId()).orElse(null);
+        if (previa != null) {
+            return previa.getResultado();
+        }
+        SagaAplicada marca = new SagaAplicada();
+        marca.setSagaId(saga.getId());
+        marca.setFechaCreacion(LocalDateTime.now());
+        if (cuentaDestino == null) {
+            marca.setResultado(SagaAplicada.Resultado.RECHAZADA);
+        } else {
+            cuentaDestino.setSaldo(cuentaDestino.getSaldo().sumar(saga.getMonto()));
+            productosRepository.save(cuentaDestino);
+            Transaccion transaccion = transaccionRepository.save(
+                    movimiento(null, cuentaDestino, saga.getMonto(), "TRANSFERENCIA"));
+            marca.setResultado(SagaAplicada.Resultado.APLICADA);
+            marca.setTransaccionId(transaccion.getId());
+        }
+        sagaAplicadaRepository.saveAndFlush(marca);
+        return marca.getResultado();
+    }
+
+    private SagaTransferencia.Estado completar(String sagaId) {
+        SagaTransferencia saga = sagaRepository.findByIdParaActualizar(sagaId).orElseThrow();
+        if (saga.getEstado() == SagaTransferencia.Estado.DEBITADA) {
+            saga.setEstado(SagaTransferencia.Estado.COMPLETADA);
+            saga.setFechaModificacion(LocalDateTime.now());
+        }
+        return saga.getEstado();
+    }
+
+    private SagaTransferencia.Estado compensar(String sagaId) {
+        SagaTransferencia saga = sagaRepository.findByIdParaActualizar(sagaId).orElseThrow();
+        if (saga.getEstado() != SagaTransferencia.Estado.DEBITADA) {
+            return saga.getEstado();
+        }
+        Productos cuentaOrigen = productosRepository.findByIdParaActualizar(saga.getCuentaOrigenId())
+                .orElseThrow(() -> new IllegalStateException("No se puede compensar la saga " + sagaId
+                        + ": la cuenta de origen ya no existe."));
+        // la transferencia no ocurrio: se devuelve tambien el gravamen cobrado con el debito
+        Money devolucion = saga.getGravamen() == null ? saga.getMonto() : saga.getMonto().sumar(saga.getGravamen());
+        cuentaOrigen.setSaldo(cuentaOrigen.getSaldo().sumar(devolucion));
+        productosRepository.save(cuentaOrigen);
+        transaccionRepository.save(movimiento(null, cuentaOrigen, devolucion, "REVERSO"));
+        saga.setEstado(SagaTransferencia.Estado.COMPENSADA);
+        saga.setFechaModificacion(LocalDateTime.now());
+        return saga.getEstado();
+    }
+
+    private static Transaccion movimiento(Productos origen, Productos destino, Money monto, String tipo) {
+        Transaccion transaccion = new Transaccion();
+        transaccion.setCuentaOrigen(origen);
+        transaccion.setCuentaDestino(destino);
+        transaccion.setMonto(monto);
+        transaccion.setTipo(tipo);
+        transaccion.setFechaHoraTransaccion(LocalDateTime.now());
+        return transaccion;
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.demo.services;
 
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ResultadoLoteDTO;
+import com.example.demo.dto.TransaccionDTO;
 import com.example.demo.entities.Transaccion;
 
-import java.math.BigDecimal;
+import java.util.List;
 
 public interface TransaccionService {
-    Transaccion realizarTransaccion(Long cuentaOrigenId, Long cuentaDestinoId, BigDecimal monto);
-    Transaccion realizarRetiro(Long cuentaOrigenId, BigDecimal monto);
-    Transaccion realizarDeposito(Long cuentaDestinoId, BigDecimal monto);
+    Transaccion realizarTransaccion(Long cuentaOrigenId, Long cuentaDestinoId, Money monto);
+    Transaccion realizarRetiro(Long cuentaOrigenId, Money monto);
+    Transaccion realizarDeposito(Long cuentaDestinoId, Money monto);
+    List<ResultadoLoteDTO> realizarLote(List<TransaccionDTO> transacciones);
 }
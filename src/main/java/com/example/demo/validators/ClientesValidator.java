@@ -7,44 +7,132 @@ import com.example.demo.exceptions.InvalidNameException;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
-import java.time.Period;
-import java.util.regex.Pattern;
 @Component
 public class ClientesValidator {
-    public static void validateCliente(Clientes cliente) {
+    public static final int EDAD_MINIMA = 18;
+    public static final String FECHA_NULA = "La fecha de nacimiento no puede ser nula.";
+    public static final String MENOR_DE_EDAD = "El cliente debe ser mayor de edad.";
+    public static final String EMAIL_INVALIDO = "El correo electrónico no es válido.";
+    public static final String NOMBRE_INVALIDO = "El nombre y el apellido deben tener al menos 2 caracteres.";
+
+
+    /**
+     * Valida el cliente y devuelve la edad calculada, para que el llamador la asigne sin volver a calcularla.
+     */
+    public static int validateCliente(Clientes cliente) {
         if (cliente.getFechaNacimiento() == null) {
-            throw new IllegalArgumentException("La fecha de nacimiento no puede ser nula.");
+            throw new IllegalArgumentException(FECHA_NULA);
         }
         int edad = calcularEdad(cliente.getFechaNacimiento());
         validateAge(edad);
         validateEmail(cliente.getCorreoElectronico());
         validateName(cliente.getNombres(), cliente.getApellidos());
+        return edad;
+    }
+
+    /**
+     * Igual que {@link #validateCliente} pero sin excepciones y con la edad ya calculada: devuelve el motivo del
+     * rechazo o {@code null} si los datos son validos. La importacion masiva lo usa para no construir una excepcion
+     * por fila rechazada.
+     */
+    public static String motivoRechazo(String nombres, String apellidos, String email, int edad) {
+        if (edad < EDAD_MINIMA) {
+            return MENOR_DE_EDAD;
+        }
+        if (!esEmailValido(email)) {
+            return EMAIL_INVALIDO;
+        }
+        if (!esNombreValido(nombres, apellidos)) {
+            return NOMBRE_INVALIDO;
+        }
+        return null;
     }
 
     public static void validateAge(int edad) {
-        if (edad < 18) {
-            throw new InvalidAgeException("El cliente debe ser mayor de edad.");
+        if (edad < EDAD_MINIMA) {
+            throw new InvalidAgeException(MENOR_DE_EDAD);
         }
     }
 
     public static int calcularEdad(LocalDate fechaNacimiento) {
-        return Period.between(fechaNacimiento, LocalDate.now()).getYears();
+        return calcularEdad(fechaNacimiento, LocalDate.now());
+    }
+
+    // mismo resultado que Period.between(...).getYears() sin crear el Period
+    public static int calcularEdad(LocalDate fechaNacimiento, LocalDate hoy) {
+        int edad = hoy.getYear() - fechaNacimiento.getYear();
+        if (hoy.getMonthValue() < fechaNacimiento.getMonthValue()
+                || (hoy.getMonthValue() == fechaNacimiento.getMonthValue()
+                && hoy.getDayOfMonth() < fechaNacimiento.getDayOfMonth())) {
+            edad--;
+        }
+        return edad;
     }
 
     public static void validateEmail(String email) {
-        String emailRegex = "^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,}$";
-        Pattern pat = Pattern.compile(emailRegex);
-        if (email == null || !pat.matcher(email).matches()) {
-            throw new InvalidEmailException("El correo electrónico no es válido.");
+        if (!esEmailValido(email)) {
+            throw new InvalidEmailException(EMAIL_INVALIDO);
         }
     }
 
     public static void validateName(String nombres, String apellidos) {
-        if (nombres == null || nombres.length() < 2 || apellidos == null || apellidos.length() < 2) {
-            throw new InvalidNameException("El nombre y el apellido deben tener al menos 2 caracteres.");
+        if (!esNombreValido(nombres, apellidos)) {
+            throw new InvalidNameException(NOMBRE_INVALIDO);
         }
     }
 
+    /**
+     * Acepta lo mismo que {@code ^[a-zA-Z0-9_+&*-]+(?:\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\.)+[a-zA-Z]{2,}$}
+     * recorriendo el texto una vez, sin el {@code Matcher} ni sus arreglos de grupos que crea cada validacion con regex.
+     */
+    static boolean esEmailValido(String email) {
+        if (email == null) {
+            return false;
+        }
+        int arroba = email.indexOf('@');
+        if (arroba <= 0) {
+            return false;
+        }
+        char anterior = '.';
+        for (int i = 0; i < arroba; i++) {
+            char c = email.charAt(i);
+            if (c == '.' ? anterior == '.' : !esAlfanumerico(c) && "_+&*-".indexOf(c) < 0) {
+                return false;
+            }
+            anterior = c;
+        }
+        if (anterior == '.') {
+            return false;
+        }
+        int ultimoPunto = email.lastIndexOf('.');
+        if (ultimoPunto <= arroba + 1 || email.length() - ultimoPunto - 1 < 2) {
+            return false;
+        }
+        anterior = '.';
+        for (int i = arroba + 1; i < ultimoPunto; i++) {
+            char c = email.charAt(i);
+            if (c == '.' ? anterior == '.' : !esAlfanumerico(c) && c != '-') {
+                return false;
+            }
+            anterior = c;
+        }
+        if (anterior == '.') {
+            return false;
+        }
+        for (int i = ultimoPunto + 1; i < email.length(); i++) {
+            char c = email.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z')) {
+                return false;
+            }
+        }
+        return true;
+    }
 
+    private static boolean esAlfanumerico(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9';
+    }
 
+    private static boolean esNombreValido(String nombres, String apellidos) {
+        return nombres != null && nombres.length() >= 2 && apellidos != null && apellidos.length() >= 2;
+    }
 }
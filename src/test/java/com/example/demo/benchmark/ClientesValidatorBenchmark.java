@@ -0,0 +1,48 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entities.Clientes;
+import com.example.demo.validators.ClientesValidator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ClientesValidatorBenchmark {
+    private Clientes cliente;
+    private LocalDate hoy;
+
+    @Setup
+    public void setUp() {
+        cliente = new Clientes();
+        cliente.setNombres("Juan");
+        cliente.setApellidos("Perez");
+        cliente.setCorreoElectronico("juan.perez@example.com");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        hoy = LocalDate.now();
+    }
+
+    @Benchmark
+    public void validateCliente() {
+        ClientesValidator.validateCliente(cliente);
+    }
+
+    @Benchmark
+    public void validateEmail() {
+        ClientesValidator.validateEmail(cliente.getCorreoElectronico());
+    }
+
+    @Benchmark
+    public String motivoRechazo() {
+        return ClientesValidator.motivoRechazo(cliente.getNombres(), cliente.getApellidos(),
+                cliente.getCorreoElectronico(), ClientesValidator.calcularEdad(cliente.getFechaNacimiento(), hoy));
+    }
+
+    @Benchmark
+    public void calcularEdad(Blackhole blackhole) {
+        blackhole.consume(ClientesValidator.calcularEdad(cliente.getFechaNacimiento()));
+    }
+}
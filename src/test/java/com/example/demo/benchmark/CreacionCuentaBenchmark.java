@@ -0,0 +1,121 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Productos;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.services.Implement.ProductosServiceImp;
+import com.example.demo.services.NumeroCuentaGenerator;
+import com.example.demo.services.ProductosService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de {@code createProducto} sobre H2 con el generador de numeros de cuenta anterior ({@code sondeo}: numero
+ * al azar y una consulta {@code existsByNumeroCuenta} por intento) y con el actual ({@code bloques}: rangos reservados
+ * en {@code rango_numero_cuenta}). La tabla se siembra con {@code cuentasExistentes} numeros al azar del formato
+ * anterior. Hibernate y H2 tardan en calentar, por eso el warmup es mas largo que en los demas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class CreacionCuentaBenchmark {
+    private static final long CLIENTE = 1;
+
+    @Param({"sondeo", "bloques"})
+    public String generador;
+
+    @Param({"100000"})
+    public int cuentasExistentes;
+
+    private ConfigurableApplicationContext contexto;
+    private ProductosService productosService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contexto = SpringApplication.run(DemoApplication.class,
+                "--spring.datasource.url=jdbc:h2:mem:creacion;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.main.web-application-type=none",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.SQL=WARN");
+        sembrar(contexto.getBean(JdbcTemplate.class), cuentasExistentes);
+        productosService = contexto.getBean(ProductosService.class);
+        if ("sondeo".equals(generador)) {
+            ProductosServiceImp destino = AopTestUtils.getTargetObject(productosService);
+            ReflectionTestUtils.setField(destino, "numeroCuentaGenerator",
+                    new GeneradorPorSondeo(contexto.getBean(ProductosRepository.class)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Productos createProducto() {
+        Productos producto = new Productos();
+        producto.setTipoCuenta("cuenta de ahorros");
+        producto.setSaldo(Money.parse("100.00"));
+        return productosService.createProducto(CLIENTE, producto);
+    }
+
+    // ids de cuenta desde 1e9 para no chocar con la secuencia de productos
+    private static void sembrar(JdbcTemplate jdbc, int cuentas) {
+        jdbc.update("insert into clientes (id, tipo_identificacion, numero_identificacion, nombres, apellidos, edad, "
+                + "correo_electronico) values (?, 'CC', '1000001', 'Cliente', 'Creacion', 34, 'cliente@example.com')",
+                CLIENTE);
+        Random azar = new Random(42);
+        Set<String> numeros = new HashSet<>();
+        List<Object[]> filas = new ArrayList<>(cuentas);
+        while (filas.size() < cuentas) {
+            String numero = (azar.nextBoolean() ? "33" : "53") + String.format("%08d", azar.nextInt(100_000_000));
+            if (numeros.add(numero)) {
+                filas.add(new Object[]{1_000_000_000L + filas.size(), CLIENTE, "cuenta de ahorros", numero, "activa",
+                        BigDecimal.ZERO, false});
+            }
+        }
+        jdbc.batchUpdate("insert into productos (id, cliente_id, tipo_cuenta, numero_cuenta, estado, saldo, "
+                + "exenta_gmf) values (?, ?, ?, ?, ?, ?, ?)", filas);
+    }
+
+    /**
+     * El generador anterior a los rangos: prefijo y ocho digitos al azar hasta dar con uno libre.
+     */
+    static class GeneradorPorSondeo extends NumeroCuentaGenerator {
+        private final ProductosRepository repository;
+        private final Random azar = new Random();
+
+        GeneradorPorSondeo(ProductosRepository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public void generarYAsignarNumeroCuenta(Productos producto) {
+            String prefijo = "cuenta corriente".equals(producto.getTipoCuenta()) ? "33" : "53";
+            String numeroCuenta;
+            do {
+                numeroCuenta = prefijo + String.format("%08d", azar.nextInt(100_000_000));
+            } while (repository.existsByNumeroCuenta(numeroCuenta));
+            producto.setNumeroCuenta(numeroCuenta);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ProductoDTO;
+import com.example.demo.dto.TransaccionDTO;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de codificar y decodificar en JSON y en CBOR lo que cruza el cable en las integraciones: la peticion de una
+ * transaccion, un lote de 100, la transaccion que responde el API y la lectura de una cuenta. Los tamanos de cada
+ * mensaje se imprimen en el setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FormatosBinariosBenchmark {
+    private static final TypeReference<List<TransaccionDTO>> LOTE = new TypeReference<>() {
+    };
+
+    @Param({"json", "cbor"})
+    public String formato;
+
+    private ObjectMapper objectMapper;
+    private TransaccionDTO peticion;
+    private List<TransaccionDTO> lote;
+    private Transaccion transaccion;
+    private ProductoDTO producto;
+    private byte[] peticionCodificada;
+    private byte[] loteCodificado;
+    private byte[] productoCodificado;
+
+    @Setup
+    public void setUp() throws IOException {
+        // misma configuracion que los convertidores de Spring MVC (ver CborConfig)
+        objectMapper = "cbor".equals(formato)
+                ? Jackson2ObjectMapperBuilder.cbor().build()
+                : Jackson2ObjectMapperBuilder.json().build();
+        LocalDateTime ahora = LocalDateTime.of(2024, 8, 1, 10, 30);
+
+        peticion = new TransaccionDTO(1L, 2L, Money.parse("150000.75"));
+        lote = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            lote.add(new TransaccionDTO(1 + i, 101 + i, Money.deCentavos(10_000 + i * 137)));
+        }
+
+        Clientes cliente = new Clientes();
+        cliente.setId(1L);
+        cliente.setNombres("Juan");
+        cliente.setApellidos("Perez");
+        Productos origen = cuenta(1L, cliente, ahora);
+        Productos destino = cuenta(2L, cliente, ahora);
+        transaccion = new Transaccion();
+        transaccion.setId(10L);
+        transaccion.setTipo("TRANSFERENCIA");
+        transaccion.setMonto(Money.parse("150000.75"));
+        transaccion.setCuentaOrigen(origen);
+        transaccion.setCuentaDestino(destino);
+        transaccion.setFechaHoraTransaccion(ahora);
+
+        producto = new ProductoDTO(1L, "cuenta de ahorros", "5300000001", "activa", Money.parse("1500.25"), false,
+                ahora, ahora);
+
+        peticionCodificada = objectMapper.writeValueAsBytes(peticion);
+        loteCodificado = objectMapper.writeValueAsBytes(lote);
+        productoCodificado = objectMapper.writeValueAsBytes(producto);
+        System.out.printf("%n%s: peticion=%d B lote=%d B transaccion=%d B producto=%d B%n", formato,
+                peticionCodificada.length, loteCodificado.length, objectMapper.writeValueAsBytes(transaccion).length,
+                productoCodificado.length);
+    }
+
+    @Benchmark
+    public byte[] codificarPeticion() throws IOException {
+        return objectMapper.writeValueAsBytes(peticion);
+    }
+
+    @Benchmark
+    public TransaccionDTO decodificarPeticion() throws IOException {
+        return objectMapper.readValue(peticionCodificada, TransaccionDTO.class);
+    }
+
+    @Benchmark
+    public byte[] codificarLote() throws IOException {
+        return objectMapper.writeValueAsBytes(lote);
+    }
+
+    @Benchmark
+    public List<TransaccionDTO> decodificarLote() throws IOException {
+        return objectMapper.readValue(loteCodificado, LOTE);
+    }
+
+    @Benchmark
+    public byte[] codificarTransaccion() throws IOException {
+        return objectMapper.writeValueAsBytes(transaccion);
+    }
+
+    @Benchmark
+    public byte[] codificarProducto() throws IOException {
+        return objectMapper.writeValueAsBytes(producto);
+    }
+
+    @Benchmark
+    public ProductoDTO decodificarProducto() throws IOException {
+        return objectMapper.readValue(productoCodificado, ProductoDTO.class);
+    }
+
+    private static Productos cuenta(Long id, Clientes cliente, LocalDateTime ahora) {
+        Productos cuenta = new Productos();
+        cuenta.setId(id);
+        cuenta.setTipoCuenta("cuenta de ahorros");
+        cuenta.setNumeroCuenta("530000000" + id);
+        cuenta.setEstado("activa");
+        cuenta.setSaldo(Money.parse("1500.25"));
+        cuenta.setFechaCreacion(ahora);
+        cuenta.setCliente(cliente);
+        return cuenta;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.metricas.MetricasAspect;
+import com.example.demo.services.DirectorioShards;
+import com.example.demo.services.Implement.TransaccionServiceImp;
+import com.example.demo.services.MotorGmf;
+import com.example.demo.services.TransaccionService;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de la instrumentacion: el mismo deposito sin proxy y pasando por {@link MetricasAspect} con un registro
+ * Prometheus que publica histograma, como en produccion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MetricasBenchmark {
+    private static final Money MONTO = Money.parse("1.00");
+
+    private TransaccionService sinMetricas;
+    private TransaccionService conMetricas;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<Long, Productos> cuentas = RepositoriosEnMemoria.cuentas(8, "0.00");
+        TransaccionServiceImp servicio = new TransaccionServiceImp();
+        ReflectionTestUtils.setField(servicio, "productosRepository", RepositoriosEnMemoria.productos(cuentas));
+        ReflectionTestUtils.setField(servicio, "transaccionRepository", RepositoriosEnMemoria.transacciones());
+        ReflectionTestUtils.setField(servicio, "transactionTemplate",
+                new TransactionTemplate(RepositoriosEnMemoria.sinTransacciones()));
+        ReflectionTestUtils.setField(servicio, "directorio", new DirectorioShards());
+        ReflectionTestUtils.setField(servicio, "motorGmf", new MotorGmf());
+        sinMetricas = servicio;
+
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true).build().merge(config);
+            }
+        });
+        AspectJProxyFactory fabrica = new AspectJProxyFactory(servicio);
+        fabrica.addAspect(new MetricasAspect(registry));
+        conMetricas = fabrica.getProxy();
+    }
+
+    @Benchmark
+    public Transaccion depositoSinMetricas() {
+        return sinMetricas.realizarDeposito(1L, MONTO);
+    }
+
+    @Benchmark
+    public Transaccion depositoConMetricas() {
+        return conMetricas.realizarDeposito(2L, MONTO);
+    }
+}
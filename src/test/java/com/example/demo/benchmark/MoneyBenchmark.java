@@ -0,0 +1,65 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dinero.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aritmetica de una transferencia (validar saldo, debitar, acreditar) y parseo del monto con {@link BigDecimal}
+ * frente a {@link Money}. Con {@code -prof gc} (activo en el perfil jmh) se compara {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MoneyBenchmark {
+    private BigDecimal saldoOrigenDecimal;
+    private BigDecimal saldoDestinoDecimal;
+    private BigDecimal montoDecimal;
+    private Money saldoOrigen;
+    private Money saldoDestino;
+    private Money monto;
+    private String textoMonto;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        saldoOrigenDecimal = new BigDecimal("1000000000000.00");
+        saldoDestinoDecimal = new BigDecimal("1000000000000.00");
+        montoDecimal = new BigDecimal("12.34");
+        saldoOrigen = Money.parse("1000000000000.00");
+        saldoDestino = Money.parse("1000000000000.00");
+        monto = Money.parse("12.34");
+        textoMonto = "12.34";
+    }
+
+    @Benchmark
+    public BigDecimal transferenciaBigDecimal() {
+        if (montoDecimal.compareTo(BigDecimal.ZERO) <= 0 || saldoOrigenDecimal.compareTo(montoDecimal) < 0) {
+            throw new IllegalStateException();
+        }
+        saldoOrigenDecimal = saldoOrigenDecimal.subtract(montoDecimal);
+        saldoDestinoDecimal = saldoDestinoDecimal.add(montoDecimal);
+        return saldoDestinoDecimal;
+    }
+
+    @Benchmark
+    public Money transferenciaMoney() {
+        if (!monto.esPositivo() || saldoOrigen.menorQue(monto)) {
+            throw new IllegalStateException();
+        }
+        saldoOrigen = saldoOrigen.restar(monto);
+        saldoDestino = saldoDestino.sumar(monto);
+        return saldoDestino;
+    }
+
+    @Benchmark
+    public BigDecimal parseBigDecimal() {
+        return new BigDecimal(textoMonto).setScale(2);
+    }
+
+    @Benchmark
+    public Money parseMoney() {
+        return Money.parse(textoMonto);
+    }
+}
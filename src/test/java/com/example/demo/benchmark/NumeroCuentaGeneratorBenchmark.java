@@ -0,0 +1,40 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entities.Productos;
+import com.example.demo.services.AsignadorRangosNumeroCuenta;
+import com.example.demo.services.NumeroCuentaGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NumeroCuentaGeneratorBenchmark {
+    private NumeroCuentaGenerator generator;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        AtomicLong siguiente = new AtomicLong();
+        AsignadorRangosNumeroCuenta asignador = new AsignadorRangosNumeroCuenta() {
+            @Override
+            public long reservar(String prefijo, int tamano) {
+                return siguiente.getAndAdd(tamano) % (CAPACIDAD_POR_PREFIJO - tamano);
+            }
+        };
+        generator = new NumeroCuentaGenerator();
+        ReflectionTestUtils.setField(generator, "asignador", asignador);
+        ReflectionTestUtils.setField(generator, "repository",
+                RepositoriosEnMemoria.productos(RepositoriosEnMemoria.cuentas(0, "0")));
+    }
+
+    @Benchmark
+    public String generarYAsignarNumeroCuenta() {
+        Productos producto = new Productos();
+        producto.setTipoCuenta("cuenta de ahorros");
+        generator.generarYAsignarNumeroCuenta(producto);
+        return producto.getNumeroCuenta();
+    }
+}
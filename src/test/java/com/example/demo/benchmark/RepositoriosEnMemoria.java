@@ -0,0 +1,113 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.TransaccionRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Repositorios respaldados por mapas para medir los servicios sin base de datos ni Mockito
+ * (los mocks asignan por invocacion y distorsionan la tasa de asignacion del perfilador gc).
+ */
+final class RepositoriosEnMemoria {
+
+    private RepositoriosEnMemoria() {
+    }
+
+    static Map<Long, Productos> cuentas(int cantidad, String saldo) {
+        Map<Long, Productos> cuentas = new ConcurrentHashMap<>();
+        for (long id = 1; id <= cantidad; id++) {
+            Productos producto = new Productos();
+            producto.setId(id);
+            producto.setTipoCuenta("cuenta de ahorros");
+            producto.setNumeroCuenta(String.format("53%08d", id));
+            producto.setEstado("activa");
+            producto.setSaldo(Money.parse(saldo));
+            cuentas.put(id, producto);
+        }
+        return cuentas;
+    }
+
+    static ProductosRepository productos(Map<Long, Productos> cuentas) {
+        return (ProductosRepository) Proxy.newProxyInstance(ProductosRepository.class.getClassLoader(),
+                new Class<?>[]{ProductosRepository.class}, (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "findById", "findByIdParaActualizar" -> Optional.ofNullable(cuentas.get((Long) args[0]));
+                    case "findSaldoById" -> Optional.ofNullable(cuentas.get((Long) args[0])).map(Productos::getSaldo);
+                    case "save" -> guardar(cuentas, (Productos) args[0]);
+                    case "actualizarSaldo" -> {
+                        cuentas.get((Long) args[0]).setSaldo((Money) args[1]);
+                        yield 1;
+                    }
+                    case "findNumerosCuentaEntre" -> List.of();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "ProductosRepository en memoria";
+                    default -> throw new UnsupportedOperationException(metodo.getName());
+                });
+    }
+
+    static TransaccionRepository transacciones() {
+        AtomicLong secuencia = new AtomicLong();
+        return (TransaccionRepository) Proxy.newProxyInstance(TransaccionRepository.class.getClassLoader(),
+                new Class<?>[]{TransaccionRepository.class}, (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "save" -> {
+                        Transaccion transaccion = (Transaccion) args[0];
+                        transaccion.setId(secuencia.incrementAndGet());
+                        yield transaccion;
+                    }
+                    case "saveAll" -> {
+                        List<Transaccion> guardadas = new ArrayList<>();
+                        for (Transaccion transaccion : (Iterable<Transaccion>) args[0]) {
+                            transaccion.setId(secuencia.incrementAndGet());
+                            guardadas.add(transaccion);
+                        }
+                        yield guardadas;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "TransaccionRepository en memoria";
+                    default -> throw new UnsupportedOperationException(metodo.getName());
+                });
+    }
+
+    static PlatformTransactionManager sinTransacciones() {
+        return new AbstractPlatformTransactionManager() {
+            @Override
+            protected Object doGetTransaction() {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) {
+            }
+        };
+    }
+
+    private static Productos guardar(Map<Long, Productos> cuentas, Productos producto) {
+        if (producto.getId() != null) {
+            cuentas.put(producto.getId(), producto);
+        }
+        return producto;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SerializacionJsonBenchmark {
+    private ObjectMapper objectMapper;
+    private Productos producto;
+    private Clientes cliente;
+    private Transaccion transaccion;
+
+    @Setup
+    public void setUp() {
+        // misma configuracion que aplica Spring MVC
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        LocalDateTime ahora = LocalDateTime.of(2024, 8, 1, 10, 30);
+
+        cliente = new Clientes();
+        cliente.setId(1L);
+        cliente.setTipoIdentificacion("CC");
+        cliente.setNumeroIdentificacion("1020304050");
+        cliente.setNombres("Juan");
+        cliente.setApellidos("Perez");
+        cliente.setEdad(34);
+        cliente.setCorreoElectronico("juan.perez@example.com");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        cliente.setFechaCreacion(ahora);
+
+        List<Productos> productos = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            Productos cuenta = new Productos();
+            cuenta.setId(id);
+            cuenta.setTipoCuenta("cuenta de ahorros");
+            cuenta.setNumeroCuenta("530000000" + id);
+            cuenta.setEstado("activa");
+            cuenta.setSaldo(Money.parse("1500.25"));
+            cuenta.setFechaCreacion(ahora);
+            cuenta.setCliente(cliente);
+            productos.add(cuenta);
+        }
+        cliente.setProductos(productos);
+        producto = productos.get(0);
+
+        transaccion = new Transaccion();
+        transaccion.setId(10L);
+        transaccion.setTipo("TRANSFERENCIA");
+        transaccion.setMonto(Money.parse("100.00"));
+        transaccion.setCuentaOrigen(productos.get(0));
+        transaccion.setCuentaDestino(productos.get(1));
+        transaccion.setFechaHoraTransaccion(ahora);
+    }
+
+    @Benchmark
+    public byte[] productos() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(producto);
+    }
+
+    @Benchmark
+    public byte[] clientes() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cliente);
+    }
+
+    @Benchmark
+    public byte[] transaccion() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(transaccion);
+    }
+}
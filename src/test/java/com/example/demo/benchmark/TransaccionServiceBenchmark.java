@@ -0,0 +1,80 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.ledger.LedgerEnMemoria;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.TransaccionRepository;
+import com.example.demo.services.DirectorioShards;
+import com.example.demo.services.Implement.TransaccionServiceImp;
+import com.example.demo.services.MotorGmf;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransaccionServiceBenchmark {
+    private static final Money MONTO = Money.parse("1.00");
+
+    private TransaccionServiceImp servicioJpa;
+    private LedgerEnMemoria ledger;
+    private Path directorioDiario;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Map<Long, Productos> cuentas = RepositoriosEnMemoria.cuentas(64, "1000000000000.00");
+        ProductosRepository productosRepository = RepositoriosEnMemoria.productos(cuentas);
+        TransaccionRepository transaccionRepository = RepositoriosEnMemoria.transacciones();
+
+        servicioJpa = new TransaccionServiceImp();
+        ReflectionTestUtils.setField(servicioJpa, "productosRepository", productosRepository);
+        ReflectionTestUtils.setField(servicioJpa, "transaccionRepository", transaccionRepository);
+        ReflectionTestUtils.setField(servicioJpa, "transactionTemplate",
+                new TransactionTemplate(RepositoriosEnMemoria.sinTransacciones()));
+        ReflectionTestUtils.setField(servicioJpa, "directorio", new DirectorioShards());
+        ReflectionTestUtils.setField(servicioJpa, "motorGmf", new MotorGmf());
+
+        directorioDiario = Files.createTempDirectory("banco-ledger-bench");
+        ledger = new LedgerEnMemoria(productosRepository, transaccionRepository,
+                new TransactionTemplate(RepositoriosEnMemoria.sinTransacciones()), 4, directorioDiario, 1000, 20);
+        ledger.iniciar();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ledger.cerrar();
+        try (var archivos = Files.walk(directorioDiario)) {
+            archivos.sorted(java.util.Comparator.reverseOrder()).forEach(archivo -> archivo.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Transaccion transferencia() {
+        return servicioJpa.realizarTransaccion(1L, 2L, MONTO);
+    }
+
+    @Benchmark
+    public Transaccion retiro() {
+        return servicioJpa.realizarRetiro(3L, MONTO);
+    }
+
+    @Benchmark
+    public Transaccion deposito() {
+        return servicioJpa.realizarDeposito(4L, MONTO);
+    }
+
+    // incluye el fsync del diario antes de confirmar, por eso conviene leerlo junto con -t
+    @Benchmark
+    public Transaccion transferenciaLedger() {
+        return ledger.transferir(5L, 6L, MONTO).join();
+    }
+}
@@ -0,0 +1,457 @@
+package com.example.demo.carga;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.concurrencia.LimiteAdaptativo;
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.repository.ClientesRepository;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.services.EscritorGrupal;
+import com.example.demo.services.LibroMayorService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Arnes de carga extremo a extremo: arranca la aplicacion sobre H2 en modo MySQL, siembra cuentas, ejecuta una
+ * mezcla de operaciones HTTP durante un tiempo fijo y escribe un reporte JSON con latencias, throughput, codigos
+ * de respuesta y la verificacion de conservacion del dinero.
+ *
+ * <p>Se ejecuta con {@code mvn -Pcarga verify -Dcarga.args="--carga.concurrencia=32 --carga.duracion-s=60"};
+ * cualquier otra propiedad de la aplicacion (por ejemplo {@code --banco.transaccion.motor=ledger}) se pasa igual.
+ */
+public class ArnesCarga {
+    private static final Money SALDO_INICIAL = Money.parse("1000.00");
+
+    enum Operacion {
+        TRANSFERENCIA, RETIRO, DEPOSITO, CONSULTA
+    }
+
+    public static void main(String[] args) throws Exception {
+        valorPorDefecto("spring.datasource.url",
+                "jdbc:h2:mem:carga;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        valorPorDefecto("spring.datasource.driver-class-name", "org.h2.Driver");
+        valorPorDefecto("spring.datasource.username", "sa");
+        valorPorDefecto("spring.datasource.password", "");
+        valorPorDefecto("spring.jpa.hibernate.ddl-auto", "create");
+        valorPorDefecto("server.port", "0");
+        valorPorDefecto("logging.level.root", "WARN");
+        valorPorDefecto("logging.level.org.hibernate.SQL", "WARN");
+        valorPorDefecto("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+
+        SpringApplication aplicacion = new SpringApplication(DemoApplication.class);
+        aplicacion.addInitializers(inicial -> {
+            long latenciaSql = inicial.getEnvironment().getProperty("carga.latencia-sql-ms", Long.class, 0L);
+            if (latenciaSql > 0) {
+                inicial.getBeanFactory().addBeanPostProcessor(new LatenciaSql(latenciaSql));
+            }
+        });
+        ConfigurableApplicationContext contexto = aplicacion.run(args);
+        Environment entorno = contexto.getEnvironment();
+        int cuentas = entorno.getProperty("carga.cuentas", Integer.class, 1000);
+        int concurrencia = entorno.getProperty("carga.concurrencia", Integer.class, 16);
+        int duracion = entorno.getProperty("carga.duracion-s", Integer.class, 30);
+        Map<Operacion, Integer> mezcla = mezcla(entorno.getProperty("carga.mezcla",
+                "transferencia=50,retiro=15,deposito=15,consulta=20"));
+        Path reporte = Path.of(entorno.getProperty("carga.reporte", "target/carga-reporte.json"));
+        String motor = entorno.getProperty("banco.transaccion.motor", "jpa");
+        String modoHilos = entorno.getProperty("spring.threads.virtual.enabled", Boolean.class, false)
+                ? "virtuales" : "plataforma";
+
+        List<Long> ids = sembrar(contexto, cuentas);
+        Money totalInicial = SALDO_INICIAL.multiplicar(ids.size());
+        String base = "http://localhost:" + entorno.getProperty("local.server.port") + "/api";
+
+        System.out.printf("Carga: %d cuentas, %d hilos, %d s, mezcla %s, motor %s, hilos del servidor %s%n",
+                ids.size(), concurrencia, duracion, mezcla, motor, modoHilos);
+        HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5)).build();
+        long fin = System.nanoTime() + Duration.ofSeconds(duracion).toNanos();
+        long inicio = System.nanoTime();
+        ExecutorService hilos = Executors.newFixedThreadPool(concurrencia);
+        List<Future<Trabajador>> futuros = new ArrayList<>();
+        for (int i = 0; i < concurrencia; i++) {
+            futuros.add(hilos.submit(new Trabajador(cliente, base, ids, mezcla, fin)::ejecutar));
+        }
+        List<Trabajador> trabajadores = new ArrayList<>();
+        for (Future<Trabajador> futuro : futuros) {
+            trabajadores.add(futuro.get());
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        hilos.shutdown();
+
+        Money neto = Money.ZERO;
+        for (Trabajador trabajador : trabajadores) {
+            neto = neto.sumar(trabajador.netoConfirmado);
+        }
+        Money esperado = totalInicial.sumar(neto);
+        Map<String, Object> grupos = "grupal".equals(motor) ? grupos(contexto) : null;
+        Map<String, Object> limiteConcurrencia = contexto.containsBean("limiteAdaptativo")
+                ? limiteConcurrencia(contexto, trabajadores) : null;
+        Money observado = totalObservado(contexto, ids, motor, entorno.getProperty("spring.datasource.url"));
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("configuracion", Map.of("cuentas", ids.size(), "concurrencia", concurrencia,
+                "duracionSegundos", duracion, "mezcla", mezcla, "motor", motor, "hilosServidor", modoHilos,
+                "latenciaSqlMs", entorno.getProperty("carga.latencia-sql-ms", Long.class, 0L)));
+        resultado.put("segundosMedidos", redondear(segundos));
+        Map<String, Object> operaciones = new LinkedHashMap<>();
+        long totalOperaciones = 0;
+        long totalErrores = 0;
+        Muestras todas = new Muestras();
+        for (Operacion operacion : Operacion.values()) {
+            Muestras muestras = new Muestras();
+            Map<String, Long> codigos = new TreeMap<>();
+            for (Trabajador trabajador : trabajadores) {
+                muestras.agregar(trabajador.latencias.get(operacion));
+                trabajador.codigos.get(operacion).forEach((codigo, n) -> codigos.merge(codigo, n, Long::sum));
+            }
+            todas.agregar(muestras);
+            long errores = codigos.entrySet().stream().filter(e -> !e.getKey().startsWith("2"))
+                    .mapToLong(Map.Entry::getValue).sum();
+            totalOperaciones += muestras.tamano;
+            totalErrores += errores;
+            operaciones.put(operacion.name().toLowerCase(), resumen(muestras, segundos, errores, codigos));
+        }
+        resultado.put("operaciones", operaciones);
+        if (grupos != null) {
+            resultado.put("grupos", grupos);
+        }
+        if (limiteConcurrencia != null) {
+            resultado.put("limiteConcurrencia", limiteConcurrencia);
+        }
+        resultado.put("total", resumen(todas, segundos, totalErrores, Map.of()));
+        boolean conservado = esperado.equals(observado);
+        resultado.put("conservacion", Map.of("totalInicial", totalInicial.toBigDecimal(), "esperado", esperado.toBigDecimal(),
+                "observado", observado.toBigDecimal(), "conservado", conservado));
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Files.createDirectories(reporte.toAbsolutePath().getParent());
+        objectMapper.writeValue(reporte.toFile(), resultado);
+        System.out.println(objectMapper.writeValueAsString(resultado));
+        System.out.printf("%d operaciones, %d errores, reporte en %s%n", totalOperaciones, totalErrores, reporte);
+        if (!conservado) {
+            System.err.printf("El dinero no se conserva: esperado %s, observado %s%n", esperado, observado);
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private static void valorPorDefecto(String propiedad, String valor) {
+        if (System.getProperty(propiedad) == null) {
+            System.setProperty(propiedad, valor);
+        }
+    }
+
+    private static Map<Operacion, Integer> mezcla(String definicion) {
+        Map<Operacion, Integer> mezcla = new EnumMap<>(Operacion.class);
+        for (String parte : definicion.split(",")) {
+            String[] claveValor = parte.trim().split("=");
+            mezcla.put(Operacion.valueOf(claveValor[0].trim().toUpperCase()), Integer.parseInt(claveValor[1].trim()));
+        }
+        return mezcla;
+    }
+
+    private static List<Long> sembrar(ConfigurableApplicationContext contexto, int cuentas) {
+        Clientes cliente = new Clientes();
+        cliente.setNombres("Carga");
+        cliente.setApellidos("Sintetica");
+        cliente.setCorreoElectronico("carga@example.com");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        cliente = contexto.getBean(ClientesRepository.class).save(cliente);
+
+        List<Productos> productos = new ArrayList<>(cuentas);
+        for (int i = 0; i < cuentas; i++) {
+            Productos producto = new Productos();
+            producto.setCliente(cliente);
+            producto.setTipoCuenta("cuenta de ahorros");
+            producto.setNumeroCuenta(String.format("59%08d", i));
+            producto.setEstado("activa");
+            producto.setSaldo(SALDO_INICIAL);
+            productos.add(producto);
+        }
+        List<Long> ids = new ArrayList<>(cuentas);
+        for (Productos producto : contexto.getBean(ProductosRepository.class).saveAll(productos)) {
+            ids.add(producto.getId());
+        }
+        return ids;
+    }
+
+    // el motor ledger persiste con escritura diferida: se cierra el contexto para vaciarla y se suma por JDBC
+    private static Money totalObservado(ConfigurableApplicationContext contexto, List<Long> ids, String motor,
+                                             String url) throws Exception {
+        if (!"ledger".equals(motor)) {
+            LibroMayorService libroMayor = contexto.getBean(LibroMayorService.class);
+            Money total = Money.ZERO;
+            for (Long id : ids) {
+                total = total.sumar(libroMayor.saldoActual(id).orElse(Money.ZERO));
+            }
+            contexto.close();
+            return total;
+        }
+        contexto.close();
+        try (Connection conexion = DriverManager.getConnection(url, "sa", "");
+             Statement sentencia = conexion.createStatement();
+             ResultSet filas = sentencia.executeQuery("select coalesce(sum(saldo), 0) from productos")) {
+            filas.next();
+            return Money.of(filas.getBigDecimal(1));
+        }
+    }
+
+    // motor grupal: cuantos movimientos entraron en cada commit y cuanto duro la transaccion del grupo
+    private static Map<String, Object> grupos(ConfigurableApplicationContext contexto) {
+        MeterRegistry registro = contexto.getBean(MeterRegistry.class);
+        DistributionSummary tamanos = registro.summary(EscritorGrupal.METRICA_TAMANO);
+        Timer commits = registro.timer(EscritorGrupal.METRICA_COMMIT);
+        Map<String, Object> grupos = new LinkedHashMap<>();
+        grupos.put("commits", tamanos.count());
+        grupos.put("movimientosPorCommit", redondear(tamanos.mean()));
+        grupos.put("maximoPorCommit", redondear(tamanos.max()));
+        grupos.put("commitMedioMs", redondear(commits.mean(TimeUnit.MILLISECONDS)));
+        grupos.put("commitMaxMs", redondear(commits.max(TimeUnit.MILLISECONDS)));
+        return grupos;
+    }
+
+    // limite adaptativo: donde quedo el limite, cuantas peticiones rechazo y la latencia de las que si entraron
+    private static Map<String, Object> limiteConcurrencia(ConfigurableApplicationContext contexto,
+                                                         List<Trabajador> trabajadores) {
+        LimiteAdaptativo limite = contexto.getBean(LimiteAdaptativo.class);
+        Muestras aceptadas = new Muestras();
+        for (Trabajador trabajador : trabajadores) {
+            aceptadas.agregar(trabajador.aceptadas);
+        }
+        long[] valores = aceptadas.ordenadas();
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("limiteFinal", limite.getLimite());
+        resumen.put("rechazos", limite.getRechazos());
+        resumen.put("aceptadas", valores.length);
+        resumen.put("p50AceptadasMs", percentil(valores, 0.50));
+        resumen.put("p99AceptadasMs", percentil(valores, 0.99));
+        resumen.put("maxAceptadasMs", valores.length == 0 ? 0 : redondear(valores[valores.length - 1] / 1e6));
+        return resumen;
+    }
+
+    private static Map<String, Object> resumen(Muestras muestras, double segundos, long errores,
+                                               Map<String, Long> codigos) {
+        long[] valores = muestras.ordenadas();
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("operaciones", valores.length);
+        resumen.put("errores", errores);
+        resumen.put("throughputPorSegundo", redondear(valores.length / segundos));
+        resumen.put("p50Ms", percentil(valores, 0.50));
+        resumen.put("p95Ms", percentil(valores, 0.95));
+        resumen.put("p99Ms", percentil(valores, 0.99));
+        resumen.put("maxMs", valores.length == 0 ? 0 : redondear(valores[valores.length - 1] / 1e6));
+        if (!codigos.isEmpty()) {
+            resumen.put("codigos", codigos);
+        }
+        return resumen;
+    }
+
+    private static double percentil(long[] ordenadas, double percentil) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int indice = (int) Math.ceil(percentil * ordenadas.length) - 1;
+        return redondear(ordenadas[Math.max(indice, 0)] / 1e6);
+    }
+
+    private static double redondear(double valor) {
+        return BigDecimal.valueOf(valor).setScale(3, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    private static final class Trabajador {
+        private final HttpClient cliente;
+        private final String base;
+        private final List<Long> ids;
+        private final Operacion[] ruleta;
+        private final long fin;
+        private final Map<Operacion, Muestras> latencias = new EnumMap<>(Operacion.class);
+        private final Map<Operacion, Map<String, Long>> codigos = new EnumMap<>(Operacion.class);
+        private final Muestras aceptadas = new Muestras();
+        private Money netoConfirmado = Money.ZERO;
+
+        Trabajador(HttpClient cliente, String base, List<Long> ids, Map<Operacion, Integer> mezcla, long fin) {
+            this.cliente = cliente;
+            this.base = base;
+            this.ids = ids;
+            this.fin = fin;
+            List<Operacion> ruleta = new ArrayList<>();
+            mezcla.forEach((operacion, peso) -> {
+                for (int i = 0; i < peso; i++) {
+                    ruleta.add(operacion);
+                }
+            });
+            this.ruleta = ruleta.toArray(new Operacion[0]);
+            for (Operacion operacion : Operacion.values()) {
+                latencias.put(operacion, new Muestras());
+                codigos.put(operacion, new TreeMap<>());
+            }
+        }
+
+        Trabajador ejecutar() {
+            ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+            while (System.nanoTime() < fin) {
+                Operacion operacion = ruleta[aleatorio.nextInt(ruleta.length)];
+                Long origen = ids.get(aleatorio.nextInt(ids.size()));
+                Long destino = ids.get(aleatorio.nextInt(ids.size()));
+                while (destino.equals(origen) && ids.size() > 1) {
+                    destino = ids.get(aleatorio.nextInt(ids.size()));
+                }
+                Money monto = Money.deCentavos(aleatorio.nextInt(100, 5000));
+                HttpRequest solicitud = switch (operacion) {
+                    case TRANSFERENCIA -> post("/transaccion/realizar", origen, destino, monto);
+                    case RETIRO -> post("/transaccion/retirar", origen, null, monto);
+                    case DEPOSITO -> post("/transaccion/depositar", null, destino, monto);
+                    case CONSULTA -> HttpRequest.newBuilder(URI.create(base + "/productos/" + origen)).GET().build();
+                };
+                long inicio = System.nanoTime();
+                String codigo;
+                long reintentarEnMs = 0;
+                try {
+                    HttpResponse<Void> respuesta = cliente.send(solicitud, HttpResponse.BodyHandlers.discarding());
+                    int estado = respuesta.statusCode();
+                    codigo = String.valueOf(estado);
+                    if (estado == 503) {
+                        reintentarEnMs = respuesta.headers().firstValueAsLong("Retry-After").orElse(0) * 1000;
+                    }
+                    if (estado == 200 && operacion == Operacion.DEPOSITO) {
+                        netoConfirmado = netoConfirmado.sumar(monto);
+                    } else if (estado == 200 && operacion == Operacion.RETIRO) {
+                        netoConfirmado = netoConfirmado.restar(monto);
+                    }
+                } catch (Exception e) {
+                    codigo = e.getClass().getSimpleName();
+                }
+                long latencia = System.nanoTime() - inicio;
+                latencias.get(operacion).agregar(latencia);
+                if (!"503".equals(codigo)) {
+                    aceptadas.agregar(latencia);
+                }
+                codigos.get(operacion).merge(codigo, 1L, Long::sum);
+                // como un cliente real, respeta el Retry-After del limite de concurrencia antes de volver a intentar
+                esperar(reintentarEnMs);
+            }
+            return this;
+        }
+
+        private void esperar(long milisegundos) {
+            long restante = TimeUnit.NANOSECONDS.toMillis(fin - System.nanoTime());
+            if (milisegundos > 0 && restante > 0) {
+                try {
+                    Thread.sleep(Math.min(milisegundos, restante));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private HttpRequest post(String ruta, Long origen, Long destino, Money monto) {
+            String cuerpo = "{\"cuentaOrigenId\":" + origen + ",\"cuentaDestinoId\":" + destino
+                    + ",\"monto\":" + monto + "}";
+            return HttpRequest.newBuilder(URI.create(base + ruta))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                    .build();
+        }
+    }
+
+    // simula una base de datos lenta: cada sentencia preparada espera antes de ejecutarse, con la conexion tomada
+    private static final class LatenciaSql implements BeanPostProcessor {
+        private final long milisegundos;
+
+        LatenciaSql(long milisegundos) {
+            this.milisegundos = milisegundos;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource dataSource)) {
+                return bean;
+            }
+            return new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return lenta(super.getConnection());
+                }
+            };
+        }
+
+        private Connection lenta(Connection conexion) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, metodo, argumentos) -> {
+                        if (metodo.getName().startsWith("prepare")) {
+                            Thread.sleep(milisegundos);
+                        }
+                        try {
+                            return metodo.invoke(conexion, argumentos);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+
+    private static final class Muestras {
+        private long[] valores = new long[1024];
+        private int tamano;
+
+        void agregar(long valor) {
+            if (tamano == valores.length) {
+                valores = Arrays.copyOf(valores, tamano * 2);
+            }
+            valores[tamano++] = valor;
+        }
+
+        void agregar(Muestras otras) {
+            for (int i = 0; i < otras.tamano; i++) {
+                agregar(otras.valores[i]);
+            }
+        }
+
+        long[] ordenadas() {
+            long[] copia = Arrays.copyOf(valores, tamano);
+            Arrays.sort(copia);
+            return copia;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.carga;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.dinero.Money;
+import com.example.demo.services.CausadorIntereses;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mide la causacion diaria de intereses: siembra por JDBC {@code carga.cuentas} cuentas de ahorros activas (una de
+ * cada {@code carga.corriente-cada} corriente, que no causa), causa el dia anterior por HTTP y reporta cuentas por
+ * segundo. Termina con error si los intereses abonados no coinciden con los calculados al sembrar.
+ *
+ * <p>Se ejecuta con {@code mvn -Pcarga verify -Dcarga.clase=com.example.demo.carga.CausacionIntereses
+ * -Dcarga.args="--carga.cuentas=2000000 --banco.intereses.hilos=8 --banco.intereses.particiones=16"}.
+ */
+public class CausacionIntereses {
+    private static final int LOTE_INSERCION = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        valorPorDefecto("spring.datasource.url",
+                "jdbc:h2:mem:intereses;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        valorPorDefecto("spring.datasource.driver-class-name", "org.h2.Driver");
+        valorPorDefecto("spring.datasource.username", "sa");
+        valorPorDefecto("spring.datasource.password", "");
+        valorPorDefecto("spring.jpa.hibernate.ddl-auto", "create");
+        valorPorDefecto("server.port", "0");
+        valorPorDefecto("banco.intereses.habilitado", "true");
+        valorPorDefecto("logging.level.root", "WARN");
+        valorPorDefecto("logging.level.org.hibernate.SQL", "WARN");
+        valorPorDefecto("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+
+        ConfigurableApplicationContext contexto = SpringApplication.run(DemoApplication.class, args);
+        Environment entorno = contexto.getEnvironment();
+        int cuentas = entorno.getProperty("carga.cuentas", Integer.class, 500_000);
+        int corrienteCada = entorno.getProperty("carga.corriente-cada", Integer.class, 10);
+        Path reporte = Path.of(entorno.getProperty("carga.reporte", "target/causacion-intereses.json"));
+        LocalDate fecha = LocalDate.now().minusDays(1);
+        String url = "http://localhost:" + entorno.getProperty("local.server.port") + "/api/intereses/causacion/"
+                + fecha;
+
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        CausadorIntereses causador = contexto.getBean(CausadorIntereses.class);
+        System.out.printf("Sembrando %d cuentas%n", cuentas);
+        long inicioSiembra = System.nanoTime();
+        long esperado = sembrarCuentas(jdbc, causador, cuentas, corrienteCada);
+        double segundosSiembra = (System.nanoTime() - inicioSiembra) / 1e9;
+
+        System.out.printf("Causando %s con %s hilos, %s particiones, bloques de %s%n", fecha,
+                entorno.getProperty("banco.intereses.hilos", "4"),
+                entorno.getProperty("banco.intereses.particiones", "8"),
+                entorno.getProperty("banco.intereses.tamano-bloque", "2000"));
+        HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest solicitud = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofHours(2))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> respuesta = cliente.send(solicitud, HttpResponse.BodyHandlers.ofString());
+        Money abonado = Money.of(jdbc.queryForObject("select coalesce(sum(monto), 0) from transaccion where tipo = ?",
+                BigDecimal.class, CausadorIntereses.TIPO));
+        contexto.close();
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        if (respuesta.statusCode() != 200) {
+            System.err.printf("La causacion respondio %d: %s%n", respuesta.statusCode(), respuesta.body());
+            System.exit(1);
+        }
+        JsonNode cuerpo = objectMapper.readTree(respuesta.body());
+        ObjectNode resultado = objectMapper.createObjectNode();
+        resultado.put("fecha", fecha.toString());
+        resultado.put("cuentasSembradas", cuentas);
+        resultado.put("segundosSiembra", Math.round(segundosSiembra * 1000) / 1000.0);
+        resultado.put("particiones", cuerpo.get("particiones").asInt());
+        resultado.put("cuentasCausadas", cuerpo.get("cuentas").asLong());
+        resultado.put("duracionMs", cuerpo.get("duracionMs").asLong());
+        resultado.put("cuentasPorSegundo", cuerpo.get("cuentasPorSegundo").asLong());
+        resultado.put("interesesEsperados", Money.deCentavos(esperado).toString());
+        resultado.put("interesesAbonados", abonado.toString());
+
+        Files.createDirectories(reporte.toAbsolutePath().getParent());
+        objectMapper.writeValue(reporte.toFile(), resultado);
+        System.out.println(objectMapper.writeValueAsString(resultado));
+        System.out.printf("Reporte en %s%n", reporte);
+        System.exit(abonado.getCentavos() == esperado ? 0 : 1);
+    }
+
+    // devuelve los intereses esperados en centavos, con el mismo redondeo por cuenta que la causacion
+    private static long sembrarCuentas(JdbcTemplate jdbc, CausadorIntereses causador, int cuentas,
+                                       int corrienteCada) {
+        long esperado = 0;
+        List<Object[]> filas = new ArrayList<>(LOTE_INSERCION);
+        for (int cuenta = 1; cuenta <= cuentas; cuenta++) {
+            boolean corriente = corrienteCada > 0 && cuenta % corrienteCada == 0;
+            Money saldo = Money.deCentavos(100_000 + (cuenta * 7919L) % 100_000_000);
+            if (!corriente) {
+                esperado += causador.interes(saldo).getCentavos();
+            }
+            filas.add(new Object[]{cuenta, corriente ? "cuenta corriente" : "cuenta de ahorros", "activa",
+                    saldo.toBigDecimal(), false});
+            if (filas.size() == LOTE_INSERCION || cuenta == cuentas) {
+                jdbc.batchUpdate("insert into productos (id, tipo_cuenta, estado, saldo, exenta_gmf) "
+                        + "values (?, ?, ?, ?, ?)", filas);
+                filas.clear();
+            }
+        }
+        return esperado;
+    }
+
+    private static void valorPorDefecto(String propiedad, String valor) {
+        if (System.getProperty(propiedad) == null) {
+            System.setProperty(propiedad, valor);
+        }
+    }
+}
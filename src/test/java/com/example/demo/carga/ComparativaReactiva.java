@@ -0,0 +1,330 @@
+package com.example.demo.carga;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.reactivo.RutasReactivas;
+import com.example.demo.reactivo.ServidorReactivo;
+import com.example.demo.repository.ClientesRepository;
+import com.example.demo.repository.ProductosRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import reactor.adapter.JdkFlowAdapter;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compara el deposito bloqueante (Tomcat + JPA) con el reactivo (Netty + R2DBC) bajo clientes lentos: cada
+ * conexion envia su cuerpo en trozos espaciados, como una red movil, de modo que el servidor bloqueante retiene un
+ * hilo por conexion mientras lee. Reporta latencias, hilos del servidor en el pico y heap por conexion.
+ *
+ * <p>Se ejecuta con {@code mvn -Pcarga verify -Dcarga.clase=com.example.demo.carga.ComparativaReactiva
+ * -Dcarga.args="--carga.conexiones=400 --carga.goteo-ms=500"}. El heap por conexion es aproximado: es la
+ * diferencia del heap usado en el pico de cada fase contra el de reposo, dividida entre las conexiones.
+ */
+public class ComparativaReactiva {
+    private static final Money SALDO_INICIAL = Money.parse("1000.00");
+    private static final String MONTO = "1.00";
+
+    public static void main(String[] args) throws Exception {
+        valorPorDefecto("spring.datasource.url",
+                "jdbc:h2:mem:comparativa;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        valorPorDefecto("spring.datasource.driver-class-name", "org.h2.Driver");
+        valorPorDefecto("spring.datasource.username", "sa");
+        valorPorDefecto("spring.datasource.password", "");
+        valorPorDefecto("spring.jpa.hibernate.ddl-auto", "create");
+        valorPorDefecto("server.port", "0");
+        valorPorDefecto("banco.reactivo.habilitado", "true");
+        valorPorDefecto("banco.reactivo.puerto", "0");
+        valorPorDefecto("banco.reactivo.r2dbc.url",
+                "r2dbc:h2:mem:///comparativa?options=MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        valorPorDefecto("logging.level.root", "WARN");
+        valorPorDefecto("logging.level.io.r2dbc.h2.H2Connection", "ERROR");
+        valorPorDefecto("logging.level.org.hibernate.SQL", "WARN");
+        valorPorDefecto("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+
+        ConfigurableApplicationContext contexto = SpringApplication.run(DemoApplication.class, args);
+        Environment entorno = contexto.getEnvironment();
+        int cuentas = entorno.getProperty("carga.cuentas", Integer.class, 100);
+        int conexiones = entorno.getProperty("carga.conexiones", Integer.class, 200);
+        int peticiones = entorno.getProperty("carga.peticiones", Integer.class, 5);
+        int goteo = entorno.getProperty("carga.goteo-ms", Integer.class, 200);
+        int trozos = entorno.getProperty("carga.trozos", Integer.class, 4);
+        Path reporte = Path.of(entorno.getProperty("carga.reporte", "target/comparativa-reactiva.json"));
+
+        List<Long> ids = sembrar(contexto, cuentas);
+        ProductosRepository productosRepository = contexto.getBean(ProductosRepository.class);
+        Map<String, String> bases = new LinkedHashMap<>();
+        bases.put("bloqueante", "http://localhost:" + entorno.getProperty("local.server.port") + "/api");
+        bases.put("reactivo", "http://localhost:" + contexto.getBean(ServidorReactivo.class).getPuerto()
+                + RutasReactivas.PREFIJO);
+        Map<String, String> hilosServidor = Map.of("bloqueante", "http-nio", "reactivo", "reactor-http");
+
+        System.out.printf("Comparativa: %d cuentas, %d conexiones lentas x %d peticiones, cuerpo en %d trozos "
+                + "durante %d ms%n", ids.size(), conexiones, peticiones, trozos, goteo);
+        HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5)).build();
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("configuracion", Map.of("cuentas", ids.size(), "conexiones", conexiones,
+                "peticionesPorConexion", peticiones, "goteoMs", goteo, "trozos", trozos));
+        Map<String, Object> fases = new LinkedHashMap<>();
+        boolean conservado = true;
+        for (Map.Entry<String, String> fase : bases.entrySet()) {
+            Money totalAntes = total(productosRepository, ids);
+            Fase medicion = new Fase(cliente, fase.getValue(), hilosServidor.get(fase.getKey()), ids, conexiones,
+                    peticiones, goteo, trozos).ejecutar();
+            Money esperado = totalAntes.sumar(Money.parse(MONTO).multiplicar(medicion.exitos));
+            Money observado = total(productosRepository, ids);
+            conservado &= esperado.equals(observado);
+            Map<String, Object> resumen = medicion.resumen(conexiones);
+            resumen.put("conservacion", Map.of("esperado", esperado.toBigDecimal(), "observado", observado.toBigDecimal(),
+                    "conservado", esperado.equals(observado)));
+            fases.put(fase.getKey(), resumen);
+        }
+        resultado.put("fases", fases);
+        contexto.close();
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Files.createDirectories(reporte.toAbsolutePath().getParent());
+        objectMapper.writeValue(reporte.toFile(), resultado);
+        System.out.println(objectMapper.writeValueAsString(resultado));
+        System.out.printf("Reporte en %s%n", reporte);
+        if (!conservado) {
+            System.err.println("El dinero no se conserva en al menos una fase");
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private static void valorPorDefecto(String propiedad, String valor) {
+        if (System.getProperty(propiedad) == null) {
+            System.setProperty(propiedad, valor);
+        }
+    }
+
+    private static List<Long> sembrar(ConfigurableApplicationContext contexto, int cuentas) {
+        Clientes cliente = new Clientes();
+        cliente.setNombres("Comparativa");
+        cliente.setApellidos("Sintetica");
+        cliente.setCorreoElectronico("comparativa@example.com");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        cliente = contexto.getBean(ClientesRepository.class).save(cliente);
+
+        List<Productos> productos = new ArrayList<>(cuentas);
+        for (int i = 0; i < cuentas; i++) {
+            Productos producto = new Productos();
+            producto.setCliente(cliente);
+            producto.setTipoCuenta("cuenta de ahorros");
+            producto.setNumeroCuenta(String.format("58%08d", i));
+            producto.setEstado("activa");
+            producto.setSaldo(SALDO_INICIAL);
+            productos.add(producto);
+        }
+        List<Long> ids = new ArrayList<>(cuentas);
+        for (Productos producto : contexto.getBean(ProductosRepository.class).saveAll(productos)) {
+            ids.add(producto.getId());
+        }
+        return ids;
+    }
+
+    private static Money total(ProductosRepository productosRepository, List<Long> ids) {
+        Money total = Money.ZERO;
+        for (Long id : ids) {
+            total = total.sumar(productosRepository.findSaldoById(id).orElse(Money.ZERO));
+        }
+        return total;
+    }
+
+    private static double redondear(double valor) {
+        return BigDecimal.valueOf(valor).setScale(3, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    private static final class Fase {
+        private final HttpClient cliente;
+        private final String base;
+        private final String prefijoHilos;
+        private final List<Long> ids;
+        private final int conexiones;
+        private final int peticiones;
+        private final int goteo;
+        private final int trozos;
+        private final Map<String, Long> codigos = new TreeMap<>();
+        private long[] latencias;
+        private long exitos;
+        private long hilosReposo;
+        private long hilosPico;
+        private long heapReposo;
+        private long heapPico;
+        private double segundos;
+
+        Fase(HttpClient cliente, String base, String prefijoHilos, List<Long> ids, int conexiones, int peticiones,
+             int goteo, int trozos) {
+            this.cliente = cliente;
+            this.base = base;
+            this.prefijoHilos = prefijoHilos;
+            this.ids = ids;
+            this.conexiones = conexiones;
+            this.peticiones = peticiones;
+            this.goteo = goteo;
+            this.trozos = trozos;
+        }
+
+        Fase ejecutar() throws Exception {
+            MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+            System.gc();
+            heapReposo = memoria.getHeapMemoryUsage().getUsed();
+            hilosReposo = hilosDelServidor();
+            AtomicLong pico = new AtomicLong(heapReposo);
+            AtomicLong picoHilos = new AtomicLong(hilosReposo);
+            AtomicBoolean midiendo = new AtomicBoolean(true);
+            Thread muestreo = new Thread(() -> {
+                while (midiendo.get()) {
+                    pico.accumulateAndGet(memoria.getHeapMemoryUsage().getUsed(), Math::max);
+                    picoHilos.accumulateAndGet(hilosDelServidor(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "comparativa-muestreo");
+            muestreo.setDaemon(true);
+            muestreo.start();
+
+            long inicio = System.nanoTime();
+            ExecutorService hilos = Executors.newFixedThreadPool(conexiones);
+            List<Future<long[]>> futuros = new ArrayList<>();
+            for (int i = 0; i < conexiones; i++) {
+                futuros.add(hilos.submit(this::conexion));
+            }
+            latencias = new long[conexiones * peticiones];
+            int n = 0;
+            for (Future<long[]> futuro : futuros) {
+                for (long latencia : futuro.get()) {
+                    latencias[n++] = latencia;
+                }
+            }
+            segundos = (System.nanoTime() - inicio) / 1e9;
+            hilos.shutdown();
+            midiendo.set(false);
+            muestreo.join();
+            heapPico = pico.get();
+            hilosPico = picoHilos.get();
+            Arrays.sort(latencias);
+            return this;
+        }
+
+        private long[] conexion() {
+            long[] propias = new long[peticiones];
+            ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+            for (int i = 0; i < peticiones; i++) {
+                Long destino = ids.get(aleatorio.nextInt(ids.size()));
+                byte[] cuerpo = ("{\"cuentaDestinoId\":" + destino + ",\"monto\":" + MONTO + "}")
+                        .getBytes(StandardCharsets.UTF_8);
+                HttpRequest solicitud = HttpRequest.newBuilder(URI.create(base + "/transaccion/depositar"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.fromPublisher(
+                                JdkFlowAdapter.publisherToFlowPublisher(goteo(cuerpo)), cuerpo.length))
+                        .build();
+                long inicio = System.nanoTime();
+                String codigo;
+                try {
+                    int estado = cliente.send(solicitud, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    codigo = String.valueOf(estado);
+                } catch (Exception e) {
+                    codigo = e.getClass().getSimpleName();
+                }
+                propias[i] = System.nanoTime() - inicio;
+                registrar(codigo);
+            }
+            return propias;
+        }
+
+        // el cuerpo llega en trozos espaciados; el primero sale de inmediato para que la cabecera no espere
+        private Flux<ByteBuffer> goteo(byte[] cuerpo) {
+            int tamano = Math.max(1, (cuerpo.length + trozos - 1) / trozos);
+            List<ByteBuffer> partes = new ArrayList<>();
+            for (int desde = 0; desde < cuerpo.length; desde += tamano) {
+                partes.add(ByteBuffer.wrap(cuerpo, desde, Math.min(tamano, cuerpo.length - desde)));
+            }
+            Duration pausa = Duration.ofMillis(goteo / Math.max(1, partes.size() - 1));
+            return Flux.fromIterable(partes).index()
+                    .concatMap(parte -> parte.getT1() == 0
+                            ? Flux.just(parte.getT2())
+                            : Flux.just(parte.getT2()).delayElements(pausa));
+        }
+
+        private synchronized void registrar(String codigo) {
+            codigos.merge(codigo, 1L, Long::sum);
+            if ("200".equals(codigo)) {
+                exitos++;
+            }
+        }
+
+        private long hilosDelServidor() {
+            long hilos = 0;
+            for (ThreadInfo info : ManagementFactory.getThreadMXBean()
+                    .getThreadInfo(ManagementFactory.getThreadMXBean().getAllThreadIds())) {
+                if (info != null && info.getThreadName().startsWith(prefijoHilos)) {
+                    hilos++;
+                }
+            }
+            return hilos;
+        }
+
+        Map<String, Object> resumen(int conexiones) {
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("operaciones", latencias.length);
+            resumen.put("throughputPorSegundo", redondear(latencias.length / segundos));
+            resumen.put("p50Ms", percentil(0.50));
+            resumen.put("p99Ms", percentil(0.99));
+            resumen.put("p999Ms", percentil(0.999));
+            resumen.put("maxMs", latencias.length == 0 ? 0 : redondear(latencias[latencias.length - 1] / 1e6));
+            resumen.put("codigos", codigos);
+            resumen.put("hilosServidorReposo", hilosReposo);
+            resumen.put("hilosServidorPico", hilosPico);
+            resumen.put("heapPorConexionKb", redondear(Math.max(0, heapPico - heapReposo) / 1024.0 / conexiones));
+            return resumen;
+        }
+
+        private double percentil(double percentil) {
+            if (latencias.length == 0) {
+                return 0;
+            }
+            int indice = (int) Math.ceil(percentil * latencias.length) - 1;
+            return redondear(latencias[Math.max(indice, 0)] / 1e6);
+        }
+    }
+}
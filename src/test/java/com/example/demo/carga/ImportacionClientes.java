@@ -0,0 +1,139 @@
+package com.example.demo.carga;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.services.ImportadorClientes;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Mide la importacion masiva de clientes extremo a extremo: genera un CSV sintetico mientras lo envia por HTTP
+ * (nunca esta completo en memoria, ni en el cliente ni en el servidor) y reporta clientes por segundo. Una de cada
+ * {@code carga.rechazo-cada} filas trae un correo invalido para ejercitar el reporte de rechazos.
+ *
+ * <p>Se ejecuta con {@code mvn -Pcarga verify -Dcarga.clase=com.example.demo.carga.ImportacionClientes
+ * -Dcarga.args="--carga.filas=500000 --banco.importacion.hilos=8"}.
+ */
+public class ImportacionClientes {
+
+    public static void main(String[] args) throws Exception {
+        valorPorDefecto("spring.datasource.url",
+                "jdbc:h2:mem:importacion;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        valorPorDefecto("spring.datasource.driver-class-name", "org.h2.Driver");
+        valorPorDefecto("spring.datasource.username", "sa");
+        valorPorDefecto("spring.datasource.password", "");
+        valorPorDefecto("spring.jpa.hibernate.ddl-auto", "create");
+        valorPorDefecto("server.port", "0");
+        valorPorDefecto("logging.level.root", "WARN");
+        valorPorDefecto("logging.level.org.hibernate.SQL", "WARN");
+        valorPorDefecto("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+
+        ConfigurableApplicationContext contexto = SpringApplication.run(DemoApplication.class, args);
+        Environment entorno = contexto.getEnvironment();
+        long filas = entorno.getProperty("carga.filas", Long.class, 200_000L);
+        int rechazoCada = entorno.getProperty("carga.rechazo-cada", Integer.class, 100);
+        Path reporte = Path.of(entorno.getProperty("carga.reporte", "target/importacion-clientes.json"));
+        String url = "http://localhost:" + entorno.getProperty("local.server.port") + "/api/clientes/importacion";
+
+        System.out.printf("Importacion: %d filas, hilos %s, bloques de %s%n", filas,
+                entorno.getProperty("banco.importacion.hilos", "4"),
+                entorno.getProperty("banco.importacion.tamano-bloque", "2000"));
+        HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest solicitud = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "text/csv")
+                .timeout(Duration.ofMinutes(30))
+                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new CsvSintetico(filas, rechazoCada)))
+                .build();
+        long inicio = System.nanoTime();
+        HttpResponse<String> respuesta = cliente.send(solicitud, HttpResponse.BodyHandlers.ofString());
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        contexto.close();
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        if (respuesta.statusCode() != 200) {
+            System.err.printf("La importacion respondio %d: %s%n", respuesta.statusCode(), respuesta.body());
+            System.exit(1);
+        }
+        JsonNode cuerpo = objectMapper.readTree(respuesta.body());
+        ObjectNode resultado = objectMapper.createObjectNode();
+        resultado.put("filas", cuerpo.get("filas").asLong());
+        resultado.put("importadas", cuerpo.get("importadas").asLong());
+        resultado.put("rechazadas", cuerpo.get("rechazadas").asLong());
+        resultado.put("segundosExtremoAExtremo", Math.round(segundos * 1000) / 1000.0);
+        resultado.put("clientesPorSegundo", Math.round(cuerpo.get("filas").asLong() / segundos));
+        resultado.put("duracionServidorMs", cuerpo.get("duracionMs").asLong());
+        ObjectNode motivos = resultado.putObject("motivosRechazo");
+        for (JsonNode rechazo : cuerpo.get("rechazos")) {
+            String motivo = rechazo.get("motivo").asText();
+            motivos.put(motivo, motivos.path(motivo).asLong() + 1);
+        }
+
+        Files.createDirectories(reporte.toAbsolutePath().getParent());
+        objectMapper.writeValue(reporte.toFile(), resultado);
+        System.out.println(objectMapper.writeValueAsString(resultado));
+        System.out.printf("Reporte en %s%n", reporte);
+        boolean completo = cuerpo.get("filas").asLong() == filas
+                && cuerpo.get("rechazadas").asLong() == (rechazoCada > 0 ? filas / rechazoCada : 0);
+        System.exit(completo ? 0 : 1);
+    }
+
+    private static void valorPorDefecto(String propiedad, String valor) {
+        if (System.getProperty(propiedad) == null) {
+            System.setProperty(propiedad, valor);
+        }
+    }
+
+    // genera las lineas a medida que el cliente HTTP las pide
+    private static final class CsvSintetico extends InputStream {
+        private final long filas;
+        private final int rechazoCada;
+        private byte[] actual = (String.join(",", ImportadorClientes.COLUMNAS) + "\n").getBytes(StandardCharsets.UTF_8);
+        private int posicion;
+        private long siguiente = 1;
+
+        CsvSintetico(long filas, int rechazoCada) {
+            this.filas = filas;
+            this.rechazoCada = rechazoCada;
+        }
+
+        @Override
+        public int read() {
+            byte[] uno = new byte[1];
+            return read(uno, 0, 1) < 0 ? -1 : uno[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] destino, int desde, int longitud) {
+            if (posicion == actual.length) {
+                if (siguiente > filas) {
+                    return -1;
+                }
+                long fila = siguiente++;
+                String correo = rechazoCada > 0 && fila % rechazoCada == 0
+                        ? "invalido" : "cliente" + fila + "@example.com";
+                actual = ("CC," + (1_000_000_000L + fila) + ",Nombre" + fila + ",Apellido" + fila + "," + correo
+                        + ",19" + (50 + fila % 50) + "-0" + (1 + fila % 9) + "-1" + (fila % 9) + "\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                posicion = 0;
+            }
+            int copiados = Math.min(longitud, actual.length - posicion);
+            System.arraycopy(actual, posicion, destino, desde, copiados);
+            posicion += copiados;
+            return copiados;
+        }
+    }
+}
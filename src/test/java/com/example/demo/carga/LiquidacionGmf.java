@@ -0,0 +1,160 @@
+package com.example.demo.carga;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.dinero.Money;
+import com.example.demo.services.MotorGmf;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mide la liquidacion mensual del GMF: siembra por JDBC {@code carga.cuentas} cuentas (una de cada
+ * {@code carga.exenta-cada} exenta) y {@code carga.movimientos} movimientos del mes anterior repartidos entre
+ * retiros, transferencias y depositos, liquida el mes por HTTP y reporta movimientos por segundo. Termina con error
+ * si el gravamen cobrado no coincide con el calculado al sembrar.
+ *
+ * <p>Se ejecuta con {@code mvn -Pcarga verify -Dcarga.clase=com.example.demo.carga.LiquidacionGmf
+ * -Dcarga.args="--carga.movimientos=5000000 --banco.gmf.lote.hilos=8 --banco.gmf.lote.particiones=16"}.
+ */
+public class LiquidacionGmf {
+    // por encima de los ids que entrega transaccion_seq, que siguen disponibles para los movimientos GMF
+    private static final long PRIMER_ID = 1L << 32;
+    private static final int LOTE_INSERCION = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        valorPorDefecto("spring.datasource.url",
+                "jdbc:h2:mem:gmf;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        valorPorDefecto("spring.datasource.driver-class-name", "org.h2.Driver");
+        valorPorDefecto("spring.datasource.username", "sa");
+        valorPorDefecto("spring.datasource.password", "");
+        valorPorDefecto("spring.jpa.hibernate.ddl-auto", "create");
+        valorPorDefecto("server.port", "0");
+        valorPorDefecto("banco.gmf.modo", "lote");
+        valorPorDefecto("logging.level.root", "WARN");
+        valorPorDefecto("logging.level.org.hibernate.SQL", "WARN");
+        valorPorDefecto("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+
+        ConfigurableApplicationContext contexto = SpringApplication.run(DemoApplication.class, args);
+        Environment entorno = contexto.getEnvironment();
+        int cuentas = entorno.getProperty("carga.cuentas", Integer.class, 10_000);
+        long movimientos = entorno.getProperty("carga.movimientos", Long.class, 1_000_000L);
+        int exentaCada = entorno.getProperty("carga.exenta-cada", Integer.class, 10);
+        Path reporte = Path.of(entorno.getProperty("carga.reporte", "target/liquidacion-gmf.json"));
+        YearMonth periodo = YearMonth.now().minusMonths(1);
+        String url = "http://localhost:" + entorno.getProperty("local.server.port") + "/api/gmf/liquidacion/" + periodo;
+
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        MotorGmf motorGmf = contexto.getBean(MotorGmf.class);
+        System.out.printf("Sembrando %d cuentas y %d movimientos de %s%n", cuentas, movimientos, periodo);
+        long inicioSiembra = System.nanoTime();
+        sembrarCuentas(jdbc, cuentas, exentaCada);
+        long esperado = sembrarMovimientos(jdbc, motorGmf, periodo, cuentas, movimientos, exentaCada);
+        double segundosSiembra = (System.nanoTime() - inicioSiembra) / 1e9;
+
+        System.out.printf("Liquidando con %s hilos, %s particiones, bloques de %s%n",
+                entorno.getProperty("banco.gmf.lote.hilos", "4"),
+                entorno.getProperty("banco.gmf.lote.particiones", "8"),
+                entorno.getProperty("banco.gmf.lote.tamano-bloque", "5000"));
+        HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest solicitud = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofHours(2))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> respuesta = cliente.send(solicitud, HttpResponse.BodyHandlers.ofString());
+        Money cobrado = Money.of(jdbc.queryForObject("select coalesce(sum(monto), 0) from transaccion where tipo = ?",
+                BigDecimal.class, MotorGmf.TIPO));
+        contexto.close();
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        if (respuesta.statusCode() != 200) {
+            System.err.printf("La liquidacion respondio %d: %s%n", respuesta.statusCode(), respuesta.body());
+            System.exit(1);
+        }
+        JsonNode cuerpo = objectMapper.readTree(respuesta.body());
+        ObjectNode resultado = objectMapper.createObjectNode();
+        resultado.put("periodo", periodo.toString());
+        resultado.put("movimientosSembrados", movimientos);
+        resultado.put("segundosSiembra", Math.round(segundosSiembra * 1000) / 1000.0);
+        resultado.put("particiones", cuerpo.get("particiones").asInt());
+        resultado.put("movimientosGravados", cuerpo.get("movimientos").asLong());
+        resultado.put("duracionMs", cuerpo.get("duracionMs").asLong());
+        resultado.put("movimientosPorSegundo", cuerpo.get("movimientosPorSegundo").asLong());
+        resultado.put("gravamenEsperado", Money.deCentavos(esperado).toString());
+        resultado.put("gravamenCobrado", cobrado.toString());
+
+        Files.createDirectories(reporte.toAbsolutePath().getParent());
+        objectMapper.writeValue(reporte.toFile(), resultado);
+        System.out.println(objectMapper.writeValueAsString(resultado));
+        System.out.printf("Reporte en %s%n", reporte);
+        System.exit(cobrado.getCentavos() == esperado ? 0 : 1);
+    }
+
+    private static void sembrarCuentas(JdbcTemplate jdbc, int cuentas, int exentaCada) {
+        List<Object[]> filas = new ArrayList<>(LOTE_INSERCION);
+        for (int cuenta = 1; cuenta <= cuentas; cuenta++) {
+            filas.add(new Object[]{cuenta, "cuenta de ahorros", "activa", new BigDecimal("1000000.00"),
+                    exentaCada > 0 && cuenta % exentaCada == 0});
+            if (filas.size() == LOTE_INSERCION || cuenta == cuentas) {
+                jdbc.batchUpdate("insert into productos (id, tipo_cuenta, estado, saldo, exenta_gmf) "
+                        + "values (?, ?, ?, ?, ?)", filas);
+                filas.clear();
+            }
+        }
+    }
+
+    // devuelve el gravamen esperado en centavos, con el mismo redondeo por movimiento que la liquidacion
+    private static long sembrarMovimientos(JdbcTemplate jdbc, MotorGmf motorGmf, YearMonth periodo, int cuentas,
+                                           long movimientos, int exentaCada) {
+        LocalDateTime inicioMes = periodo.atDay(1).atStartOfDay();
+        long segundosMes = Duration.between(inicioMes, periodo.plusMonths(1).atDay(1).atStartOfDay()).toSeconds();
+        long esperado = 0;
+        List<Object[]> filas = new ArrayList<>(LOTE_INSERCION);
+        for (long i = 0; i < movimientos; i++) {
+            long cuenta = 1 + i % cuentas;
+            String tipo = switch ((int) (i % 3)) {
+                case 0 -> "RETIRO";
+                case 1 -> "TRANSFERENCIA";
+                default -> "DEPOSITO";
+            };
+            Money monto = Money.deCentavos(100 + (i * 7919) % 1_000_000);
+            Long origen = tipo.equals("DEPOSITO") ? null : cuenta;
+            Long destino = tipo.equals("RETIRO") ? null : 1 + (cuenta % cuentas);
+            if (origen != null && (exentaCada <= 0 || cuenta % exentaCada != 0)) {
+                esperado += motorGmf.gravamen(monto).getCentavos();
+            }
+            filas.add(new Object[]{PRIMER_ID + i, tipo, monto.toBigDecimal(), origen, destino,
+                    Timestamp.valueOf(inicioMes.plusSeconds(i * segundosMes / movimientos))});
+            if (filas.size() == LOTE_INSERCION || i == movimientos - 1) {
+                jdbc.batchUpdate("insert into transaccion (id, tipo, monto, cuenta_origen_id, cuenta_destino_id, "
+                        + "fecha_hora_transaccion) values (?, ?, ?, ?, ?, ?)", filas);
+                filas.clear();
+            }
+        }
+        return esperado;
+    }
+
+    private static void valorPorDefecto(String propiedad, String valor) {
+        if (System.getProperty(propiedad) == null) {
+            System.setProperty(propiedad, valor);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.demo.carga;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.metricas.ConteoSentenciasFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Mide lo que ahorran ETags y gzip a clientes que sondean sus cuentas. Siembra por JDBC {@code carga.clientes}
+ * clientes con {@code carga.cuentas-por-cliente} cuentas y hace {@code carga.rondas} rondas en las que se lee cada
+ * cuenta ({@code GET /api/productos/{id}}) y cada cliente ({@code GET /api/clientes/{id}}). Antes de cada ronda, la
+ * fraccion {@code carga.cambios} de las cuentas recibe un deposito. Se repite en tres modos sobre la misma secuencia
+ * de depositos: sin encabezados condicionales, con If-None-Match, y con If-None-Match y Accept-Encoding: gzip. Reporta
+ * por modo respuestas 200/304, bytes de cuerpo en el cable, bytes de encabezados y sentencias SQL
+ * ({@code X-Sentencias-SQL}).
+ *
+ * <p>Se ejecuta con {@code mvn -Pcarga verify -Dcarga.clase=com.example.demo.carga.SondeoCuentas
+ * -Dcarga.args="--carga.clientes=500 --carga.rondas=20 --carga.cambios=0.05"}.
+ */
+public class SondeoCuentas {
+    private static final String[] MODOS = {"sin-condicional", "if-none-match", "if-none-match+gzip"};
+
+    private record Medicion(long respuestas200, long respuestas304, long bytesCuerpo, long bytesEncabezados,
+                            long sentencias, long duracionMs) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        valorPorDefecto("spring.datasource.url",
+                "jdbc:h2:mem:sondeo;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        valorPorDefecto("spring.datasource.driver-class-name", "org.h2.Driver");
+        valorPorDefecto("spring.datasource.username", "sa");
+        valorPorDefecto("spring.datasource.password", "");
+        valorPorDefecto("spring.jpa.hibernate.ddl-auto", "create");
+        valorPorDefecto("server.port", "0");
+        valorPorDefecto("banco.sentencias.encabezado", "true");
+        valorPorDefecto("logging.level.root", "WARN");
+        valorPorDefecto("logging.level.org.hibernate.SQL", "WARN");
+        valorPorDefecto("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+
+        ConfigurableApplicationContext contexto = SpringApplication.run(DemoApplication.class, args);
+        Environment entorno = contexto.getEnvironment();
+        int clientes = entorno.getProperty("carga.clientes", Integer.class, 200);
+        int cuentasPorCliente = entorno.getProperty("carga.cuentas-por-cliente", Integer.class, 5);
+        int rondas = entorno.getProperty("carga.rondas", Integer.class, 20);
+        double cambios = entorno.getProperty("carga.cambios", Double.class, 0.05);
+        Path reporte = Path.of(entorno.getProperty("carga.reporte", "target/sondeo-cuentas.json"));
+        String base = "http://localhost:" + entorno.getProperty("local.server.port");
+
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        sembrar(jdbc, clientes, cuentasPorCliente);
+        int cuentas = clientes * cuentasPorCliente;
+        System.out.printf("%d clientes, %d cuentas, %d rondas, %.0f %% de cuentas con deposito por ronda%n",
+                clientes, cuentas, rondas, cambios * 100);
+
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        ObjectNode resultado = objectMapper.createObjectNode();
+        resultado.put("clientes", clientes);
+        resultado.put("cuentas", cuentas);
+        resultado.put("rondas", rondas);
+        resultado.put("cambiosPorRonda", cambios);
+        ArrayNode modos = resultado.putArray("modos");
+        for (int modo = 0; modo < MODOS.length; modo++) {
+            Medicion medicion = sondear(http, base, modo, clientes, cuentasPorCliente, rondas, cambios);
+            ObjectNode fila = modos.addObject();
+            fila.put("modo", MODOS[modo]);
+            fila.put("respuestas200", medicion.respuestas200());
+            fila.put("respuestas304", medicion.respuestas304());
+            fila.put("bytesCuerpo", medicion.bytesCuerpo());
+            fila.put("bytesEncabezados", medicion.bytesEncabezados());
+            fila.put("sentencias", medicion.sentencias());
+            fila.put("duracionMs", medicion.duracionMs());
+            System.out.printf("%-20s 200=%d 304=%d cuerpo=%d B encabezados=%d B sentencias=%d %d ms%n", MODOS[modo],
+                    medicion.respuestas200(), medicion.respuestas304(), medicion.bytesCuerpo(),
+                    medicion.bytesEncabezados(), medicion.sentencias(), medicion.duracionMs());
+        }
+        contexto.close();
+
+        Files.createDirectories(reporte.toAbsolutePath().getParent());
+        objectMapper.writeValue(reporte.toFile(), resultado);
+        System.out.println(objectMapper.writeValueAsString(resultado));
+        System.out.printf("Reporte en %s%n", reporte);
+        System.exit(0);
+    }
+
+    private static Medicion sondear(HttpClient http, String base, int modo, int clientes, int cuentasPorCliente,
+                                    int rondas, double cambios) throws Exception {
+        boolean condicional = modo > 0;
+        boolean gzip = modo > 1;
+        // la misma secuencia de depositos en cada modo
+        Random azar = new Random(42);
+        Map<String, String> etags = new HashMap<>();
+        long respuestas200 = 0, respuestas304 = 0, bytesCuerpo = 0, bytesEncabezados = 0, sentencias = 0;
+        int cuentas = clientes * cuentasPorCliente;
+        long inicio = System.nanoTime();
+        for (int ronda = 0; ronda < rondas; ronda++) {
+            if (ronda > 0) {
+                for (int cuenta = 1; cuenta <= cuentas; cuenta++) {
+                    if (azar.nextDouble() < cambios) {
+                        depositar(http, base, cuenta);
+                    }
+                }
+            }
+            List<String> rutas = new ArrayList<>(cuentas + clientes);
+            for (int cuenta = 1; cuenta <= cuentas; cuenta++) {
+                rutas.add("/api/productos/" + cuenta);
+            }
+            for (int cliente = 1; cliente <= clientes; cliente++) {
+                rutas.add("/api/clientes/" + cliente);
+            }
+            for (String ruta : rutas) {
+                HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create(base + ruta));
+                if (condicional && etags.containsKey(ruta)) {
+                    peticion.header("If-None-Match", etags.get(ruta));
+                }
+                if (gzip) {
+                    peticion.header("Accept-Encoding", "gzip");
+                }
+                HttpResponse<byte[]> respuesta = http.send(peticion.build(), HttpResponse.BodyHandlers.ofByteArray());
+                if (respuesta.statusCode() == 304) {
+                    respuestas304++;
+                } else if (respuesta.statusCode() == 200) {
+                    respuestas200++;
+                } else {
+                    throw new IllegalStateException(ruta + " respondio " + respuesta.statusCode());
+                }
+                respuesta.headers().firstValue("ETag").ifPresent(etag -> etags.put(ruta, etag));
+                bytesCuerpo += respuesta.body().length;
+                // "Nombre: valor\r\n" por encabezado, mas la linea de estado
+                bytesEncabezados += 17 + respuesta.headers().map().entrySet().stream()
+                        .mapToLong(e -> e.getValue().stream().mapToLong(v -> e.getKey().length() + v.length() + 4).sum())
+                        .sum();
+                sentencias += Long.parseLong(
+                        respuesta.headers().firstValue(ConteoSentenciasFilter.ENCABEZADO).orElse("0"));
+            }
+        }
+        return new Medicion(respuestas200, respuestas304, bytesCuerpo, bytesEncabezados, sentencias,
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private static void depositar(HttpClient http, String base, int cuenta) throws Exception {
+        HttpResponse<String> respuesta = http.send(HttpRequest.newBuilder(URI.create(base + "/api/transaccion/depositar"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"cuentaDestinoId\":" + cuenta + ",\"monto\":1}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (respuesta.statusCode() != 200) {
+            throw new IllegalStateException("El deposito en " + cuenta + " respondio " + respuesta.statusCode());
+        }
+    }
+
+    // ids fijos desde 1; clientes y cuentas quedan con la version por defecto de la columna
+    private static void sembrar(JdbcTemplate jdbc, int clientes, int cuentasPorCliente) {
+        List<Object[]> filasClientes = new ArrayList<>(clientes);
+        List<Object[]> filasCuentas = new ArrayList<>(clientes * cuentasPorCliente);
+        int cuenta = 0;
+        for (int cliente = 1; cliente <= clientes; cliente++) {
+            filasClientes.add(new Object[]{cliente, "CC", String.valueOf(1_000_000 + cliente), "Cliente " + cliente,
+                    "Sondeo", 34, "cliente" + cliente + "@example.com"});
+            for (int i = 0; i < cuentasPorCliente; i++) {
+                cuenta++;
+                filasCuentas.add(new Object[]{cuenta, cliente, "cuenta de ahorros",
+                        String.valueOf(5_300_000_000L + cuenta), "activa", new BigDecimal("1000.00"), false});
+            }
+        }
+        jdbc.batchUpdate("insert into clientes (id, tipo_identificacion, numero_identificacion, nombres, apellidos, "
+                + "edad, correo_electronico) values (?, ?, ?, ?, ?, ?, ?)", filasClientes);
+        jdbc.batchUpdate("insert into productos (id, cliente_id, tipo_cuenta, numero_cuenta, estado, saldo, "
+                + "exenta_gmf) values (?, ?, ?, ?, ?, ?, ?)", filasCuentas);
+    }
+
+    private static void valorPorDefecto(String propiedad, String valor) {
+        if (System.getProperty(propiedad) == null) {
+            System.setProperty(propiedad, valor);
+        }
+    }
+}
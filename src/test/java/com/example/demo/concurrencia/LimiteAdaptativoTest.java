@@ -0,0 +1,125 @@
+package com.example.demo.concurrencia;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LimiteAdaptativoTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private long ahora;
+    // sin suavizado y con reloj manual: cada llamada a ventana() cierra exactamente una ventana
+    private final LimiteAdaptativo limite = new LimiteAdaptativo(10, 2, 50, 2.0, 1.0, 1, 100 * MS, () -> ahora);
+
+    @Test
+    void testRechazaPorEncimaDelLimite() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limite.intentarAdquirir());
+        }
+        assertFalse(limite.intentarAdquirir());
+        assertEquals(10, limite.getEnCurso());
+        assertEquals(1, limite.getRechazos());
+
+        limite.liberar(MS, false);
+        assertTrue(limite.intentarAdquirir());
+    }
+
+    @Test
+    void testCreceConLatenciaEstableYCarga() {
+        ventana(10, 10 * MS);
+        int anterior = limite.getLimite();
+        ventana(anterior, 10 * MS);
+
+        assertTrue(limite.getLimite() > anterior, "limite " + limite.getLimite());
+    }
+
+    @Test
+    void testBajaCuandoLaLatenciaSeDisparaYLuegoSeRecupera() {
+        for (int i = 0; i < 5; i++) {
+            ventana(limite.getLimite(), 10 * MS);
+        }
+        int antes = limite.getLimite();
+
+        for (int i = 0; i < 5; i++) {
+            ventana(limite.getLimite(), 200 * MS);
+        }
+        int saturado = limite.getLimite();
+        assertTrue(saturado < antes, antes + " -> " + saturado);
+
+        for (int i = 0; i < 5; i++) {
+            ventana(limite.getLimite(), 10 * MS);
+        }
+        assertTrue(limite.getLimite() > saturado);
+    }
+
+    @Test
+    void testNoCreceSiNoSeUsaLaMitad() {
+        ventana(2, 10 * MS);
+        ventana(2, 10 * MS);
+
+        assertEquals(10, limite.getLimite());
+    }
+
+    @Test
+    void testUnDescarteReduceElLimiteSinBajarDelMinimo() {
+        limite.intentarAdquirir();
+        limite.liberar(MS, true);
+        assertEquals(9, limite.getLimite());
+
+        for (int i = 0; i < 50; i++) {
+            limite.intentarAdquirir();
+            limite.liberar(MS, true);
+        }
+        assertEquals(2, limite.getLimite());
+    }
+
+    @Test
+    void testFiltroResponde503ConRetryAfter() throws Exception {
+        LimiteConcurrenciaFilter filtro = new LimiteConcurrenciaFilter(limite, List.of("/api/transaccion/**"), 2);
+        for (int i = 0; i < 10; i++) {
+            limite.intentarAdquirir();
+        }
+
+        MockHttpServletResponse rechazada = new MockHttpServletResponse();
+        MockFilterChain cadena = new MockFilterChain();
+        filtro.doFilter(new MockHttpServletRequest("POST", "/api/transaccion/realizar"), rechazada, cadena);
+
+        assertEquals(503, rechazada.getStatus());
+        assertEquals("2", rechazada.getHeader("Retry-After"));
+        assertNull(cadena.getRequest());
+
+        MockHttpServletResponse libre = new MockHttpServletResponse();
+        filtro.doFilter(new MockHttpServletRequest("POST", "/api/clientes"), libre, new MockFilterChain());
+        assertEquals(200, libre.getStatus());
+    }
+
+    @Test
+    void testFiltroLiberaAlTerminar() throws Exception {
+        LimiteConcurrenciaFilter filtro = new LimiteConcurrenciaFilter(limite, List.of("/api/productos/**"), 1);
+
+        filtro.doFilter(new MockHttpServletRequest("GET", "/api/productos/1"), new MockHttpServletResponse(),
+                new MockFilterChain());
+
+        assertEquals(0, limite.getEnCurso());
+        assertEquals(0, limite.getRechazos());
+    }
+
+    // n peticiones simultaneas (las que quepan) que tardan lo mismo; la ultima cierra la ventana
+    private void ventana(int simultaneas, long latencia) {
+        int adquiridas = 0;
+        while (adquiridas < simultaneas && limite.intentarAdquirir()) {
+            adquiridas++;
+        }
+        for (int i = 1; i < adquiridas; i++) {
+            limite.liberar(latencia, false);
+        }
+        ahora += 100 * MS;
+        limite.liberar(latencia, false);
+    }
+}
@@ -5,6 +5,11 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ClienteDTO;
+import com.example.demo.dto.FilaRechazadaDTO;
+import com.example.demo.dto.ResultadoImportacionDTO;
+import com.example.demo.dto.ResumenClienteDTO;
 import com.example.demo.entities.Clientes;
 import com.example.demo.services.ClientesService;
 import org.junit.jupiter.api.Test;
@@ -14,6 +19,11 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
 @WebMvcTest(ClientesController.class)
 public class ClientesControllerTest {
 
@@ -67,18 +77,58 @@ public class ClientesControllerTest {
     @Test
     void testGetClienteById() throws Exception {
         Long clienteId = 1L;
-        Clientes cliente = new Clientes();
+        ClienteDTO cliente = new ClienteDTO(clienteId, "CC", "123", "Juan", "Perez", 34, "juan@example.com",
+                LocalDate.of(1990, 1, 1), null, null, List.of(), 0L);
         when(service.getClienteById(clienteId)).thenReturn(cliente);
 
         mockMvc.perform(get("/api/clientes/{id}", clienteId))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.id").value(cliente.getId()))
+                .andExpect(jsonPath("$.id").value(clienteId))
+                .andExpect(jsonPath("$.nombres").value("Juan"))
+                .andExpect(jsonPath("$.productos").isArray())
         ;
 
         verify(service, times(1)).getClienteById(clienteId);
     }
 
+    @Test
+    void testGetClienteByIdSinCambiosNoLeeElCliente() throws Exception {
+        when(service.getHuellaCliente(1L)).thenReturn(Optional.of("abc"));
+
+        mockMvc.perform(get("/api/clientes/{id}", 1L).header("If-None-Match", "W/\"abc\""))
+                .andExpect(status().isNotModified());
+
+        verify(service, never()).getClienteById(1L);
+    }
+
+    @Test
+    void testGetResumenCliente() throws Exception {
+        when(service.getResumenCliente(1L)).thenReturn(new ResumenClienteDTO(1L, "CC", "123", "Juan", "Perez", 2,
+                Money.parse("150.50")));
+
+        mockMvc.perform(get("/api/clientes/{id}/resumen", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cuentas").value(2))
+                .andExpect(jsonPath("$.saldoTotal").value(150.50));
+    }
+
+    @Test
+    void testImportarClientesDesdeCsv() throws Exception {
+        when(service.importarClientes(any(InputStream.class))).thenReturn(new ResultadoImportacionDTO(2, 1, 1, 5,
+                List.of(new FilaRechazadaDTO(3, "El correo electrónico no es válido.")), false));
+
+        mockMvc.perform(post("/api/clientes/importacion")
+                        .contentType("text/csv")
+                        .content("tipoIdentificacion,numeroIdentificacion,nombres,apellidos,correoElectronico,fechaNacimiento\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.importadas").value(1))
+                .andExpect(jsonPath("$.rechazos[0].linea").value(3))
+                .andExpect(jsonPath("$.rechazos[0].motivo").value("El correo electrónico no es válido."));
+
+        verify(service, times(1)).importarClientes(any(InputStream.class));
+    }
+
 
 }
 
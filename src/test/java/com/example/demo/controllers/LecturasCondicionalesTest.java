@@ -0,0 +1,183 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.metricas.ConteoSentenciasFilter;
+import com.example.demo.repository.ClientesRepository;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.services.ProcesoPorParticiones;
+import com.example.demo.services.TransaccionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ETags e If-None-Match de las lecturas de cuentas y clientes, y gzip de Tomcat. Va por HTTP contra el servidor
+ * embebido porque MockMvc no pasa por la compresion del conector.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "banco.sentencias.encabezado=true")
+public class LecturasCondicionalesTest {
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private ClientesRepository clientesRepository;
+
+    @Autowired
+    private ProductosRepository productosRepository;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private ProcesoPorParticiones procesoPorParticiones;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long clienteId;
+    private Long cuentaId;
+    private Long otraCuentaId;
+
+    @BeforeEach
+    void setUp() {
+        clienteId = clientesRepository.save(cliente()).getId();
+        cuentaId = productosRepository.save(producto(clienteId, "1000.00")).getId();
+        otraCuentaId = productosRepository.save(producto(clienteId, "1000.00")).getId();
+    }
+
+    @Test
+    void testCuentaSinCambiosResponde304ConSoloLaVersion() throws Exception {
+        HttpResponse<String> primera = get("/api/productos/" + cuentaId, Map.of());
+        String etag = primera.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> condicional = get("/api/productos/" + cuentaId, Map.of("If-None-Match", etag));
+
+        assertEquals(200, primera.statusCode());
+        assertFalse(etag.startsWith("W/"));
+        assertEquals(304, condicional.statusCode());
+        assertEquals("", condicional.body());
+        assertEquals(etag, condicional.headers().firstValue("ETag").orElseThrow());
+        assertEquals("1", condicional.headers().firstValue(ConteoSentenciasFilter.ENCABEZADO).orElseThrow());
+    }
+
+    @Test
+    void testCadaEscrituraDelSaldoCambiaElEtag() throws Exception {
+        String etag = etagCuenta();
+
+        transaccionService.realizarTransaccion(cuentaId, otraCuentaId, Money.parse("1.00"));
+        String trasTransferencia = assertCambio(etag);
+
+        // escritura diferida del motor ledger
+        transactionTemplate.executeWithoutResult(estado ->
+                productosRepository.actualizarSaldo(cuentaId, Money.parse("500.00")));
+        String trasActualizarSaldo = assertCambio(trasTransferencia);
+
+        // procesos por particiones (GMF, intereses)
+        transactionTemplate.executeWithoutResult(estado ->
+                procesoPorParticiones.aplicarMovimientos("INTERES", Map.of(cuentaId, 10L)));
+        assertCambio(trasActualizarSaldo);
+    }
+
+    @Test
+    void testClienteCambiaConSusCuentas() throws Exception {
+        HttpResponse<String> primera = get("/api/clientes/" + clienteId, Map.of());
+        String etag = primera.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> condicional = get("/api/clientes/" + clienteId, Map.of("If-None-Match", etag));
+        transaccionService.realizarTransaccion(otraCuentaId, cuentaId, Money.parse("1.00"));
+        HttpResponse<String> trasTransferencia = get("/api/clientes/" + clienteId, Map.of("If-None-Match", etag));
+
+        assertTrue(etag.startsWith("W/"));
+        assertEquals(304, condicional.statusCode());
+        assertEquals("1", condicional.headers().firstValue(ConteoSentenciasFilter.ENCABEZADO).orElseThrow());
+        assertEquals(200, trasTransferencia.statusCode());
+        assertNotEquals(etag, trasTransferencia.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    void testInsercionPorJdbcEmpiezaEnVersionCero() {
+        jdbcTemplate.update("insert into clientes (nombres, apellidos) values ('Ana', 'Gomez')");
+
+        assertEquals(0, jdbcTemplate.queryForObject("select max(version) from clientes where nombres = 'Ana'",
+                Integer.class));
+    }
+
+    @Test
+    void testClienteConMuchasCuentasVaComprimido() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            productosRepository.save(producto(clienteId, "1.00"));
+        }
+
+        HttpResponse<byte[]> respuesta = http.send(HttpRequest.newBuilder(uri("/api/clientes/" + clienteId))
+                .header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<String> sinComprimir = get("/api/clientes/" + clienteId, Map.of());
+
+        assertEquals("gzip", respuesta.headers().firstValue("Content-Encoding").orElseThrow());
+        assertTrue(respuesta.headers().firstValue("ETag").orElseThrow().startsWith("W/"));
+        assertTrue(respuesta.body().length < sinComprimir.body().length() / 2);
+    }
+
+    private String etagCuenta() throws Exception {
+        return get("/api/productos/" + cuentaId, Map.of()).headers().firstValue("ETag").orElseThrow();
+    }
+
+    private String assertCambio(String etagAnterior) throws Exception {
+        HttpResponse<String> respuesta = get("/api/productos/" + cuentaId, Map.of("If-None-Match", etagAnterior));
+        assertEquals(200, respuesta.statusCode());
+        // el de la consulta de version no se suma al del cuerpo
+        assertEquals(1, respuesta.headers().allValues("ETag").size());
+        String etag = respuesta.headers().firstValue("ETag").orElseThrow();
+        assertNotEquals(etagAnterior, etag);
+        return etag;
+    }
+
+    private HttpResponse<String> get(String ruta, Map<String, String> encabezados) throws Exception {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(uri(ruta));
+        encabezados.forEach(peticion::header);
+        return http.send(peticion.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String ruta) {
+        return URI.create("http://localhost:" + puerto + ruta);
+    }
+
+    private static Clientes cliente() {
+        Clientes cliente = new Clientes();
+        cliente.setNumeroIdentificacion("3" + System.nanoTime());
+        cliente.setNombres("Juan");
+        cliente.setApellidos("Perez");
+        cliente.setCorreoElectronico("juan@example.com");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        return cliente;
+    }
+
+    private Productos producto(Long clienteId, String saldo) {
+        Productos producto = new Productos();
+        producto.setCliente(clientesRepository.getReferenceById(clienteId));
+        producto.setTipoCuenta("cuenta de ahorros");
+        producto.setEstado("activa");
+        producto.setSaldo(Money.parse(saldo));
+        return producto;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.repository.ClientesRepository;
+import com.example.demo.repository.ProductosRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Transacciones y lecturas de cuentas en application/cbor, con JSON como representacion por defecto.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class NegociacionCborTest {
+    private final ObjectMapper cbor = Jackson2ObjectMapperBuilder.cbor().build();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ClientesRepository clientesRepository;
+
+    @Autowired
+    private ProductosRepository productosRepository;
+
+    private Long cuentaId;
+
+    @BeforeEach
+    void setUp() {
+        Clientes cliente = new Clientes();
+        cliente.setNombres("Juan");
+        cliente.setApellidos("Perez");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        cliente = clientesRepository.save(cliente);
+
+        Productos producto = new Productos();
+        producto.setCliente(cliente);
+        producto.setTipoCuenta("cuenta de ahorros");
+        producto.setEstado("activa");
+        producto.setSaldo(Money.parse("100.00"));
+        cuentaId = productosRepository.save(producto).getId();
+    }
+
+    @Test
+    void testDepositoEnCbor() throws Exception {
+        MockHttpServletResponse respuesta = mockMvc.perform(post("/api/transaccion/depositar")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cbor.writeValueAsBytes(Map.of("cuentaDestinoId", cuentaId, "monto", 0.1))))
+                .andReturn().getResponse();
+
+        assertEquals(200, respuesta.getStatus());
+        assertTrue(MediaType.APPLICATION_CBOR.isCompatibleWith(MediaType.parseMediaType(respuesta.getContentType())));
+        JsonNode cuerpo = cbor.readTree(respuesta.getContentAsByteArray());
+        assertTrue(cuerpo.get("monto").isBigDecimal());
+        assertEquals(0, new BigDecimal("0.10").compareTo(cuerpo.get("monto").decimalValue()));
+        assertEquals(Money.parse("100.10"), productosRepository.findById(cuentaId).orElseThrow().getSaldo());
+    }
+
+    @Test
+    void testJsonSigueSiendoElPorDefecto() throws Exception {
+        String deposito = "{\"cuentaDestinoId\":" + cuentaId + ",\"monto\":1}";
+
+        MockHttpServletResponse sinAccept = mockMvc.perform(post("/api/transaccion/depositar")
+                .contentType(MediaType.APPLICATION_JSON).content(deposito)).andReturn().getResponse();
+        MockHttpServletResponse comodin = mockMvc.perform(post("/api/transaccion/depositar")
+                .contentType(MediaType.APPLICATION_JSON).accept(MediaType.ALL).content(deposito))
+                .andReturn().getResponse();
+        MockHttpServletResponse lectura = mockMvc.perform(get("/api/productos/" + cuentaId)
+                .accept(MediaType.ALL)).andReturn().getResponse();
+
+        assertTrue(sinAccept.getContentType().startsWith(MediaType.APPLICATION_JSON_VALUE));
+        assertTrue(comodin.getContentType().startsWith(MediaType.APPLICATION_JSON_VALUE));
+        assertTrue(lectura.getContentType().startsWith(MediaType.APPLICATION_JSON_VALUE));
+        assertFalse(lectura.getHeader("ETag").contains("-cbor"));
+    }
+
+    @Test
+    void testCuentaEnCborTieneSuPropioEtag() throws Exception {
+        MockHttpServletResponse json = mockMvc.perform(get("/api/productos/" + cuentaId)
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+        MockHttpServletResponse enCbor = mockMvc.perform(get("/api/productos/" + cuentaId)
+                .accept(MediaType.APPLICATION_CBOR)).andReturn().getResponse();
+        // el ETag de JSON no valida la copia en CBOR, y al reves
+        MockHttpServletResponse cruzada = mockMvc.perform(get("/api/productos/" + cuentaId)
+                .accept(MediaType.APPLICATION_CBOR).header("If-None-Match", json.getHeader("ETag")))
+                .andReturn().getResponse();
+        MockHttpServletResponse condicional = mockMvc.perform(get("/api/productos/" + cuentaId)
+                .accept(MediaType.APPLICATION_CBOR).header("If-None-Match", enCbor.getHeader("ETag")))
+                .andReturn().getResponse();
+
+        assertTrue(enCbor.getHeader("ETag").endsWith("-cbor\""));
+        assertTrue(enCbor.getHeaders("Vary").contains("Accept"));
+        assertEquals(0, new BigDecimal("100.00").compareTo(
+                cbor.readTree(enCbor.getContentAsByteArray()).get("saldo").decimalValue()));
+        assertEquals(200, cruzada.getStatus());
+        assertEquals(304, condicional.getStatus());
+        assertEquals(1, condicional.getHeaders("ETag").size());
+        assertTrue(condicional.getHeaders("Vary").contains("Accept"));
+    }
+
+    @Test
+    void testRespuestaIdempotenteRepetidaEnCbor() throws Exception {
+        String clave = UUID.randomUUID().toString();
+        byte[] deposito = cbor.writeValueAsBytes(Map.of("cuentaDestinoId", cuentaId, "monto", new BigDecimal("2.50")));
+
+        MockHttpServletResponse primera = mockMvc.perform(post("/api/transaccion/depositar")
+                .header(TransaccionController.ENCABEZADO_IDEMPOTENCIA, clave)
+                .contentType(MediaType.APPLICATION_CBOR).accept(MediaType.APPLICATION_CBOR).content(deposito))
+                .andReturn().getResponse();
+        MockHttpServletResponse repetida = mockMvc.perform(post("/api/transaccion/depositar")
+                .header(TransaccionController.ENCABEZADO_IDEMPOTENCIA, clave)
+                .contentType(MediaType.APPLICATION_CBOR).accept(MediaType.APPLICATION_CBOR).content(deposito))
+                .andReturn().getResponse();
+
+        assertEquals("false", primera.getHeader(TransaccionController.ENCABEZADO_REPETIDA));
+        assertEquals("true", repetida.getHeader(TransaccionController.ENCABEZADO_REPETIDA));
+        assertTrue(MediaType.APPLICATION_CBOR.isCompatibleWith(MediaType.parseMediaType(repetida.getContentType())));
+        JsonNode original = cbor.readTree(primera.getContentAsByteArray());
+        JsonNode copia = cbor.readTree(repetida.getContentAsByteArray());
+        assertEquals(original.get("id"), copia.get("id"));
+        assertTrue(copia.get("monto").isBigDecimal());
+        assertEquals(0, new BigDecimal("2.50").compareTo(copia.get("monto").decimalValue()));
+        assertEquals(Money.parse("102.50"), productosRepository.findById(cuentaId).orElseThrow().getSaldo());
+    }
+}
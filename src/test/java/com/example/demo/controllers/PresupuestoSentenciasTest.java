@@ -0,0 +1,175 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.metricas.ConteoSentenciasFilter;
+import com.example.demo.repository.ClientesRepository;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.services.ProductosService;
+import com.example.demo.services.TransaccionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Presupuesto de sentencias SQL por endpoint, medido con la cache fria. Si un cambio lo supera, probablemente
+ * agrego una consulta por elemento (N+1) o una carga perezosa durante la serializacion.
+ */
+@SpringBootTest(properties = "banco.sentencias.encabezado=true")
+@AutoConfigureMockMvc
+public class PresupuestoSentenciasTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ClientesRepository clientesRepository;
+
+    @Autowired
+    private ProductosRepository productosRepository;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private ProductosService productosService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long clienteId;
+    private Long origenId;
+    private Long destinoId;
+
+    @BeforeEach
+    void setUp() {
+        clienteId = clientesRepository.save(cliente("1" + System.nanoTime())).getId();
+        origenId = productosRepository.save(producto(clienteId, "1000.00")).getId();
+        destinoId = productosRepository.save(producto(clienteId, "1000.00")).getId();
+        for (int i = 0; i < 5; i++) {
+            transaccionService.realizarTransaccion(origenId, destinoId, Money.parse("1.00"));
+        }
+        cacheManager.getCacheNames().forEach(nombre -> cacheManager.getCache(nombre).clear());
+    }
+
+    @Test
+    void testEndpointsDeClientes() throws Exception {
+        Long sinProductos = clientesRepository.save(cliente("2" + System.nanoTime())).getId();
+        String cuerpo = """
+                {"nombres":"Ana","apellidos":"Gomez","correoElectronico":"ana@example.com","fechaNacimiento":"1990-01-01"}""";
+
+        assertPresupuesto(1, post("/api/clientes").contentType(MediaType.APPLICATION_JSON).content(cuerpo));
+        assertPresupuesto(2, put("/api/clientes/{id}", clienteId).contentType(MediaType.APPLICATION_JSON).content(cuerpo));
+        assertPresupuesto(2, get("/api/clientes/{id}", clienteId));
+        // cantidad de cuentas y saldo total en la misma consulta que los datos del cliente
+        assertPresupuesto(1, get("/api/clientes/{id}/resumen", clienteId));
+        assertPresupuesto(3, delete("/api/clientes/{id}", sinProductos));
+    }
+
+    @Test
+    void testEndpointsDeProductos() throws Exception {
+        Long sinSaldo = productosRepository.save(producto(clienteId, "0.00")).getId();
+        String cuerpo = """
+                {"tipoCuenta":"cuenta de ahorros","saldo":500}""";
+        // la reserva de un bloque de numeros de cuenta (una vez cada banco.numero-cuenta.tamano-bloque) no entra
+        productosService.createProducto(clienteId, producto(clienteId, "1.00"));
+
+        assertPresupuesto(3, post("/api/crear/{clienteId}", clienteId).contentType(MediaType.APPLICATION_JSON).content(cuerpo));
+        assertPresupuesto(2, put("/api/productos/{id}", destinoId).contentType(MediaType.APPLICATION_JSON).content(cuerpo));
+        // metadatos, saldo y version en una consulta, con o sin cache
+        assertPresupuesto(1, get("/api/productos/{id}", origenId));
+        assertPresupuesto(1, get("/api/{id}/estado", destinoId));
+        assertPresupuesto(2, put("/api/productos/{id}/desactivar", origenId));
+        assertPresupuesto(2, put("/api/productos/{id}/activar", origenId));
+        assertPresupuesto(3, delete("/api/productos/{id}", sinSaldo));
+        assertPresupuesto(2, get("/api/productos/{id}/movimientos", origenId).param("limit", "3"));
+        // saldo actual, creditos y debitos por su propio indice, y el stream de movimientos
+        assertPresupuestoAsincrono(4, get("/api/productos/{id}/extracto", origenId));
+    }
+
+    @Test
+    void testEndpointsDeTransacciones() throws Exception {
+        String lote = """
+                [{"cuentaOrigenId":%d,"cuentaDestinoId":%d,"monto":1},
+                 {"cuentaOrigenId":%d,"monto":1},
+                 {"cuentaDestinoId":%d,"monto":1},
+                 {"cuentaOrigenId":%d,"cuentaDestinoId":%d,"monto":1}]"""
+                .formatted(origenId, destinoId, origenId, destinoId, destinoId, origenId);
+
+        assertPresupuesto(5, post("/api/transaccion/realizar").contentType(MediaType.APPLICATION_JSON)
+                .content(transaccion(origenId, destinoId)));
+        assertPresupuesto(4, post("/api/transaccion/retirar").contentType(MediaType.APPLICATION_JSON)
+                .content(transaccion(origenId, null)));
+        assertPresupuesto(4, post("/api/transaccion/depositar").contentType(MediaType.APPLICATION_JSON)
+                .content(transaccion(null, destinoId)));
+        assertPresupuesto(4, post("/api/transaccion/lote").contentType(MediaType.APPLICATION_JSON).content(lote));
+    }
+
+    @Test
+    void testConteoSePublicaComoMetrica() throws Exception {
+        assertPresupuesto(2, get("/api/productos/{id}", origenId));
+
+        assertTrue(meterRegistry.get(ConteoSentenciasFilter.METRICA)
+                .tags("method", "GET", "uri", "/api/productos/{id}").summary().count() >= 1);
+    }
+
+    private void assertPresupuesto(int presupuesto, RequestBuilder peticion) throws Exception {
+        MvcResult resultado = mockMvc.perform(peticion).andExpect(status().isOk()).andReturn();
+        verificar(presupuesto, resultado);
+    }
+
+    private void assertPresupuestoAsincrono(int presupuesto, RequestBuilder peticion) throws Exception {
+        MvcResult inicio = mockMvc.perform(peticion).andExpect(status().isOk()).andReturn();
+        inicio.getAsyncResult();
+        verificar(presupuesto, mockMvc.perform(asyncDispatch(inicio)).andExpect(status().isOk()).andReturn());
+    }
+
+    private void verificar(int presupuesto, MvcResult resultado) {
+        String encabezado = resultado.getResponse().getHeader(ConteoSentenciasFilter.ENCABEZADO);
+        int sentencias = Integer.parseInt(encabezado);
+        assertTrue(sentencias <= presupuesto, resultado.getRequest().getMethod() + " "
+                + resultado.getRequest().getRequestURI() + " ejecuto " + sentencias
+                + " sentencias; presupuesto " + presupuesto);
+    }
+
+    private static String transaccion(Long origen, Long destino) {
+        return "{\"cuentaOrigenId\":" + origen + ",\"cuentaDestinoId\":" + destino + ",\"monto\":1}";
+    }
+
+    private static Clientes cliente(String identificacion) {
+        Clientes cliente = new Clientes();
+        cliente.setNumeroIdentificacion(identificacion);
+        cliente.setNombres("Juan");
+        cliente.setApellidos("Perez");
+        cliente.setCorreoElectronico("juan@example.com");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        return cliente;
+    }
+
+    private Productos producto(Long clienteId, String saldo) {
+        Productos producto = new Productos();
+        producto.setCliente(clientesRepository.getReferenceById(clienteId));
+        producto.setTipoCuenta("cuenta de ahorros");
+        producto.setEstado("activa");
+        producto.setSaldo(Money.parse(saldo));
+        return producto;
+    }
+}
@@ -1,8 +1,14 @@
 package com.example.demo.controllers;
 
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.FormatoExtracto;
+import com.example.demo.dto.MovimientoDTO;
+import com.example.demo.dto.PaginaMovimientosDTO;
+import com.example.demo.dto.ProductoDTO;
 import com.example.demo.entities.Clientes;
 import com.example.demo.entities.Productos;
-import com.example.demo.repository.ClientesRepository;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.services.MovimientosService;
 import com.example.demo.services.ProductosService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,11 +17,21 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
-import java.math.BigDecimal;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -30,7 +46,7 @@ public class ProductosControllerTest {
     private ProductosService productosService;
 
     @MockBean
-    private ClientesRepository clientesRepository;
+    private MovimientosService movimientosService;
 
     private Clientes cliente;
     private Productos producto;
@@ -46,12 +62,11 @@ public class ProductosControllerTest {
         producto.setId(1L);
         producto.setCliente(cliente);
         producto.setTipoCuenta("cuenta de ahorros");
-        producto.setSaldo(new BigDecimal("1000"));
+        producto.setSaldo(Money.parse("1000"));
     }
 
     @Test
     void testCreateProducto() throws Exception {
-        when(clientesRepository.findById(cliente.getId())).thenReturn(Optional.of(cliente));
         when(productosService.createProducto(any(Long.class), any(Productos.class))).thenReturn(producto);
 
         mockMvc.perform(post("/api/crear/{clienteId}", cliente.getId())
@@ -60,7 +75,7 @@ public class ProductosControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(producto.getId()))
                 .andExpect(jsonPath("$.tipoCuenta").value(producto.getTipoCuenta()))
-                .andExpect(jsonPath("$.saldo").value(producto.getSaldo()));
+                .andExpect(jsonPath("$.saldo").value(producto.getSaldo().doubleValue()));
     }
 
     @Test
@@ -82,12 +97,45 @@ public class ProductosControllerTest {
 
     @Test
     void testGetProductoById() throws Exception {
-        when(productosService.getProductoById(producto.getId())).thenReturn(producto);
+        when(productosService.getProductoById(producto.getId())).thenReturn(new ProductoDTO(producto.getId(),
+                producto.getTipoCuenta(), "5300000001", "activa", producto.getSaldo(), false, null, null));
 
         mockMvc.perform(get("/api/productos/{id}", producto.getId()))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(producto.getId()))
-                .andExpect(jsonPath("$.tipoCuenta").value(producto.getTipoCuenta()));
+                .andExpect(jsonPath("$.tipoCuenta").value(producto.getTipoCuenta()))
+                .andExpect(jsonPath("$.saldo").value(1000));
+    }
+
+    @Test
+    void testGetProductoByIdConEtag() throws Exception {
+        when(productosService.getProductoById(producto.getId())).thenReturn(new ProductoDTO(producto.getId(),
+                producto.getTipoCuenta(), "5300000001", "activa", producto.getSaldo(), false, null, null, 4L));
+
+        mockMvc.perform(get("/api/productos/{id}", producto.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    void testGetProductoByIdSinCambiosNoLeeLaCuenta() throws Exception {
+        when(productosService.getVersionProducto(producto.getId())).thenReturn(Optional.of(4L));
+
+        mockMvc.perform(get("/api/productos/{id}", producto.getId()).header("If-None-Match", "\"4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(productosService, never()).getProductoById(producto.getId());
+    }
+
+    @Test
+    void testGetProductoByIdInexistenteResponde404() throws Exception {
+        when(productosService.getProductoById(99L))
+                .thenThrow(new ResourceNotFoundException("Producto no encontrado con id: 99"));
+
+        mockMvc.perform(get("/api/productos/{id}", 99L))
+                .andExpect(status().isNotFound());
     }
 
     @Test
@@ -119,4 +167,39 @@ public class ProductosControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string(estado));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetMovimientos() throws Exception {
+        MovimientoDTO movimiento = new MovimientoDTO(5L, "DEPOSITO", Money.parse("100"),
+                LocalDateTime.of(2024, 5, 1, 10, 0), null, producto.getId());
+        when(movimientosService.consultarMovimientos(producto.getId(), "abc", 20))
+                .thenReturn(new PaginaMovimientosDTO(List.of(movimiento), "def"));
+
+        mockMvc.perform(get("/api/productos/{id}/movimientos", producto.getId())
+                        .param("after", "abc")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.movimientos[0].id").value(5))
+                .andExpect(jsonPath("$.movimientos[0].cuentaDestinoId").value(producto.getId()))
+                .andExpect(jsonPath("$.siguienteCursor").value("def"));
+    }
+
+    @Test
+    void testExportarExtracto() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream salida = invocation.getArgument(4);
+            salida.write("id,saldo\n1,100\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(movimientosService).exportarExtracto(eq(producto.getId()), isNull(), isNull(),
+                eq(FormatoExtracto.CSV), any(OutputStream.class));
+
+        MvcResult resultado = mockMvc.perform(get("/api/productos/{id}/extracto", producto.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(content().string("id,saldo\n1,100\n"));
+    }
+}
@@ -1,9 +1,93 @@
 package com.example.demo.controllers;
 
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ResultadoLoteDTO;
+import com.example.demo.exceptions.InsufficientBalanceException;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.services.EjecutorIdempotente;
+import com.example.demo.services.TransaccionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(TransaccionController.class)
 public class TransaccionControllerTest {
 
+    @Autowired
+    private MockMvc mockMvc;
 
-}
+    @MockBean
+    private TransaccionService transaccionService;
+
+    @MockBean
+    private EjecutorIdempotente ejecutorIdempotente;
+
+    @Test
+    void testRealizarLote() throws Exception {
+        when(transaccionService.realizarLote(anyList())).thenReturn(List.of(
+                new ResultadoLoteDTO(0, true, 10L, "TRANSFERENCIA", null),
+                ResultadoLoteDTO.fallida(1, "Saldo insuficiente para realizar el retiro.")));
+
+        mockMvc.perform(post("/api/transaccion/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"cuentaOrigenId\":1,\"cuentaDestinoId\":2,\"monto\":10},"
+                                + "{\"cuentaOrigenId\":2,\"monto\":5000}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].exitosa").value(true))
+                .andExpect(jsonPath("$[0].transaccionId").value(10))
+                .andExpect(jsonPath("$[1].exitosa").value(false))
+                .andExpect(jsonPath("$[1].mensaje").value("Saldo insuficiente para realizar el retiro."));
+    }
+
+    @Test
+    void testSaldoInsuficienteResponde400() throws Exception {
+        when(transaccionService.realizarRetiro(1L, Money.parse("5000")))
+                .thenThrow(new InsufficientBalanceException("Saldo insuficiente para realizar el retiro."));
 
+        mockMvc.perform(post("/api/transaccion/retirar")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cuentaOrigenId\":1,\"monto\":5000}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testCuentaInexistenteResponde404() throws Exception {
+        when(transaccionService.realizarTransaccion(1L, 99L, Money.parse("10")))
+                .thenThrow(new ResourceNotFoundException("Cuenta destino no encontrada con id: 99"));
+
+        mockMvc.perform(post("/api/transaccion/realizar")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cuentaOrigenId\":1,\"cuentaDestinoId\":99,\"monto\":10}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testConIdempotencyKeyDevuelveLaRespuestaDelEjecutor() throws Exception {
+        String huella = EjecutorIdempotente.huella("realizar", 1L, 2L, Money.parse("10"));
+        when(ejecutorIdempotente.ejecutar(eq("abc-123"), eq(huella), eq(1L), any())).thenReturn(
+                new EjecutorIdempotente.Respuesta("{\"id\":7,\"tipo\":\"TRANSFERENCIA\"}".getBytes(), true));
+
+        mockMvc.perform(post("/api/transaccion/realizar")
+                        .header(TransaccionController.ENCABEZADO_IDEMPOTENCIA, "abc-123")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cuentaOrigenId\":1,\"cuentaDestinoId\":2,\"monto\":10.00}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(TransaccionController.ENCABEZADO_REPETIDA, "true"))
+                .andExpect(jsonPath("$.id").value(7))
+                .andExpect(jsonPath("$.tipo").value("TRANSFERENCIA"));
+        verifyNoInteractions(transaccionService);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.demo.datasource;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.repository.ClientesRepository;
+import com.example.demo.repository.ProductosRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Dos H2 en memoria hacen de primaria y replica. La "replicacion" es una copia del script de la primaria; despues
+ * se cambia el saldo en la replica para saber de cual base salio cada lectura.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primaria-lecturas;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "banco.datasource.replicas.habilitado=true",
+        "banco.datasource.replicas.urls=" + EnrutamientoLecturasTest.REPLICA + ";IFEXISTS=TRUE",
+        "banco.datasource.replicas.espera-conexion=250ms",
+        "banco.datasource.replicas.intervalo-verificacion=50ms",
+        "banco.datasource.replicas.ventana-lectura-propia=500ms"
+})
+@AutoConfigureMockMvc
+public class EnrutamientoLecturasTest {
+    static final String REPLICA = "jdbc:h2:mem:replica-lecturas;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    @TempDir
+    Path directorio;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ReplicasLectura replicas;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ProductosRepository productosRepository;
+
+    @Autowired
+    private ClientesRepository clientesRepository;
+
+    private Long clienteId;
+    private Long cuentaId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Clientes cliente = new Clientes();
+        cliente.setNombres("Juan");
+        cliente.setApellidos("Perez");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        clienteId = clientesRepository.save(cliente).getId();
+
+        Productos producto = new Productos();
+        producto.setCliente(clientesRepository.findById(clienteId).orElseThrow());
+        producto.setTipoCuenta("cuenta de ahorros");
+        producto.setEstado("activa");
+        producto.setSaldo(Money.parse("100.00"));
+        cuentaId = productosRepository.save(producto).getId();
+
+        replicar("1.00");
+    }
+
+    @Test
+    void testLecturasGetVanALaReplica() throws Exception {
+        mockMvc.perform(get("/api/productos/" + cuentaId).header(EnrutamientoLecturasFilter.ENCABEZADO_CLIENTE, "a"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.saldo").value(1.0));
+        mockMvc.perform(get("/api/clientes/" + clienteId).header(EnrutamientoLecturasFilter.ENCABEZADO_CLIENTE, "a"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.productos[0].saldo").value(1.0));
+
+        // fuera de una peticion GET se lee siempre de la primaria
+        assertEquals(Money.parse("100.00"), productosRepository.findSaldoById(cuentaId).orElseThrow());
+    }
+
+    @Test
+    void testClienteLeeSusEscriturasDuranteLaVentana() throws Exception {
+        mockMvc.perform(post("/api/transaccion/depositar")
+                        .header(EnrutamientoLecturasFilter.ENCABEZADO_CLIENTE, "a")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cuentaDestinoId\":" + cuentaId + ",\"monto\":5.00}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/productos/" + cuentaId).header(EnrutamientoLecturasFilter.ENCABEZADO_CLIENTE, "a"))
+                .andExpect(jsonPath("$.saldo").value(105.0));
+        mockMvc.perform(get("/api/productos/" + cuentaId).header(EnrutamientoLecturasFilter.ENCABEZADO_CLIENTE, "b"))
+                .andExpect(jsonPath("$.saldo").value(1.0));
+        assertEquals("1.00", saldoEnReplica());
+
+        Thread.sleep(700);
+        mockMvc.perform(get("/api/productos/" + cuentaId).header(EnrutamientoLecturasFilter.ENCABEZADO_CLIENTE, "a"))
+                .andExpect(jsonPath("$.saldo").value(1.0));
+    }
+
+    @Test
+    void testReplicaCaidaSaleDeLaRotacionYVuelveAlRecuperarse() throws Exception {
+        try (Connection replica = DriverManager.getConnection(REPLICA, "sa", "");
+             Statement sentencia = replica.createStatement()) {
+            sentencia.execute("SHUTDOWN");
+        }
+        esperar(() -> !replicas.sana(0));
+
+        mockMvc.perform(get("/api/productos/" + cuentaId).header(EnrutamientoLecturasFilter.ENCABEZADO_CLIENTE, "a"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.saldo").value(100.0));
+
+        replicar("7.00");
+        mockMvc.perform(get("/api/productos/" + cuentaId).header(EnrutamientoLecturasFilter.ENCABEZADO_CLIENTE, "a"))
+                .andExpect(jsonPath("$.saldo").value(7.0));
+    }
+
+    // copia la primaria en la replica, cambia el saldo de la cuenta en la replica y espera a que entre en rotacion
+    private void replicar(String saldoReplica) throws Exception {
+        Path script = directorio.resolve("primaria.sql");
+        new JdbcTemplate(dataSource).execute("SCRIPT TO '" + script + "'");
+        try (Connection replica = DriverManager.getConnection(REPLICA, "sa", "");
+             Statement sentencia = replica.createStatement()) {
+            sentencia.execute("DROP ALL OBJECTS");
+            sentencia.execute("RUNSCRIPT FROM '" + script + "'");
+            try (PreparedStatement actualizar = replica.prepareStatement("update productos set saldo = ? where id = ?")) {
+                actualizar.setBigDecimal(1, Money.parse(saldoReplica).toBigDecimal());
+                actualizar.setLong(2, cuentaId);
+                actualizar.executeUpdate();
+            }
+        }
+        esperar(() -> replicas.sana(0));
+    }
+
+    private String saldoEnReplica() throws SQLException {
+        try (Connection replica = DriverManager.getConnection(REPLICA, "sa", "");
+             PreparedStatement consulta = replica.prepareStatement("select saldo from productos where id = ?")) {
+            consulta.setLong(1, cuentaId);
+            var filas = consulta.executeQuery();
+            filas.next();
+            return filas.getBigDecimal(1).toPlainString();
+        }
+    }
+
+    private static void esperar(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5000;
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < limite, "la condicion no se cumplio a tiempo");
+            Thread.sleep(20);
+        }
+    }
+}
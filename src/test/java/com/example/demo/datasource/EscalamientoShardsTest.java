@@ -0,0 +1,130 @@
+package com.example.demo.datasource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Escrituras por segundo con 1, 2 y 4 shards detras de {@link EnrutadorShards}. Cada shard es una H2 con una
+ * capacidad fija, como un servidor de base de datos: pocas conexiones ({@link LimitadorConexiones}) y latencia por
+ * sentencia. Con la carga repartida entre cuentas de todos los shards, el rendimiento debe crecer casi en proporcion
+ * al numero de shards. La latencia es espera, no CPU, asi que la prueba mide lo mismo en una maquina de un nucleo.
+ */
+public class EscalamientoShardsTest {
+    private static final int CONEXIONES_POR_SHARD = 2;
+    private static final long LATENCIA_MS = 5;
+    private static final int CUENTAS_POR_SHARD = 50;
+    private static final int HILOS = 16;
+    private static final Duration MEDICION = Duration.ofMillis(1500);
+
+    @Test
+    void testLasEscriturasEscalanConLosShards() throws Exception {
+        double uno = escriturasPorSegundo(1);
+        double dos = escriturasPorSegundo(2);
+        double cuatro = escriturasPorSegundo(4);
+
+        String resumen = String.format("1 shard: %.0f/s, 2: %.0f/s, 4: %.0f/s", uno, dos, cuatro);
+        assertTrue(dos >= 1.6 * uno, resumen);
+        assertTrue(cuatro >= 3.0 * uno, resumen);
+    }
+
+    private double escriturasPorSegundo(int cantidadShards) throws Exception {
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < cantidadShards; i++) {
+            String url = "jdbc:h2:mem:escalamiento-" + cantidadShards + "-" + i + ";DB_CLOSE_DELAY=-1";
+            DataSource base = new DriverManagerDataSource(url, "sa", "");
+            crearEsquema(new JdbcTemplate(base), i);
+            shards.add(new LimitadorConexiones(conLatencia(base), CONEXIONES_POR_SHARD, Duration.ofSeconds(30)));
+        }
+        EnrutadorShards enrutador = new EnrutadorShards(shards.get(0), shards.subList(1, shards.size()));
+        JdbcTemplate jdbc = new JdbcTemplate(enrutador);
+        TransactionTemplate transaccion = new TransactionTemplate(new DataSourceTransactionManager(enrutador));
+
+        LongAdder escrituras = new LongAdder();
+        AtomicBoolean detener = new AtomicBoolean();
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        for (int h = 0; h < HILOS; h++) {
+            hilos.submit(() -> {
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                while (!detener.get()) {
+                    // una transferencia entre dos cuentas del mismo shard, como las de un mismo cliente
+                    int shard = azar.nextInt(cantidadShards);
+                    long origen = id(shard, azar.nextInt(CUENTAS_POR_SHARD));
+                    long destino = id(shard, azar.nextInt(CUENTAS_POR_SHARD));
+                    ContextoShard.enShard(shard, () -> transaccion.execute(estado -> {
+                        jdbc.update("update cuenta set saldo = saldo - 1 where id = ?", origen);
+                        jdbc.update("update cuenta set saldo = saldo + 1 where id = ?", destino);
+                        return jdbc.update("insert into movimiento (origen, destino, monto) values (?, ?, 1)",
+                                origen, destino);
+                    }));
+                    escrituras.increment();
+                }
+                return null;
+            });
+        }
+        Thread.sleep(200);
+        long inicio = System.nanoTime();
+        long antes = escrituras.sum();
+        Thread.sleep(MEDICION.toMillis());
+        long hechas = escrituras.sum() - antes;
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        detener.set(true);
+        hilos.shutdown();
+        assertTrue(hilos.awaitTermination(10, TimeUnit.SECONDS));
+        enrutador.close();
+        return hechas / segundos;
+    }
+
+    private static void crearEsquema(JdbcTemplate jdbc, int shard) {
+        jdbc.execute("create table cuenta (id bigint primary key, saldo decimal(19, 2) not null)");
+        jdbc.execute("create table movimiento (id bigint auto_increment primary key, origen bigint, destino bigint,"
+                + " monto decimal(19, 2))");
+        for (int i = 0; i < CUENTAS_POR_SHARD; i++) {
+            jdbc.update("insert into cuenta (id, saldo) values (?, 1000000)", id(shard, i));
+        }
+    }
+
+    private static long id(int shard, int cuenta) {
+        return ((long) shard << PreparadorShards.BITS_RANGO) + cuenta;
+    }
+
+    private static DataSource conLatencia(DataSource dataSource) {
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection conexion = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[]{Connection.class}, (proxy, metodo, argumentos) -> {
+                            if (metodo.getName().startsWith("prepare")) {
+                                Thread.sleep(LATENCIA_MS);
+                            }
+                            try {
+                                return metodo.invoke(conexion, argumentos);
+                            } catch (InvocationTargetException e) {
+                                throw e.getTargetException();
+                            }
+                        });
+            }
+        };
+    }
+}
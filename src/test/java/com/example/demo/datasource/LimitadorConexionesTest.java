@@ -0,0 +1,78 @@
+package com.example.demo.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LimitadorConexionesTest {
+
+    @Mock
+    private DataSource pool;
+
+    private LimitadorConexiones limitador;
+
+    @BeforeEach
+    void setUp() {
+        limitador = new LimitadorConexiones(pool, 2, Duration.ofMillis(50));
+    }
+
+    @Test
+    void testRechazaCuandoSeAgotanLosPermisos() throws SQLException {
+        when(pool.getConnection()).thenAnswer(invocacion -> mock(Connection.class));
+
+        Connection primera = limitador.getConnection();
+        limitador.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, limitador::getConnection);
+        primera.close();
+        assertNotNull(limitador.getConnection());
+    }
+
+    @Test
+    void testCerrarDosVecesDevuelveUnSoloPermiso() throws SQLException {
+        Connection conexion = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(conexion);
+
+        Connection prestada = limitador.getConnection();
+        prestada.close();
+        prestada.close();
+
+        assertEquals(2, limitador.getDisponibles());
+        verify(conexion, times(2)).close();
+    }
+
+    @Test
+    void testDevuelveElPermisoSiElPoolFalla() throws SQLException {
+        when(pool.getConnection()).thenThrow(new SQLException("pool agotado"));
+
+        assertThrows(SQLException.class, limitador::getConnection);
+        assertEquals(2, limitador.getDisponibles());
+    }
+
+    @Test
+    void testDelegaLasLlamadasALaConexionReal() throws SQLException {
+        Connection conexion = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(conexion);
+        when(conexion.getAutoCommit()).thenReturn(true);
+
+        Connection prestada = limitador.getConnection();
+
+        assertTrue(prestada.getAutoCommit());
+        assertEquals(1, limitador.getDisponibles());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo.dinero;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+
+    record Cuerpo(Money monto) {
+    }
+
+    @Test
+    void testParseAceptaLosFormatosDelApi() {
+        assertEquals(12345, Money.parse("123.45").getCentavos());
+        assertEquals(1000, Money.parse("10").getCentavos());
+        assertEquals(1050, Money.parse("10.5").getCentavos());
+        assertEquals(1000, Money.parse("10.000").getCentavos());
+        assertEquals(-5, Money.parse("-0.05").getCentavos());
+        assertEquals(50, Money.parse(".5").getCentavos());
+        assertEquals(150000, Money.parse("1.5E3").getCentavos());
+    }
+
+    @Test
+    void testRechazaMasDeDosDecimalesYTextoInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("1.005"));
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("0.001")));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("-"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("12a"));
+    }
+
+    @Test
+    void testRechazaDigitosQueNoSonAscii() {
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("\u0661\u0660"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("1.\u0665"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("1E\u0662"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("\uFF11\uFF10"));
+        assertThrows(InvalidFormatException.class,
+                () -> objectMapper.readValue("{\"monto\":\"\u0661\u0660\"}", Cuerpo.class));
+    }
+
+    @Test
+    void testDesbordamientoLanzaExcepcion() {
+        Money maximo = Money.deCentavos(Long.MAX_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> maximo.sumar(Money.deCentavos(1)));
+        assertThrows(ArithmeticException.class, () -> Money.deCentavos(Long.MIN_VALUE).negar());
+        assertThrows(ArithmeticException.class, () -> maximo.multiplicar(2));
+        assertThrows(ArithmeticException.class, () -> Money.parse("92233720368547758.08"));
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("92233720368547758.08")));
+    }
+
+    @Test
+    void testToStringSiempreConDosDecimales() {
+        assertEquals("1250.00", Money.parse("1250").toString());
+        assertEquals("-0.05", Money.deCentavos(-5).toString());
+        assertEquals("0.00", Money.ZERO.toString());
+        assertEquals("-92233720368547758.08", Money.deCentavos(Long.MIN_VALUE).toString());
+        assertEquals(new BigDecimal("-92233720368547758.08"), Money.deCentavos(Long.MIN_VALUE).toBigDecimal());
+    }
+
+    @Test
+    void testJsonConservaElFormatoNumerico() throws Exception {
+        assertEquals("{\"monto\":10.50}", objectMapper.writeValueAsString(new Cuerpo(Money.parse("10.5"))));
+        assertEquals(Money.parse("10.50"), objectMapper.readValue("{\"monto\":10.5}", Cuerpo.class).monto());
+        assertEquals(Money.parse("7"), objectMapper.readValue("{\"monto\":7}", Cuerpo.class).monto());
+        assertEquals(Money.parse("7.25"), objectMapper.readValue("{\"monto\":\"7.25\"}", Cuerpo.class).monto());
+        assertNull(objectMapper.readValue("{\"monto\":null}", Cuerpo.class).monto());
+        assertThrows(InvalidFormatException.class, () -> objectMapper.readValue("{\"monto\":0.001}", Cuerpo.class));
+    }
+
+    @Test
+    void testCborUsaFraccionDecimal() throws Exception {
+        byte[] cbor = cborMapper.writeValueAsBytes(new Cuerpo(Money.parse("10.5")));
+        JsonNode arbol = cborMapper.readTree(cbor);
+
+        assertTrue(arbol.get("monto").isBigDecimal());
+        assertEquals(0, new BigDecimal("10.50").compareTo(arbol.get("monto").decimalValue()));
+        assertEquals(Money.parse("10.50"), cborMapper.readValue(cbor, Cuerpo.class).monto());
+        // enteros, double y texto, como los pueden mandar otros clientes CBOR
+        assertEquals(Money.parse("7"), cbor(Map.of("monto", 7)).monto());
+        assertEquals(Money.parse("7.25"), cbor(Map.of("monto", 7.25)).monto());
+        assertEquals(Money.parse("7.25"), cbor(Map.of("monto", "7.25")).monto());
+        assertThrows(InvalidFormatException.class, () -> cbor(Map.of("monto", new BigDecimal("0.001"))));
+    }
+
+    @Test
+    void testConverterUsaLaMismaColumnaDecimal() {
+        MoneyConverter converter = new MoneyConverter();
+
+        assertEquals(new BigDecimal("99.90"), converter.convertToDatabaseColumn(Money.parse("99.9")));
+        assertEquals(Money.parse("99.90"), converter.convertToEntityAttribute(new BigDecimal("99.9000")));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+
+    private Cuerpo cbor(Map<String, Object> valores) throws Exception {
+        return cborMapper.readValue(cborMapper.writeValueAsBytes(valores), Cuerpo.class);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.demo.ledger;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.TransaccionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Caidas del ledger entre el debito y el credito de una transferencia entre shards. Con 4 shards la cuenta 1 va al
+ * shard 1 y las cuentas 2 y 6 al shard 2; cargar la cuenta 6 bloquea el shard 2 y deja el credito en su cola.
+ */
+public class LedgerEnMemoriaTest {
+
+    @TempDir
+    Path directorio;
+
+    @Mock
+    private ProductosRepository productosRepository;
+
+    @Mock
+    private TransaccionRepository transaccionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<Long, Money> saldosPersistidos = new ConcurrentHashMap<>();
+    private final List<Transaccion> guardadas = new CopyOnWriteArrayList<>();
+    private final CountDownLatch cargandoBloqueada = new CountDownLatch(1);
+    private final CountDownLatch desbloquear = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        for (long id : new long[]{1, 2, 6}) {
+            saldosPersistidos.put(id, Money.parse("1000.00"));
+        }
+        when(productosRepository.findById(anyLong())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            if (id == 6L) {
+                cargandoBloqueada.countDown();
+                desbloquear.await(30, TimeUnit.SECONDS);
+            }
+            Productos producto = new Productos();
+            producto.setId(id);
+            producto.setSaldo(saldosPersistidos.get(id));
+            return Optional.of(producto);
+        });
+        when(productosRepository.actualizarSaldo(anyLong(), any(Money.class))).thenAnswer(invocation -> {
+            saldosPersistidos.put(invocation.getArgument(0), invocation.getArgument(1));
+            return 1;
+        });
+        when(transaccionRepository.saveAll(any())).thenAnswer(invocation -> {
+            Iterable<Transaccion> transacciones = invocation.getArgument(0);
+            transacciones.forEach(guardadas::add);
+            return transacciones;
+        });
+    }
+
+    @Test
+    void testCaidaConElDebitoPersistidoYElCreditoSinDiarioCompletaLaTransferencia() throws Exception {
+        // sin escritura diferida programada: se vacia a mano en el momento de la caida
+        LedgerEnMemoria caido = nuevoMotor(60_000);
+        caido.iniciar();
+        caido.depositar(6L, Money.parse("1.00"));
+        assertTrue(cargandoBloqueada.await(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Transaccion> transferencia = new CompletableFuture<>();
+        caido.shardDe(1L).enviar(OperacionLedger.debito("TRANSFERENCIA", 1L, 2L, Money.parse("100.00"), 77L,
+                transferencia));
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (caido.escrituraDiferida().vacia() && System.nanoTime() < limite) {
+            Thread.sleep(1);
+        }
+        caido.vaciar();
+        assertEquals(Money.parse("900.00"), saldosPersistidos.get(1L));
+        assertEquals(Money.parse("1000.00"), saldosPersistidos.get(2L));
+        assertFalse(transferencia.isDone());
+
+        // el proceso muere aqui: otro motor arranca sobre el mismo diario
+        LedgerEnMemoria recuperado = nuevoMotor(5);
+        recuperado.iniciar();
+        recuperado.cerrar();
+
+        assertEquals(Money.parse("900.00"), saldosPersistidos.get(1L));
+        assertEquals(Money.parse("1100.00"), saldosPersistidos.get(2L));
+        assertEquals(1, guardadas.stream().filter(t -> "TRANSFERENCIA".equals(t.getTipo())).count());
+
+        // un segundo arranque no vuelve a acreditar
+        LedgerEnMemoria reiniciado = nuevoMotor(5);
+        reiniciado.iniciar();
+        reiniciado.cerrar();
+        assertEquals(Money.parse("1100.00"), saldosPersistidos.get(2L));
+        assertEquals(1, guardadas.stream().filter(t -> "TRANSFERENCIA".equals(t.getTipo())).count());
+
+        desbloquear.countDown();
+        caido.cerrar();
+    }
+
+    @Test
+    void testCheckpointNoPasaUnaSecuenciaRetenida() throws Exception {
+        try (DiarioShard diario = new DiarioShard(directorio, 0)) {
+            for (int i = 0; i < 5; i++) {
+                diario.siguienteSecuencia();
+            }
+            diario.retener(3);
+
+            assertTrue(diario.marcarPersistido(5));
+            assertEquals(2, diario.persistido());
+
+            diario.liberar(3);
+            assertTrue(diario.marcarPersistido(0));
+            assertEquals(5, diario.persistido());
+        }
+    }
+
+    private LedgerEnMemoria nuevoMotor(long intervaloEscrituraMs) {
+        return new LedgerEnMemoria(productosRepository, transaccionRepository,
+                new TransactionTemplate(transactionManager), 4, directorio, 100, intervaloEscrituraMs);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.metricas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.exceptions.InsufficientBalanceException;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.TransaccionRepository;
+import com.example.demo.services.DirectorioShards;
+import com.example.demo.services.Implement.TransaccionServiceImp;
+import com.example.demo.services.MotorGmf;
+import com.example.demo.services.TransaccionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+public class MetricasAspectTest {
+
+    @Mock
+    private TransaccionRepository transaccionRepository;
+
+    @Mock
+    private ProductosRepository productosRepository;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    // un solo shard: todo corre en el shard 0 sin consultar el directorio
+    @Spy
+    private DirectorioShards directorio = new DirectorioShards();
+
+    // GMF inactivo, como en la configuracion por defecto
+    @Spy
+    private MotorGmf motorGmf = new MotorGmf();
+
+    @InjectMocks
+    private TransaccionServiceImp transaccionServiceImp;
+
+    private SimpleMeterRegistry registry;
+    private TransaccionService servicio;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        AspectJProxyFactory fabrica = new AspectJProxyFactory(transaccionServiceImp);
+        fabrica.addAspect(new MetricasAspect(registry));
+        servicio = fabrica.getProxy();
+    }
+
+    @Test
+    void testRegistraDuracionYMontoDeOperacionExitosa() {
+        Productos cuenta = new Productos();
+        cuenta.setId(1L);
+        cuenta.setSaldo(Money.parse("100.00"));
+        when(productosRepository.findByIdParaActualizar(1L)).thenReturn(Optional.of(cuenta));
+        when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(invocacion -> invocacion.getArgument(0));
+
+        servicio.realizarDeposito(1L, Money.parse("25.50"));
+        servicio.realizarDeposito(1L, Money.parse("4.50"));
+
+        assertEquals(2, registry.get(MetricasAspect.TIMER_SERVICIO)
+                .tags("clase", "TransaccionServiceImp", "operacion", "realizarDeposito", "resultado", MetricasAspect.EXITO)
+                .timer().count());
+        assertEquals(30.0, registry.get(MetricasAspect.CONTADOR_MONTO).tag("tipo", "DEPOSITO").counter().count(), 0.0001);
+    }
+
+    @Test
+    void testEtiquetaResultadoSegunExcepcion() {
+        Productos cuenta = new Productos();
+        cuenta.setId(1L);
+        cuenta.setSaldo(Money.parse("10.00"));
+        when(productosRepository.findByIdParaActualizar(1L)).thenReturn(Optional.of(cuenta));
+        when(productosRepository.findByIdParaActualizar(2L)).thenReturn(Optional.empty());
+
+        assertThrows(InsufficientBalanceException.class, () -> servicio.realizarRetiro(1L, Money.parse("50.00")));
+        assertThrows(ResourceNotFoundException.class, () -> servicio.realizarRetiro(2L, Money.parse("5.00")));
+        assertThrows(IllegalArgumentException.class, () -> servicio.realizarDeposito(1L, Money.ZERO));
+
+        assertEquals(1, registry.get(MetricasAspect.TIMER_SERVICIO)
+                .tags("operacion", "realizarRetiro", "resultado", MetricasAspect.SALDO_INSUFICIENTE).timer().count());
+        assertEquals(1, registry.get(MetricasAspect.TIMER_SERVICIO)
+                .tags("operacion", "realizarRetiro", "resultado", MetricasAspect.NO_ENCONTRADO).timer().count());
+        assertEquals(1, registry.get(MetricasAspect.TIMER_SERVICIO)
+                .tags("operacion", "realizarDeposito", "resultado", MetricasAspect.RECHAZADO).timer().count());
+        assertEquals(0, registry.find(MetricasAspect.CONTADOR_MONTO).counters().size());
+    }
+}
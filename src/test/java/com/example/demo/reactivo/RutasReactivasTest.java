@@ -0,0 +1,153 @@
+package com.example.demo.reactivo;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.repository.ClientesRepository;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.TransaccionRepository;
+import com.example.demo.services.TransaccionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+@SpringBootTest(properties = {
+        "banco.reactivo.habilitado=true",
+        "banco.reactivo.puerto=0",
+        "banco.reactivo.r2dbc.url=r2dbc:h2:mem:///banco?options=MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"
+})
+public class RutasReactivasTest {
+
+    @Autowired
+    private ServidorReactivo servidor;
+
+    @Autowired
+    private ClientesRepository clientesRepository;
+
+    @Autowired
+    private ProductosRepository productosRepository;
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    private WebTestClient cliente;
+    private Long origenId;
+    private Long destinoId;
+
+    @BeforeEach
+    void setUp() {
+        cliente = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + servidor.getPuerto() + RutasReactivas.PREFIJO)
+                .responseTimeout(Duration.ofSeconds(30))
+                .build();
+        Clientes titular = new Clientes();
+        titular.setNombres("Juan");
+        titular.setApellidos("Perez");
+        titular.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        titular = clientesRepository.save(titular);
+        origenId = productosRepository.save(cuenta(titular, "100.00")).getId();
+        destinoId = productosRepository.save(cuenta(titular, "50.00")).getId();
+    }
+
+    @Test
+    void testTransferenciaActualizaAmbasCuentas() {
+        cliente.post().uri("/transaccion/realizar")
+                .bodyValue(Map.of("cuentaOrigenId", origenId, "cuentaDestinoId", destinoId, "monto", 30))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.tipo").isEqualTo("TRANSFERENCIA")
+                .jsonPath("$.cuentaOrigen.saldo").isEqualTo(70.0)
+                .jsonPath("$.cuentaDestino.saldo").isEqualTo(80.0);
+
+        assertSaldo(origenId, "70.00");
+        assertSaldo(destinoId, "80.00");
+        cliente.get().uri("/productos/{id}", destinoId).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.saldo").isEqualTo(80.0);
+    }
+
+    @Test
+    void testSaldoInsuficienteNoModificaNada() {
+        long transaccionesAntes = transaccionRepository.count();
+
+        cliente.post().uri("/transaccion/realizar")
+                .bodyValue(Map.of("cuentaOrigenId", origenId, "cuentaDestinoId", destinoId, "monto", 500))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.BAD_REQUEST)
+                .expectBody(String.class).isEqualTo("Saldo insuficiente en la cuenta de origen.");
+
+        assertSaldo(origenId, "100.00");
+        assertSaldo(destinoId, "50.00");
+        assertEquals(transaccionesAntes, transaccionRepository.count());
+    }
+
+    @Test
+    void testCuentaInexistenteDevuelve404() {
+        cliente.get().uri("/{id}/estado", 999_999L).exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void testTransferenciasCruzadasConcurrentesConservanElDinero() {
+        Flux.range(0, 40)
+                .flatMap(i -> cliente.post().uri("/transaccion/realizar")
+                        .bodyValue(i % 2 == 0
+                                ? Map.of("cuentaOrigenId", origenId, "cuentaDestinoId", destinoId, "monto", 1)
+                                : Map.of("cuentaOrigenId", destinoId, "cuentaDestinoId", origenId, "monto", 1))
+                        .exchange()
+                        .returnResult(String.class)
+                        .getResponseBody()
+                        .then(), 16)
+                .blockLast(Duration.ofSeconds(60));
+
+        assertSaldo(origenId, "100.00");
+        assertSaldo(destinoId, "50.00");
+    }
+
+    @Test
+    void testIdsNoChocanConLosDelLadoJpa() {
+        Long idJpa = transaccionService.realizarDeposito(origenId, Money.parse("1.00")).getId();
+
+        Number idReactivo = (Number) cliente.post().uri("/transaccion/depositar")
+                .bodyValue(Map.of("cuentaDestinoId", origenId, "monto", 1))
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Map.class).getResponseBody().blockFirst()
+                .get("id");
+        Long otroIdJpa = transaccionService.realizarDeposito(origenId, Money.parse("1.00")).getId();
+
+        assertNotEquals(idJpa, idReactivo.longValue());
+        assertNotEquals(otroIdJpa, idReactivo.longValue());
+        assertEquals(3, transaccionRepository.findAllById(List.of(idJpa, idReactivo.longValue(), otroIdJpa)).size());
+        assertSaldo(origenId, "103.00");
+    }
+
+    private void assertSaldo(Long id, String esperado) {
+        assertEquals(0, Money.parse(esperado).compareTo(productosRepository.findSaldoById(id).orElseThrow()));
+    }
+
+    private static Productos cuenta(Clientes titular, String saldo) {
+        Productos producto = new Productos();
+        producto.setCliente(titular);
+        producto.setTipoCuenta("cuenta de ahorros");
+        producto.setEstado("activa");
+        producto.setSaldo(Money.parse(saldo));
+        return producto;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.RangoNumeroCuentaRepository;
+import com.example.demo.services.AsignadorRangosNumeroCuenta;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mockingDetails;
+
+@SpringBootTest
+public class AsignadorRangosNumeroCuentaTest {
+
+    @Autowired
+    private AsignadorRangosNumeroCuenta asignador;
+
+    @SpyBean
+    private RangoNumeroCuentaRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testOtroNodoCreaElPrefijoEntreLaConsultaYElInsert() {
+        jdbcTemplate.update("insert into rango_numero_cuenta (prefijo, siguiente) values ('77', 500)");
+        // la primera consulta no la ve, como si el otro nodo confirmara justo despues; la siguiente va al repositorio
+        Answer<?> repositorioReal = mockingDetails(repository).getMockCreationSettings().getDefaultAnswer();
+        doReturn(Optional.empty()).doAnswer(repositorioReal).when(repository).bloquear("77");
+
+        long inicio = asignador.reservar("77", 100);
+
+        assertEquals(500, inicio);
+        assertEquals(600, jdbcTemplate.queryForObject(
+                "select siguiente from rango_numero_cuenta where prefijo = '77'", Long.class));
+    }
+
+    @Test
+    void testElUltimoBloqueTerminaEnLaCapacidadYLuegoSeAgota() {
+        jdbcTemplate.update("insert into rango_numero_cuenta (prefijo, siguiente) values ('79', ?)",
+                AsignadorRangosNumeroCuenta.CAPACIDAD_POR_PREFIJO - 30);
+
+        assertEquals(AsignadorRangosNumeroCuenta.CAPACIDAD_POR_PREFIJO - 30, asignador.reservar("79", 100));
+        assertEquals(AsignadorRangosNumeroCuenta.CAPACIDAD_POR_PREFIJO, jdbcTemplate.queryForObject(
+                "select siguiente from rango_numero_cuenta where prefijo = '79'", Long.class));
+        assertThrows(IllegalStateException.class, () -> asignador.reservar("79", 100));
+    }
+
+    @Test
+    void testPrimerUsoConcurrenteDeUnPrefijo() throws Exception {
+        int hilos = 8;
+        CyclicBarrier barrera = new CyclicBarrier(hilos);
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        List<Future<Long>> reservas = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            reservas.add(executor.submit(() -> {
+                barrera.await();
+                return asignador.reservar("78", 100);
+            }));
+        }
+        Set<Long> inicios = new TreeSet<>();
+        for (Future<Long> reserva : reservas) {
+            inicios.add(reserva.get());
+        }
+        executor.shutdown();
+
+        assertEquals(Set.of(0L, 100L, 200L, 300L, 400L, 500L, 600L, 700L), inicios);
+    }
+}
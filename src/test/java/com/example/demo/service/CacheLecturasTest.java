@@ -0,0 +1,130 @@
+package com.example.demo.service;
+
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.repository.ClientesRepository;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.services.ProductosService;
+import com.github.benmanes.caffeine.cache.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "banco.cache.segunda-invalidacion=100ms"
+})
+public class CacheLecturasTest {
+
+    @Autowired
+    private ProductosService productosService;
+
+    @Autowired
+    private ProductosRepository productosRepository;
+
+    @Autowired
+    private ClientesRepository clientesRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics estadisticas;
+    private Long productoId;
+
+    @BeforeEach
+    void setUp() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Clientes cliente = new Clientes();
+        cliente.setNombres("Juan");
+        cliente.setApellidos("Perez");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        cliente = clientesRepository.save(cliente);
+
+        Productos producto = new Productos();
+        producto.setCliente(cliente);
+        producto.setTipoCuenta("cuenta de ahorros");
+        producto.setEstado("activa");
+        producto.setSaldo(Money.parse("100.00"));
+        productoId = productosRepository.save(producto).getId();
+    }
+
+    private long consultasDurante(Runnable lectura) {
+        estadisticas.clear();
+        lectura.run();
+        return estadisticas.getPrepareStatementCount();
+    }
+
+    @Test
+    void testLecturasRepetidasNoConsultanLaBaseDeDatos() {
+        long primeraLectura = consultasDurante(() -> productosService.getEstadoProductoById(productoId));
+        long lecturasRepetidas = consultasDurante(() -> {
+            for (int i = 0; i < 10; i++) {
+                productosService.getEstadoProductoById(productoId);
+            }
+        });
+
+        assertEquals(1, primeraLectura);
+        assertEquals(0, lecturasRepetidas);
+
+        Cache<?, ?> cache = (Cache<?, ?>) cacheManager.getCache(CacheConfig.PRODUCTOS).getNativeCache();
+        assertTrue(cache.stats().hitCount() >= 10);
+    }
+
+    @Test
+    void testSaldoNuncaSeSirveDesdeLaCache() {
+        productosService.getProductoById(productoId);
+        transactionTemplate.executeWithoutResult(estado ->
+                productosRepository.actualizarSaldo(productoId, Money.parse("250.00")));
+
+        long consultas = consultasDurante(() ->
+                assertEquals(0, Money.parse("250.00").compareTo(productosService.getProductoById(productoId).saldo())));
+
+        assertEquals(1, consultas);
+    }
+
+    @Test
+    void testDesactivarInvalidaElEstado() {
+        assertEquals("activa", productosService.getEstadoProductoById(productoId));
+
+        productosService.desactivarProducto(productoId);
+
+        assertEquals("inactiva", productosService.getEstadoProductoById(productoId));
+    }
+
+    @Test
+    void testLaSegundaInvalidacionDescartaUnaLecturaAnteriorAlCommit() throws InterruptedException {
+        productosService.getEstadoProductoById(productoId);
+        org.springframework.cache.Cache cache = cacheManager.getCache(CacheConfig.PRODUCTOS);
+        Object anterior = cache.get(productoId).get();
+
+        productosService.desactivarProducto(productoId);
+        // una lectura que consulto la fila antes del commit y la guarda despues del primer borrado
+        cache.put(productoId, anterior);
+        assertEquals("activa", productosService.getEstadoProductoById(productoId));
+
+        long limite = System.currentTimeMillis() + 2000;
+        while (cache.get(productoId) != null && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+        assertEquals("inactiva", productosService.getEstadoProductoById(productoId));
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.demo.service;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ResultadoCausacionInteresesDTO;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.repository.ClientesRepository;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.services.CausadorIntereses;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tasa del 10% efectivo anual: 1.000.000,00 causan 261,16 al dia. Bloques de 2 y 3 particiones para que la causacion
+ * recorra varias particiones y varios bloques por particion.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:intereses;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "banco.intereses.habilitado=true",
+        "banco.intereses.tasa-efectiva-anual=0.10",
+        "banco.intereses.particiones=3",
+        "banco.intereses.tamano-bloque=2"
+})
+@AutoConfigureMockMvc
+public class CausadorInteresesTest {
+    private static final LocalDate AYER = LocalDate.now().minusDays(1);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CausadorIntereses causador;
+
+    @Autowired
+    private ClientesRepository clientesRepository;
+
+    @Autowired
+    private ProductosRepository productosRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long ahorros;
+    private Long ultimaAhorros;
+    private Long corriente;
+    private Long inactiva;
+    private Long sinSaldo;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("delete from proceso_checkpoint");
+        jdbcTemplate.update("delete from transaccion");
+        jdbcTemplate.update("delete from productos");
+        ahorros = cuenta("cuenta de ahorros", "activa", "1000000.00");
+        corriente = cuenta("cuenta corriente", "activa", "1000000.00");
+        // 0.26 centavos: se procesa pero no se abona nada
+        cuenta("cuenta de ahorros", "activa", "10.00");
+        inactiva = cuenta("cuenta de ahorros", "inactiva", "1000000.00");
+        sinSaldo = cuenta("cuenta de ahorros", "activa", "0.00");
+        for (int i = 0; i < 4; i++) {
+            ultimaAhorros = cuenta("cuenta de ahorros", "activa", "100000.00");
+        }
+    }
+
+    @Test
+    void testCausaInteresesDeCuentasDeAhorrosActivas() throws Exception {
+        mockMvc.perform(post("/api/intereses/causacion/" + AYER))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.particiones").value(3))
+                .andExpect(jsonPath("$.cuentas").value(6))
+                .andExpect(jsonPath("$.intereses").value(365.64));
+
+        assertEquals(Money.parse("1000261.16"), saldo(ahorros));
+        assertEquals(Money.parse("100026.12"), saldo(ultimaAhorros));
+        assertEquals(Money.parse("1000000.00"), saldo(corriente));
+        assertEquals(Money.parse("1000000.00"), saldo(inactiva));
+        assertEquals(Money.ZERO, saldo(sinSaldo));
+        assertEquals(Money.parse("261.16"), abonado(ahorros));
+        assertEquals(5, jdbcTemplate.queryForObject("select count(*) from transaccion where tipo = ?",
+                Integer.class, CausadorIntereses.TIPO));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from proceso_checkpoint where estado <> 'TERMINADA'", Integer.class));
+        assertNotNull(meterRegistry.find("banco.intereses.causacion").timer());
+        assertNotNull(meterRegistry.find("banco.intereses.cuentas.por.segundo").gauge());
+    }
+
+    @Test
+    void testRepetirLaCausacionNoAbonaDosVeces() {
+        ResultadoCausacionInteresesDTO primera = causador.causar(AYER);
+        ResultadoCausacionInteresesDTO segunda = causador.causar(AYER);
+
+        assertEquals(6, primera.getCuentas());
+        assertEquals(0, segunda.getCuentas());
+        assertEquals(segunda.getParticiones(), segunda.getParticionesPrevias());
+        assertEquals(Money.parse("1000261.16"), saldo(ahorros));
+    }
+
+    @Test
+    void testOtroDiaCausaSobreElSaldoConIntereses() {
+        causador.causar(AYER.minusDays(1));
+        causador.causar(AYER);
+
+        // 1.000.261,16 causan 261,2282 al dia siguiente
+        assertEquals(Money.parse("1000522.39"), saldo(ahorros));
+    }
+
+    @Test
+    void testSeReanudaDesdeElUltimoBloqueConfirmado() {
+        causador.causar(AYER);
+        // como si la ultima particion se hubiera detenido antes de su ultima cuenta
+        jdbcTemplate.update("update proceso_checkpoint set estado = 'EN_CURSO', ultimo_id = ? where id_hasta >= ?",
+                ultimaAhorros - 1, ultimaAhorros);
+
+        ResultadoCausacionInteresesDTO reanudada = causador.causar(AYER);
+
+        assertEquals(1, reanudada.getCuentas());
+        assertEquals(Money.parse("26.12"), reanudada.getIntereses());
+        assertEquals(Money.parse("100052.24"), saldo(ultimaAhorros));
+    }
+
+    @Test
+    void testSoloCausaDiasCerrados() {
+        assertThrows(IllegalArgumentException.class, () -> causador.causar(LocalDate.now()));
+    }
+
+    private Long cuenta(String tipoCuenta, String estado, String saldo) {
+        Clientes cliente = new Clientes();
+        cliente.setNombres("Juan");
+        cliente.setApellidos("Perez");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        cliente = clientesRepository.save(cliente);
+        Productos producto = new Productos();
+        producto.setCliente(cliente);
+        producto.setTipoCuenta(tipoCuenta);
+        producto.setEstado(estado);
+        producto.setSaldo(Money.parse(saldo));
+        return productosRepository.save(producto).getId();
+    }
+
+    private Money saldo(Long cuentaId) {
+        return Money.of(jdbcTemplate.queryForObject("select saldo from productos where id = ?", BigDecimal.class,
+                cuentaId));
+    }
+
+    private Money abonado(Long cuentaId) {
+        return Money.of(jdbcTemplate.queryForObject("select coalesce(sum(monto), 0) from transaccion "
+                + "where tipo = ? and cuenta_destino_id = ?", BigDecimal.class, CausadorIntereses.TIPO, cuentaId));
+    }
+}
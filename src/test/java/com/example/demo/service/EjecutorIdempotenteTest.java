@@ -0,0 +1,202 @@
+package com.example.demo.service;
+
+import com.example.demo.controllers.TransaccionController;
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.exceptions.InsufficientBalanceException;
+import com.example.demo.metricas.ConteoSentenciasFilter;
+import com.example.demo.repository.ClaveIdempotenciaRepository;
+import com.example.demo.repository.ClientesRepository;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.TransaccionRepository;
+import com.example.demo.services.EjecutorIdempotente;
+import com.example.demo.services.TransaccionService;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "banco.sentencias.encabezado=true")
+@AutoConfigureMockMvc
+public class EjecutorIdempotenteTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EjecutorIdempotente ejecutor;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private ClaveIdempotenciaRepository claveIdempotenciaRepository;
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    @Autowired
+    private ProductosRepository productosRepository;
+
+    @Autowired
+    private ClientesRepository clientesRepository;
+
+    private Long cuentaId;
+
+    @BeforeEach
+    void setUp() {
+        Clientes cliente = new Clientes();
+        cliente.setNombres("Juan");
+        cliente.setApellidos("Perez");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        cliente = clientesRepository.save(cliente);
+
+        Productos producto = new Productos();
+        producto.setCliente(cliente);
+        producto.setTipoCuenta("cuenta de ahorros");
+        producto.setEstado("activa");
+        producto.setSaldo(Money.parse("100.00"));
+        cuentaId = productosRepository.save(producto).getId();
+    }
+
+    @Test
+    void testRepeticionDevuelveLaRespuestaGuardadaSinTocarLaCuenta() throws Exception {
+        String clave = UUID.randomUUID().toString();
+        long transaccionesAntes = transaccionRepository.count();
+
+        MockHttpServletResponse primera = depositar(clave, "25.00");
+        MockHttpServletResponse repetida = depositar(clave, "25.00");
+
+        assertEquals("false", primera.getHeader(TransaccionController.ENCABEZADO_REPETIDA));
+        assertEquals("true", repetida.getHeader(TransaccionController.ENCABEZADO_REPETIDA));
+        assertEquals(primera.getContentAsString(), repetida.getContentAsString());
+        assertEquals("0", repetida.getHeader(ConteoSentenciasFilter.ENCABEZADO));
+        assertSaldo("125.00");
+        assertEquals(transaccionesAntes + 1, transaccionRepository.count());
+    }
+
+    @Test
+    void testRepeticionSeSirveDesdeLaBaseDeDatosCuandoLaMemoriaNoLaTiene() throws Exception {
+        String clave = UUID.randomUUID().toString();
+        MockHttpServletResponse primera = depositar(clave, "10.00");
+        memoria().invalidateAll();
+
+        MockHttpServletResponse repetida = depositar(clave, "10.00");
+
+        assertEquals("true", repetida.getHeader(TransaccionController.ENCABEZADO_REPETIDA));
+        assertEquals(primera.getContentAsString(), repetida.getContentAsString());
+        assertEquals("1", repetida.getHeader(ConteoSentenciasFilter.ENCABEZADO));
+        assertSaldo("110.00");
+    }
+
+    @Test
+    void testMismaClaveConOtrosParametrosSeRechaza() throws Exception {
+        String clave = UUID.randomUUID().toString();
+        depositar(clave, "10.00");
+
+        mockMvc.perform(post("/api/transaccion/depositar")
+                        .header(TransaccionController.ENCABEZADO_IDEMPOTENCIA, clave)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cuentaDestinoId\":" + cuentaId + ",\"monto\":99}"))
+                .andExpect(status().isUnprocessableEntity());
+        assertSaldo("110.00");
+    }
+
+    @Test
+    void testOperacionFallidaNoQuedaRegistradaYElReintentoSeEjecuta() {
+        String clave = UUID.randomUUID().toString();
+        String huella = EjecutorIdempotente.huella("retirar", cuentaId, null, Money.parse("500.00"));
+
+        assertThrows(InsufficientBalanceException.class, () -> ejecutor.ejecutar(clave, huella,
+                () -> transaccionService.realizarRetiro(cuentaId, Money.parse("500.00"))));
+        assertTrue(claveIdempotenciaRepository.findByClave(clave).isEmpty());
+
+        transaccionService.realizarDeposito(cuentaId, Money.parse("400.00"));
+        EjecutorIdempotente.Respuesta respuesta = ejecutor.ejecutar(clave, huella,
+                () -> transaccionService.realizarRetiro(cuentaId, Money.parse("500.00")));
+
+        assertFalse(respuesta.repetida());
+        assertSaldo("0.00");
+    }
+
+    @Test
+    void testDuplicadosConcurrentesEsperanALaPrimeraEjecucion() throws Exception {
+        String clave = UUID.randomUUID().toString();
+        String huella = EjecutorIdempotente.huella("depositar", null, cuentaId, Money.parse("5.00"));
+        AtomicInteger ejecuciones = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        List<Future<EjecutorIdempotente.Respuesta>> futuros = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futuros.add(hilos.submit(() -> {
+                salida.await();
+                return ejecutor.ejecutar(clave, huella, () -> {
+                    ejecuciones.incrementAndGet();
+                    dormir(200);
+                    return transaccionService.realizarDeposito(cuentaId, Money.parse("5.00"));
+                });
+            }));
+        }
+        salida.countDown();
+
+        List<EjecutorIdempotente.Respuesta> respuestas = new ArrayList<>();
+        for (Future<EjecutorIdempotente.Respuesta> futuro : futuros) {
+            respuestas.add(futuro.get());
+        }
+        hilos.shutdown();
+
+        assertEquals(1, ejecuciones.get());
+        assertEquals(1, respuestas.stream().filter(r -> !r.repetida()).count());
+        for (EjecutorIdempotente.Respuesta respuesta : respuestas) {
+            assertArrayEquals(respuestas.get(0).cuerpo(), respuesta.cuerpo());
+        }
+        assertSaldo("105.00");
+    }
+
+    private MockHttpServletResponse depositar(String clave, String monto) throws Exception {
+        return mockMvc.perform(post("/api/transaccion/depositar")
+                        .header(TransaccionController.ENCABEZADO_IDEMPOTENCIA, clave)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cuentaDestinoId\":" + cuentaId + ",\"monto\":" + monto + "}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<String, ?> memoria() {
+        return (Cache<String, ?>) ReflectionTestUtils.getField(ejecutor, "memoria");
+    }
+
+    private void assertSaldo(String esperado) {
+        assertEquals(0, Money.parse(esperado).compareTo(productosRepository.findSaldoById(cuentaId).orElseThrow()));
+    }
+
+    private static void dormir(long milisegundos) {
+        try {
+            Thread.sleep(milisegundos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.FilaRechazadaDTO;
+import com.example.demo.dto.ResultadoImportacionDTO;
+import com.example.demo.entities.Clientes;
+import com.example.demo.exceptions.InvalidCsvException;
+import com.example.demo.repository.ClientesRepository;
+import com.example.demo.services.ImportadorClientes;
+import com.example.demo.validators.ClientesValidator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "banco.importacion.tamano-bloque=3",
+        "banco.importacion.maximo-rechazos-reportados=4"
+})
+public class ImportadorClientesTest {
+    private static final String ENCABEZADO =
+            "tipoIdentificacion,numeroIdentificacion,nombres,apellidos,correoElectronico,fechaNacimiento\n";
+
+    @Autowired
+    private ImportadorClientes importador;
+
+    @Autowired
+    private ClientesRepository clientesRepository;
+
+    @Test
+    void testImportaFilasValidasYReportaLasRechazadasConSuLinea() throws Exception {
+        String lote = UUID.randomUUID().toString().substring(0, 8);
+        String csv = ENCABEZADO
+                + "CC," + lote + "-1,Ana,Gomez,ana@example.com,1990-05-10\n"
+                + "CC," + lote + "-2,\"Luis, Alberto\",Diaz,luis@example.com,1985-12-01\n"
+                + "CC," + lote + "-3,Eva,Ruiz,correo-invalido,1990-01-01\n"
+                + "\n"
+                + "CC," + lote + "-4,Menor,Edad,menor@example.com," + LocalDate.now().minusYears(10) + "\n"
+                + "CC," + lote + "-5,Sin,Columnas\n"
+                + "CC," + lote + "-6,Pedro,Mora,pedro@example.com,1990-02-30\n"
+                + "CC," + lote + "-7,Sofia,Vargas,sofia@example.com,1979-07-21\n";
+
+        ResultadoImportacionDTO resultado = importador.importar(flujo(csv));
+
+        assertEquals(7, resultado.getFilas());
+        assertEquals(3, resultado.getImportadas());
+        assertEquals(4, resultado.getRechazadas());
+        assertFalse(resultado.isRechazosTruncados());
+        assertEquals(List.of(
+                new FilaRechazadaDTO(4, ClientesValidator.EMAIL_INVALIDO),
+                new FilaRechazadaDTO(6, ClientesValidator.MENOR_DE_EDAD),
+                new FilaRechazadaDTO(7, "Se esperaban 6 columnas y la fila tiene 4."),
+                new FilaRechazadaDTO(8, "Fecha de nacimiento inválida (se espera AAAA-MM-DD).")),
+                resultado.getRechazos());
+
+        List<Clientes> importados = clientesRepository.findAll().stream()
+                .filter(c -> c.getNumeroIdentificacion() != null && c.getNumeroIdentificacion().startsWith(lote))
+                .sorted((a, b) -> a.getNumeroIdentificacion().compareTo(b.getNumeroIdentificacion()))
+                .collect(Collectors.toList());
+        assertEquals(List.of(lote + "-1", lote + "-2", lote + "-7"),
+                importados.stream().map(Clientes::getNumeroIdentificacion).toList());
+        Clientes luis = importados.get(1);
+        assertEquals("Luis, Alberto", luis.getNombres());
+        assertEquals(LocalDate.of(1985, 12, 1), luis.getFechaNacimiento());
+        assertEquals(ClientesValidator.calcularEdad(LocalDate.of(1985, 12, 1)), luis.getEdad());
+        assertNotNull(luis.getFechaCreacion());
+    }
+
+    @Test
+    void testReportaSoloLasPrimerasFilasRechazadas() throws Exception {
+        StringBuilder csv = new StringBuilder(ENCABEZADO);
+        for (int i = 0; i < 20; i++) {
+            csv.append("CC,").append(i).append(",Ana,Gomez,sin-arroba,1990-01-01\n");
+        }
+
+        ResultadoImportacionDTO resultado = importador.importar(flujo(csv.toString()));
+
+        assertEquals(20, resultado.getRechazadas());
+        assertEquals(0, resultado.getImportadas());
+        assertTrue(resultado.isRechazosTruncados());
+        assertEquals(List.of(2L, 3L, 4L, 5L), resultado.getRechazos().stream().map(FilaRechazadaDTO::getLinea).toList());
+    }
+
+    @Test
+    void testEncabezadoInvalidoSeRechazaSinImportar() {
+        long antes = clientesRepository.count();
+
+        assertThrows(InvalidCsvException.class, () -> importador.importar(
+                flujo("nombres,apellidos\nAna,Gomez\n")));
+        assertEquals(antes, clientesRepository.count());
+    }
+
+    @Test
+    void testCalcularEdadCoincideConPeriod() {
+        LocalDate hoy = LocalDate.of(2024, 2, 29);
+        for (LocalDate nacimiento = LocalDate.of(1999, 1, 1); nacimiento.isBefore(LocalDate.of(2009, 1, 1));
+             nacimiento = nacimiento.plusDays(1)) {
+            for (LocalDate dia : List.of(hoy.minusDays(1), hoy, hoy.plusDays(1))) {
+                assertEquals(Period.between(nacimiento, dia).getYears(), ClientesValidator.calcularEdad(nacimiento, dia),
+                        nacimiento + " / " + dia);
+            }
+        }
+    }
+
+    @Test
+    void testValidacionDeCorreoCoincideConLaExpresionRegular() {
+        Pattern regex = Pattern.compile("^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,}$");
+        for (String correo : List.of("ana@example.com", "a.b+c@sub.dominio.co", "x_&*-@a-b.io", "ana@example.c",
+                "ana@example", "@example.com", ".ana@example.com", "ana.@example.com", "an..a@example.com",
+                "ana@.example.com", "ana@example..com", "ana@example.com.", "ana@@example.com", "ana@ex@ample.com",
+                "ana@example.c0m", "ana@exa_mple.com", "añа@example.com", "ana@-.com", "a@b.cd", "", "a.b@c.de.f")) {
+            assertEquals(regex.matcher(correo).matches(),
+                    ClientesValidator.motivoRechazo("Ana", "Gomez", correo, 30) == null, correo);
+        }
+    }
+
+    private static InputStream flujo(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
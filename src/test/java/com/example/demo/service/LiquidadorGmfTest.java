@@ -0,0 +1,199 @@
+package com.example.demo.service;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ResultadoLiquidacionGmfDTO;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.repository.ClientesRepository;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.services.LiquidadorGmf;
+import com.example.demo.services.MotorGmf;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Movimientos de marzo de 2024 insertados por JDBC, con bloques de 3 y 4 particiones para que la liquidacion
+ * recorra varias particiones y varios bloques por particion.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:gmf;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "banco.gmf.modo=lote",
+        "banco.gmf.lote.particiones=4",
+        "banco.gmf.lote.tamano-bloque=3"
+})
+@AutoConfigureMockMvc
+public class LiquidadorGmfTest {
+    private static final LocalDateTime MARZO = LocalDateTime.of(2024, 3, 10, 12, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LiquidadorGmf liquidador;
+
+    @Autowired
+    private ClientesRepository clientesRepository;
+
+    @Autowired
+    private ProductosRepository productosRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicLong siguienteId = new AtomicLong(1_000_000);
+    private Long gravada;
+    private Long exenta;
+    private Long otra;
+    private long ultimoGravado;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("delete from proceso_checkpoint");
+        jdbcTemplate.update("delete from transaccion");
+        jdbcTemplate.update("delete from gmf_pendiente");
+        gravada = cuenta(false);
+        exenta = cuenta(true);
+        otra = cuenta(false);
+
+        movimiento("RETIRO", gravada, null, "100.00", MARZO);
+        movimiento("TRANSFERENCIA", gravada, otra, "250.00", MARZO);
+        // 0.0004 se redondea a cero, pero el movimiento cuenta como procesado
+        movimiento("RETIRO", gravada, null, "0.10", MARZO);
+        movimiento("RETIRO", exenta, null, "100.00", MARZO);
+        movimiento("DEPOSITO", null, otra, "50.00", MARZO);
+        // dentro del rango de ids, pero de abril
+        movimiento("RETIRO", gravada, null, "1000.00", LocalDateTime.of(2024, 4, 1, 0, 0));
+        for (int i = 0; i < 10; i++) {
+            ultimoGravado = movimiento("RETIRO", otra, null, "10.00", MARZO.plusMinutes(i));
+        }
+        movimiento("DEPOSITO", null, gravada, "10.00", LocalDateTime.of(2024, 3, 31, 23, 59));
+    }
+
+    @Test
+    void testLiquidaMovimientosGravadosDelMes() throws Exception {
+        mockMvc.perform(post("/api/gmf/liquidacion/2024-03"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.particiones").value(4))
+                .andExpect(jsonPath("$.movimientos").value(13))
+                .andExpect(jsonPath("$.gravamen").value(1.80));
+
+        assertEquals(Money.parse("998.60"), saldo(gravada));
+        assertEquals(Money.parse("1000.00"), saldo(exenta));
+        assertEquals(Money.parse("999.60"), saldo(otra));
+        assertEquals(Money.parse("1.40"), cobrado(gravada));
+        assertEquals(Money.ZERO, cobrado(exenta));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from proceso_checkpoint where estado <> 'TERMINADA'", Integer.class));
+    }
+
+    @Test
+    void testRepetirLaLiquidacionNoCobraDosVeces() {
+        ResultadoLiquidacionGmfDTO primera = liquidador.liquidar(YearMonth.of(2024, 3));
+        ResultadoLiquidacionGmfDTO segunda = liquidador.liquidar(YearMonth.of(2024, 3));
+
+        assertEquals(13, primera.getMovimientos());
+        assertEquals(0, segunda.getMovimientos());
+        assertEquals(segunda.getParticiones(), segunda.getParticionesPrevias());
+        assertEquals(Money.parse("998.60"), saldo(gravada));
+        assertEquals(Money.parse("999.60"), saldo(otra));
+    }
+
+    @Test
+    void testSeReanudaDesdeElUltimoBloqueConfirmado() {
+        liquidador.liquidar(YearMonth.of(2024, 3));
+        // como si la ultima particion se hubiera detenido antes de su ultimo movimiento
+        jdbcTemplate.update("update proceso_checkpoint set estado = 'EN_CURSO', ultimo_id = ? where id_hasta >= ?",
+                ultimoGravado - 1, ultimoGravado);
+
+        ResultadoLiquidacionGmfDTO reanudada = liquidador.liquidar(YearMonth.of(2024, 3));
+
+        assertEquals(1, reanudada.getMovimientos());
+        assertEquals(Money.parse("0.04"), reanudada.getGravamen());
+        assertEquals(Money.parse("999.56"), saldo(otra));
+    }
+
+    @Test
+    void testElGravamenQueElSaldoNoCubreQuedaPendiente() {
+        Long escasa = cuenta(false, "1.00");
+        Long vacia = cuenta(false, "0.00");
+        movimiento("RETIRO", escasa, null, "1000.00", MARZO);
+        movimiento("RETIRO", vacia, null, "500.00", MARZO);
+
+        ResultadoLiquidacionGmfDTO resultado = liquidador.liquidar(YearMonth.of(2024, 3));
+
+        // 1.80 de las cuentas de setUp, 1.00 de escasa y nada de vacia
+        assertEquals(Money.parse("2.80"), resultado.getGravamen());
+        assertEquals(Money.ZERO, saldo(escasa));
+        assertEquals(Money.parse("1.00"), cobrado(escasa));
+        assertEquals(Money.parse("3.00"), pendiente(escasa));
+        assertEquals(Money.ZERO, saldo(vacia));
+        assertEquals(Money.ZERO, cobrado(vacia));
+        assertEquals(Money.parse("2.00"), pendiente(vacia));
+        assertEquals(Money.ZERO, pendiente(gravada));
+        assertEquals(Money.parse("998.60"), saldo(gravada));
+    }
+
+    @Test
+    void testSoloLiquidaMesesCerrados() {
+        assertThrows(IllegalArgumentException.class, () -> liquidador.liquidar(YearMonth.now()));
+    }
+
+    private Long cuenta(boolean exentaGmf) {
+        return cuenta(exentaGmf, "1000.00");
+    }
+
+    private Long cuenta(boolean exentaGmf, String saldo) {
+        Clientes cliente = new Clientes();
+        cliente.setNombres("Juan");
+        cliente.setApellidos("Perez");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        cliente = clientesRepository.save(cliente);
+        Productos producto = new Productos();
+        producto.setCliente(cliente);
+        producto.setTipoCuenta("cuenta de ahorros");
+        producto.setEstado("activa");
+        producto.setSaldo(Money.parse(saldo));
+        producto.setExentaGmf(exentaGmf);
+        return productosRepository.save(producto).getId();
+    }
+
+    private long movimiento(String tipo, Long origen, Long destino, String monto, LocalDateTime fecha) {
+        long id = siguienteId.incrementAndGet();
+        jdbcTemplate.update("insert into transaccion (id, tipo, monto, cuenta_origen_id, cuenta_destino_id, "
+                + "fecha_hora_transaccion) values (?, ?, ?, ?, ?, ?)", id, tipo, new BigDecimal(monto), origen, destino,
+                Timestamp.valueOf(fecha));
+        return id;
+    }
+
+    private Money saldo(Long cuentaId) {
+        return Money.of(jdbcTemplate.queryForObject("select saldo from productos where id = ?", BigDecimal.class,
+                cuentaId));
+    }
+
+    private Money cobrado(Long cuentaId) {
+        return Money.of(jdbcTemplate.queryForObject("select coalesce(sum(monto), 0) from transaccion "
+                + "where tipo = ? and cuenta_origen_id = ?", BigDecimal.class, MotorGmf.TIPO, cuentaId));
+    }
+
+    private Money pendiente(Long cuentaId) {
+        return Money.of(jdbcTemplate.queryForObject("select coalesce(sum(monto), 0) from gmf_pendiente "
+                + "where cuenta_id = ?", BigDecimal.class, cuentaId));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.service;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.services.MotorGmf;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MotorGmfTest {
+    private final MotorGmf motorGmf = new MotorGmf();
+
+    @Test
+    void testGravamenRedondeaAlCentavoMitadHaciaArriba() {
+        assertEquals(Money.parse("0.40"), motorGmf.gravamen(Money.parse("100.00")));
+        // 1.25 x 4 / 1000 = 0.005
+        assertEquals(Money.parse("0.01"), motorGmf.gravamen(Money.parse("1.25")));
+        assertEquals(Money.ZERO, motorGmf.gravamen(Money.parse("1.24")));
+    }
+
+    @Test
+    void testGravamenQueDesbordaLanzaExcepcion() {
+        Money enorme = Money.deCentavos(Long.MAX_VALUE / 2);
+
+        assertThrows(ArithmeticException.class, () -> motorGmf.gravamen(enorme));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.demo.service;
+
+import com.example.demo.entities.Productos;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.services.AsignadorRangosNumeroCuenta;
+import com.example.demo.services.NumeroCuentaGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class NumeroCuentaGeneratorTest {
+
+    @InjectMocks
+    private NumeroCuentaGenerator generator;
+
+    @Mock
+    private ProductosRepository productosRepository;
+
+    @Mock
+    private AsignadorRangosNumeroCuenta asignador;
+
+    private final AtomicLong siguiente = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(generator, "tamanoBloque", 10);
+        when(asignador.reservar(anyString(), anyInt()))
+                .thenAnswer(invocation -> siguiente.getAndAdd(invocation.<Integer>getArgument(1)));
+        when(productosRepository.findNumerosCuentaEntre(anyString(), anyString())).thenReturn(List.of());
+    }
+
+    private String generar(String tipoCuenta) {
+        Productos producto = new Productos();
+        producto.setTipoCuenta(tipoCuenta);
+        generator.generarYAsignarNumeroCuenta(producto);
+        return producto.getNumeroCuenta();
+    }
+
+    @Test
+    void testGenerarNumeroCuentaConPrefijoYDigitoVerificacion() {
+        String ahorros = generar("cuenta ahorros");
+        String corriente = generar("cuenta corriente");
+
+        assertEquals("5300000000".length(), ahorros.length());
+        assertTrue(ahorros.startsWith("53"));
+        assertTrue(corriente.startsWith("33"));
+        assertTrue(NumeroCuentaGenerator.esValido(ahorros));
+        assertTrue(NumeroCuentaGenerator.esValido(corriente));
+        assertFalse(NumeroCuentaGenerator.esValido(ahorros.substring(0, 9) + ((ahorros.charAt(9) - '0' + 1) % 10)));
+    }
+
+    @Test
+    void testReservaUnBloquePorCadaTamanoBloque() {
+        for (int i = 0; i < 25; i++) {
+            generar("cuenta ahorros");
+        }
+
+        verify(asignador, times(3)).reservar(eq("53"), eq(10));
+        verify(productosRepository, times(3)).findNumerosCuentaEntre(anyString(), anyString());
+        verify(productosRepository, never()).existsByNumeroCuenta(anyString());
+    }
+
+    @Test
+    void testOmiteNumerosExistentes() {
+        String primero = generar("cuenta ahorros");
+        siguiente.set(0);
+        ReflectionTestUtils.setField(generator, "bloques", new ConcurrentHashMap<>());
+        when(productosRepository.findNumerosCuentaEntre(anyString(), anyString())).thenReturn(List.of(primero));
+
+        assertNotEquals(primero, generar("cuenta ahorros"));
+    }
+
+    @Test
+    void testSiFallaLaConsultaDeExistentesNoEntregaNumerosSinRevisar() {
+        when(productosRepository.findNumerosCuentaEntre(anyString(), anyString()))
+                .thenThrow(new IllegalStateException("sin conexión"))
+                .thenReturn(List.of());
+
+        assertThrows(IllegalStateException.class, () -> generar("cuenta ahorros"));
+        String numero = generar("cuenta ahorros");
+
+        verify(asignador, times(2)).reservar(eq("53"), eq(10));
+        // el primer bloque (0-9) quedo sin usar
+        assertEquals("530000010", numero.substring(0, 9));
+    }
+
+    @Test
+    void testPrefijoAgotado() {
+        siguiente.set(AsignadorRangosNumeroCuenta.CAPACIDAD_POR_PREFIJO - 2);
+
+        assertEquals("539999998", generar("cuenta ahorros").substring(0, 9));
+        assertEquals("539999999", generar("cuenta ahorros").substring(0, 9));
+        assertThrows(IllegalStateException.class, () -> generar("cuenta ahorros"));
+    }
+
+    @Test
+    void testNumerosUnicosConHilosConcurrentes() throws InterruptedException {
+        Set<String> numeros = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 2000; i++) {
+            executor.submit(() -> numeros.add(generar("cuenta ahorros")));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(2000, numeros.size());
+    }
+}
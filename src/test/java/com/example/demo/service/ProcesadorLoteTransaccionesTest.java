@@ -0,0 +1,115 @@
+package com.example.demo.service;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ResultadoLoteDTO;
+import com.example.demo.dto.TransaccionDTO;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.TransaccionRepository;
+import com.example.demo.services.MotorGmf;
+import com.example.demo.services.ProcesadorLoteTransacciones;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+public class ProcesadorLoteTransaccionesTest {
+
+    @InjectMocks
+    private ProcesadorLoteTransacciones procesador;
+
+    @Mock
+    private ProductosRepository productosRepository;
+
+    @Mock
+    private TransaccionRepository transaccionRepository;
+
+    // GMF inactivo, como en la configuracion por defecto
+    @Spy
+    private MotorGmf motorGmf = new MotorGmf();
+
+    private Productos cuentaA;
+    private Productos cuentaB;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cuentaA = cuenta(1L, "500.00");
+        cuentaB = cuenta(2L, "100.00");
+        when(productosRepository.findAllByIdParaActualizar(anyCollection())).thenReturn(List.of(cuentaA, cuentaB));
+        when(transaccionRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<Transaccion> guardadas = new ArrayList<>();
+            long id = 100;
+            for (Transaccion transaccion : (Iterable<Transaccion>) invocation.getArgument(0)) {
+                transaccion.setId(id++);
+                guardadas.add(transaccion);
+            }
+            return guardadas;
+        });
+    }
+
+    private Productos cuenta(Long id, String saldo) {
+        Productos producto = new Productos();
+        producto.setId(id);
+        producto.setSaldo(Money.parse(saldo));
+        return producto;
+    }
+
+    @Test
+    void testProcesarLoteConResultadosPorItem() {
+        List<TransaccionDTO> lote = List.of(
+                new TransaccionDTO(1L, 2L, Money.parse("200.00")),
+                new TransaccionDTO(2L, null, Money.parse("1000.00")),
+                new TransaccionDTO(null, 9L, Money.parse("10.00")),
+                new TransaccionDTO(null, 1L, Money.parse("50.00")),
+                new TransaccionDTO(2L, null, Money.parse("-5.00")));
+
+        List<ResultadoLoteDTO> resultados = procesador.procesar(lote);
+
+        assertEquals(5, resultados.size());
+        assertTrue(resultados.get(0).isExitosa());
+        assertEquals("TRANSFERENCIA", resultados.get(0).getTipo());
+        assertEquals(100L, resultados.get(0).getTransaccionId());
+        assertFalse(resultados.get(1).isExitosa());
+        assertEquals("Saldo insuficiente para realizar el retiro.", resultados.get(1).getMensaje());
+        assertEquals("Cuenta destino no encontrada con id: 9", resultados.get(2).getMensaje());
+        assertTrue(resultados.get(3).isExitosa());
+        assertEquals(101L, resultados.get(3).getTransaccionId());
+        assertFalse(resultados.get(4).isExitosa());
+
+        assertEquals(Money.parse("350.00"), cuentaA.getSaldo());
+        assertEquals(Money.parse("300.00"), cuentaB.getSaldo());
+    }
+
+    @Test
+    void testCargaTodasLasCuentasEnUnaConsulta() {
+        List<TransaccionDTO> lote = List.of(
+                new TransaccionDTO(1L, 2L, Money.parse("1.00")),
+                new TransaccionDTO(2L, 1L, Money.parse("1.00")),
+                new TransaccionDTO(1L, null, Money.parse("1.00")));
+
+        procesador.procesar(lote);
+
+        verify(productosRepository, times(1)).findAllByIdParaActualizar(argThatIds());
+        verify(productosRepository, never()).findById(any());
+        verify(productosRepository, never()).save(any());
+        verify(transaccionRepository, times(1)).saveAll(any());
+        verify(transaccionRepository, never()).save(any());
+    }
+
+    private Collection<Long> argThatIds() {
+        return argThat(ids -> ids.size() == 2 && ids.contains(1L) && ids.contains(2L));
+    }
+}
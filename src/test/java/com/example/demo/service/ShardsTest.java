@@ -0,0 +1,229 @@
+package com.example.demo.service;
+
+import com.example.demo.controllers.TransaccionController;
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.services.ClientesService;
+import com.example.demo.services.DirectorioShards;
+import com.example.demo.services.ProductosService;
+import com.example.demo.services.SagaTransferencias;
+import com.example.demo.services.TransaccionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tres H2 en memoria como shards. Las comprobaciones leen cada base por JDBC, sin pasar por el enrutador.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ShardsTest.SHARD_0,
+        "banco.shards.habilitado=true",
+        "banco.shards.urls=" + ShardsTest.SHARD_1 + "," + ShardsTest.SHARD_2,
+        "banco.shards.saga.reintentar-despues=0s",
+        "banco.shards.saga.intervalo-recuperacion-ms=3600000"
+})
+@AutoConfigureMockMvc
+public class ShardsTest {
+    static final String SHARD_0 = "jdbc:h2:mem:shard-0;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    static final String SHARD_1 = "jdbc:h2:mem:shard-1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    static final String SHARD_2 = "jdbc:h2:mem:shard-2;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ClientesService clientesService;
+
+    @Autowired
+    private ProductosService productosService;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private DirectorioShards directorio;
+
+    @Autowired
+    private SagaTransferencias sagas;
+
+    private final List<JdbcTemplate> shards = List.of(shard(SHARD_0), shard(SHARD_1), shard(SHARD_2));
+
+    private Long clienteA;
+    private Long clienteB;
+    private int shardA;
+    private int shardB;
+
+    @BeforeEach
+    void setUp() {
+        clienteA = clientesService.createCliente(cliente()).getId();
+        clienteB = clientesService.createCliente(cliente()).getId();
+        shardA = directorio.shardDeCliente(clienteA);
+        shardB = directorio.shardDeCliente(clienteB);
+    }
+
+    @Test
+    void testClientesSeRepartenYSusCuentasQuedanEnSuShard() {
+        Set<Integer> usados = new HashSet<>(List.of(shardA, shardB));
+        List<Long> otros = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Long id = clientesService.createCliente(cliente()).getId();
+            otros.add(id);
+            usados.add(directorio.shardDeCliente(id));
+        }
+        assertEquals(Set.of(0, 1, 2), usados);
+
+        for (Long clienteId : otros) {
+            int shard = directorio.shardDeCliente(clienteId);
+            Long cuentaId = cuenta(clienteId, "10.00");
+            for (int i = 0; i < shards.size(); i++) {
+                assertEquals(i == shard ? 1 : 0, contar(i, "select count(*) from clientes where id = ?", clienteId));
+                assertEquals(i == shard ? 1 : 0, contar(i, "select count(*) from productos where id = ?", cuentaId));
+            }
+            assertEquals(shard, directorio.shardDeCuenta(cuentaId));
+            assertEquals(cuentaId, clientesService.getClienteById(clienteId).productos().get(0).id());
+            assertEquals(Money.parse("10.00"), productosService.getProductoById(cuentaId).saldo());
+            assertEquals("activa", productosService.getEstadoProductoById(cuentaId));
+        }
+    }
+
+    @Test
+    void testTransferenciasEnElMismoShardYEntreShards() {
+        assertNotEquals(shardA, shardB);
+        Long a1 = cuenta(clienteA, "100.00");
+        Long a2 = cuenta(clienteA, "1.00");
+        Long b1 = cuenta(clienteB, "1.00");
+
+        transaccionService.realizarTransaccion(a1, a2, Money.parse("30.00"));
+        transaccionService.realizarTransaccion(a1, b1, Money.parse("50.00"));
+
+        assertEquals(Money.parse("20.00"), saldo(shardA, a1));
+        assertEquals(Money.parse("31.00"), saldo(shardA, a2));
+        assertEquals(Money.parse("51.00"), saldo(shardB, b1));
+        assertEquals("COMPLETADA", estadoSaga(a1));
+        // cada shard guarda su mitad del movimiento
+        assertEquals(1, contar(shardA, "select count(*) from transaccion where cuenta_origen_id = ? and cuenta_destino_id is null", a1));
+        assertEquals(1, contar(shardB, "select count(*) from transaccion where cuenta_destino_id = ? and cuenta_origen_id is null", b1));
+        assertEquals(1, contar(shardB, "select count(*) from saga_aplicada where resultado = 'APLICADA'"));
+    }
+
+    @Test
+    void testTransferenciaEntreShardsConIdempotencyKeySeAplicaUnaVez() throws Exception {
+        Long a1 = cuenta(clienteA, "100.00");
+        Long b1 = cuenta(clienteB, "1.00");
+        String cuerpo = "{\"cuentaOrigenId\":" + a1 + ",\"cuentaDestinoId\":" + b1 + ",\"monto\":40.00}";
+
+        for (String repetida : List.of("false", "true")) {
+            mockMvc.perform(post("/api/transaccion/realizar")
+                            .header(TransaccionController.ENCABEZADO_IDEMPOTENCIA, "saga-" + a1)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(cuerpo))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(TransaccionController.ENCABEZADO_REPETIDA, repetida));
+        }
+
+        assertEquals(Money.parse("60.00"), saldo(shardA, a1));
+        assertEquals(Money.parse("41.00"), saldo(shardB, b1));
+        assertEquals(1, contar(shardA, "select count(*) from clave_idempotencia where clave = ?", "saga-" + a1));
+        assertEquals("COMPLETADA", estadoSaga(a1));
+    }
+
+    @Test
+    void testReintentarUnaSagaNoAcreditaDosVeces() {
+        Long a1 = cuenta(clienteA, "100.00");
+        Long b1 = cuenta(clienteB, "1.00");
+        transaccionService.realizarTransaccion(a1, b1, Money.parse("25.00"));
+
+        // como si el origen no se hubiera enterado del credito
+        shards.get(shardA).update("update saga_transferencia set estado = 'DEBITADA' where cuenta_origen_id = ?", a1);
+        sagas.recuperarPendientes();
+
+        assertEquals("COMPLETADA", estadoSaga(a1));
+        assertEquals(Money.parse("75.00"), saldo(shardA, a1));
+        assertEquals(Money.parse("26.00"), saldo(shardB, b1));
+    }
+
+    @Test
+    void testSagaRechazadaEnElDestinoSeCompensa() {
+        Long a1 = cuenta(clienteA, "100.00");
+        // debito ya hecho en el origen hacia una cuenta que no existe en el shard de B
+        shards.get(shardA).update("update productos set saldo = 90.00 where id = ?", a1);
+        shards.get(shardA).update("insert into saga_transferencia (id, cuenta_origen_id, cuenta_destino_id, shard_origen,"
+                        + " shard_destino, monto, estado, fecha_creacion) values (?, ?, ?, ?, ?, 10.00, 'DEBITADA', ?)",
+                "saga-" + a1, a1, 999_999L, shardA, shardB, LocalDate.of(2024, 1, 1).atStartOfDay());
+
+        sagas.recuperarPendientes();
+
+        assertEquals("COMPENSADA", estadoSaga(a1));
+        assertEquals(Money.parse("100.00"), saldo(shardA, a1));
+        assertEquals(1, contar(shardA, "select count(*) from transaccion where tipo = 'REVERSO' and cuenta_destino_id = ?", a1));
+        assertEquals(1, contar(shardB, "select count(*) from saga_aplicada where saga_id = ? and resultado = 'RECHAZADA'",
+                "saga-" + a1));
+    }
+
+    @Test
+    void testDestinoInexistenteEnOtroShardNoDebita() {
+        Long a1 = cuenta(clienteA, "100.00");
+        Long b1 = cuenta(clienteB, "1.00");
+        // sigue en el directorio pero ya no esta en su shard
+        shards.get(shardB).update("delete from productos where id = ?", b1);
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> transaccionService.realizarTransaccion(a1, b1, Money.parse("10.00")));
+        assertEquals(Money.parse("100.00"), saldo(shardA, a1));
+        assertEquals(0, contar(shardA, "select count(*) from saga_transferencia where cuenta_origen_id = ?", a1));
+    }
+
+    private Long cuenta(Long clienteId, String saldo) {
+        Productos producto = new Productos();
+        producto.setTipoCuenta("cuenta de ahorros");
+        producto.setSaldo(Money.parse(saldo));
+        return productosService.createProducto(clienteId, producto).getId();
+    }
+
+    private Money saldo(int shard, Long cuentaId) {
+        return Money.of(shards.get(shard).queryForObject("select saldo from productos where id = ?", BigDecimal.class,
+                cuentaId));
+    }
+
+    private String estadoSaga(Long cuentaOrigenId) {
+        return shards.get(directorio.shardDeCuenta(cuentaOrigenId)).queryForObject(
+                "select estado from saga_transferencia where cuenta_origen_id = ?", String.class, cuentaOrigenId);
+    }
+
+    private int contar(int shard, String sql, Object... argumentos) {
+        return shards.get(shard).queryForObject(sql, Integer.class, argumentos);
+    }
+
+    private static JdbcTemplate shard(String url) {
+        return new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+    }
+
+    private static Clientes cliente() {
+        Clientes cliente = new Clientes();
+        cliente.setNombres("Juan");
+        cliente.setApellidos("Perez");
+        cliente.setCorreoElectronico("juan@example.com");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        return cliente;
+    }
+}
@@ -1,18 +1,31 @@
 package com.example.demo.service.implement;
 
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ClienteDTO;
+import com.example.demo.dto.ProductoDTO;
+import com.example.demo.dto.ResumenClienteDTO;
 import com.example.demo.entities.Clientes;
-import com.example.demo.entities.Productos;
+import com.example.demo.exceptions.ResourceNotFoundException;
 import com.example.demo.repository.ClientesRepository;
+import com.example.demo.repository.ProductosRepository;
 import com.example.demo.validators.ClientesValidator;
+import com.example.demo.services.DirectorioShards;
 import com.example.demo.services.Implement.ClientesServiceImp;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -21,6 +34,10 @@ import static org.mockito.Mockito.*;
 
 public class ClientesServiceImpTest {
 
+    // un solo shard: todo corre en el shard 0 sin consultar el directorio
+    @Spy
+    private DirectorioShards directorio = new DirectorioShards();
+
     @InjectMocks
     private ClientesServiceImp clientesServiceImp;
 
@@ -30,6 +47,15 @@ public class ClientesServiceImpTest {
     @Mock
     private ClientesValidator clientesValidator;
 
+    @Mock
+    private ProductosRepository productosRepository;
+
+    @Spy
+    private CacheManager cacheManager = new CaffeineCacheManager();
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -52,7 +78,7 @@ public class ClientesServiceImpTest {
         clientesServiceImp.createCliente(cliente);
 
         // Assert
-        verify(clientesValidator).validateCliente(cliente);
+        verify(clientesRepository).save(cliente);
     }
 
 
@@ -61,9 +87,9 @@ public class ClientesServiceImpTest {
     void testDeleteCliente() {
         Long clienteId = 1L;
         Clientes cliente = new Clientes();
-        cliente.setProductos(java.util.Collections.emptyList());
 
         when(clientesRepository.findById(clienteId)).thenReturn(java.util.Optional.of(cliente));
+        when(productosRepository.existsByClienteId(clienteId)).thenReturn(false);
         doNothing().when(clientesRepository).delete(cliente);
 
         assertDoesNotThrow(() -> clientesServiceImp.deleteCliente(clienteId));
@@ -77,9 +103,9 @@ public class ClientesServiceImpTest {
     void testDeleteClienteConProductos() {
         Long clienteId = 1L;
         Clientes cliente = new Clientes();
-        cliente.setProductos(java.util.Collections.singletonList(new Productos()));
 
         when(clientesRepository.findById(clienteId)).thenReturn(java.util.Optional.of(cliente));
+        when(productosRepository.existsByClienteId(clienteId)).thenReturn(true);
 
         IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () -> clientesServiceImp.deleteCliente(clienteId));
         assertEquals("No se puede eliminar el cliente porque tiene productos vinculados.", thrown.getMessage());
@@ -89,16 +115,67 @@ public class ClientesServiceImpTest {
     @Test
     void testGetClienteById() {
         Long clienteId = 1L;
+
+        when(clientesRepository.findDatosById(clienteId)).thenReturn(Optional.of(datos(clienteId, "Juan")));
+        when(productosRepository.findDatosByClienteId(clienteId)).thenReturn(List.of(new ProductoDTO(5L,
+                "cuenta de ahorros", "5300000001", "activa", Money.parse("10"), false, LocalDateTime.now(), null)));
+
+        ClienteDTO result = clientesServiceImp.getClienteById(clienteId);
+
+        assertNotNull(result);
+        assertEquals(clienteId, result.id());
+        assertEquals(Money.parse("10"), result.productos().get(0).saldo());
+        verify(clientesRepository, never()).findById(clienteId);
+    }
+
+    @Test
+    void testGetClienteByIdSeInvalidaAlActualizar() {
+        Long clienteId = 1L;
         Clientes cliente = new Clientes();
         cliente.setId(clienteId);
+        cliente.setNombres("Juan");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
 
-        when(clientesRepository.findById(clienteId)).thenReturn(java.util.Optional.of(cliente));
+        when(clientesRepository.findDatosById(clienteId))
+                .thenReturn(Optional.of(datos(clienteId, "Juan")), Optional.of(datos(clienteId, "Carlos")));
+        when(clientesRepository.findById(clienteId)).thenReturn(Optional.of(cliente));
+        when(clientesRepository.save(any(Clientes.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        Clientes result = clientesServiceImp.getClienteById(clienteId);
+        clientesServiceImp.getClienteById(clienteId);
+        assertEquals("Juan", clientesServiceImp.getClienteById(clienteId).nombres());
+        verify(clientesRepository, times(1)).findDatosById(clienteId);
+        verify(productosRepository, times(2)).findDatosByClienteId(clienteId);
 
-        assertNotNull(result);
-        assertEquals(clienteId, result.getId());
+        Clientes clienteDetails = new Clientes();
+        clienteDetails.setNombres("Carlos");
+        clienteDetails.setApellidos("Lopez");
+        clienteDetails.setCorreoElectronico("carlos.lopez@example.com");
+        clienteDetails.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        clientesServiceImp.updateCliente(clienteId, clienteDetails);
+
+        assertEquals("Carlos", clientesServiceImp.getClienteById(clienteId).nombres());
+        verify(clientesRepository, times(2)).findDatosById(clienteId);
     }
+
+    @Test
+    void testGetResumenCliente() {
+        Long clienteId = 1L;
+        when(clientesRepository.findResumenById(clienteId)).thenReturn(Optional.of(new ResumenClienteDTO(clienteId,
+                "CC", "123", "Juan", "Perez", 2L, new BigDecimal("150.50"))));
+
+        ResumenClienteDTO resumen = clientesServiceImp.getResumenCliente(clienteId);
+
+        assertEquals(2, resumen.cuentas());
+        assertEquals(Money.parse("150.50"), resumen.saldoTotal());
+    }
+
+    @Test
+    void testGetResumenClienteInexistente() {
+        when(clientesRepository.findResumenById(9L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> clientesServiceImp.getResumenCliente(9L));
+    }
+
     @Test
     void testActualizarClienteExitoso() {
 
@@ -186,4 +263,8 @@ public class ClientesServiceImpTest {
         verify(clientesRepository, never()).save(any(Clientes.class));
     }
 
+    private static ClienteDTO datos(Long id, String nombres) {
+        return new ClienteDTO(id, "CC", "123", nombres, "Perez", 34, "juan@example.com", LocalDate.of(1990, 1, 1),
+                LocalDateTime.now(), null, 0L);
+    }
 }
@@ -0,0 +1,257 @@
+package com.example.demo.service.implement;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Clientes;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.exceptions.InsufficientBalanceException;
+import com.example.demo.repository.ClaveIdempotenciaRepository;
+import com.example.demo.repository.ClientesRepository;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.TransaccionRepository;
+import com.example.demo.services.EjecutorIdempotente;
+import com.example.demo.services.EscritorGrupal;
+import com.example.demo.services.Implement.GrupalTransaccionServiceImp;
+import com.example.demo.services.TransaccionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+// pool chico: una peticion con Idempotency-Key no debe retener conexion mientras espera a su grupo
+@SpringBootTest(properties = {
+        "banco.transaccion.motor=grupal",
+        "banco.grupal.ventana-ms=20",
+        "spring.datasource.hikari.maximum-pool-size=4",
+        "spring.datasource.hikari.connection-timeout=2000"
+})
+public class GrupalTransaccionServiceImpTest {
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private ProductosRepository productosRepository;
+
+    @Autowired
+    private ClientesRepository clientesRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EjecutorIdempotente ejecutorIdempotente;
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    @SpyBean
+    private ClaveIdempotenciaRepository claveIdempotenciaRepository;
+
+    private Clientes cliente;
+
+    @BeforeEach
+    void setUp() {
+        cliente = new Clientes();
+        cliente.setNombres("Juan");
+        cliente.setApellidos("Perez");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        cliente = clientesRepository.save(cliente);
+    }
+
+    private Long cuenta(String saldo) {
+        Productos producto = new Productos();
+        producto.setCliente(cliente);
+        producto.setTipoCuenta("cuenta de ahorros");
+        producto.setEstado("activa");
+        producto.setSaldo(Money.parse(saldo));
+        return productosRepository.save(producto).getId();
+    }
+
+    @Test
+    void testUsaElMotorGrupal() {
+        assertInstanceOf(GrupalTransaccionServiceImp.class, transaccionService);
+    }
+
+    @Test
+    void testRetirosConcurrentesVenSuPropioSaldoYElSobranteFalla() throws Exception {
+        Long cuentaId = cuenta("100.00");
+        ExecutorService executor = Executors.newFixedThreadPool(12);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Transaccion>> retiros = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            retiros.add(executor.submit(() -> {
+                salida.await();
+                return transaccionService.realizarRetiro(cuentaId, Money.parse("10.00"));
+            }));
+        }
+        salida.countDown();
+
+        Set<Money> saldosVistos = new HashSet<>();
+        Set<Long> ids = new HashSet<>();
+        int rechazados = 0;
+        for (Future<Transaccion> retiro : retiros) {
+            try {
+                Transaccion transaccion = retiro.get();
+                assertEquals("RETIRO", transaccion.getTipo());
+                saldosVistos.add(transaccion.getCuentaOrigen().getSaldo());
+                ids.add(transaccion.getId());
+            } catch (ExecutionException e) {
+                assertInstanceOf(InsufficientBalanceException.class, e.getCause());
+                rechazados++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(2, rechazados);
+        assertEquals(10, ids.size());
+        assertFalse(ids.contains(null));
+        Set<Money> esperados = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            esperados.add(Money.deCentavos(i * 1000L));
+        }
+        assertEquals(esperados, saldosVistos);
+        assertEquals(Money.ZERO, productosRepository.findById(cuentaId).orElseThrow().getSaldo());
+    }
+
+    @Test
+    void testTransferenciasConcurrentesConservanElDineroYSeAgrupan() throws Exception {
+        List<Long> cuentas = List.of(cuenta("500.00"), cuenta("500.00"), cuenta("500.00"), cuenta("500.00"));
+        long gruposAntes = meterRegistry.summary(EscritorGrupal.METRICA_TAMANO).count();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            tareas.add(executor.submit(() -> {
+                Long origen = cuentas.get(ThreadLocalRandom.current().nextInt(cuentas.size()));
+                Long destino = cuentas.get(ThreadLocalRandom.current().nextInt(cuentas.size()));
+                try {
+                    transaccionService.realizarTransaccion(origen, destino, Money.parse("35.00"));
+                } catch (InsufficientBalanceException e) {
+                    // sin saldo la transferencia no mueve dinero
+                }
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        executor.shutdown();
+
+        Money total = Money.ZERO;
+        for (Long id : cuentas) {
+            Money saldo = productosRepository.findById(id).orElseThrow().getSaldo();
+            assertFalse(saldo.esNegativo());
+            total = total.sumar(saldo);
+        }
+        assertEquals(Money.parse("2000.00"), total);
+        long grupos = meterRegistry.summary(EscritorGrupal.METRICA_TAMANO).count() - gruposAntes;
+        assertTrue(grupos > 0 && grupos < 400, "grupos confirmados: " + grupos);
+    }
+
+    @Test
+    void testClaveConEsperaVencidaNoRepiteElMovimiento() throws Exception {
+        Long cuentaId = cuenta("100.00");
+        String huella = EjecutorIdempotente.huella("retirar", cuentaId, null, Money.parse("10.00"));
+        GrupalTransaccionServiceImp servicio = AopTestUtils.getTargetObject(transaccionService);
+        // el grupo se detiene dentro de su transaccion hasta que la peticion deja de esperar
+        CountDownLatch continuar = new CountDownLatch(1);
+        Answer<?> repositorioReal = mockingDetails(claveIdempotenciaRepository).getMockCreationSettings()
+                .getDefaultAnswer();
+        doAnswer(invocation -> {
+            continuar.await(10, TimeUnit.SECONDS);
+            return repositorioReal.answer(invocation);
+        }).doAnswer(repositorioReal).when(claveIdempotenciaRepository).findByClaveIn(any());
+        ReflectionTestUtils.setField(servicio, "timeoutMs", 200L);
+        try {
+            IllegalStateException vencida = assertThrows(IllegalStateException.class,
+                    () -> ejecutorIdempotente.ejecutar("retiro-lento", huella, cuentaId,
+                            () -> transaccionService.realizarRetiro(cuentaId, Money.parse("10.00"))));
+            assertEquals("El escritor de transacciones no respondio a tiempo.", vencida.getMessage());
+        } finally {
+            ReflectionTestUtils.setField(servicio, "timeoutMs", 5000L);
+            continuar.countDown();
+        }
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (claveIdempotenciaRepository.findByClave("retiro-lento").isEmpty() && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+
+        EjecutorIdempotente.Respuesta reintento = ejecutorIdempotente.ejecutar("retiro-lento", huella, cuentaId,
+                () -> transaccionService.realizarRetiro(cuentaId, Money.parse("10.00")));
+
+        assertTrue(reintento.repetida());
+        assertEquals(Money.parse("90.00"), productosRepository.findById(cuentaId).orElseThrow().getSaldo());
+        assertEquals(1, transaccionRepository.findAll().stream()
+                .filter(t -> t.getCuentaOrigen() != null && cuentaId.equals(t.getCuentaOrigen().getId()))
+                .count());
+    }
+
+    @Test
+    void testClavesConcurrentesNoRetienenConexionesMientrasEsperan() throws Exception {
+        Long cuentaId = cuenta("0.01");
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<EjecutorIdempotente.Respuesta>> depositos = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            String clave = "deposito-" + cuentaId + "-" + i;
+            depositos.add(executor.submit(() -> {
+                salida.await();
+                return ejecutorIdempotente.ejecutar(clave,
+                        EjecutorIdempotente.huella("depositar", null, cuentaId, Money.parse("5.00")), cuentaId,
+                        () -> transaccionService.realizarDeposito(cuentaId, Money.parse("5.00")));
+            }));
+        }
+        salida.countDown();
+
+        for (Future<EjecutorIdempotente.Respuesta> deposito : depositos) {
+            assertFalse(deposito.get().repetida());
+        }
+        executor.shutdown();
+
+        assertEquals(Money.parse("80.01"), productosRepository.findById(cuentaId).orElseThrow().getSaldo());
+        for (int i = 0; i < 16; i++) {
+            assertTrue(claveIdempotenciaRepository.findByClave("deposito-" + cuentaId + "-" + i).isPresent());
+        }
+    }
+
+    @Test
+    void testDepositoConMontoNegativoNoSeEncola() {
+        Long cuentaId = cuenta("10.00");
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> transaccionService.realizarDeposito(cuentaId, Money.parse("-1.00")));
+        assertEquals("El monto del depósito debe ser positivo.", thrown.getMessage());
+    }
+
+    @Test
+    void testCuentaInexistenteFallaSoloEseMovimiento() {
+        Long cuentaId = cuenta("10.00");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> transaccionService.realizarTransaccion(cuentaId, -1L, Money.parse("5.00")));
+        Transaccion deposito = transaccionService.realizarDeposito(cuentaId, Money.parse("5.00"));
+        assertEquals(Money.parse("15.00"), deposito.getCuentaDestino().getSaldo());
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.demo.service.implement;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.ledger.LedgerEnMemoria;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.TransaccionRepository;
+import com.example.demo.services.Implement.LedgerTransaccionServiceImp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class LedgerTransaccionServiceImpTest {
+
+    @TempDir
+    Path directorio;
+
+    @Mock
+    private ProductosRepository productosRepository;
+
+    @Mock
+    private TransaccionRepository transaccionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private LedgerTransaccionServiceImp transaccionService;
+
+    private final Map<Long, Money> saldosPersistidos = new ConcurrentHashMap<>();
+    private final Map<Long, String> estados = new ConcurrentHashMap<>();
+
+    private LedgerEnMemoria motor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        for (long id = 1; id <= 8; id++) {
+            saldosPersistidos.put(id, Money.parse("1000.00"));
+        }
+        when(productosRepository.findById(anyLong())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            Money saldo = saldosPersistidos.get(id);
+            if (saldo == null) {
+                return Optional.empty();
+            }
+            Productos producto = new Productos();
+            producto.setId(id);
+            producto.setSaldo(saldo);
+            producto.setEstado(estados.getOrDefault(id, "activa"));
+            return Optional.of(producto);
+        });
+        when(productosRepository.actualizarSaldo(anyLong(), any(Money.class))).thenAnswer(invocation -> {
+            saldosPersistidos.put(invocation.getArgument(0), invocation.getArgument(1));
+            return 1;
+        });
+        when(transaccionRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        motor = nuevoMotor();
+        motor.iniciar();
+        ReflectionTestUtils.setField(transaccionService, "ledger", motor);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        motor.cerrar();
+    }
+
+    private LedgerEnMemoria nuevoMotor() {
+        return new LedgerEnMemoria(productosRepository, transaccionRepository,
+                new TransactionTemplate(transactionManager), 4, directorio, 100, 5);
+    }
+
+    @Test
+    void testRealizarTransaccionEntreShards() throws Exception {
+        Transaccion resultado = transaccionService.realizarTransaccion(1L, 2L, Money.parse("100.00"));
+
+        assertEquals("TRANSFERENCIA", resultado.getTipo());
+        assertEquals(Money.parse("900.00"), resultado.getCuentaOrigen().getSaldo());
+        assertEquals(Money.parse("1100.00"), resultado.getCuentaDestino().getSaldo());
+
+        motor.cerrar();
+        assertEquals(Money.parse("900.00"), saldosPersistidos.get(1L));
+        assertEquals(Money.parse("1100.00"), saldosPersistidos.get(2L));
+        motor = nuevoMotor();
+        motor.iniciar();
+    }
+
+    @Test
+    void testRealizarRetiroSaldoInsuficiente() {
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> transaccionService.realizarRetiro(1L, Money.parse("5000.00")));
+        assertEquals("Saldo insuficiente para realizar el retiro.", thrown.getMessage());
+    }
+
+    @Test
+    void testRealizarDepositoMontoNegativo() {
+        assertThrows(IllegalArgumentException.class,
+                () -> transaccionService.realizarDeposito(1L, Money.parse("-1.00")));
+    }
+
+    @Test
+    void testRecargarTomaLaFilaYConservaElSaldoEnMemoria() {
+        transaccionService.realizarDeposito(1L, Money.parse("1.00"));
+        // la fila cambia fuera del ledger y su saldo no es el de memoria
+        estados.put(1L, "inactiva");
+        saldosPersistidos.put(1L, Money.parse("1.00"));
+
+        motor.recargar(1L).join();
+        Transaccion deposito = transaccionService.realizarDeposito(1L, Money.parse("1.00"));
+
+        assertEquals("inactiva", deposito.getCuentaDestino().getEstado());
+        assertEquals(Money.parse("1002.00"), deposito.getCuentaDestino().getSaldo());
+    }
+
+    @Test
+    void testMontosNegativosOCeroSeRechazan() throws Exception {
+        for (String monto : new String[]{"-100.00", "0"}) {
+            IllegalArgumentException transferencia = assertThrows(IllegalArgumentException.class,
+                    () -> transaccionService.realizarTransaccion(1L, 2L, Money.parse(monto)));
+            assertEquals("El monto de la transacción debe ser positivo.", transferencia.getMessage());
+            IllegalArgumentException retiro = assertThrows(IllegalArgumentException.class,
+                    () -> transaccionService.realizarRetiro(1L, Money.parse(monto)));
+            assertEquals("El monto de la transacción debe ser positivo.", retiro.getMessage());
+            // directo al ledger, sin pasar por el servicio
+            ExecutionException debito = assertThrows(ExecutionException.class,
+                    () -> motor.retirar(1L, Money.parse(monto)).get());
+            assertInstanceOf(IllegalArgumentException.class, debito.getCause());
+            ExecutionException credito = assertThrows(ExecutionException.class,
+                    () -> motor.depositar(2L, Money.parse(monto)).get());
+            assertInstanceOf(IllegalArgumentException.class, credito.getCause());
+        }
+
+        Transaccion deposito = transaccionService.realizarDeposito(1L, Money.parse("1.00"));
+        assertEquals(Money.parse("1001.00"), deposito.getCuentaDestino().getSaldo());
+        Transaccion otro = transaccionService.realizarDeposito(2L, Money.parse("1.00"));
+        assertEquals(Money.parse("1001.00"), otro.getCuentaDestino().getSaldo());
+    }
+
+    @Test
+    void testRealizarTransaccionCuentaDestinoNoEncontrada() {
+        assertThrows(IllegalArgumentException.class,
+                () -> transaccionService.realizarTransaccion(1L, 99L, Money.parse("10.00")));
+
+        Transaccion deposito = transaccionService.realizarDeposito(1L, Money.parse("1.00"));
+        assertEquals(Money.parse("1001.00"), deposito.getCuentaDestino().getSaldo());
+    }
+
+    @Test
+    void testTransferenciasConcurrentesConservanElDinero() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            tareas.add(executor.submit(() -> {
+                long origen = ThreadLocalRandom.current().nextLong(1, 9);
+                long destino = ThreadLocalRandom.current().nextLong(1, 9);
+                try {
+                    transaccionService.realizarTransaccion(origen, destino, Money.parse("7.00"));
+                } catch (IllegalArgumentException e) {
+                    // saldo insuficiente: la transferencia no debe mover dinero
+                }
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        executor.shutdown();
+        motor.cerrar();
+
+        Money total = saldosPersistidos.values().stream().reduce(Money.ZERO, Money::sumar);
+        assertEquals(Money.parse("8000.00"), total);
+        saldosPersistidos.values().forEach(saldo -> assertFalse(saldo.esNegativo()));
+        motor = nuevoMotor();
+        motor.iniciar();
+    }
+
+    @Test
+    void testRecuperaDelDiarioLoQueNoSePersistio() throws Exception {
+        motor.cerrar();
+        doThrow(new IllegalStateException("base de datos caida"))
+                .when(productosRepository).actualizarSaldo(anyLong(), any(Money.class));
+        motor = nuevoMotor();
+        motor.iniciar();
+        ReflectionTestUtils.setField(transaccionService, "ledger", motor);
+
+        transaccionService.realizarRetiro(3L, Money.parse("250.00"));
+        motor.cerrar();
+        assertEquals(Money.parse("1000.00"), saldosPersistidos.get(3L));
+
+        doAnswer(invocation -> {
+            saldosPersistidos.put(invocation.getArgument(0), invocation.getArgument(1));
+            return 1;
+        }).when(productosRepository).actualizarSaldo(anyLong(), any(Money.class));
+        motor = nuevoMotor();
+        motor.iniciar();
+
+        assertEquals(Money.parse("750.00"), saldosPersistidos.get(3L));
+        verify(transaccionRepository, atLeastOnce()).saveAll(argThat(transacciones ->
+                transacciones.iterator().hasNext()
+                        && "RETIRO".equals(transacciones.iterator().next().getTipo())));
+    }
+}
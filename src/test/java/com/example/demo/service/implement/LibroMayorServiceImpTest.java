@@ -0,0 +1,128 @@
+package com.example.demo.service.implement;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.entities.AsientoContable;
+import com.example.demo.entities.Productos;
+import com.example.demo.entities.Transaccion;
+import com.example.demo.repository.AsientoContableRepository;
+import com.example.demo.repository.ProductosRepository;
+import com.example.demo.repository.SaldoSnapshotRepository;
+import com.example.demo.services.LibroMayorService;
+import com.example.demo.services.TransaccionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "banco.libro-mayor.habilitado=true",
+        "banco.libro-mayor.umbral-compactacion=3",
+        "banco.libro-mayor.reintentos=100",
+        "banco.libro-mayor.intervalo-compactacion-ms=3600000"
+})
+public class LibroMayorServiceImpTest {
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private LibroMayorService libroMayor;
+
+    @Autowired
+    private ProductosRepository productosRepository;
+
+    @Autowired
+    private AsientoContableRepository asientoRepository;
+
+    @Autowired
+    private SaldoSnapshotRepository snapshotRepository;
+
+    private Long cuenta(String saldo) {
+        Productos producto = new Productos();
+        producto.setTipoCuenta("cuenta de ahorros");
+        producto.setEstado("activa");
+        producto.setSaldo(Money.parse(saldo));
+        return productosRepository.save(producto).getId();
+    }
+
+    private Money saldo(Long cuentaId) {
+        return libroMayor.saldoActual(cuentaId).orElseThrow();
+    }
+
+    @Test
+    void testTransferenciaGeneraDebitoYCreditoSinTocarProductos() {
+        Long origen = cuenta("500.00");
+        Long destino = cuenta("100.00");
+
+        Transaccion transaccion = transaccionService.realizarTransaccion(origen, destino, Money.parse("200.00"));
+
+        List<AsientoContable> asientos = asientoRepository.findByTransaccionId(transaccion.getId());
+        assertEquals(2, asientos.size());
+        assertEquals(0, asientos.stream().map(a -> "DEBITO".equals(a.getTipo()) ? a.getMonto().negate() : a.getMonto())
+                .reduce(BigDecimal.ZERO, BigDecimal::add).signum());
+        assertEquals(0, Money.parse("300.00").compareTo(saldo(origen)));
+        assertEquals(0, Money.parse("300.00").compareTo(saldo(destino)));
+        assertEquals(0, Money.parse("500.00").compareTo(productosRepository.findSaldoById(origen).orElseThrow()));
+    }
+
+    @Test
+    void testSaldoInsuficienteNoDejaAsientos() {
+        Long origen = cuenta("50.00");
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> transaccionService.realizarRetiro(origen, Money.parse("80.00")));
+
+        assertEquals("Saldo insuficiente para realizar el retiro.", error.getMessage());
+        assertEquals(0, asientoRepository.findUltimaSecuencia(origen));
+        assertEquals(0, Money.parse("50.00").compareTo(saldo(origen)));
+    }
+
+    @Test
+    void testCompactacionConservaSaldoYPermiteConsultaHistorica() throws InterruptedException {
+        Long cuenta = cuenta("0.00");
+        for (int i = 0; i < 4; i++) {
+            transaccionService.realizarDeposito(cuenta, Money.parse("10.00"));
+        }
+        Thread.sleep(5);
+        LocalDateTime corte = LocalDateTime.now();
+        Thread.sleep(5);
+        transaccionService.realizarDeposito(cuenta, Money.parse("5.00"));
+
+        libroMayor.compactar();
+
+        assertEquals(5L, snapshotRepository.findFirstByCuentaIdOrderBySecuenciaDesc(cuenta).orElseThrow().getSecuencia());
+        assertEquals(0, Money.parse("45.00").compareTo(saldo(cuenta)));
+        assertEquals(0, Money.parse("40.00").compareTo(libroMayor.saldoAl(cuenta, corte).orElseThrow()));
+    }
+
+    @Test
+    void testRetirosConcurrentesSobreCuentaCalienteNoSobregiran() throws InterruptedException {
+        Long cuenta = cuenta("100.00");
+        AtomicInteger exitosos = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 20; i++) {
+            executor.submit(() -> {
+                try {
+                    transaccionService.realizarRetiro(cuenta, Money.parse("10.00"));
+                    exitosos.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    // saldo insuficiente
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(10, exitosos.get());
+        assertEquals(0, Money.ZERO.compareTo(saldo(cuenta)));
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.demo.service.implement;
+
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.FormatoExtracto;
+import com.example.demo.dto.MovimientoDTO;
+import com.example.demo.dto.PaginaMovimientosDTO;
+import com.example.demo.repository.TransaccionRepository;
+import com.example.demo.services.DirectorioShards;
+import com.example.demo.services.Implement.MovimientosServiceImp;
+import com.example.demo.services.LibroMayorService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class MovimientosServiceImpTest {
+
+    // un solo shard: todo corre en el shard 0 sin consultar el directorio
+    @Spy
+    private DirectorioShards directorio = new DirectorioShards();
+
+    @InjectMocks
+    private MovimientosServiceImp movimientosService;
+
+    @Mock
+    private TransaccionRepository transaccionRepository;
+
+    @Mock
+    private LibroMayorService libroMayor;
+
+    private final LocalDateTime base = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private MovimientoDTO movimiento(long id, int minuto, Long origen, Long destino) {
+        return new MovimientoDTO(id, origen == null ? "DEPOSITO" : destino == null ? "RETIRO" : "TRANSFERENCIA",
+                Money.parse("10"), base.plusMinutes(minuto), origen, destino);
+    }
+
+    @Test
+    void testPrimeraPaginaMezclaOrigenYDestino() {
+        when(transaccionRepository.findMovimientosComoOrigen(eq(1L), any(Limit.class))).thenReturn(List.of(
+                movimiento(9, 9, 1L, null), movimiento(5, 5, 1L, 2L), movimiento(2, 2, 1L, 1L)));
+        when(transaccionRepository.findMovimientosComoDestino(eq(1L), any(Limit.class))).thenReturn(List.of(
+                movimiento(7, 7, null, 1L), movimiento(2, 2, 1L, 1L)));
+
+        PaginaMovimientosDTO pagina = movimientosService.consultarMovimientos(1L, null, 3);
+
+        assertEquals(List.of(9L, 7L, 5L), pagina.getMovimientos().stream().map(MovimientoDTO::getId).toList());
+        assertNotNull(pagina.getSiguienteCursor());
+        verify(transaccionRepository).findMovimientosComoOrigen(1L, Limit.of(4));
+    }
+
+    @Test
+    void testSiguientePaginaUsaElCursor() {
+        when(transaccionRepository.findMovimientosComoOrigen(eq(1L), any(Limit.class))).thenReturn(List.of(
+                movimiento(9, 9, 1L, null), movimiento(5, 5, 1L, 2L)));
+        when(transaccionRepository.findMovimientosComoDestino(eq(1L), any(Limit.class))).thenReturn(List.of(
+                movimiento(7, 7, null, 1L)));
+        String cursor = movimientosService.consultarMovimientos(1L, null, 1).getSiguienteCursor();
+
+        when(transaccionRepository.findMovimientosComoOrigenAntesDe(1L, base.plusMinutes(9), 9L, Limit.of(3)))
+                .thenReturn(List.of(movimiento(5, 5, 1L, 2L)));
+        when(transaccionRepository.findMovimientosComoDestinoAntesDe(1L, base.plusMinutes(9), 9L, Limit.of(3)))
+                .thenReturn(List.of(movimiento(7, 7, null, 1L)));
+
+        PaginaMovimientosDTO pagina = movimientosService.consultarMovimientos(1L, cursor, 2);
+
+        assertEquals(List.of(7L, 5L), pagina.getMovimientos().stream().map(MovimientoDTO::getId).toList());
+        assertNull(pagina.getSiguienteCursor());
+    }
+
+    @Test
+    void testCursorInvalido() {
+        assertThrows(IllegalArgumentException.class,
+                () -> movimientosService.consultarMovimientos(1L, "no-es-un-cursor", 10));
+    }
+
+    @Test
+    void testLimiteFueraDeRango() {
+        assertThrows(IllegalArgumentException.class, () -> movimientosService.consultarMovimientos(1L, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> movimientosService.consultarMovimientos(1L, null, 501));
+    }
+
+    @Test
+    void testExtractoCsvConSaldoCorriente() throws Exception {
+        LocalDateTime desde = base;
+        LocalDateTime hasta = base.plusDays(1);
+        when(libroMayor.saldoActual(1L)).thenReturn(Optional.of(Money.parse("130")));
+        when(transaccionRepository.sumarCreditosDesde(1L, desde)).thenReturn(new BigDecimal("50"));
+        when(transaccionRepository.sumarDebitosDesde(1L, desde)).thenReturn(new BigDecimal("20"));
+        when(transaccionRepository.streamMovimientos(1L, desde, hasta)).thenReturn(Stream.of(
+                new MovimientoDTO(1L, "DEPOSITO", Money.parse("50"), base.plusMinutes(1), null, 1L),
+                new MovimientoDTO(2L, "RETIRO", Money.parse("20"), base.plusMinutes(2), 1L, null)));
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        movimientosService.exportarExtracto(1L, desde, hasta, FormatoExtracto.CSV, salida);
+
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lineas.length);
+        assertEquals("1,2024-05-01T10:01,DEPOSITO,50.00,,1,150.00", lineas[1]);
+        assertEquals("2,2024-05-01T10:02,RETIRO,20.00,1,,130.00", lineas[2]);
+    }
+
+    @Test
+    void testExtractoNdjson() throws Exception {
+        when(libroMayor.saldoActual(1L)).thenReturn(Optional.of(Money.parse("10")));
+        when(transaccionRepository.sumarCreditosDesde(eq(1L), any())).thenReturn(BigDecimal.ZERO);
+        when(transaccionRepository.sumarDebitosDesde(eq(1L), any())).thenReturn(BigDecimal.ZERO);
+        when(transaccionRepository.streamMovimientos(eq(1L), any(), any())).thenReturn(Stream.of(
+                new MovimientoDTO(3L, "TRANSFERENCIA", Money.parse("4"), base, 1L, 2L)));
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        movimientosService.exportarExtracto(1L, null, null, FormatoExtracto.NDJSON, salida);
+
+        assertEquals("{\"id\":3,\"fechaHoraTransaccion\":\"2024-05-01T10:00\",\"tipo\":\"TRANSFERENCIA\","
+                        + "\"monto\":4.00,\"cuentaOrigenId\":1,\"cuentaDestinoId\":2,\"saldo\":6.00}\n",
+                salida.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testExtractoNoRetieneFilasEnMemoria() throws Exception {
+        long totalFilas = 500_000;
+        AtomicLong generadas = new AtomicLong();
+        AtomicLong escritas = new AtomicLong();
+        AtomicLong maximoEnVuelo = new AtomicLong();
+        when(libroMayor.saldoActual(1L)).thenReturn(Optional.of(Money.ZERO));
+        when(transaccionRepository.sumarCreditosDesde(eq(1L), any())).thenReturn(BigDecimal.ZERO);
+        when(transaccionRepository.sumarDebitosDesde(eq(1L), any())).thenReturn(BigDecimal.ZERO);
+        when(transaccionRepository.streamMovimientos(eq(1L), any(), any())).thenReturn(
+                Stream.generate(() -> {
+                    long id = generadas.incrementAndGet();
+                    maximoEnVuelo.accumulateAndGet(id - escritas.get(), Math::max);
+                    return new MovimientoDTO(id, "DEPOSITO", Money.parse("1"), base, null, 1L);
+                }).limit(totalFilas));
+
+        OutputStream contador = new OutputStream() {
+            @Override
+            public void write(int b) {
+                if (b == '\n') {
+                    escritas.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                for (int i = off; i < off + len; i++) {
+                    write(b[i]);
+                }
+            }
+        };
+        movimientosService.exportarExtracto(1L, null, null, FormatoExtracto.CSV, contador);
+
+        assertEquals(totalFilas + 1, escritas.get());
+        // solo el buffer de escritura separa lo leido de lo enviado, sin importar el total de filas
+        assertTrue(maximoEnVuelo.get() < 1_000, "filas retenidas: " + maximoEnVuelo.get());
+    }
+}
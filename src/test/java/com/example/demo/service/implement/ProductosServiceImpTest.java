@@ -1,10 +1,16 @@
 package com.example.demo.service.implement;
 
+import com.example.demo.dinero.Money;
+import com.example.demo.dto.ProductoDTO;
 import com.example.demo.entities.Clientes;
 import com.example.demo.entities.Productos;
+import com.example.demo.exceptions.ResourceNotFoundException;
+import com.example.demo.ledger.LedgerEnMemoria;
 import com.example.demo.repository.ClientesRepository;
 import com.example.demo.repository.ProductosRepository;
+import com.example.demo.services.DirectorioShards;
 import com.example.demo.services.Implement.ProductosServiceImp;
+import com.example.demo.services.LibroMayorService;
 import com.example.demo.services.NumeroCuentaGenerator;
 import com.example.demo.validators.SaldoMinimoValidator;
 import com.example.demo.validators.TipoCuentaValidator;
@@ -13,15 +19,26 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 public class ProductosServiceImpTest {
 
+    // un solo shard: todo corre en el shard 0 sin consultar el directorio
+    @Spy
+    private DirectorioShards directorio = new DirectorioShards();
+
     @InjectMocks
     private ProductosServiceImp productosServiceImp;
 
@@ -40,10 +57,27 @@ public class ProductosServiceImpTest {
     @Mock
     private NumeroCuentaGenerator numeroCuentaGenerator;
 
+    @Mock
+    private LibroMayorService libroMayor;
+
+    @Mock
+    private LedgerEnMemoria ledgerEnMemoria;
+
+    @Mock
+    private ObjectProvider<LedgerEnMemoria> ledger;
+
+    @Spy
+    private CacheManager cacheManager = new CaffeineCacheManager();
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     // Inicializa los mocks antes de cada prueba
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(ledger.getObject()).thenReturn(ledgerEnMemoria);
+        when(ledgerEnMemoria.recargar(anyLong())).thenReturn(CompletableFuture.completedFuture(null));
     }
 
 
@@ -55,7 +89,7 @@ public class ProductosServiceImpTest {
 
         Productos producto = new Productos();
         producto.setTipoCuenta("cuenta de ahorros");
-        producto.setSaldo(BigDecimal.TEN);
+        producto.setSaldo(Money.parse("10"));
         producto.setFechaCreacion(LocalDateTime.now());
 
         when(clientesRepository.findById(clienteId)).thenReturn(java.util.Optional.of(cliente));
@@ -66,7 +100,7 @@ public class ProductosServiceImpTest {
         assertNotNull(result);
         assertEquals(cliente, result.getCliente());
         assertEquals("cuenta de ahorros", result.getTipoCuenta());
-        assertEquals(BigDecimal.TEN, result.getSaldo());
+        assertEquals(Money.parse("10"), result.getSaldo());
         assertEquals("activa", result.getEstado());
 
         verify(tipoCuentaValidator).validate("cuenta de ahorros");
@@ -83,7 +117,7 @@ public class ProductosServiceImpTest {
 
         Productos producto = new Productos();
         producto.setTipoCuenta("cuenta corriente");
-        producto.setSaldo(BigDecimal.TEN);
+        producto.setSaldo(Money.parse("10"));
         producto.setFechaCreacion(LocalDateTime.now());
 
         when(clientesRepository.findById(clienteId)).thenReturn(java.util.Optional.of(cliente));
@@ -94,7 +128,7 @@ public class ProductosServiceImpTest {
         assertNotNull(result);
         assertEquals(cliente, result.getCliente());
         assertEquals("cuenta corriente", result.getTipoCuenta());
-        assertEquals(BigDecimal.TEN, result.getSaldo());
+        assertEquals(Money.parse("10"), result.getSaldo());
         assertEquals("activa", result.getEstado());
 
         verify(tipoCuentaValidator).validate("cuenta corriente");
@@ -106,7 +140,7 @@ public class ProductosServiceImpTest {
     @Test
     void testCreateProducto_SaldoNegativo() {
         Productos producto = new Productos();
-        producto.setSaldo(new BigDecimal("-100"));
+        producto.setSaldo(Money.parse("-100"));
         producto.setTipoCuenta("cuenta de ahorros");
         SaldoMinimoValidator saldoMinimoValidator = new SaldoMinimoValidator();
         IllegalArgumentException thrown = assertThrows(
@@ -128,12 +162,12 @@ public class ProductosServiceImpTest {
         Productos productoExistente = new Productos();
         productoExistente.setTipoCuenta("cuenta corriente");
         productoExistente.setEstado("inactiva");
-        productoExistente.setSaldo(BigDecimal.ZERO);
+        productoExistente.setSaldo(Money.ZERO);
 
         Productos productoNuevo = new Productos();
         productoNuevo.setTipoCuenta("cuenta de ahorros");
         productoNuevo.setEstado("activa");
-        productoNuevo.setSaldo(BigDecimal.TEN);
+        productoNuevo.setSaldo(Money.parse("10"));
 
         when(productosRepository.findById(productoId)).thenReturn(java.util.Optional.of(productoExistente));
         when(productosRepository.save(any(Productos.class))).thenReturn(productoExistente);
@@ -152,12 +186,61 @@ public class ProductosServiceImpTest {
     }
 
 
+    @Test
+    void testUpdateProductoConMotorLedgerRechazaCambioDeSaldo() {
+        ReflectionTestUtils.setField(productosServiceImp, "motor", "ledger");
+        Productos productoExistente = new Productos();
+        productoExistente.setSaldo(Money.parse("10"));
+        Productos productoNuevo = new Productos();
+        productoNuevo.setTipoCuenta("cuenta de ahorros");
+        productoNuevo.setEstado("activa");
+        productoNuevo.setSaldo(Money.parse("500"));
+        when(productosRepository.findById(1L)).thenReturn(java.util.Optional.of(productoExistente));
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> productosServiceImp.updateProducto(1L, productoNuevo));
+        assertEquals("Con el motor ledger el saldo solo cambia con transacciones.", thrown.getMessage());
+        verify(productosRepository, never()).save(any(Productos.class));
+
+        // el mismo saldo, o ninguno, deja editar el resto de la cuenta
+        productoNuevo.setSaldo(null);
+        when(productosRepository.save(any(Productos.class))).thenReturn(productoExistente);
+        productosServiceImp.updateProducto(1L, productoNuevo);
+        assertEquals(Money.parse("10"), productoExistente.getSaldo());
+        assertEquals("activa", productoExistente.getEstado());
+    }
+
+
+    @Test
+    void testDeleteProductoConMotorLedgerSeRechaza() {
+        ReflectionTestUtils.setField(productosServiceImp, "motor", "ledger");
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> productosServiceImp.deleteProducto(1L));
+        assertEquals("Con el motor ledger no se pueden cancelar cuentas.", thrown.getMessage());
+        verify(productosRepository, never()).delete(any(Productos.class));
+    }
+
+    @Test
+    void testDesactivarProductoConMotorLedgerRecargaLaCuentaDelShard() {
+        ReflectionTestUtils.setField(productosServiceImp, "motor", "ledger");
+        Productos producto = new Productos();
+        producto.setEstado("activa");
+        when(productosRepository.findById(1L)).thenReturn(java.util.Optional.of(producto));
+        when(productosRepository.save(any(Productos.class))).thenReturn(producto);
+
+        productosServiceImp.desactivarProducto(1L);
+
+        verify(ledgerEnMemoria).recargar(1L);
+    }
+
+
     @Test
     void testDeleteProducto() {
 
         Long productoId = 1L;
         Productos producto = new Productos();
-        producto.setSaldo(BigDecimal.ZERO);
+        producto.setSaldo(Money.ZERO);
         when(productosRepository.findById(productoId)).thenReturn(java.util.Optional.of(producto));
         doNothing().when(productosRepository).delete(producto);
         assertDoesNotThrow(() -> productosServiceImp.deleteProducto(productoId));
@@ -170,7 +253,7 @@ public class ProductosServiceImpTest {
 
         Long productoId = 1L;
         Productos producto = new Productos();
-        producto.setSaldo(BigDecimal.TEN);
+        producto.setSaldo(Money.parse("10"));
 
         when(productosRepository.findById(productoId)).thenReturn(java.util.Optional.of(producto));
 
@@ -183,12 +266,53 @@ public class ProductosServiceImpTest {
     @Test
     void testGetProductoById() {
         Long productoId = 1L;
-        Productos producto = new Productos();
-        producto.setId(productoId);
-        when(productosRepository.findById(productoId)).thenReturn(java.util.Optional.of(producto));
-        Productos result = productosServiceImp.getProductoById(productoId);
+        when(productosRepository.findDatosById(productoId)).thenReturn(java.util.Optional.of(new ProductoDTO(productoId,
+                "cuenta de ahorros", "5300000001", "activa", Money.parse("10"), false, LocalDateTime.now(), null, 7L)));
+        ProductoDTO result = productosServiceImp.getProductoById(productoId);
         assertNotNull(result);
-        assertEquals(productoId, result.getId());
+        assertEquals(productoId, result.id());
+        assertEquals(Money.parse("10"), result.saldo());
+        assertEquals(7L, result.version());
+        verify(productosRepository, never()).findById(productoId);
+        verifyNoInteractions(libroMayor);
+    }
+
+
+    @Test
+    void testGetProductoByIdConLibroMayorUsaCacheSinSaldoObsoleto() {
+        ReflectionTestUtils.setField(productosServiceImp, "libroMayorHabilitado", true);
+        Long productoId = 1L;
+        when(productosRepository.findMetadatosById(productoId)).thenReturn(java.util.Optional.of(metadatos(productoId, "activa")));
+        when(libroMayor.saldoActual(productoId))
+                .thenReturn(java.util.Optional.of(Money.parse("1")), java.util.Optional.of(Money.parse("10")));
+
+        assertEquals(Money.parse("1"), productosServiceImp.getProductoById(productoId).saldo());
+        ProductoDTO result = productosServiceImp.getProductoById(productoId);
+        assertEquals(Money.parse("10"), result.saldo());
+        assertNull(result.version());
+
+        verify(productosRepository, times(1)).findMetadatosById(productoId);
+        verify(libroMayor, times(2)).saldoActual(productoId);
+    }
+
+
+    @Test
+    void testGetProductoByIdInexistente() {
+        when(productosRepository.findDatosById(9L)).thenReturn(java.util.Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> productosServiceImp.getProductoById(9L));
+    }
+
+
+    @Test
+    void testGetVersionProducto() {
+        when(productosRepository.findVersionById(1L)).thenReturn(java.util.Optional.of(3L));
+
+        assertEquals(java.util.Optional.of(3L), productosServiceImp.getVersionProducto(1L));
+
+        ReflectionTestUtils.setField(productosServiceImp, "libroMayorHabilitado", true);
+        assertTrue(productosServiceImp.getVersionProducto(1L).isEmpty());
+        verify(productosRepository, times(1)).findVersionById(1L);
     }
 
 
@@ -222,11 +346,37 @@ public class ProductosServiceImpTest {
 
     @Test
     void testGetEstadoProductoById() {
+        Long productoId = 1L;
+        when(productosRepository.findMetadatosById(productoId)).thenReturn(java.util.Optional.of(metadatos(productoId, "activa")));
+        String estado = productosServiceImp.getEstadoProductoById(productoId);
+        assertEquals("activa", estado);
+        verify(productosRepository, never()).findById(productoId);
+    }
+
+
+    @Test
+    void testGetEstadoProductoByIdSeInvalidaAlDesactivar() {
         Long productoId = 1L;
         Productos producto = new Productos();
+        producto.setId(productoId);
         producto.setEstado("activa");
+        when(productosRepository.findMetadatosById(productoId)).thenReturn(
+                java.util.Optional.of(metadatos(productoId, "activa")), java.util.Optional.of(metadatos(productoId, "inactiva")));
         when(productosRepository.findById(productoId)).thenReturn(java.util.Optional.of(producto));
-        String estado = productosServiceImp.getEstadoProductoById(productoId);
-        assertEquals("activa", estado);
+        when(productosRepository.save(producto)).thenReturn(producto);
+
+        assertEquals("activa", productosServiceImp.getEstadoProductoById(productoId));
+        assertEquals("activa", productosServiceImp.getEstadoProductoById(productoId));
+        verify(productosRepository, times(1)).findMetadatosById(productoId);
+
+        productosServiceImp.desactivarProducto(productoId);
+
+        assertEquals("inactiva", productosServiceImp.getEstadoProductoById(productoId));
+        verify(productosRepository, times(2)).findMetadatosById(productoId);
+    }
+
+
+    private static ProductoDTO metadatos(Long id, String estado) {
+        return new ProductoDTO(id, "cuenta de ahorros", "5300000001", estado, false, LocalDateTime.now(), null);
     }
 }
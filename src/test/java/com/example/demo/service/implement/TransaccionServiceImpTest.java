@@ -6,20 +6,28 @@ import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Optional;
 
+import com.example.demo.dinero.Money;
 import com.example.demo.entities.Productos;
 import com.example.demo.entities.Transaccion;
+import com.example.demo.exceptions.InsufficientBalanceException;
+import com.example.demo.services.DirectorioShards;
 import com.example.demo.services.Implement.TransaccionServiceImp;
+import com.example.demo.services.MotorGmf;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 
 import com.example.demo.repository.ProductosRepository;
@@ -36,6 +44,17 @@ public class TransaccionServiceImpTest {
     @Mock
     private ProductosRepository productosRepository;
 
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    // un solo shard: todo corre en el shard 0 sin consultar el directorio
+    @Spy
+    private DirectorioShards directorio = new DirectorioShards();
+
+    // GMF inactivo, como en la configuracion por defecto
+    @Spy
+    private MotorGmf motorGmf = new MotorGmf();
+
     @InjectMocks
     private TransaccionServiceImp transaccionServiceImp;
 
@@ -43,11 +62,11 @@ public class TransaccionServiceImpTest {
     void testRealizarDepositoExitoso() {
 
         Long cuentaDestinoId = 1L;
-        BigDecimal monto = new BigDecimal("100.00");
+        Money monto = Money.parse("100.00");
 
         Productos cuentaDestino = new Productos();
         cuentaDestino.setId(cuentaDestinoId);
-        cuentaDestino.setSaldo(new BigDecimal("600.00"));
+        cuentaDestino.setSaldo(Money.parse("600.00"));
 
         Transaccion transaccionEsperada = new Transaccion();
         transaccionEsperada.setCuentaOrigen(null);
@@ -57,7 +76,7 @@ public class TransaccionServiceImpTest {
         transaccionEsperada.setFechaHoraTransaccion(null);
 
 
-        when(productosRepository.findById(cuentaDestinoId)).thenReturn(Optional.of(cuentaDestino));
+        when(productosRepository.findByIdParaActualizar(cuentaDestinoId)).thenReturn(Optional.of(cuentaDestino));
         when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(invocation -> {
             Transaccion transaccion = invocation.getArgument(0);
             transaccion.setFechaHoraTransaccion(LocalDateTime.now());
@@ -68,7 +87,7 @@ public class TransaccionServiceImpTest {
         assertEquals(cuentaDestinoId, resultado.getCuentaDestino().getId());
         assertEquals(monto, resultado.getMonto());
         assertEquals("DEPOSITO", resultado.getTipo());
-        assertEquals(new BigDecimal("700.00"), resultado.getCuentaDestino().getSaldo()); // saldo esperado después del depósito
+        assertEquals(Money.parse("700.00"), resultado.getCuentaDestino().getSaldo()); // saldo esperado después del depósito
 
 
         verify(transaccionRepository).save(argThat(transaccion ->
@@ -84,7 +103,7 @@ public class TransaccionServiceImpTest {
     @Test
     void testRealizarDepositoMontoNegativo() {
         Long cuentaDestinoId = 1L;
-        BigDecimal monto = new BigDecimal("-100.00");
+        Money monto = Money.parse("-100.00");
         assertThrows(IllegalArgumentException.class, () -> {
             transaccionServiceImp.realizarDeposito(cuentaDestinoId, monto);
         });
@@ -95,8 +114,8 @@ public class TransaccionServiceImpTest {
     void testRealizarDepositoCuentaNoEncontrada() {
         // Arrange
         Long cuentaDestinoId = 1L;
-        BigDecimal monto = new BigDecimal("100.00");
-        when(productosRepository.findById(cuentaDestinoId)).thenReturn(Optional.empty());
+        Money monto = Money.parse("100.00");
+        when(productosRepository.findByIdParaActualizar(cuentaDestinoId)).thenReturn(Optional.empty());
         assertThrows(IllegalArgumentException.class, () -> {
             transaccionServiceImp.realizarDeposito(cuentaDestinoId, monto);
         });
@@ -107,11 +126,11 @@ public class TransaccionServiceImpTest {
     void testRealizarRetiroExitoso() {
 
         Long cuentaOrigenId = 1L;
-        BigDecimal monto = new BigDecimal("100.00");
+        Money monto = Money.parse("100.00");
 
         Productos cuentaOrigen = new Productos();
         cuentaOrigen.setId(cuentaOrigenId);
-        cuentaOrigen.setSaldo(new BigDecimal("700.00"));
+        cuentaOrigen.setSaldo(Money.parse("700.00"));
 
         Transaccion transaccionEsperada = new Transaccion();
         transaccionEsperada.setCuentaOrigen(cuentaOrigen);
@@ -119,7 +138,7 @@ public class TransaccionServiceImpTest {
         transaccionEsperada.setMonto(monto);
         transaccionEsperada.setTipo("RETIRO");
         transaccionEsperada.setFechaHoraTransaccion(null);
-        when(productosRepository.findById(cuentaOrigenId)).thenReturn(Optional.of(cuentaOrigen));
+        when(productosRepository.findByIdParaActualizar(cuentaOrigenId)).thenReturn(Optional.of(cuentaOrigen));
         when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(invocation -> {
             Transaccion transaccion = invocation.getArgument(0);
             transaccion.setFechaHoraTransaccion(LocalDateTime.now());
@@ -131,7 +150,7 @@ public class TransaccionServiceImpTest {
         assertEquals(cuentaOrigenId, resultado.getCuentaOrigen().getId());
         assertEquals(monto, resultado.getMonto());
         assertEquals("RETIRO", resultado.getTipo());
-        assertEquals(new BigDecimal("600.00"), resultado.getCuentaOrigen().getSaldo());
+        assertEquals(Money.parse("600.00"), resultado.getCuentaOrigen().getSaldo());
 
 
         verify(transaccionRepository).save(argThat(transaccion ->
@@ -148,11 +167,11 @@ public class TransaccionServiceImpTest {
     void testRealizarRetiroSaldoInsuficiente() {
 
         Long cuentaOrigenId = 1L;
-        BigDecimal monto = new BigDecimal("100.00");
+        Money monto = Money.parse("100.00");
         Productos cuentaOrigen = new Productos();
         cuentaOrigen.setId(cuentaOrigenId);
-        cuentaOrigen.setSaldo(new BigDecimal("50.00"));
-        when(productosRepository.findById(cuentaOrigenId)).thenReturn(Optional.of(cuentaOrigen));
+        cuentaOrigen.setSaldo(Money.parse("50.00"));
+        when(productosRepository.findByIdParaActualizar(cuentaOrigenId)).thenReturn(Optional.of(cuentaOrigen));
 
         assertThrows(IllegalArgumentException.class, () -> {
             transaccionServiceImp.realizarRetiro(cuentaOrigenId, monto);
@@ -164,8 +183,8 @@ public class TransaccionServiceImpTest {
     void testRealizarRetiroCuentaNoEncontrada() {
 
         Long cuentaOrigenId = 1L;
-        BigDecimal monto = new BigDecimal("100.00");
-        when(productosRepository.findById(cuentaOrigenId)).thenReturn(Optional.empty());
+        Money monto = Money.parse("100.00");
+        when(productosRepository.findByIdParaActualizar(cuentaOrigenId)).thenReturn(Optional.empty());
         assertThrows(IllegalArgumentException.class, () -> {
             transaccionServiceImp.realizarRetiro(cuentaOrigenId, monto);
         });
@@ -177,15 +196,15 @@ public class TransaccionServiceImpTest {
 
         Long cuentaOrigenId = 1L;
         Long cuentaDestinoId = 2L;
-        BigDecimal monto = new BigDecimal("100.00");
+        Money monto = Money.parse("100.00");
 
         Productos cuentaOrigen = new Productos();
         cuentaOrigen.setId(cuentaOrigenId);
-        cuentaOrigen.setSaldo(new BigDecimal("700.00"));
+        cuentaOrigen.setSaldo(Money.parse("700.00"));
 
         Productos cuentaDestino = new Productos();
         cuentaDestino.setId(cuentaDestinoId);
-        cuentaDestino.setSaldo(new BigDecimal("300.00"));
+        cuentaDestino.setSaldo(Money.parse("300.00"));
         Transaccion transaccionEsperada = new Transaccion();
         transaccionEsperada.setCuentaOrigen(cuentaOrigen);
         transaccionEsperada.setCuentaDestino(cuentaDestino);
@@ -193,8 +212,8 @@ public class TransaccionServiceImpTest {
         transaccionEsperada.setTipo("TRANSFERENCIA");
         transaccionEsperada.setFechaHoraTransaccion(null);
 
-        when(productosRepository.findById(cuentaOrigenId)).thenReturn(Optional.of(cuentaOrigen));
-        when(productosRepository.findById(cuentaDestinoId)).thenReturn(Optional.of(cuentaDestino));
+        when(productosRepository.findByIdParaActualizar(cuentaOrigenId)).thenReturn(Optional.of(cuentaOrigen));
+        when(productosRepository.findByIdParaActualizar(cuentaDestinoId)).thenReturn(Optional.of(cuentaDestino));
         when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(invocation -> {
             Transaccion transaccion = invocation.getArgument(0);
             transaccion.setFechaHoraTransaccion(LocalDateTime.now());
@@ -213,8 +232,8 @@ public class TransaccionServiceImpTest {
         assertEquals(cuentaDestinoId, resultado.getCuentaDestino().getId());
         assertEquals(monto, resultado.getMonto());
         assertEquals("TRANSFERENCIA", resultado.getTipo());
-        assertEquals(new BigDecimal("600.00"), resultado.getCuentaOrigen().getSaldo());
-        assertEquals(new BigDecimal("400.00"), resultado.getCuentaDestino().getSaldo());
+        assertEquals(Money.parse("600.00"), resultado.getCuentaOrigen().getSaldo());
+        assertEquals(Money.parse("400.00"), resultado.getCuentaDestino().getSaldo());
 
         verify(transaccionRepository).save(argThat(transaccion ->
                 transaccion.getTipo().equals("TRANSFERENCIA") &&
@@ -233,19 +252,19 @@ public class TransaccionServiceImpTest {
 
         Long cuentaOrigenId = 1L;
         Long cuentaDestinoId = 2L;
-        BigDecimal monto = new BigDecimal("100.00");
+        Money monto = Money.parse("100.00");
 
         Productos cuentaOrigen = new Productos();
         cuentaOrigen.setId(cuentaOrigenId);
-        cuentaOrigen.setSaldo(new BigDecimal("50.00"));
+        cuentaOrigen.setSaldo(Money.parse("50.00"));
 
         Productos cuentaDestino = new Productos();
         cuentaDestino.setId(cuentaDestinoId);
-        cuentaDestino.setSaldo(new BigDecimal("300.00"));
+        cuentaDestino.setSaldo(Money.parse("300.00"));
 
 
-        when(productosRepository.findById(cuentaOrigenId)).thenReturn(Optional.of(cuentaOrigen));
-        when(productosRepository.findById(cuentaDestinoId)).thenReturn(Optional.of(cuentaDestino));
+        when(productosRepository.findByIdParaActualizar(cuentaOrigenId)).thenReturn(Optional.of(cuentaOrigen));
+        when(productosRepository.findByIdParaActualizar(cuentaDestinoId)).thenReturn(Optional.of(cuentaDestino));
 
 
         assertThrows(IllegalArgumentException.class, () -> {
@@ -259,19 +278,69 @@ public class TransaccionServiceImpTest {
 
         Long cuentaOrigenId = 1L;
         Long cuentaDestinoId = 2L;
-        BigDecimal monto = new BigDecimal("100.00");
+        Money monto = Money.parse("100.00");
 
         Productos cuentaOrigen = new Productos();
         cuentaOrigen.setId(cuentaOrigenId);
-        cuentaOrigen.setSaldo(new BigDecimal("700.00"));
+        cuentaOrigen.setSaldo(Money.parse("700.00"));
 
-        when(productosRepository.findById(cuentaOrigenId)).thenReturn(Optional.of(cuentaOrigen));
-        when(productosRepository.findById(cuentaDestinoId)).thenReturn(Optional.empty());
+        when(productosRepository.findByIdParaActualizar(cuentaOrigenId)).thenReturn(Optional.of(cuentaOrigen));
+        when(productosRepository.findByIdParaActualizar(cuentaDestinoId)).thenReturn(Optional.empty());
 
         assertThrows(IllegalArgumentException.class, () -> {
             transaccionServiceImp.realizarTransaccion(cuentaOrigenId, cuentaDestinoId, monto);
         });
     }
 
+    @Test
+    void testRetiroConGmfEnLineaCobraElGravamen() {
+        ReflectionTestUtils.setField(motorGmf, "modo", MotorGmf.Modo.LINEA);
+        Productos cuentaOrigen = new Productos();
+        cuentaOrigen.setId(1L);
+        cuentaOrigen.setSaldo(Money.parse("1000.00"));
+        when(productosRepository.findByIdParaActualizar(1L)).thenReturn(Optional.of(cuentaOrigen));
+        when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Transaccion resultado = transaccionServiceImp.realizarRetiro(1L, Money.parse("500.00"));
+
+        assertEquals("RETIRO", resultado.getTipo());
+        assertEquals(Money.parse("498.00"), cuentaOrigen.getSaldo());
+        verify(transaccionRepository).save(argThat(transaccion -> MotorGmf.TIPO.equals(transaccion.getTipo())
+                && transaccion.getMonto().equals(Money.parse("2.00"))
+                && transaccion.getCuentaOrigen() == cuentaOrigen));
+    }
+
+    @Test
+    void testRetiroConGmfEnLineaExigeSaldoParaElGravamen() {
+        ReflectionTestUtils.setField(motorGmf, "modo", MotorGmf.Modo.LINEA);
+        Productos cuentaOrigen = new Productos();
+        cuentaOrigen.setId(1L);
+        cuentaOrigen.setSaldo(Money.parse("500.00"));
+        when(productosRepository.findByIdParaActualizar(1L)).thenReturn(Optional.of(cuentaOrigen));
+
+        assertThrows(InsufficientBalanceException.class,
+                () -> transaccionServiceImp.realizarRetiro(1L, Money.parse("500.00")));
+        assertEquals(Money.parse("500.00"), cuentaOrigen.getSaldo());
+    }
+
+    @Test
+    void testTransferenciaDesdeCuentaExentaNoCobraGmf() {
+        ReflectionTestUtils.setField(motorGmf, "modo", MotorGmf.Modo.LINEA);
+        Productos cuentaOrigen = new Productos();
+        cuentaOrigen.setId(1L);
+        cuentaOrigen.setSaldo(Money.parse("500.00"));
+        cuentaOrigen.setExentaGmf(true);
+        Productos cuentaDestino = new Productos();
+        cuentaDestino.setId(2L);
+        cuentaDestino.setSaldo(Money.parse("0.00"));
+        when(productosRepository.findByIdParaActualizar(1L)).thenReturn(Optional.of(cuentaOrigen));
+        when(productosRepository.findByIdParaActualizar(2L)).thenReturn(Optional.of(cuentaDestino));
+        when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
+        transaccionServiceImp.realizarTransaccion(1L, 2L, Money.parse("500.00"));
+
+        assertEquals(Money.ZERO, cuentaOrigen.getSaldo());
+        assertEquals(Money.parse("500.00"), cuentaDestino.getSaldo());
+        verify(transaccionRepository).save(any(Transaccion.class));
+    }
 }